@@ -38,6 +38,7 @@ import org.openmrs.module.fhir2.api.spi.ModuleLifecycleListener;
 import org.openmrs.module.fhir2.api.spi.ServiceClassLoader;
 import org.openmrs.module.fhir2.api.translators.FhirTranslator;
 import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
+import org.openmrs.module.fhir2.api.util.ParallelTranslation;
 import org.openmrs.module.fhir2.model.GroupMember;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
@@ -114,6 +115,7 @@ public class FhirActivator extends BaseModuleActivator implements ApplicationCon
 	public void stopped() {
 		lifecycleListeners.forEach(ModuleLifecycleListener::stopped);
 		unloadModules();
+		ParallelTranslation.shutdown();
 		
 		globalPropertyHolder = null;
 		started = false;
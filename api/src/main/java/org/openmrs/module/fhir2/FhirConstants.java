@@ -129,6 +129,52 @@ public final class FhirConstants {
 	
 	public static final String OPENMRS_FHIR_MAXIMUM_PAGE_SIZE = "fhir2.paging.maximum";
 	
+	public static final String OPENMRS_FHIR_KEYSET_PAGING_ENABLED = "fhir2.paging.keysetEnabled";
+	
+	public static final String OPENMRS_FHIR_PAGING_DEFAULT_TOTAL = "fhir2.paging.defaultTotal";
+	
+	public static final String OPENMRS_FHIR_PAGING_STORE = "fhir2.paging.store";
+	
+	public static final String OPENMRS_FHIR_PAGING_STORE_DIRECTORY = "fhir2.paging.storeDirectory";
+	
+	public static final String OPENMRS_FHIR_PAGING_STORE_SIZE = "fhir2.paging.storeSize";
+	
+	public static final String OPENMRS_FHIR_PAGING_STORE_TIME_TO_LIVE = "fhir2.paging.storeTimeToLive";
+	
+	public static final String OPENMRS_FHIR_EXPORT_MAX_THREADS = "fhir2.export.maxThreads";
+	
+	public static final String OPENMRS_FHIR_EXPORT_CHUNK_SIZE = "fhir2.export.chunkSize";
+	
+	public static final String OPENMRS_FHIR_CACHE_CONTROL = "fhir2.cacheControl";
+	
+	public static final String OPENMRS_FHIR_NARRATIVE_CACHE_SIZE = "fhir2.narrativeCacheSize";
+	
+	public static final String OPENMRS_FHIR_CONCEPT_CACHE_SIZE = "fhir2.conceptCacheSize";
+	
+	public static final String OPENMRS_FHIR_SUPPRESS_SEARCH_NARRATIVES = "fhir2.suppressSearchNarratives";
+	
+	public static final String OPENMRS_FHIR_NAME_INDEX_ENABLED = "fhir2.nameIndex.enabled";
+	
+	public static final String OPENMRS_FHIR_NAME_INDEX_SUBSTRINGS = "fhir2.nameIndex.substrings";
+	
+	public static final String OPENMRS_FHIR_REQUEST_METRICS_ENABLED = "fhir2.requestMetrics.enabled";
+	
+	public static final String OPENMRS_FHIR_REQUEST_METRICS_HEADERS = "fhir2.requestMetrics.headers";
+	
+	public static final String OPENMRS_FHIR_PARALLEL_TRANSLATION_ENABLED = "fhir2.parallelTranslation.enabled";
+	
+	public static final String OPENMRS_FHIR_PARALLEL_TRANSLATION_POOL_SIZE = "fhir2.parallelTranslation.poolSize";
+	
+	public static final String OPENMRS_FHIR_PARALLEL_TRANSLATION_THRESHOLD = "fhir2.parallelTranslation.threshold";
+	
+	public static final String OPENMRS_FHIR_TASK_SEARCH_MAX_WAIT = "fhir2.taskSearchMaxWait";
+	
+	public static final String OPENMRS_FHIR_STREAMING_SEARCH_THRESHOLD = "fhir2.streamingSearchThreshold";
+	
+	public static final String OPENMRS_FHIR_MAXIMUM_REVERSE_INCLUDES = "fhir2.maximumReverseIncludes";
+	
+	public static final String NARRATIVE_HEADER = "X-FHIR-Narrative";
+	
 	public static final String ALLERGY_INTOLERANCE = "AllergyIntolerance";
 	
 	public static final String CONDITION = "Condition";
@@ -137,6 +183,8 @@ public final class FhirConstants {
 	
 	public static final String ENCOUNTER = "Encounter";
 	
+	public static final String EPISODE_OF_CARE = "EpisodeOfCare";
+	
 	public static final String IDENTIFIER = "Identifier";
 	
 	public static final String IMMUNIZATION = "Immunization";
@@ -377,8 +425,12 @@ public final class FhirConstants {
 	
 	public static final String EXACT_TOTAL_SEARCH_PARAMETER = "_exactTotal";
 	
+	public static final String SINCE_SEARCH_PARAMETER = "_since";
+	
 	public static final String COUNT_QUERY_CACHE = "countQueryCache";
 	
+	public static final String COUNT_ESTIMATE_CACHE = "fhir2SearchCountEstimates";
+	
 	public static final String INCLUDE_MEMBER_PARAM = "member";
 	
 	public static final String CONDITION_CATEGORY_SYSTEM_URI = HL7_FHIR_CODE_SYSTEM_PREFIX + "/condition-category";
@@ -0,0 +1,56 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+import javax.annotation.Nonnull;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Date;
+
+import org.openmrs.module.fhir2.api.export.BulkExportJob;
+
+public interface FhirBulkExportService extends FhirHelperService {
+	
+	/**
+	 * Starts a Bulk Data export in the background
+	 *
+	 * @param level whether all resources, all patient compartments or the compartments of a group's
+	 *            members are exported
+	 * @param groupId the uuid of the group, required for {@link BulkExportJob.Level#GROUP} exports
+	 * @param resourceTypes the resource types to export, all supported types if empty
+	 * @param since if not {@code null}, only resources updated at or after this time are exported
+	 * @param request the kick-off request url, reported in the completion manifest
+	 * @return the newly started job
+	 */
+	BulkExportJob startExport(@Nonnull BulkExportJob.Level level, String groupId, Collection<String> resourceTypes,
+	        Date since, String request);
+	
+	/**
+	 * @param jobId the id of the job
+	 * @return the job or {@code null} if there is no such job visible to the current user
+	 */
+	BulkExportJob getExport(@Nonnull String jobId);
+	
+	/**
+	 * Stops a running job and deletes any files it has written
+	 *
+	 * @param jobId the id of the job
+	 * @return {@code true} if the job existed
+	 */
+	boolean cancelExport(@Nonnull String jobId);
+	
+	/**
+	 * @param jobId the id of a completed job
+	 * @param fileName the name of one of the job's output files
+	 * @return the file or {@code null} if the job has no such output
+	 */
+	File getExportFile(@Nonnull String jobId, @Nonnull String fileName);
+}
@@ -19,6 +19,8 @@ public interface FhirGlobalPropertyService extends FhirHelperService {
 	
 	int getGlobalPropertyAsInteger(String property, int defaultValue);
 	
+	boolean getGlobalPropertyAsBoolean(String property, boolean defaultValue);
+	
 	String getGlobalProperty(String property, String defaultValue);
 	
 	Map<String, String> getGlobalProperties(String... properties);
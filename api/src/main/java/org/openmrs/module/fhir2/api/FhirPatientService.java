@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
@@ -40,4 +41,14 @@ public interface FhirPatientService extends FhirService<Patient> {
 	IBundleProvider getPatientEverything(TokenParam identifier);
 	
 	IBundleProvider getPatientEverything();
+	
+	/**
+	 * Implements the $everything operation
+	 *
+	 * @param identifier the patient to fetch everything for or {@code null} to fetch everything for all
+	 *            patients
+	 * @param since if not {@code null}, only resources updated at or after this time are returned
+	 * @return a bundle of resources which reference to or are referenced from the patient(s)
+	 */
+	IBundleProvider getPatientEverything(TokenParam identifier, Date since);
 }
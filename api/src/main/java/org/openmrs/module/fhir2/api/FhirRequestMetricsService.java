@@ -0,0 +1,61 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+import java.util.function.LongSupplier;
+
+import org.hl7.fhir.r4.model.Parameters;
+import org.openmrs.module.fhir2.api.util.RequestMetrics;
+
+/**
+ * Records per-request performance metrics (see {@link RequestMetrics}) and aggregates them into
+ * histograms per resource type and operation.
+ */
+public interface FhirRequestMetricsService extends FhirHelperService {
+	
+	/**
+	 * Starts recording metrics for the request handled by the current thread, including the number of
+	 * SQL statements prepared by the current Hibernate session
+	 *
+	 * @return the metrics for the request
+	 */
+	RequestMetrics startRequest();
+	
+	/**
+	 * Stops recording metrics for the request handled by the current thread and adds them to the
+	 * aggregated metrics
+	 *
+	 * @param resourceType the resource type of the request, if any
+	 * @param operation the operation performed by the request, e.g., {@code search-type}
+	 */
+	void completeRequest(String resourceType, String operation);
+	
+	/**
+	 * Adds the hits and misses of a cache to the metrics returned by {@link #getRequestMetrics()}.
+	 * Registering a cache again under the same name has no effect.
+	 *
+	 * @param name the name the cache is reported under
+	 * @param hits supplies the number of lookups that found a value since the cache was created
+	 * @param misses supplies the number of lookups that did not find a value since the cache was
+	 *            created
+	 */
+	void registerCacheStatistics(String name, LongSupplier hits, LongSupplier misses);
+	
+	/**
+	 * @return the aggregated metrics of all completed requests and the hits and misses of the
+	 *         registered caches since the metrics were last reset
+	 */
+	Parameters getRequestMetrics();
+	
+	/**
+	 * Discards the aggregated metrics
+	 */
+	void resetRequestMetrics();
+}
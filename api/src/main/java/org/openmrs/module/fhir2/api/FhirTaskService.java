@@ -24,4 +24,17 @@ public interface FhirTaskService extends FhirService<Task> {
 	 * @return the collection of Tasks that match the search parameters
 	 */
 	IBundleProvider searchForTasks(TaskSearchParams taskSearchParams);
+	
+	/**
+	 * Get collection of tasks corresponding to the provided search parameters. If no tasks match, this
+	 * waits until a task is created or updated on this server and searches again, until tasks match or
+	 * the wait time passes. The wait time is limited by
+	 * {@link org.openmrs.module.fhir2.FhirConstants#OPENMRS_FHIR_TASK_SEARCH_MAX_WAIT}.
+	 *
+	 * @param taskSearchParams the search parameters
+	 * @param waitSeconds the longest time to wait for a matching task, in seconds
+	 * @return the collection of Tasks that match the search parameters, which is empty if none matched
+	 *         before the wait time passed
+	 */
+	IBundleProvider searchForTasks(TaskSearchParams taskSearchParams, int waitSeconds);
 }
@@ -0,0 +1,35 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api;
+
+import javax.annotation.Nonnull;
+
+import org.hl7.fhir.r4.model.Bundle;
+
+public interface FhirTransactionService extends FhirHelperService {
+	
+	/**
+	 * Processes a {@code transaction} Bundle. All entries are processed in a single database
+	 * transaction, so either every entry succeeds or none of them does.
+	 *
+	 * @param bundle the Bundle to process
+	 * @return the {@code transaction-response} Bundle
+	 */
+	Bundle processTransaction(@Nonnull Bundle bundle);
+	
+	/**
+	 * Processes a {@code batch} Bundle. Each entry is processed independently and failed entries are
+	 * reported in the response without affecting the other entries.
+	 *
+	 * @param bundle the Bundle to process
+	 * @return the {@code batch-response} Bundle
+	 */
+	Bundle processBatch(@Nonnull Bundle bundle);
+}
@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Allergy;
@@ -25,6 +26,10 @@ public interface FhirAllergyIntoleranceDao extends FhirDao<Allergy> {
 	@Authorized(PrivilegeConstants.GET_ALLERGIES)
 	Allergy get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_ALLERGIES)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_ALLERGIES)
 	List<Allergy> get(@Nonnull Collection<String> uuids);
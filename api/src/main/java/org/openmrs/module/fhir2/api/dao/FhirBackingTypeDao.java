@@ -0,0 +1,36 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao;
+
+import javax.annotation.Nonnull;
+
+import java.util.Optional;
+
+import org.openmrs.OpenmrsObject;
+
+/**
+ * Resolves which OpenMRS type backs a FHIR resource that may be stored in either of two tables, e.g.,
+ * an Encounter that may be either an {@link org.openmrs.Encounter} or a {@link org.openmrs.Visit}.
+ * This allows services to fetch the object from the right table rather than trying each in turn.
+ */
+public interface FhirBackingTypeDao extends FhirDaoAop {
+	
+	/**
+	 * Determines which of two types has an object with the given uuid, using a single query across
+	 * both tables. Resolved types are cached, as an object's uuid does not move between tables.
+	 *
+	 * @param uuid the uuid of the object
+	 * @param firstType the first type that may have an object with the uuid
+	 * @param secondType the second type that may have an object with the uuid
+	 * @return the type that has an object with the uuid, or an empty optional if neither type does
+	 */
+	Optional<Class<? extends OpenmrsObject>> getBackingType(@Nonnull String uuid,
+	        @Nonnull Class<? extends OpenmrsObject> firstType, @Nonnull Class<? extends OpenmrsObject> secondType);
+}
@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,6 +33,10 @@ public interface FhirConceptDao extends FhirDao<Concept> {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	Concept get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	List<Concept> get(@Nonnull Collection<String> uuids);
@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Condition;
@@ -25,6 +26,10 @@ public interface FhirConditionDao extends FhirDao<Condition> {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	Condition get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	List<Condition> get(@Nonnull Collection<String> uuids);
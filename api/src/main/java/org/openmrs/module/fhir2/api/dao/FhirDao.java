@@ -13,6 +13,7 @@ import javax.annotation.Nonnull;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Auditable;
@@ -51,6 +52,18 @@ public interface FhirDao<T extends OpenmrsObject & Auditable> extends FhirDaoAop
 	 */
 	T get(@Nonnull String uuid);
 	
+	/**
+	 * Fetches only the date the object of type {@link T} matching the supplied UUID was last updated,
+	 * without loading the object itself. This is used to answer conditional reads.
+	 *
+	 * @param uuid The UUID of the object
+	 * @return The date the object was last changed or, if it has never been changed, created. Returns
+	 *         {@code null} if no such active object exists or the date cannot be determined.
+	 */
+	default Date getLastUpdated(@Nonnull String uuid) {
+		return null;
+	}
+	
 	/**
 	 * Fetches one or more objects of type {@link T} by UUIDs <br/>
 	 * Each UUID supplied to this function should be unique <br/>
@@ -81,4 +94,27 @@ public interface FhirDao<T extends OpenmrsObject & Auditable> extends FhirDaoAop
 	 */
 	int getSearchResultsCount(@Nonnull SearchParameterMap theParams);
 	
+	/**
+	 * Gets an estimate of the count of objects that will match a search run with the supplied
+	 * {@link SearchParameterMap}. Implementations may return a recent count of the same search instead
+	 * of running the count again; the default implementation simply counts the results.
+	 *
+	 * @param theParams A {@link SearchParameterMap} defining any filters to apply
+	 * @return The approximate number of objects matching the supplied {@link SearchParameterMap}
+	 */
+	default int getSearchResultsCountEstimate(@Nonnull SearchParameterMap theParams) {
+		return getSearchResultsCount(theParams);
+	}
+	
+	/**
+	 * Loads, using the current session, the lazy associations of the supplied search results that are
+	 * needed to translate them to FHIR resources, so that they can then be translated on other threads
+	 * without using the session. Implementations may detach the results from the session afterwards.
+	 * The default implementation does nothing.
+	 *
+	 * @param results the search results to initialize
+	 */
+	default void initializeForTranslation(@Nonnull List<T> results) {
+	}
+	
 }
@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Diagnosis;
@@ -25,6 +26,10 @@ public interface FhirDiagnosisDao extends FhirDao<Diagnosis> {
 	@Authorized(PrivilegeConstants.GET_DIAGNOSES)
 	Diagnosis get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_DIAGNOSES)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_DIAGNOSES)
 	List<Diagnosis> get(@Nonnull Collection<String> uuids);
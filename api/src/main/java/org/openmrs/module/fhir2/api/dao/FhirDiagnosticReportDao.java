@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.annotation.Authorized;
@@ -25,6 +26,10 @@ public interface FhirDiagnosticReportDao extends FhirDao<FhirDiagnosticReport> {
 	@Authorized(PrivilegeConstants.GET_OBS)
 	FhirDiagnosticReport get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_OBS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_OBS)
 	List<FhirDiagnosticReport> get(@Nonnull Collection<String> uuids);
@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.PatientProgram;
@@ -25,6 +26,10 @@ public interface FhirEpisodeOfCareDao extends FhirDao<PatientProgram> {
 	@Authorized(PrivilegeConstants.GET_PATIENT_PROGRAMS)
 	PatientProgram get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_PATIENT_PROGRAMS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_PATIENT_PROGRAMS)
 	List<PatientProgram> get(@Nonnull Collection<String> uuids);
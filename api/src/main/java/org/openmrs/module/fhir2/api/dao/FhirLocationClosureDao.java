@@ -0,0 +1,48 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao;
+
+import javax.annotation.Nonnull;
+
+import org.openmrs.Location;
+import org.openmrs.annotation.Authorized;
+import org.openmrs.util.PrivilegeConstants;
+
+/**
+ * Maintains the location hierarchy closure table, see
+ * {@link org.openmrs.module.fhir2.model.FhirLocationClosure}
+ */
+public interface FhirLocationClosureDao extends FhirDaoAop {
+	
+	/**
+	 * @param locationUuid the uuid of the location to check
+	 * @return {@code true} if the location and every location below it are recorded in the closure
+	 *         table with their current parent locations
+	 */
+	@Authorized(PrivilegeConstants.GET_LOCATIONS)
+	boolean isIndexedBelow(@Nonnull String locationUuid);
+	
+	/**
+	 * @param locationUuid the uuid of the location to check
+	 * @return {@code true} if the location and every location above it are recorded in the closure
+	 *         table with their current parent locations
+	 */
+	@Authorized(PrivilegeConstants.GET_LOCATIONS)
+	boolean isIndexedAbove(@Nonnull String locationUuid);
+	
+	/**
+	 * Records the current position of the location in the hierarchy, moving the whole subtree rooted
+	 * at the location if its parent has changed
+	 *
+	 * @param location the location that was created or updated
+	 */
+	@Authorized(PrivilegeConstants.MANAGE_LOCATIONS)
+	void updateLocation(@Nonnull Location location);
+}
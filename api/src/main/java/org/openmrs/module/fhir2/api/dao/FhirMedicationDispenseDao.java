@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Auditable;
@@ -26,6 +27,10 @@ public interface FhirMedicationDispenseDao<T extends OpenmrsObject & Auditable>
 	@Authorized(PrivilegeConstants.GET_MEDICATION_DISPENSE)
 	T get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_MEDICATION_DISPENSE)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_MEDICATION_DISPENSE)
 	List<T> get(@Nonnull Collection<String> uuids);
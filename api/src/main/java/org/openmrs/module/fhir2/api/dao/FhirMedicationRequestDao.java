@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.DrugOrder;
@@ -25,6 +26,10 @@ public interface FhirMedicationRequestDao extends FhirDao<DrugOrder> {
 	@Authorized(PrivilegeConstants.GET_ORDERS)
 	DrugOrder get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_ORDERS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_ORDERS)
 	List<DrugOrder> get(@Nonnull Collection<String> uuids);
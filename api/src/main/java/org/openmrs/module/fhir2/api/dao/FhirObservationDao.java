@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Obs;
@@ -25,6 +26,10 @@ public interface FhirObservationDao extends FhirDao<Obs> {
 	@Authorized(PrivilegeConstants.GET_OBS)
 	Obs get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_OBS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_OBS)
 	List<Obs> get(@Nonnull Collection<String> uuids);
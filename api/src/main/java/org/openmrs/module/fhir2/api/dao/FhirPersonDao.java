@@ -12,7 +12,9 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.openmrs.Person;
 import org.openmrs.PersonAttribute;
@@ -26,6 +28,10 @@ public interface FhirPersonDao extends FhirDao<Person> {
 	@Authorized(PrivilegeConstants.GET_PERSONS)
 	Person get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_PERSONS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_PERSONS)
 	List<Person> get(@Nonnull Collection<String> uuids);
@@ -34,6 +40,18 @@ public interface FhirPersonDao extends FhirDao<Person> {
 	List<PersonAttribute> getActiveAttributesByPersonAndAttributeTypeUuid(@Nonnull Person person,
 	        @Nonnull String personAttributeTypeUuid);
 	
+	/**
+	 * Fetches the active attributes of the given type for several persons in a single query
+	 *
+	 * @param persons the persons to fetch attributes for
+	 * @param personAttributeTypeUuid the uuid of the attribute type
+	 * @return the matching attributes keyed by person id; persons without any such attributes are not
+	 *         included
+	 */
+	@Authorized(PrivilegeConstants.GET_PERSONS)
+	Map<Integer, List<PersonAttribute>> getActiveAttributesByPersonsAndAttributeTypeUuid(
+	        @Nonnull Collection<? extends Person> persons, @Nonnull String personAttributeTypeUuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_PERSONS)
 	List<Person> getSearchResults(@Nonnull SearchParameterMap theParams);
@@ -0,0 +1,39 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao;
+
+import javax.annotation.Nonnull;
+
+import org.openmrs.Person;
+
+/**
+ * Maintains the FHIR person name index, see {@link org.openmrs.module.fhir2.model.FhirPersonNameToken}
+ */
+public interface FhirPersonNameIndexDao extends FhirDaoAop {
+	
+	/**
+	 * Replaces the indexed names of the person with its current non-voided names
+	 *
+	 * @param person the person that was created or updated
+	 */
+	void updatePerson(@Nonnull Person person);
+	
+	/**
+	 * Indexes the names of a batch of persons, in order of their person id. This is used to fill the
+	 * index for persons that were created before the index existed.
+	 *
+	 * @param afterPersonId the id of the last person that was indexed by the previous batch, or
+	 *            {@code null} to start with the first person
+	 * @param batchSize the maximum number of persons to index
+	 * @return the id of the last person indexed in this batch or {@code null} if there were no persons
+	 *         left to index
+	 */
+	Integer indexPersons(Integer afterPersonId, int batchSize);
+}
@@ -12,7 +12,9 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.openmrs.Provider;
 import org.openmrs.ProviderAttribute;
@@ -26,6 +28,10 @@ public interface FhirPractitionerDao extends FhirDao<Provider> {
 	@Authorized(PrivilegeConstants.GET_PROVIDERS)
 	Provider get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_PROVIDERS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_PROVIDERS)
 	List<Provider> get(@Nonnull Collection<String> uuids);
@@ -34,6 +40,18 @@ public interface FhirPractitionerDao extends FhirDao<Provider> {
 	List<ProviderAttribute> getActiveAttributesByPractitionerAndAttributeTypeUuid(@Nonnull Provider provider,
 	        @Nonnull String providerAttributeTypeUuid);
 	
+	/**
+	 * Fetches the active attributes of the given type for several providers in a single query
+	 *
+	 * @param providers the providers to fetch attributes for
+	 * @param providerAttributeTypeUuid the uuid of the attribute type
+	 * @return the matching attributes keyed by provider id; providers without any such attributes are
+	 *         not included
+	 */
+	@Authorized(PrivilegeConstants.GET_PROVIDERS)
+	Map<Integer, List<ProviderAttribute>> getActiveAttributesByPractitionersAndAttributeTypeUuid(
+	        @Nonnull Collection<Provider> providers, @Nonnull String providerAttributeTypeUuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_PROVIDERS)
 	List<Provider> getSearchResults(@Nonnull SearchParameterMap theParams);
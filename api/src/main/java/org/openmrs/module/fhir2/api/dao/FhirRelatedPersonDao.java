@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Relationship;
@@ -25,6 +26,10 @@ public interface FhirRelatedPersonDao extends FhirDao<Relationship> {
 	@Authorized(value = { PrivilegeConstants.GET_PERSONS, PrivilegeConstants.GET_RELATIONSHIPS }, requireAll = true)
 	Relationship get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(value = { PrivilegeConstants.GET_PERSONS, PrivilegeConstants.GET_RELATIONSHIPS }, requireAll = true)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(value = { PrivilegeConstants.GET_PERSONS, PrivilegeConstants.GET_RELATIONSHIPS }, requireAll = true)
 	List<Relationship> get(@Nonnull Collection<String> uuids);
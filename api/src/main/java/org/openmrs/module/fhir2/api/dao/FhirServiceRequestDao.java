@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Auditable;
@@ -26,6 +27,10 @@ public interface FhirServiceRequestDao<T extends OpenmrsObject & Auditable> exte
 	@Authorized(PrivilegeConstants.GET_ORDERS)
 	T get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_ORDERS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_ORDERS)
 	List<T> get(@Nonnull Collection<String> uuids);
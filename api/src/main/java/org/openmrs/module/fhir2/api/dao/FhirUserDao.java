@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.User;
@@ -25,6 +26,10 @@ public interface FhirUserDao extends FhirDao<User> {
 	@Authorized(PrivilegeConstants.GET_USERS)
 	User get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_USERS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_USERS)
 	List<User> get(@Nonnull Collection<String> uuids);
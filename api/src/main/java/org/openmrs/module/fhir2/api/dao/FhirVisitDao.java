@@ -12,6 +12,7 @@ package org.openmrs.module.fhir2.api.dao;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Visit;
@@ -25,6 +26,10 @@ public interface FhirVisitDao extends FhirDao<Visit> {
 	@Authorized(PrivilegeConstants.GET_VISITS)
 	Visit get(@Nonnull String uuid);
 	
+	@Override
+	@Authorized(PrivilegeConstants.GET_VISITS)
+	Date getLastUpdated(@Nonnull String uuid);
+	
 	@Override
 	@Authorized(PrivilegeConstants.GET_VISITS)
 	List<Visit> get(@Nonnull Collection<String> uuids);
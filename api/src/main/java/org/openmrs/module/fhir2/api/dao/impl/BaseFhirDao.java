@@ -10,6 +10,7 @@
 package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.openmrs.module.fhir2.FhirConstants.COMMON_SEARCH_HANDLER;
+import static org.openmrs.module.fhir2.FhirConstants.COUNT_ESTIMATE_CACHE;
 import static org.openmrs.module.fhir2.FhirConstants.COUNT_QUERY_CACHE;
 import static org.openmrs.module.fhir2.FhirConstants.EXACT_TOTAL_SEARCH_PARAMETER;
 
@@ -25,24 +26,46 @@ import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.model.api.IQueryParameterAnd;
+import ca.uhn.fhir.model.api.IQueryParameterOr;
+import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import com.google.common.reflect.TypeToken;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
 import org.hl7.fhir.r4.model.DomainResource;
 import org.openmrs.Auditable;
 import org.openmrs.Obs;
@@ -58,9 +81,12 @@ import org.openmrs.module.fhir2.api.dao.FhirDao;
 import org.openmrs.module.fhir2.api.dao.internals.FhirSearchQueryHelper;
 import org.openmrs.module.fhir2.api.dao.internals.OpenmrsFhirCriteriaContext;
 import org.openmrs.module.fhir2.api.dao.internals.SortState;
+import org.openmrs.module.fhir2.api.search.param.KeysetCursor;
 import org.openmrs.module.fhir2.api.search.param.PropParam;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -77,6 +103,11 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends BaseDao implements FhirDao<T> {
 	
+	// parameters which do not change the number of results a search matches
+	private static final Set<String> COUNT_INDEPENDENT_PARAMETERS = new HashSet<>(
+	        Arrays.asList(FhirConstants.INCLUDE_SEARCH_HANDLER, FhirConstants.REVERSE_INCLUDE_SEARCH_HANDLER,
+	            EXACT_TOTAL_SEARCH_PARAMETER, FhirConstants.SINCE_SEARCH_PARAMETER));
+	
 	@SuppressWarnings("UnstableApiUsage")
 	protected final TypeToken<T> typeToken = new TypeToken<T>(getClass()) {};
 	
@@ -84,6 +115,9 @@ public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends B
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = { @Autowired })
 	private FhirSearchQueryHelper searchQueryHelper;
 	
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = { @Autowired(required = false) })
+	private CacheManager cacheManager;
+	
 	private final boolean isRetireable;
 	
 	private final boolean isVoidable;
@@ -169,8 +203,33 @@ public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends B
 		}
 	}
 	
+	@Override
+	@Transactional(readOnly = true)
+	public Date getLastUpdated(@Nonnull String uuid) {
+		@SuppressWarnings({ "UnstableApiUsage", "unchecked" })
+		OpenmrsFhirCriteriaContext<T, Date> criteriaContext = createCriteriaContext((Class<T>) typeToken.getRawType(),
+		    Date.class);
+		
+		criteriaContext.getCriteriaQuery().select(getLastUpdatedExpression(criteriaContext));
+		criteriaContext
+		        .addPredicate(criteriaContext.getCriteriaBuilder().equal(criteriaContext.getRoot().get("uuid"), uuid));
+		
+		if (isVoidable) {
+			handleVoidable(criteriaContext);
+		} else if (isRetireable) {
+			handleRetireable(criteriaContext);
+		}
+		
+		return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).setMaxResults(1)
+		        .getResultList().stream().findFirst().orElse(null);
+	}
+	
 	@Override
 	public List<T> getSearchResults(@Nonnull SearchParameterMap theParams) {
+		if (theParams.getKeysetCursor() != null) {
+			return getKeysetSearchResults(theParams);
+		}
+		
 		List<T> results;
 		
 		if (hasDistinctResults()) {
@@ -238,20 +297,128 @@ public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends B
 			}
 			
 			// Use the IDs to fetch full objects
-			// We still need to sort the wrapper query to maintain the order, as IN() doesn't guarantee order
-			@SuppressWarnings({ "UnstableApiUsage", "unchecked" })
-			OpenmrsFhirCriteriaContext<T, T> wrapperQuery = createCriteriaContext((Class<T>) typeToken.getRawType());
+			results = getResultsByIds(theParams, idProperty, ids);
+		}
+		
+		return results.stream().map(this::deproxyResult).collect(Collectors.toList());
+	}
+	
+	/**
+	 * Implements keyset (or "seek") pagination for {@link #getSearchResults(SearchParameterMap)}. This
+	 * is used when the {@link SearchParameterMap} carries a {@link KeysetCursor}. <br/>
+	 * Instead of skipping {@link SearchParameterMap#getFromIndex()} rows, the query is restricted to
+	 * rows that sort strictly after the values stored in the cursor, using the same sort orders as the
+	 * offset-based query (including the trailing id ordering which makes the ordering total). One extra
+	 * row is requested so that we can tell whether a further page exists without issuing a count query.
+	 * The cursor for the following page, if any, is stored in
+	 * {@link SearchParameterMap#setNextKeysetCursor(KeysetCursor)}. <br/>
+	 * If the cursor has no usable sort values, e.g., because this is the first page or one of the values
+	 * was {@code null}, the query falls back to using the cursor's offset.
+	 *
+	 * @param theParams the parameters for this search
+	 * @return the results for the page described by the cursor
+	 */
+	protected List<T> getKeysetSearchResults(@Nonnull SearchParameterMap theParams) {
+		KeysetCursor cursor = theParams.getKeysetCursor();
+		theParams.setNextKeysetCursor(null);
+		
+		@SuppressWarnings({ "UnstableApiUsage", "unchecked" })
+		OpenmrsFhirCriteriaContext<T, Object> criteriaContext = getSearchResultCriteria(
+		    createCriteriaContext((Class<T>) typeToken.getRawType(), Object.class), theParams);
+		
+		String idProperty = getIdPropertyName(criteriaContext.getEntityManager());
+		
+		handleSort(criteriaContext, theParams.getSortSpec());
+		handleIdPropertyOrdering(criteriaContext, idProperty);
+		
+		boolean seek = cursor.canSeek(criteriaContext.getOrders().size());
+		if (seek) {
+			criteriaContext.addPredicate(createSeekPredicate(criteriaContext, cursor.getValues()));
+		}
+		
+		TypedQuery<Object> executableIdQuery = criteriaContext.getEntityManager()
+		        .createQuery(criteriaContext.finalizeIdQuery(idProperty));
+		
+		if (!seek) {
+			executableIdQuery.setFirstResult(cursor.getOffset());
+		}
+		
+		int pageSize = Integer.MAX_VALUE;
+		if (theParams.getToIndex() != Integer.MAX_VALUE && theParams.getToIndex() >= 0) {
+			pageSize = Math.max(theParams.getToIndex() - theParams.getFromIndex(), 0);
+			executableIdQuery.setMaxResults(pageSize + 1);
+		}
+		
+		List<Object> rawResults = executableIdQuery.getResultList();
+		if (rawResults == null || rawResults.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		if (rawResults.size() > pageSize) {
+			rawResults = rawResults.subList(0, pageSize);
 			
-			handleSort(wrapperQuery, theParams.getSortSpec());
-			handleIdPropertyOrdering(wrapperQuery, idProperty);
+			if (!rawResults.isEmpty()) {
+				Object[] lastRow = (Object[]) rawResults.get(rawResults.size() - 1);
+				theParams.setNextKeysetCursor(cursor.next(Arrays.copyOfRange(lastRow, 1, lastRow.length), rawResults.size()));
+			}
+		}
+		
+		List<Integer> ids = new ArrayList<>(rawResults.size());
+		for (Object result : rawResults) {
+			ids.add((Integer) ((Object[]) result)[0]);
+		}
+		
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		return getResultsByIds(theParams, idProperty, ids).stream().map(this::deproxyResult).collect(Collectors.toList());
+	}
+	
+	/**
+	 * Builds the predicate that restricts a keyset query to rows that sort after the supplied values,
+	 * i.e. {@code (a > x) OR (a = x AND b > y) OR (a = x AND b = y AND c > z) ...}, flipping the
+	 * comparison for descending orders.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private <U> Predicate createSeekPredicate(@Nonnull OpenmrsFhirCriteriaContext<T, U> criteriaContext,
+	        @Nonnull List<Serializable> values) {
+		CriteriaBuilder cb = criteriaContext.getCriteriaBuilder();
+		List<javax.persistence.criteria.Order> orders = criteriaContext.getOrders();
+		
+		List<Predicate> disjunction = new ArrayList<>(orders.size());
+		for (int i = 0; i < orders.size(); i++) {
+			List<Predicate> conjunction = new ArrayList<>(i + 1);
+			for (int j = 0; j < i; j++) {
+				conjunction.add(cb.equal(orders.get(j).getExpression(), values.get(j)));
+			}
 			
-			wrapperQuery.getCriteriaQuery().select(wrapperQuery.getRoot());
+			Expression<Comparable> expression = (Expression<Comparable>) orders.get(i).getExpression();
+			Comparable value = (Comparable) values.get(i);
+			conjunction.add(orders.get(i).isAscending() ? cb.greaterThan(expression, value) : cb.lessThan(expression, value));
 			
-			results = wrapperQuery.getEntityManager().createQuery(wrapperQuery.finalizeWrapperQuery(idProperty, ids))
-			        .getResultList();
+			disjunction.add(cb.and(conjunction.toArray(new Predicate[0])));
 		}
 		
-		return results.stream().map(this::deproxyResult).collect(Collectors.toList());
+		return cb.or(disjunction.toArray(new Predicate[0]));
+	}
+	
+	/**
+	 * Fetches the full objects for a set of ids produced by the id query used for non-distinct and
+	 * keyset searches. The wrapper query is sorted in the same way as the id query, since {@code IN()}
+	 * doesn't guarantee any order.
+	 */
+	private List<T> getResultsByIds(@Nonnull SearchParameterMap theParams, String idProperty, List<Integer> ids) {
+		@SuppressWarnings({ "UnstableApiUsage", "unchecked" })
+		OpenmrsFhirCriteriaContext<T, T> wrapperQuery = createCriteriaContext((Class<T>) typeToken.getRawType());
+		
+		handleSort(wrapperQuery, theParams.getSortSpec());
+		handleIdPropertyOrdering(wrapperQuery, idProperty);
+		
+		wrapperQuery.getCriteriaQuery().select(wrapperQuery.getRoot());
+		
+		return wrapperQuery.getEntityManager().createQuery(wrapperQuery.finalizeWrapperQuery(idProperty, ids))
+		        .getResultList();
 	}
 	
 	@Override
@@ -272,6 +439,72 @@ public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends B
 		return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).getSingleResult().intValue();
 	}
 	
+	/**
+	 * Returns a recent count of the same search if one is cached, otherwise counts the results and
+	 * caches the count for subsequent estimates. Searches are considered the same if they have the same
+	 * parameters, ignoring those that only affect which related resources are returned.
+	 */
+	@Override
+	public int getSearchResultsCountEstimate(@Nonnull SearchParameterMap theParams) {
+		Cache cache = cacheManager != null ? cacheManager.getCache(COUNT_ESTIMATE_CACHE) : null;
+		if (cache == null) {
+			return getSearchResultsCount(theParams);
+		}
+		
+		// the key is built from the query tokens of the parameters, as the and/or list parameters have no toString()
+		Map<String, List<PropParam<?>>> parameters = new TreeMap<>();
+		for (Map.Entry<String, List<PropParam<?>>> parameter : theParams.getParameters()) {
+			if (!COUNT_INDEPENDENT_PARAMETERS.contains(parameter.getKey())) {
+				parameters.put(parameter.getKey(), parameter.getValue());
+			}
+		}
+		
+		StringBuilder key = new StringBuilder(getClass().getName());
+		for (Map.Entry<String, List<PropParam<?>>> parameter : parameters.entrySet()) {
+			key.append('|').append(parameter.getKey());
+			for (PropParam<?> propParam : parameter.getValue()) {
+				key.append(';').append(propParam.getPropertyName()).append('=');
+				appendQueryTokens(key, propParam.getParam());
+			}
+		}
+		
+		Integer estimate = cache.get(key.toString(), Integer.class);
+		if (estimate == null) {
+			estimate = getSearchResultsCount(theParams);
+			cache.put(key.toString(), estimate);
+		}
+		
+		return estimate;
+	}
+	
+	private static void appendQueryTokens(StringBuilder key, Object param) {
+		if (param instanceof IQueryParameterAnd) {
+			for (IQueryParameterOr<?> orParam : ((IQueryParameterAnd<?>) param).getValuesAsQueryTokens()) {
+				key.append('&');
+				appendQueryTokens(key, orParam);
+			}
+		} else if (param instanceof IQueryParameterOr) {
+			for (IQueryParameterType value : ((IQueryParameterOr<?>) param).getValuesAsQueryTokens()) {
+				key.append(',');
+				appendQueryTokens(key, value);
+			}
+		} else if (param instanceof IQueryParameterType) {
+			IQueryParameterType value = (IQueryParameterType) param;
+			if (value instanceof ReferenceParam) {
+				// the chain and resource type of a reference are not part of its qualifier
+				key.append(((ReferenceParam) value).getResourceType()).append('.')
+				        .append(((ReferenceParam) value).getChain());
+			}
+			
+			key.append(value.getQueryParameterQualifier()).append(':')
+			        .append(value.getValueAsQueryToken(FhirContext.forR4Cached()));
+		} else if (param instanceof Date) {
+			key.append(((Date) param).getTime());
+		} else {
+			key.append(param);
+		}
+	}
+	
 	protected <V, U> void applyExactTotal(@Nonnull OpenmrsFhirCriteriaContext<V, U> criteriaContext,
 	        SearchParameterMap theParams) {
 		List<PropParam<Boolean>> exactTotal = theParams.getParameters(EXACT_TOTAL_SEARCH_PARAMETER);
@@ -305,6 +538,117 @@ public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends B
 		return deproxyObject(result);
 	}
 	
+	/**
+	 * Loads the associations of the supplied results named by {@link #getTranslationFetchPlan()} and
+	 * then detaches the results, so that they can be translated without using the session. <br/>
+	 * The associations are loaded one property at a time: all collections reached through a property
+	 * are initialized, which uses the batch sizes configured in the mappings, and all uninitialized
+	 * proxies reached through a property are loaded with a single query per entity type. <br/>
+	 * The session is cleared afterwards, so that an association missing from the fetch plan throws a
+	 * {@link org.hibernate.LazyInitializationException} when it is read during the translation instead
+	 * of being loaded through this session from another thread.
+	 *
+	 * @param results the search results to initialize
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void initializeForTranslation(@Nonnull List<T> results) {
+		Session session = getSessionFactory().getCurrentSession();
+		
+		Set<Object> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (T result : results) {
+			entities.add(deproxyObject(result));
+		}
+		
+		initializeAssociations(session, entities, getTranslationFetchPlan());
+		
+		if (session.isDirty()) {
+			session.flush();
+		}
+		
+		session.clear();
+	}
+	
+	/**
+	 * Lists the associations {@link #initializeForTranslation(List)} loads for the results of this DAO.
+	 * Each association is given as a path of property names separated by dots, starting from the
+	 * results, e.g., {@code "concept.names"}. Properties that an entity does not have, e.g., the
+	 * identifiers of a person that is not a patient, are skipped. By default, no associations are
+	 * loaded.
+	 *
+	 * @return the paths of the associations needed to translate the results
+	 */
+	protected Collection<String> getTranslationFetchPlan() {
+		return Collections.emptyList();
+	}
+	
+	private void initializeAssociations(Session session, Collection<Object> entities, Collection<String> paths) {
+		MetamodelImplementor metamodel = (MetamodelImplementor) getSessionFactory().getMetamodel();
+		
+		// the remaining paths for each property, so that each property is only loaded once
+		Map<String, List<String>> pathsByProperty = new LinkedHashMap<>();
+		for (String path : paths) {
+			int separator = path.indexOf('.');
+			List<String> remainingPaths = pathsByProperty
+			        .computeIfAbsent(separator < 0 ? path : path.substring(0, separator), k -> new ArrayList<>());
+			if (separator >= 0) {
+				remainingPaths.add(path.substring(separator + 1));
+			}
+		}
+		
+		for (Map.Entry<String, List<String>> entry : pathsByProperty.entrySet()) {
+			Map<String, Set<Serializable>> uninitializedIds = new HashMap<>();
+			List<Object> uninitializedProxies = new ArrayList<>();
+			List<Object> associated = new ArrayList<>();
+			
+			for (Object entity : entities) {
+				EntityPersister persister = metamodel.entityPersisters().get(entity.getClass().getName());
+				Integer index = persister == null ? null
+				        : persister.getEntityMetamodel().getPropertyIndexOrNull(entry.getKey());
+				if (index == null) {
+					continue;
+				}
+				
+				Object value = persister.getPropertyValue(entity, index);
+				if (value instanceof HibernateProxy) {
+					LazyInitializer lazyInitializer = ((HibernateProxy) value).getHibernateLazyInitializer();
+					if (lazyInitializer.isUninitialized()) {
+						uninitializedIds.computeIfAbsent(lazyInitializer.getEntityName(), k -> new LinkedHashSet<>())
+						        .add(lazyInitializer.getIdentifier());
+						uninitializedProxies.add(value);
+					}
+					
+					associated.add(value);
+				} else if (value instanceof Map) {
+					Hibernate.initialize(value);
+					associated.addAll(((Map<?, ?>) value).values());
+				} else if (value instanceof Collection) {
+					Hibernate.initialize(value);
+					associated.addAll((Collection<?>) value);
+				} else if (value != null) {
+					associated.add(value);
+				}
+			}
+			
+			// the proxies are initialized from the entities loaded into the session by these queries
+			uninitializedIds
+			        .forEach((entityName, ids) -> session.byMultipleIds(entityName).multiLoad(new ArrayList<>(ids)));
+			uninitializedProxies.forEach(Hibernate::initialize);
+			
+			if (!entry.getValue().isEmpty()) {
+				Set<Object> associatedEntities = Collections.newSetFromMap(new IdentityHashMap<>());
+				for (Object value : associated) {
+					Object implementation = deproxyObject(value);
+					if (implementation != null) {
+						associatedEntities.add(implementation);
+					}
+				}
+				
+				initializeAssociations(session, associatedEntities, entry.getValue());
+			}
+		}
+	}
+	
 	/**
 	 * Gets the name of the property annotated as the {@link javax.persistence.Id} for the persistent
 	 * class this manages.
@@ -395,6 +739,24 @@ public abstract class BaseFhirDao<T extends OpenmrsObject & Auditable> extends B
 		// @formatter:on
 	}
 	
+	/**
+	 * Returns the expression for the date an object was last updated, i.e., the date it was changed or,
+	 * if it has never been changed, the date it was created. This should match the date used by
+	 * {@link org.openmrs.module.fhir2.api.translators.impl.FhirTranslatorUtils#getLastUpdated}.
+	 *
+	 * @param criteriaContext The {@link OpenmrsFhirCriteriaContext} for the current query
+	 * @return the expression for the last updated date
+	 */
+	protected <V, U> Expression<Date> getLastUpdatedExpression(
+	        @Nonnull OpenmrsFhirCriteriaContext<V, U> criteriaContext) {
+		if (isImmutable) {
+			return criteriaContext.getRoot().<Date> get("dateCreated");
+		}
+		
+		return criteriaContext.getCriteriaBuilder().coalesce(criteriaContext.getRoot().<Date> get("dateChanged"),
+		    criteriaContext.getRoot().<Date> get("dateCreated"));
+	}
+	
 	/**
 	 * This provides a default implementation for dealing with retireable objects. By default, retired
 	 * objects are excluded from searches, but not from get
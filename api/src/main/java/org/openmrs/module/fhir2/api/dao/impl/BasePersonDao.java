@@ -32,16 +32,21 @@ import java.util.List;
 import java.util.Map;
 
 import ca.uhn.fhir.rest.param.StringAndListParam;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
 import org.openmrs.Auditable;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.Patient;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
 import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameIndexDao;
 import org.openmrs.module.fhir2.api.dao.internals.OpenmrsFhirCriteriaContext;
 import org.openmrs.module.fhir2.api.dao.internals.OpenmrsFhirCriteriaSubquery;
 import org.openmrs.module.fhir2.api.dao.internals.SortState;
 import org.openmrs.module.fhir2.api.search.param.PropParam;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Base class for Person-related DAO objects. This helps standardise the logic used to search for
@@ -52,6 +57,20 @@ import org.openmrs.module.fhir2.api.search.param.PropParam;
  */
 public abstract class BasePersonDao<T extends OpenmrsObject & Auditable> extends BaseFhirDao<T> {
 	
+	@Getter(AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = { @Autowired })
+	private FhirPersonNameIndexDao personNameIndexDao;
+	
+	@Override
+	public T createOrUpdate(@Nonnull T object) {
+		T savedObject = super.createOrUpdate(object);
+		if (savedObject instanceof Person) {
+			personNameIndexDao.updatePerson((Person) savedObject);
+		}
+		
+		return savedObject;
+	}
+	
 	/**
 	 * This is intended to be overridden by subclasses to provide the {@link From} that defines the
 	 * Person for this object
@@ -0,0 +1,87 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import javax.annotation.Nonnull;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.SessionFactory;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+public class FhirBackingTypeDaoImpl implements FhirBackingTypeDao {
+	
+	private static final int CACHE_SIZE = 10000;
+	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod = @__({ @Autowired, @Qualifier("sessionFactory") }))
+	private SessionFactory sessionFactory;
+	
+	// uuids which were not found are not cached, as the object may be created later
+	private final Cache<String, Class<? extends OpenmrsObject>> backingTypes = Caffeine.newBuilder()
+	        .maximumSize(CACHE_SIZE).build();
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Class<? extends OpenmrsObject>> getBackingType(@Nonnull String uuid,
+	        @Nonnull Class<? extends OpenmrsObject> firstType, @Nonnull Class<? extends OpenmrsObject> secondType) {
+		if (uuid == null) {
+			return Optional.empty();
+		}
+		
+		Class<? extends OpenmrsObject> backingType = backingTypes.getIfPresent(uuid);
+		if (backingType == firstType || backingType == secondType) {
+			return Optional.of(backingType);
+		}
+		
+		// both uuid columns are uniquely indexed, so this is one index lookup per table
+		List<?> results = sessionFactory.getCurrentSession()
+		        .createNativeQuery("select 1 from " + getTableName(firstType) + " where " + getUuidColumn(firstType)
+		                + " = :uuid union all select 2 from " + getTableName(secondType) + " where "
+		                + getUuidColumn(secondType) + " = :uuid")
+		        .addSynchronizedEntityClass(firstType).addSynchronizedEntityClass(secondType).setParameter("uuid", uuid)
+		        .getResultList();
+		
+		if (results.isEmpty()) {
+			return Optional.empty();
+		}
+		
+		// union all does not guarantee the order of its rows, so the first type is checked for explicitly
+		backingType = results.stream().anyMatch(result -> ((Number) result).intValue() == 1) ? firstType : secondType;
+		backingTypes.put(uuid, backingType);
+		return Optional.of(backingType);
+	}
+	
+	private String getTableName(Class<?> type) {
+		return getPersister(type).getTableName();
+	}
+	
+	private String getUuidColumn(Class<?> type) {
+		return getPersister(type).getPropertyColumnNames("uuid")[0];
+	}
+	
+	private AbstractEntityPersister getPersister(Class<?> type) {
+		return (AbstractEntityPersister) ((MetamodelImplementor) sessionFactory.getMetamodel()).entityPersister(type);
+	}
+}
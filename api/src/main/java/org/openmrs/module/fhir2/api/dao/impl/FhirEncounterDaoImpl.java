@@ -18,6 +18,9 @@ import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -40,6 +43,11 @@ import org.springframework.transaction.annotation.Transactional;
 @Component
 public class FhirEncounterDaoImpl extends BaseEncounterDao<Encounter> implements FhirEncounterDao {
 	
+	// the associations read by the EncounterTranslator and the translators it uses
+	private static final List<String> TRANSLATION_FETCH_PLAN = Collections.unmodifiableList(
+	    Arrays.asList("encounterType", "visit", "location", "patient.names", "patient.identifiers.identifierType",
+	        "encounterProviders.provider.person.names"));
+	
 	@Override
 	@Transactional(readOnly = true)
 	public List<String> getSearchResultUuids(@Nonnull SearchParameterMap theParams) {
@@ -98,6 +106,11 @@ public class FhirEncounterDaoImpl extends BaseEncounterDao<Encounter> implements
 		    t -> Optional.of(criteriaContext.getCriteriaBuilder().equal(join.get("uuid"), t.getValue())));
 	}
 	
+	@Override
+	protected Collection<String> getTranslationFetchPlan() {
+		return TRANSLATION_FETCH_PLAN;
+	}
+	
 	@Override
 	protected <U> Optional<Predicate> handleParticipant(OpenmrsFhirCriteriaContext<Encounter, U> criteriaContext,
 	        ReferenceAndListParam referenceAndListParam) {
@@ -0,0 +1,166 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.Location;
+import org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao;
+import org.openmrs.module.fhir2.model.FhirLocationClosure;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+public class FhirLocationClosureDaoImpl implements FhirLocationClosureDao {
+	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod = @__({ @Autowired, @Qualifier("sessionFactory") }))
+	private SessionFactory sessionFactory;
+	
+	@Override
+	@Transactional(readOnly = true)
+	public boolean isIndexedBelow(@Nonnull String locationUuid) {
+		Session session = sessionFactory.getCurrentSession();
+		if (!isIndexed(session, locationUuid)) {
+			return false;
+		}
+		
+		// locations can be added or moved without the closure table being updated, e.g., by SQL, so the
+		// subtree is only complete if every child of a recorded location is recorded and vice versa
+		String subtree = "select s.descendant.locationId from FhirLocationClosure s where s.ancestor.uuid = :uuid";
+		return !exists(session,
+		    "select l.locationId from Location l where l.parentLocation.locationId in (" + subtree + ") "
+		            + "and l.locationId not in (" + subtree + ")",
+		    locationUuid)
+		        && !exists(session,
+		            "select c.id from FhirLocationClosure c join c.descendant d left join d.parentLocation p "
+		                    + "where c.ancestor.uuid = :uuid and c.depth > 0 and (p is null or p.locationId not in ("
+		                    + subtree + "))",
+		            locationUuid);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public boolean isIndexedAbove(@Nonnull String locationUuid) {
+		Session session = sessionFactory.getCurrentSession();
+		if (!isIndexed(session, locationUuid)) {
+			return false;
+		}
+		
+		// the recorded ancestors are current if the parent of each is recorded one level higher and each is
+		// the parent of the ancestor recorded one level lower
+		return !exists(session,
+		    "select c.id from FhirLocationClosure c join c.ancestor a where c.descendant.uuid = :uuid "
+		            + "and a.parentLocation is not null and not exists (select p.id from FhirLocationClosure p "
+		            + "where p.descendant.uuid = :uuid and p.ancestor = a.parentLocation and p.depth = c.depth + 1)",
+		    locationUuid)
+		        && !exists(session,
+		            "select c.id from FhirLocationClosure c where c.descendant.uuid = :uuid and c.depth > 0 "
+		                    + "and not exists (select b.id from FhirLocationClosure b where b.descendant.uuid = :uuid "
+		                    + "and b.ancestor.parentLocation = c.ancestor and b.depth = c.depth - 1)",
+		            locationUuid);
+	}
+	
+	@Override
+	@Transactional
+	public void updateLocation(@Nonnull Location location) {
+		if (location == null || location.getLocationId() == null) {
+			return;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		Integer locationId = location.getLocationId();
+		
+		// the subtree rooted at this location, mapped to the depth of each descendant below it
+		Map<Integer, Integer> subtree = new LinkedHashMap<>();
+		session.createQuery(
+		    "select c.descendant.locationId, c.depth from FhirLocationClosure c where c.ancestor.locationId = :id",
+		    Object[].class).setParameter("id", locationId).getResultList()
+		        .forEach(row -> subtree.put((Integer) row[0], (Integer) row[1]));
+		
+		boolean indexed = subtree.containsKey(locationId);
+		if (!indexed) {
+			// any descendants that are already recorded were recorded with this location's current ancestors
+			subtree.clear();
+			subtree.put(locationId, 0);
+		}
+		
+		// the current ancestors of this location, nearest first, stopping if the hierarchy has a cycle
+		List<Location> ancestors = new ArrayList<>();
+		Set<Integer> visited = new HashSet<>(subtree.keySet());
+		for (Location ancestor = location.getParentLocation(); ancestor != null && ancestor.getLocationId() != null
+		        && visited.add(ancestor.getLocationId()); ancestor = ancestor.getParentLocation()) {
+			ancestors.add(ancestor);
+		}
+		
+		if (indexed) {
+			Map<Integer, Integer> recordedAncestors = new HashMap<>();
+			session.createQuery(
+			    "select c.ancestor.locationId, c.depth from FhirLocationClosure c where c.descendant.locationId = :id "
+			            + "and c.depth > 0",
+			    Object[].class).setParameter("id", locationId).getResultList()
+			        .forEach(row -> recordedAncestors.put((Integer) row[0], (Integer) row[1]));
+			
+			Map<Integer, Integer> currentAncestors = new HashMap<>();
+			for (int i = 0; i < ancestors.size(); i++) {
+				currentAncestors.put(ancestors.get(i).getLocationId(), i + 1);
+			}
+			
+			if (recordedAncestors.equals(currentAncestors)) {
+				return;
+			}
+		} else {
+			session.save(new FhirLocationClosure(location, location, 0));
+		}
+		
+		// detach the subtree from its previous ancestors...
+		List<Integer> staleRows = session
+		        .createQuery("select c.id from FhirLocationClosure c where c.descendant.locationId in (:subtree) "
+		                + "and c.ancestor.locationId not in (:subtree)",
+		            Integer.class).setParameterList("subtree", subtree.keySet()).getResultList();
+		if (!staleRows.isEmpty()) {
+			session.createQuery("delete from FhirLocationClosure c where c.id in (:ids)").setParameterList("ids", staleRows)
+			        .executeUpdate();
+		}
+		
+		// ...and attach it to its current ones
+		for (int i = 0; i < ancestors.size(); i++) {
+			for (Map.Entry<Integer, Integer> descendant : subtree.entrySet()) {
+				session.save(new FhirLocationClosure(ancestors.get(i), session.load(Location.class, descendant.getKey()),
+				        i + 1 + descendant.getValue()));
+			}
+		}
+	}
+	
+	private static boolean isIndexed(Session session, String locationUuid) {
+		return exists(session,
+		    "select c.id from FhirLocationClosure c where c.depth = 0 and c.descendant.uuid = :uuid", locationUuid);
+	}
+	
+	private static boolean exists(Session session, String query, String locationUuid) {
+		return !session.createQuery(query, Integer.class).setParameter("uuid", locationUuid).setMaxResults(1)
+		        .getResultList().isEmpty();
+	}
+}
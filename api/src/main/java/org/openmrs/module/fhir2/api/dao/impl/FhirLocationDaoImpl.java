@@ -18,12 +18,10 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
-import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +40,7 @@ import org.openmrs.LocationAttributeType;
 import org.openmrs.LocationTag;
 import org.openmrs.api.LocationService;
 import org.openmrs.module.fhir2.FhirConstants;
-import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao;
 import org.openmrs.module.fhir2.api.dao.FhirLocationDao;
 import org.openmrs.module.fhir2.api.dao.internals.OpenmrsFhirCriteriaContext;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
@@ -58,13 +56,20 @@ public class FhirLocationDaoImpl extends BaseFhirDao<Location> implements FhirLo
 	
 	@Getter(PROTECTED)
 	@Setter(value = PROTECTED, onMethod_ = @Autowired)
-	private FhirGlobalPropertyService globalPropertyService;
+	private FhirLocationClosureDao locationClosureDao;
 	
 	@Override
 	public Location get(@Nonnull Integer id) {
 		return locationService.getLocation(id);
 	}
 	
+	@Override
+	public Location createOrUpdate(@Nonnull Location location) {
+		Location savedLocation = super.createOrUpdate(location);
+		locationClosureDao.updateLocation(savedLocation);
+		return savedLocation;
+	}
+	
 	@Override
 	protected <U> void setupSearchParams(@Nonnull OpenmrsFhirCriteriaContext<Location, U> criteriaContext,
 	        @Nonnull SearchParameterMap theParams) {
@@ -212,24 +217,16 @@ public class FhirLocationDaoImpl extends BaseFhirDao<Location> implements FhirLo
 				throw new IllegalArgumentException("Only one location reference is supported for :below queries");
 			}
 			
-			int searchDepth = globalPropertyService
-			        .getGlobalPropertyAsInteger(FhirConstants.SUPPORTED_LOCATION_HIERARCHY_SEARCH_DEPTH, 5);
-			
-			List<Predicate> predicates = new ArrayList<>(searchDepth - 1);
-			From<?, ?> base = criteriaContext.getRoot();
-			for (int depth = 1; depth < searchDepth; depth++) {
-				String alias = "ancestor" + depth;
-				Join<?, ?> join = criteriaContext.addJoin(base, "parentLocation", alias, JoinType.LEFT);
-				predicates.add(criteriaContext.getCriteriaBuilder().equal(join.get("uuid"), locationReference.getIdPart()));
-				
-				base = join;
+			return Optional.of(getSearchQueryHelper().handleLocationBelow(criteriaContext, criteriaContext.getRoot(),
+			    locationReference.getIdPart(), 1));
+		} else if ("above".equalsIgnoreCase(locationReference.getResourceType())) {
+			// this is to support queries of the type "Location?partof=above:uuid"
+			if (locationOrReference.size() > 1 || locationReferences.size() > 1) {
+				throw new IllegalArgumentException("Only one location reference is supported for :above queries");
 			}
 			
-			if (predicates.isEmpty()) {
-				return Optional.empty();
-			} else {
-				return Optional.of(criteriaContext.getCriteriaBuilder().or(predicates.toArray(new Predicate[0])));
-			}
+			return Optional.of(getSearchQueryHelper().handleLocationAbove(criteriaContext, criteriaContext.getRoot(),
+			    locationReference.getIdPart(), 1));
 		} else {
 			// this is to support queries of the type "Location?partof=uuid" or chained search like "Location?partof:Location=Location:name=xxx"
 			Join<?, ?> join = criteriaContext.addJoin("parentLocation", "loc");
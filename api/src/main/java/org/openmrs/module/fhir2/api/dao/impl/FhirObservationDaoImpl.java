@@ -11,15 +11,22 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import javax.annotation.Nonnull;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -54,6 +61,13 @@ import org.springframework.transaction.annotation.Transactional;
 @Component
 public class FhirObservationDaoImpl extends BaseFhirDao<Obs> implements FhirObservationDao {
 	
+	// the associations read by the ObservationTranslator and the translators it uses
+	private static final List<String> TRANSLATION_FETCH_PLAN = Collections.unmodifiableList(Arrays.asList("encounter",
+	    "order", "groupMembers", "referenceRange", "person.names", "person.identifiers.identifierType", "concept.names",
+	    "concept.datatype", "concept.conceptClass", "concept.conceptMappings.conceptMapType",
+	    "concept.conceptMappings.conceptReferenceTerm.conceptSource", "valueCoded.names",
+	    "valueCoded.conceptMappings.conceptMapType", "valueCoded.conceptMappings.conceptReferenceTerm.conceptSource"));
+	
 	@Getter(AccessLevel.PROTECTED)
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
 	private FhirObservationCategoryMapDaoImpl categoryMap;
@@ -66,64 +80,29 @@ public class FhirObservationDaoImpl extends BaseFhirDao<Obs> implements FhirObse
 	@Transactional(readOnly = true)
 	public List<Obs> getSearchResults(@Nonnull SearchParameterMap theParams) {
 		if (!theParams.getParameters(FhirConstants.LASTN_OBSERVATION_SEARCH_HANDLER).isEmpty()) {
-			OpenmrsFhirCriteriaContext<Obs, Obs> criteriaContext = getSearchResultCriteria(theParams);
-			
-			Join<?, ?> conceptJoin = criteriaContext.getJoin("c").orElseGet(() -> criteriaContext.addJoin("concept", "c"));
-			String conceptIdProperty = getIdPropertyName(criteriaContext.getEntityManager(), Concept.class);
+			List<Integer> rankedIds = getLastnObsIds(theParams);
 			
-			CriteriaQuery<Obs> finalizedQuery = criteriaContext.finalizeQuery().orderBy(
-			    criteriaContext.getCriteriaBuilder().asc(conceptJoin.get(conceptIdProperty)),
-			    criteriaContext.getCriteriaBuilder().desc(criteriaContext.getRoot().get("obsDatetime")));
+			int fromIndex = Math.min(Math.max(theParams.getFromIndex(), 0), rankedIds.size());
+			int toIndex = theParams.getToIndex() < 0 ? rankedIds.size()
+			        : Math.max(fromIndex, Math.min(theParams.getToIndex(), rankedIds.size()));
+			List<Integer> pageIds = rankedIds.subList(fromIndex, toIndex);
+			if (pageIds.isEmpty()) {
+				return Collections.emptyList();
+			}
 			
-			// Accumulate results across batched queries for $lastn operation
-			List<Obs> accumulatedResults = new ArrayList<>();
-			int firstResult = 0;
-			final int maxGroupCount = getMaxParameter(theParams);
-			final int batchSize = 100;
-			Concept prevConcept = null;
-			Date prevObsDatetime = null;
-			int groupCount = maxGroupCount;
+			OpenmrsFhirCriteriaContext<Obs, Obs> criteriaContext = createCriteriaContext(Obs.class);
+			String idProperty = getIdPropertyName(criteriaContext.getEntityManager());
+			criteriaContext.getCriteriaQuery().select(criteriaContext.getRoot());
+			criteriaContext.addPredicate(criteriaContext.getRoot().get(idProperty).in(pageIds));
 			
-			while (accumulatedResults.size() < theParams.getToIndex()) {
-				TypedQuery<Obs> obsQuery = criteriaContext.getEntityManager().createQuery(finalizedQuery);
-				obsQuery.setFirstResult(firstResult);
-				obsQuery.setMaxResults(batchSize);
-				
-				List<Obs> observations = obsQuery.getResultList();
-				
-				for (Obs obs : observations) {
-					if (prevConcept == obs.getConcept()) {
-						if (groupCount > 0 || obs.getObsDatetime().equals(prevObsDatetime)) {
-							// Load only as many results as requested per group or more if time matches
-							if (!obs.getObsDatetime().equals(prevObsDatetime)) {
-								groupCount--;
-							}
-							prevObsDatetime = obs.getObsDatetime();
-							accumulatedResults.add(obs);
-						}
-					} else {
-						prevConcept = obs.getConcept();
-						prevObsDatetime = obs.getObsDatetime();
-						groupCount = maxGroupCount;
-						accumulatedResults.add(obs);
-						groupCount--;
-					}
-					
-					if (accumulatedResults.size() >= theParams.getToIndex()) {
-						// Load only as many results as requested per page
-						break;
-					}
-				}
-				
-				if (observations.size() < batchSize) {
-					break;
-				} else {
-					firstResult += batchSize;
-				}
+			// the entities are returned in the order of the ranking
+			Map<Integer, Integer> positions = new HashMap<>(pageIds.size());
+			for (int i = 0; i < pageIds.size(); i++) {
+				positions.put(pageIds.get(i), i);
 			}
 			
-			int toIndex = Math.min(accumulatedResults.size(), theParams.getToIndex());
-			return accumulatedResults.subList(theParams.getFromIndex(), toIndex).stream().map(this::deproxyResult)
+			return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).getResultList().stream()
+			        .sorted(Comparator.comparing((Obs obs) -> positions.get(obs.getObsId()))).map(this::deproxyResult)
 			        .collect(Collectors.toList());
 		}
 		
@@ -134,50 +113,95 @@ public class FhirObservationDaoImpl extends BaseFhirDao<Obs> implements FhirObse
 	@Transactional(readOnly = true)
 	public int getSearchResultsCount(@Nonnull SearchParameterMap theParams) {
 		if (!theParams.getParameters(FhirConstants.LASTN_OBSERVATION_SEARCH_HANDLER).isEmpty()) {
-			OpenmrsFhirCriteriaContext<Obs, Object[]> criteriaContext = createCriteriaContext(Obs.class, Object[].class);
-			getSearchResultCriteria(criteriaContext, theParams);
-			
-			Join<?, ?> conceptJoin = criteriaContext.getJoin("c").orElseGet(() -> criteriaContext.addJoin("concept", "c"));
-			String conceptIdProperty = getIdPropertyName(criteriaContext.getEntityManager(), Concept.class);
-			
-			criteriaContext.getCriteriaQuery().orderBy(
-			    criteriaContext.getCriteriaBuilder().asc(conceptJoin.get(conceptIdProperty)),
-			    criteriaContext.getCriteriaBuilder().desc(criteriaContext.getRoot().get("obsDatetime")));
-			
-			criteriaContext.getCriteriaQuery().multiselect(conceptJoin.get(conceptIdProperty),
-			    criteriaContext.getRoot().get("obsDatetime"),
-			    criteriaContext.getCriteriaBuilder().count(criteriaContext.getRoot()));
-			
-			criteriaContext.getCriteriaQuery().groupBy(conceptJoin.get(conceptIdProperty),
-			    criteriaContext.getRoot().get("obsDatetime"));
-			
-			applyExactTotal(criteriaContext, theParams);
-			
-			List<Object[]> rows = criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery())
-			        .getResultList();
-			final int maxGroupCount = getMaxParameter(theParams);
-			int groupCount = maxGroupCount;
-			int count = 0;
-			Integer prevConceptId = null;
-			for (Object[] row : rows) {
-				Integer conceptId = (Integer) row[0];
-				Long rowCount = (Long) row[2];
-				if (!conceptId.equals(prevConceptId)) {
-					groupCount = maxGroupCount;
-				}
-				if (groupCount > 0) {
-					count += rowCount;
-					groupCount--;
-				}
-				prevConceptId = conceptId;
-			}
-			
-			return count;
+			return getLastnObsIds(theParams).size();
 		}
 		
 		return super.getSearchResultsCount(theParams);
 	}
 	
+	/**
+	 * Ranks the obs matching a {@code $lastn} search in the database. For each concept, only the obs
+	 * recorded at one of the {@code max} most recent distinct times are part of the result. <br/>
+	 * Rather than reading all matching obs, this first finds the concepts with matching obs and then,
+	 * for each concept, reads at most {@code max} distinct obs times, newest first, which can be
+	 * answered from an index on concept and obs time. The oldest of these times is the cut-off for the
+	 * concept, so that a final query can read the ids of the matching obs at or after the cut-off for
+	 * each concept. A window function could rank the obs in a single query, but JPA criteria queries
+	 * cannot express one on Hibernate 5 and MySQL 5.7 does not support them.
+	 *
+	 * @param theParams the parameters of the {@code $lastn} search
+	 * @return the ids of the matching obs, ordered by concept and then newest first
+	 */
+	protected List<Integer> getLastnObsIds(@Nonnull SearchParameterMap theParams) {
+		final int max = getMaxParameter(theParams);
+		if (max <= 0) {
+			return Collections.emptyList();
+		}
+		
+		// the concepts with matching obs
+		OpenmrsFhirCriteriaContext<Obs, Integer> conceptContext = getSearchResultCriteria(
+		    createCriteriaContext(Obs.class, Integer.class), theParams);
+		String conceptIdProperty = getIdPropertyName(conceptContext.getEntityManager(), Concept.class);
+		Join<?, ?> conceptJoin = getConceptJoin(conceptContext);
+		conceptContext.getCriteriaQuery().select(conceptJoin.<Integer> get(conceptIdProperty)).distinct(true);
+		
+		List<Integer> conceptIds = conceptContext.getEntityManager().createQuery(conceptContext.finalizeQuery())
+		        .getResultList();
+		if (conceptIds.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		// the max most recent distinct obs times of a single concept
+		OpenmrsFhirCriteriaContext<Obs, Date> cutOffContext = getSearchResultCriteria(
+		    createCriteriaContext(Obs.class, Date.class), theParams);
+		CriteriaBuilder cb = cutOffContext.getCriteriaBuilder();
+		ParameterExpression<Integer> conceptIdParameter = cb.parameter(Integer.class, "conceptId");
+		cutOffContext.addPredicate(cb.equal(getConceptJoin(cutOffContext).get(conceptIdProperty), conceptIdParameter));
+		cutOffContext.getCriteriaQuery().select(cutOffContext.getRoot().<Date> get("obsDatetime")).distinct(true);
+		cutOffContext.addOrder(cb.desc(cutOffContext.getRoot().get("obsDatetime")));
+		
+		TypedQuery<Date> cutOffQuery = cutOffContext.getEntityManager().createQuery(cutOffContext.finalizeQuery())
+		        .setMaxResults(max);
+		
+		OpenmrsFhirCriteriaContext<Obs, Object> idContext = getSearchResultCriteria(
+		    createCriteriaContext(Obs.class, Object.class), theParams);
+		Join<?, ?> idConceptJoin = getConceptJoin(idContext);
+		Path<Date> obsDatetime = idContext.getRoot().get("obsDatetime");
+		
+		List<Predicate> cutOffs = new ArrayList<>(conceptIds.size());
+		for (Integer conceptId : conceptIds) {
+			List<Date> obsDatetimes = cutOffQuery.setParameter(conceptIdParameter, conceptId).getResultList();
+			if (!obsDatetimes.isEmpty()) {
+				cutOffs.add(cb.and(cb.equal(idConceptJoin.get(conceptIdProperty), conceptId),
+				    cb.greaterThanOrEqualTo(obsDatetime, obsDatetimes.get(obsDatetimes.size() - 1))));
+			}
+		}
+		
+		if (cutOffs.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		String idProperty = getIdPropertyName(idContext.getEntityManager());
+		idContext.addPredicate(cb.or(cutOffs.toArray(new Predicate[0])));
+		idContext.addOrder(cb.asc(idConceptJoin.get(conceptIdProperty)));
+		idContext.addOrder(cb.desc(obsDatetime));
+		handleIdPropertyOrdering(idContext, idProperty);
+		
+		List<Object> rows = idContext.getEntityManager().createQuery(idContext.finalizeIdQuery(idProperty))
+		        .getResultList();
+		
+		List<Integer> ids = new ArrayList<>(rows.size());
+		for (Object row : rows) {
+			ids.add((Integer) (row instanceof Object[] ? ((Object[]) row)[0] : row));
+		}
+		
+		return ids;
+	}
+	
+	private <U> Join<?, ?> getConceptJoin(OpenmrsFhirCriteriaContext<Obs, U> criteriaContext) {
+		return criteriaContext.getJoin("c").orElseGet(() -> criteriaContext.addJoin("concept", "c"));
+	}
+	
 	@Override
 	protected Obs deproxyResult(@Nonnull Obs result) {
 		Obs obs = super.deproxyResult(result);
@@ -185,6 +209,11 @@ public class FhirObservationDaoImpl extends BaseFhirDao<Obs> implements FhirObse
 		return obs;
 	}
 	
+	@Override
+	protected Collection<String> getTranslationFetchPlan() {
+		return TRANSLATION_FETCH_PLAN;
+	}
+	
 	@Override
 	protected <U> void setupSearchParams(@Nonnull OpenmrsFhirCriteriaContext<Obs, U> criteriaContext,
 	        @Nonnull SearchParameterMap theParams) {
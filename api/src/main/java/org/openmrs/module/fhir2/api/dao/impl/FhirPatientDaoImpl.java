@@ -234,9 +234,8 @@ public class FhirPatientDaoImpl extends BasePersonDao<Patient> implements FhirPa
 			
 			for (String token : StringUtils.split(q.getValueNotNull(), " \t,")) {
 				StringParam param = new StringParam(token).setContains(q.isContains()).setExact(q.isExact());
-				arrayList.add(getSearchQueryHelper().propertyLike(criteriaContext, personNameJoin, "givenName", param));
-				arrayList.add(getSearchQueryHelper().propertyLike(criteriaContext, personNameJoin, "middleName", param));
-				arrayList.add(getSearchQueryHelper().propertyLike(criteriaContext, personNameJoin, "familyName", param));
+				arrayList.add(getSearchQueryHelper().personNameLike(criteriaContext, personNameJoin, param, "givenName",
+				    "middleName", "familyName"));
 			}
 			
 			arrayList.add(getSearchQueryHelper().propertyLike(criteriaContext, identifiersJoin, "identifier",
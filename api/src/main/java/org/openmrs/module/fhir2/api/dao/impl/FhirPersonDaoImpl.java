@@ -11,10 +11,17 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import javax.annotation.Nonnull;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import ca.uhn.fhir.rest.param.DateRangeParam;
@@ -46,6 +53,29 @@ public class FhirPersonDaoImpl extends BasePersonDao<Person> implements FhirPers
 		return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).getResultList();
 	}
 	
+	@Override
+	public Map<Integer, List<PersonAttribute>> getActiveAttributesByPersonsAndAttributeTypeUuid(
+	        @Nonnull Collection<? extends Person> persons, @Nonnull String personAttributeTypeUuid) {
+		List<Integer> personIds = persons.stream().map(Person::getPersonId).filter(Objects::nonNull).distinct()
+		        .collect(Collectors.toList());
+		if (personIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		
+		OpenmrsFhirCriteriaContext<PersonAttribute, PersonAttribute> criteriaContext = createCriteriaContext(
+		    PersonAttribute.class);
+		CriteriaBuilder cb = criteriaContext.getCriteriaBuilder();
+		
+		criteriaContext.addJoin("person", "p",
+		    (from) -> cb.and(from.get("personId").in(personIds), cb.equal(from.get("personVoided"), false)));
+		criteriaContext.addJoin("attributeType", "pat",
+		    (from) -> cb.and(cb.equal(from.get("uuid"), personAttributeTypeUuid), cb.equal(from.get("retired"), false)));
+		criteriaContext.addPredicate(cb.equal(criteriaContext.getRoot().get("voided"), false));
+		
+		return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).getResultList().stream()
+		        .collect(Collectors.groupingBy(attribute -> attribute.getPerson().getPersonId()));
+	}
+	
 	@Override
 	protected <U> void setupSearchParams(@Nonnull OpenmrsFhirCriteriaContext<Person, U> criteriaContext,
 	        @Nonnull SearchParameterMap theParams) {
@@ -89,6 +119,13 @@ public class FhirPersonDaoImpl extends BasePersonDao<Person> implements FhirPers
 		                getSearchQueryHelper().handleDateRange(criteriaContext, "personDateCreated", param))))))));
 	}
 	
+	@Override
+	protected <V, U> Expression<Date> getLastUpdatedExpression(
+	        @Nonnull OpenmrsFhirCriteriaContext<V, U> criteriaContext) {
+		return criteriaContext.getCriteriaBuilder().coalesce(criteriaContext.getRoot().<Date> get("personDateChanged"),
+		    criteriaContext.getRoot().<Date> get("personDateCreated"));
+	}
+	
 	@Override
 	protected <U> void handleVoidable(@Nonnull OpenmrsFhirCriteriaContext<Person, U> criteriaContext) {
 		criteriaContext.addPredicate(
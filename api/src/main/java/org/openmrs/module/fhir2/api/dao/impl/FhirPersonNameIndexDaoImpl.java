@@ -0,0 +1,131 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import javax.annotation.Nonnull;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.openmrs.Person;
+import org.openmrs.PersonName;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameIndexDao;
+import org.openmrs.module.fhir2.api.util.PersonNameSearchUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+@Component
+public class FhirPersonNameIndexDaoImpl implements FhirPersonNameIndexDao {
+	
+	private static final int MAX_TOKEN_LENGTH = 255;
+	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod = @__({ @Autowired, @Qualifier("sessionFactory") }))
+	private SessionFactory sessionFactory;
+	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	@Override
+	@Transactional
+	public void updatePerson(@Nonnull Person person) {
+		if (person == null || person.getPersonId() == null) {
+			return;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		session.createQuery("delete from FhirPersonNameToken t where t.personId = :personId")
+		        .setParameter("personId", person.getPersonId()).executeUpdate();
+		
+		insertTokens(session, person.getNames().stream().filter(name -> !name.getVoided()).collect(Collectors.toList()));
+	}
+	
+	@Override
+	@Transactional
+	public Integer indexPersons(Integer afterPersonId, int batchSize) {
+		Session session = sessionFactory.getCurrentSession();
+		List<Integer> personIds = session
+		        .createQuery("select p.personId from Person p where p.personId > :after order by p.personId", Integer.class)
+		        .setParameter("after", afterPersonId == null ? 0 : afterPersonId).setMaxResults(batchSize).getResultList();
+		
+		if (personIds.isEmpty()) {
+			return null;
+		}
+		
+		session.createQuery("delete from FhirPersonNameToken t where t.personId in (:personIds)")
+		        .setParameterList("personIds", personIds).executeUpdate();
+		
+		insertTokens(session,
+		    session.createQuery("from PersonName pn where pn.voided = false and pn.person.personId in (:personIds)",
+		        PersonName.class).setParameterList("personIds", personIds).getResultList());
+		
+		return personIds.get(personIds.size() - 1);
+	}
+	
+	private void insertTokens(Session session, Collection<PersonName> names) {
+		if (names.isEmpty()) {
+			return;
+		}
+		
+		boolean substrings = globalPropertyService
+		        .getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_NAME_INDEX_SUBSTRINGS, true);
+		
+		// names must be in the database before they can be referenced
+		session.flush();
+		session.doWork(connection -> {
+			try (PreparedStatement insert = connection.prepareStatement("insert into fhir_person_name_token "
+			        + "(person_id, person_name_id, name_part, token_position, token) values (?, ?, ?, ?, ?)")) {
+				for (PersonName name : names) {
+					if (name.getPersonNameId() == null || name.getPerson() == null) {
+						continue;
+					}
+					
+					addTokens(insert, name, PersonNameSearchUtils.GIVEN_NAME, name.getGivenName(), substrings);
+					addTokens(insert, name, PersonNameSearchUtils.MIDDLE_NAME, name.getMiddleName(), substrings);
+					addTokens(insert, name, PersonNameSearchUtils.FAMILY_NAME, name.getFamilyName(), substrings);
+				}
+				
+				insert.executeBatch();
+			}
+		});
+	}
+	
+	private void addTokens(PreparedStatement insert, PersonName name, String namePart, String value, boolean substrings)
+	        throws SQLException {
+		String normalized = PersonNameSearchUtils.normalize(value);
+		int positions = substrings ? normalized.length() : Math.min(normalized.length(), 1);
+		for (int position = 0; position < positions; position++) {
+			if (Character.isWhitespace(normalized.charAt(position))) {
+				continue;
+			}
+			
+			String token = normalized.substring(position);
+			insert.setInt(1, name.getPerson().getPersonId());
+			insert.setInt(2, name.getPersonNameId());
+			insert.setString(3, namePart);
+			insert.setInt(4, position);
+			insert.setString(5, token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+			insert.addBatch();
+		}
+	}
+}
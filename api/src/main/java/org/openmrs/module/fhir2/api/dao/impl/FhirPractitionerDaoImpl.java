@@ -11,8 +11,13 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import javax.annotation.Nonnull;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import org.openmrs.Provider;
@@ -54,4 +59,27 @@ public class FhirPractitionerDaoImpl extends BasePractitionerDao<Provider> imple
 		
 		return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).getResultList();
 	}
+	
+	@Override
+	public Map<Integer, List<ProviderAttribute>> getActiveAttributesByPractitionersAndAttributeTypeUuid(
+	        @Nonnull Collection<Provider> providers, @Nonnull String providerAttributeTypeUuid) {
+		List<Integer> providerIds = providers.stream().map(Provider::getProviderId).filter(Objects::nonNull).distinct()
+		        .collect(Collectors.toList());
+		if (providerIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		
+		OpenmrsFhirCriteriaContext<ProviderAttribute, ProviderAttribute> criteriaContext = createCriteriaContext(
+		    ProviderAttribute.class);
+		criteriaContext.getCriteriaQuery().select(criteriaContext.getRoot());
+		
+		criteriaContext.addPredicate(criteriaContext.getCriteriaBuilder().and(
+		    criteriaContext.getRoot().join("provider").get("providerId").in(providerIds),
+		    criteriaContext.getCriteriaBuilder().equal(criteriaContext.getRoot().join("attributeType").get("uuid"),
+		        providerAttributeTypeUuid),
+		    criteriaContext.getCriteriaBuilder().equal(criteriaContext.getRoot().get("voided"), false)));
+		
+		return criteriaContext.getEntityManager().createQuery(criteriaContext.finalizeQuery()).getResultList().stream()
+		        .collect(Collectors.groupingBy(attribute -> attribute.getProvider().getProviderId()));
+	}
 }
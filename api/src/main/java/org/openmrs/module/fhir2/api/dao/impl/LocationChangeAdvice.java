@@ -0,0 +1,36 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.lang.reflect.Method;
+
+import org.openmrs.Location;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao;
+import org.springframework.aop.AfterReturningAdvice;
+
+/**
+ * Keeps the location closure table up to date with locations saved through the
+ * {@link org.openmrs.api.LocationService}. Purged locations are removed from the closure table by
+ * its foreign keys.
+ */
+public class LocationChangeAdvice implements AfterReturningAdvice {
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (!"saveLocation".equals(method.getName()) || !(returnValue instanceof Location)) {
+			return;
+		}
+		
+		for (FhirLocationClosureDao locationClosureDao : Context.getRegisteredComponents(FhirLocationClosureDao.class)) {
+			locationClosureDao.updateLocation((Location) returnValue);
+		}
+	}
+}
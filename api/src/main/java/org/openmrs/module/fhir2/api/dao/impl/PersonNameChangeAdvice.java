@@ -0,0 +1,64 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.openmrs.Person;
+import org.openmrs.PersonName;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameIndexDao;
+import org.springframework.aop.AfterReturningAdvice;
+
+/**
+ * Keeps the FHIR person name index up to date with persons, patients and person names that are
+ * changed through the {@link org.openmrs.api.PersonService} or {@link org.openmrs.api.PatientService}.
+ * Purged persons and names are removed from the index by its foreign keys.
+ */
+public class PersonNameChangeAdvice implements AfterReturningAdvice {
+	
+	private static final String[] CHANGING_METHOD_PREFIXES = { "save", "void", "unvoid", "merge" };
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (args == null || args.length == 0 || !isChangingMethod(method.getName())) {
+			return;
+		}
+		
+		Set<Person> changed = new LinkedHashSet<>();
+		for (Object arg : args) {
+			if (arg instanceof Person) {
+				changed.add((Person) arg);
+			} else if (arg instanceof PersonName && ((PersonName) arg).getPerson() != null) {
+				changed.add(((PersonName) arg).getPerson());
+			}
+		}
+		
+		if (changed.isEmpty()) {
+			return;
+		}
+		
+		for (FhirPersonNameIndexDao personNameIndexDao : Context.getRegisteredComponents(FhirPersonNameIndexDao.class)) {
+			changed.forEach(personNameIndexDao::updatePerson);
+		}
+	}
+	
+	private boolean isChangingMethod(String methodName) {
+		for (String prefix : CHANGING_METHOD_PREFIXES) {
+			if (methodName.startsWith(prefix)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -10,9 +10,12 @@
 package org.openmrs.module.fhir2.api.dao.internals;
 
 import javax.annotation.Nonnull;
+import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -56,9 +59,16 @@ import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.codesystems.AdministrativeGender;
 import org.openmrs.Person;
+import org.openmrs.PersonName;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao;
 import org.openmrs.module.fhir2.api.dao.impl.BaseDao;
 import org.openmrs.module.fhir2.api.util.LocalDateTimeFactory;
+import org.openmrs.module.fhir2.api.util.PersonNameSearchUtils;
 import org.openmrs.module.fhir2.model.FhirConceptSource;
+import org.openmrs.module.fhir2.model.FhirLocationClosure;
+import org.openmrs.module.fhir2.model.FhirPersonNameToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
@@ -95,7 +105,7 @@ import org.springframework.stereotype.Component;
  * <li>CodeableConcept Handling: {@link #handleCodeableConcept}</li>
  * <li>String Matching: {@link #propertyLike}</li>
  * <li>Boolean Handling: {@link #handleBoolean}</li>
- * <li>Name Handling: {@link #handleNames}</li>
+ * <li>Name Handling: {@link #handleNames}, {@link #personNameLike}</li>
  * <li>Address Handling: {@link #handlePersonAddress}</li>
  * <li>Order Handling: {@link #handleQueryForActiveOrders(OpenmrsFhirCriteriaContext)}, {@link #handleQueryForActiveOrders( OpenmrsFhirCriteriaContext, String)}, {@link #handleQueryForActiveOrders(OpenmrsFhirCriteriaContext, Date)}, {@link #handleQueryForActiveOrders(OpenmrsFhirCriteriaContext, String, Date)}
  * {@link #handleQueryForCancelledOrders}</li>
@@ -115,6 +125,14 @@ public class FhirSearchQueryHelper extends BaseDao {
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
 	private LocalDateTimeFactory localDateTimeFactory;
 	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
+	private FhirLocationClosureDao locationClosureDao;
+	
 	// ========== Status Conversion ==========
 	
 	public TokenAndListParam convertStringStatusToBoolean(TokenAndListParam statusParam) {
@@ -497,6 +515,15 @@ public class FhirSearchQueryHelper extends BaseDao {
 					case Location.SP_ADDRESS_COUNTRY:
 						return propertyLike(criteriaContext, locationAlias, "country", token.getValue());
 				}
+			} else if ("below".equalsIgnoreCase(token.getResourceType())) {
+				// see FhirLocationDaoImpl; HAPI reports the ":below" modifier as the resource type
+				return Optional.of(criteriaContext.getCriteriaBuilder().or(
+				    criteriaContext.getCriteriaBuilder().equal(locationAlias.get("uuid"), token.getIdPart()),
+				    handleLocationBelow(criteriaContext, locationAlias, token.getIdPart(), 1)));
+			} else if ("above".equalsIgnoreCase(token.getResourceType())) {
+				return Optional.of(criteriaContext.getCriteriaBuilder().or(
+				    criteriaContext.getCriteriaBuilder().equal(locationAlias.get("uuid"), token.getIdPart()),
+				    handleLocationAbove(criteriaContext, locationAlias, token.getIdPart(), 1)));
 			} else {
 				return Optional.of(criteriaContext.getCriteriaBuilder().equal(locationAlias.get("uuid"), token.getIdPart()));
 			}
@@ -505,6 +532,103 @@ public class FhirSearchQueryHelper extends BaseDao {
 		});
 	}
 	
+	/**
+	 * Creates a predicate matching the locations below the location with the given uuid in the location
+	 * hierarchy. The {@link FhirLocationClosure} table is used if the whole subtree is recorded in it;
+	 * otherwise, the parent locations of the matched location are joined up to the supported location
+	 * hierarchy search depth.
+	 *
+	 * @param criteriaContext the context of the query being built
+	 * @param locationAlias the location to match
+	 * @param ancestorUuid the uuid of the ancestor location
+	 * @param minDepth the minimum number of levels between the ancestor and the matched location, i.e.
+	 *            {@code 0} to also match the ancestor itself and {@code 1} to only match its
+	 *            descendants
+	 * @return a predicate matching the descendants of the ancestor location
+	 */
+	public <V, U> Predicate handleLocationBelow(@Nonnull OpenmrsFhirCriteriaContext<V, U> criteriaContext,
+	        @Nonnull From<?, ?> locationAlias, @Nonnull String ancestorUuid, int minDepth) {
+		if (locationClosureDao.isIndexedBelow(ancestorUuid)) {
+			return handleLocationHierarchy(criteriaContext, locationAlias, "ancestor", ancestorUuid, "descendant",
+			    minDepth);
+		}
+		
+		CriteriaBuilder criteriaBuilder = criteriaContext.getCriteriaBuilder();
+		int searchDepth = globalPropertyService
+		        .getGlobalPropertyAsInteger(FhirConstants.SUPPORTED_LOCATION_HIERARCHY_SEARCH_DEPTH, 5);
+		
+		List<Predicate> predicates = new ArrayList<>(searchDepth);
+		if (minDepth <= 0) {
+			predicates.add(criteriaBuilder.equal(locationAlias.get("uuid"), ancestorUuid));
+		}
+		
+		From<?, ?> base = locationAlias;
+		for (int depth = 1; depth < searchDepth; depth++) {
+			Join<?, ?> join = criteriaContext.addJoin(base, "parentLocation", "ancestor" + depth, JoinType.LEFT);
+			if (depth >= minDepth) {
+				predicates.add(criteriaBuilder.equal(join.get("uuid"), ancestorUuid));
+			}
+			
+			base = join;
+		}
+		
+		return criteriaBuilder.or(predicates.toArray(new Predicate[0]));
+	}
+	
+	/**
+	 * Creates a predicate matching the locations above the location with the given uuid in the location
+	 * hierarchy. The {@link FhirLocationClosure} table is used if all ancestors are recorded in it;
+	 * otherwise, the ancestors are found by following the parent locations of the location.
+	 *
+	 * @param criteriaContext the context of the query being built
+	 * @param locationAlias the location to match
+	 * @param descendantUuid the uuid of the descendant location
+	 * @param minDepth the minimum number of levels between the matched location and the descendant
+	 * @return a predicate matching the ancestors of the descendant location
+	 */
+	public <V, U> Predicate handleLocationAbove(@Nonnull OpenmrsFhirCriteriaContext<V, U> criteriaContext,
+	        @Nonnull From<?, ?> locationAlias, @Nonnull String descendantUuid, int minDepth) {
+		if (locationClosureDao.isIndexedAbove(descendantUuid)) {
+			return handleLocationHierarchy(criteriaContext, locationAlias, "descendant", descendantUuid, "ancestor",
+			    minDepth);
+		}
+		
+		List<org.openmrs.Location> descendants = criteriaContext.getEntityManager()
+		        .createQuery("select l from Location l where l.uuid = :uuid", org.openmrs.Location.class)
+		        .setParameter("uuid", descendantUuid).getResultList();
+		
+		List<Integer> ancestorIds = new ArrayList<>();
+		int depth = 0;
+		for (org.openmrs.Location ancestor = descendants.isEmpty() ? null : descendants.get(0); ancestor != null
+		        && !ancestorIds.contains(ancestor.getLocationId()); ancestor = ancestor.getParentLocation(), depth++) {
+			if (depth >= minDepth) {
+				ancestorIds.add(ancestor.getLocationId());
+			}
+		}
+		
+		if (ancestorIds.isEmpty()) {
+			return criteriaContext.getCriteriaBuilder().disjunction();
+		}
+		
+		return locationAlias.get("locationId").in(ancestorIds);
+	}
+	
+	private <V, U> Predicate handleLocationHierarchy(OpenmrsFhirCriteriaContext<V, U> criteriaContext,
+	        From<?, ?> locationAlias, String knownProperty, String knownUuid, String matchedProperty, int minDepth) {
+		CriteriaBuilder criteriaBuilder = criteriaContext.getCriteriaBuilder();
+		OpenmrsFhirCriteriaSubquery<FhirLocationClosure, Integer> closureSubquery = criteriaContext
+		        .addSubquery(FhirLocationClosure.class, Integer.class);
+		Root<FhirLocationClosure> closure = closureSubquery.getRoot();
+		
+		closureSubquery.addPredicate(criteriaBuilder.equal(closure.get(knownProperty).get("uuid"), knownUuid));
+		if (minDepth > 0) {
+			closureSubquery.addPredicate(criteriaBuilder.ge(closure.<Integer> get("depth"), minDepth));
+		}
+		closureSubquery.setProjection(closure.get(matchedProperty).<Integer> get("locationId"));
+		
+		return criteriaBuilder.in(locationAlias.get("locationId")).value(closureSubquery.finalizeQuery());
+	}
+	
 	public <T, U> Optional<Predicate> handleMedicationReference(OpenmrsFhirCriteriaContext<T, U> criteriaContext,
 	        @Nonnull From<?, ?> medicationAlias, ReferenceAndListParam medicationReference) {
 		if (medicationReference == null) {
@@ -543,27 +667,83 @@ public class FhirSearchQueryHelper extends BaseDao {
 			    (nameParam) -> Arrays.stream(StringUtils.split(nameParam.getValue(), " \t,"))
 			            .map(token -> new StringParam().setValue(token).setExact(nameParam.isExact())
 			                    .setContains(nameParam.isContains()))
-			            .map(tokenParam -> Arrays.asList(
-			                propertyLike(criteriaContext, personNameAliasJoin, "givenName", tokenParam),
-			                propertyLike(criteriaContext, personNameAliasJoin, "middleName", tokenParam),
-			                propertyLike(criteriaContext, personNameAliasJoin, "familyName", tokenParam)))
-			            .flatMap(Collection::stream))
+			            .map(tokenParam -> personNameLike(criteriaContext, personNameAliasJoin, tokenParam, "givenName",
+			                "middleName", "familyName")))
 			        .ifPresent(criteriaContext::addPredicate);
 		}
 		
 		if (given != null) {
 			handleAndListParam(criteriaContext.getCriteriaBuilder(), given,
-			    (givenName) -> propertyLike(criteriaContext, personNameAliasJoin, "givenName", givenName))
+			    (givenName) -> personNameLike(criteriaContext, personNameAliasJoin, givenName, "givenName"))
 			        .ifPresent(criteriaContext::addPredicate);
 		}
 		
 		if (family != null) {
 			handleAndListParam(criteriaContext.getCriteriaBuilder(), family,
-			    (familyName) -> propertyLike(criteriaContext, personNameAliasJoin, "familyName", familyName))
+			    (familyName) -> personNameLike(criteriaContext, personNameAliasJoin, familyName, "familyName"))
 			        .ifPresent(criteriaContext::addPredicate);
 		}
 	}
 	
+	/**
+	 * Returns a {@link Optional<Predicate>} matching person names where any of the given properties
+	 * matches the param, in the same way as
+	 * {@link #propertyLike(BaseFhirCriteriaHolder, From, String, StringParam)}. <br/>
+	 * If the FHIR person name index is enabled, the predicate is answered from the index using a single
+	 * subquery, so that prefix and "contains" searches can use a database index. Since the index is
+	 * normalized, these searches are case- and accent-insensitive. Exact searches, and "contains"
+	 * searches when substrings are not indexed, are always matched against the person name itself.
+	 *
+	 * @param criteriaContext the context of the query being built
+	 * @param personNameAlias the {@link PersonName} to match
+	 * @param param the value to search for
+	 * @param propertyNames the names of the {@link PersonName} properties to match the value against
+	 * @return an {@link Optional<Predicate>} matching person names with the value
+	 */
+	public <V, U> Optional<Predicate> personNameLike(@Nonnull OpenmrsFhirCriteriaContext<V, U> criteriaContext,
+	        @Nonnull From<?, ?> personNameAlias, StringParam param, @Nonnull String... propertyNames) {
+		if (param == null || (!param.isExact() && param.getValue().trim().isEmpty())) {
+			return Optional.empty();
+		}
+		
+		if (!useNameIndex(param)) {
+			Stream<Optional<? extends Predicate>> predicates = Arrays.stream(propertyNames)
+			        .map(propertyName -> propertyLike(criteriaContext, personNameAlias, propertyName, param));
+			return Optional.of(criteriaContext.getCriteriaBuilder().or(toCriteriaArray(predicates)));
+		}
+		
+		String token = PersonNameSearchUtils.normalize(param.getValue());
+		if (token.isEmpty()) {
+			return Optional.empty();
+		}
+		
+		CriteriaBuilder criteriaBuilder = criteriaContext.getCriteriaBuilder();
+		OpenmrsFhirCriteriaSubquery<FhirPersonNameToken, Integer> tokenSubquery = criteriaContext
+		        .addSubquery(FhirPersonNameToken.class, Integer.class);
+		Root<FhirPersonNameToken> tokenRoot = tokenSubquery.getRoot();
+		
+		tokenSubquery.addPredicate(criteriaBuilder.like(tokenRoot.get("token"), token + "%"));
+		if (!param.isContains()) {
+			tokenSubquery.addPredicate(criteriaBuilder.equal(tokenRoot.get("position"), 0));
+		}
+		
+		tokenSubquery.addPredicate(tokenRoot.get("namePart")
+		        .in(Arrays.stream(propertyNames).map(PersonNameSearchUtils::getNamePart).collect(Collectors.toList())));
+		tokenSubquery.setProjection(tokenRoot.get("personNameId"));
+		
+		return Optional.of(criteriaBuilder.in(personNameAlias.get("personNameId")).value(tokenSubquery.finalizeQuery()));
+	}
+	
+	private boolean useNameIndex(StringParam param) {
+		if (param.isExact()
+		        || !globalPropertyService.getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_NAME_INDEX_ENABLED, false)) {
+			return false;
+		}
+		
+		return !param.isContains()
+		        || globalPropertyService.getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_NAME_INDEX_SUBSTRINGS, true);
+	}
+	
 	// ========== Participant Handling ==========
 	
 	public <T, U> Optional<Predicate> handleParticipantReference(OpenmrsFhirCriteriaContext<T, U> criteriaContext,
@@ -0,0 +1,100 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.internals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Fills the {@code fhir_location_closure} table from the existing {@code location.parent_location}
+ * hierarchy. Once populated, the table is kept up to date by
+ * {@link org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao}.
+ */
+public class PopulateLocationClosureChangeSet implements CustomTaskChange {
+	
+	private static final int BATCH_SIZE = 500;
+	
+	private int rowsInserted = 0;
+	
+	@Override
+	public void execute(Database database) throws CustomChangeException {
+		Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+		
+		Map<Integer, Integer> parents = new HashMap<>();
+		try (Statement statement = connection.createStatement();
+		        ResultSet rs = statement.executeQuery("select location_id, parent_location from location")) {
+			while (rs.next()) {
+				int parentId = rs.getInt(2);
+				parents.put(rs.getInt(1), rs.wasNull() ? null : parentId);
+			}
+		}
+		catch (SQLException e) {
+			throw new CustomChangeException("Unable to read the location hierarchy", e);
+		}
+		
+		try (PreparedStatement insert = connection
+		        .prepareStatement("insert into fhir_location_closure (ancestor_id, descendant_id, depth) values (?, ?, ?)")) {
+			int batched = 0;
+			for (Integer locationId : parents.keySet()) {
+				Set<Integer> visited = new HashSet<>();
+				Integer ancestorId = locationId;
+				for (int depth = 0; ancestorId != null && parents.containsKey(ancestorId)
+				        && visited.add(ancestorId); depth++) {
+					insert.setInt(1, ancestorId);
+					insert.setInt(2, locationId);
+					insert.setInt(3, depth);
+					insert.addBatch();
+					
+					if (++batched % BATCH_SIZE == 0) {
+						insert.executeBatch();
+					}
+					
+					ancestorId = parents.get(ancestorId);
+				}
+			}
+			
+			insert.executeBatch();
+			rowsInserted = batched;
+		}
+		catch (SQLException e) {
+			throw new CustomChangeException("Unable to populate the location closure table", e);
+		}
+	}
+	
+	@Override
+	public String getConfirmationMessage() {
+		return "Inserted " + rowsInserted + " rows into fhir_location_closure";
+	}
+	
+	@Override
+	public void setUp() {}
+	
+	@Override
+	public void setFileOpener(ResourceAccessor resourceAccessor) {}
+	
+	@Override
+	public ValidationErrors validate(Database database) {
+		return null;
+	}
+}
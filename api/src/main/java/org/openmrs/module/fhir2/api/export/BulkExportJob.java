@@ -0,0 +1,178 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.export;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Holds the state of a single Bulk Data {@code $export} request. <br/>
+ * <br/>
+ * A job is created when an export is kicked off and is updated by the background tasks that export
+ * each of its resource types. Each resource type is written to a single gzipped NDJSON file in the
+ * job's directory. All mutable state is guarded by the job itself, so a job can safely be read by
+ * status requests while it is being updated.
+ */
+@Getter
+public class BulkExportJob {
+	
+	public enum Level {
+		SYSTEM,
+		PATIENT,
+		GROUP
+	}
+	
+	public enum Status {
+		IN_PROGRESS,
+		COMPLETE,
+		ERROR,
+		CANCELLED
+	}
+	
+	@Getter
+	@AllArgsConstructor
+	public static class Output {
+		
+		private final String type;
+		
+		private final String fileName;
+		
+		private final long count;
+	}
+	
+	private final String id;
+	
+	private final Level level;
+	
+	private final String groupId;
+	
+	private final List<String> resourceTypes;
+	
+	private final Date since;
+	
+	private final Date transactionTime;
+	
+	private final String request;
+	
+	private final String owner;
+	
+	private final File directory;
+	
+	@Getter(AccessLevel.NONE)
+	private final AtomicInteger remainingResourceTypes;
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Output> outputs = new LinkedHashMap<>();
+	
+	@Getter(AccessLevel.NONE)
+	private final Map<String, String> errors = new LinkedHashMap<>();
+	
+	private volatile Status status = Status.IN_PROGRESS;
+	
+	private volatile Date completedTime;
+	
+	public BulkExportJob(String id, Level level, String groupId, List<String> resourceTypes, Date since, String request,
+	    String owner, File directory) {
+		this.id = id;
+		this.level = level;
+		this.groupId = groupId;
+		this.resourceTypes = Collections.unmodifiableList(new ArrayList<>(resourceTypes));
+		this.since = since;
+		this.transactionTime = new Date();
+		this.request = request;
+		this.owner = owner;
+		this.directory = directory;
+		this.remainingResourceTypes = new AtomicInteger(resourceTypes.size());
+	}
+	
+	/**
+	 * @return the files written so far, in the order the resource types were completed
+	 */
+	public synchronized List<Output> getOutputs() {
+		return new ArrayList<>(outputs.values());
+	}
+	
+	/**
+	 * @return the error message for each resource type that could not be exported
+	 */
+	public synchronized Map<String, String> getErrors() {
+		return new LinkedHashMap<>(errors);
+	}
+	
+	/**
+	 * @return the number of resource types that have been completely exported or have failed
+	 */
+	public int getCompletedResourceTypes() {
+		return resourceTypes.size() - remainingResourceTypes.get();
+	}
+	
+	public boolean isCancelled() {
+		return status == Status.CANCELLED;
+	}
+	
+	/**
+	 * Records that a resource type has been exported
+	 *
+	 * @return {@code true} if this was the last resource type of the job
+	 */
+	public boolean addOutput(String type, String fileName, long count) {
+		synchronized (this) {
+			outputs.put(type, new Output(type, fileName, count));
+		}
+		
+		return resourceTypeDone();
+	}
+	
+	/**
+	 * Records that a resource type could not be exported
+	 *
+	 * @return {@code true} if this was the last resource type of the job
+	 */
+	public boolean addError(String type, String message) {
+		synchronized (this) {
+			errors.put(type, message);
+		}
+		
+		return resourceTypeDone();
+	}
+	
+	public synchronized void cancel() {
+		if (status == Status.IN_PROGRESS) {
+			status = Status.CANCELLED;
+			completedTime = new Date();
+		}
+	}
+	
+	private boolean resourceTypeDone() {
+		if (remainingResourceTypes.decrementAndGet() > 0) {
+			return false;
+		}
+		
+		synchronized (this) {
+			if (status == Status.IN_PROGRESS) {
+				// errors for individual resource types are reported alongside the files that were written
+				status = outputs.isEmpty() && !errors.isEmpty() ? Status.ERROR : Status.COMPLETE;
+				completedTime = new Date();
+			}
+		}
+		
+		return true;
+	}
+}
@@ -22,6 +22,7 @@ import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.PatchTypeEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
@@ -40,6 +41,7 @@ import org.openmrs.module.fhir2.api.FhirService;
 import org.openmrs.module.fhir2.api.dao.FhirDao;
 import org.openmrs.module.fhir2.api.translators.OpenmrsFhirTranslator;
 import org.openmrs.module.fhir2.api.translators.UpdatableOpenmrsTranslator;
+import org.openmrs.module.fhir2.api.util.ConditionalReadContext;
 import org.openmrs.module.fhir2.api.util.FhirUtils;
 import org.openmrs.module.fhir2.api.util.JsonPatchUtils;
 import org.openmrs.module.fhir2.api.util.XmlPatchUtils;
@@ -78,6 +80,8 @@ public abstract class BaseFhirService<T extends IAnyResource, U extends OpenmrsO
 			throw new InvalidRequestException("Uuid cannot be null.");
 		}
 		
+		checkNotModified(uuid);
+		
 		U openmrsObj = getDao().get(uuid);
 		
 		if (openmrsObj == null) {
@@ -219,6 +223,22 @@ public abstract class BaseFhirService<T extends IAnyResource, U extends OpenmrsO
 		return translator.toFhirResource(getDao().createOrUpdate(updatedObject));
 	}
 	
+	/**
+	 * Answers a conditional read with "304 Not Modified" if the client already has the current version
+	 * of the object, using only its last updated date rather than loading and translating it. Subclasses
+	 * whose resources are not versioned by the last updated date of the object may override this to do
+	 * nothing.
+	 *
+	 * @param uuid the uuid of the object being read
+	 * @throws NotModifiedException if the object has not been modified
+	 */
+	protected void checkNotModified(@Nonnull String uuid) {
+		if (ConditionalReadContext.isNotModified(resourceClass.getSimpleName(), uuid,
+		    () -> getDao().getLastUpdated(uuid))) {
+			throw new NotModifiedException("Not Modified");
+		}
+	}
+	
 	/**
 	 * Overridden by subclasses to return the appropriate {@link FhirDao} object for the OpenMRS object
 	 * serviced by this class
@@ -0,0 +1,473 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PreDestroy;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.HasAndListParam;
+import ca.uhn.fhir.rest.param.HasOrListParam;
+import ca.uhn.fhir.rest.param.HasParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenAndListParam;
+import ca.uhn.fhir.rest.param.TokenOrListParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openmrs.Allergy;
+import org.openmrs.Condition;
+import org.openmrs.DrugOrder;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.User;
+import org.openmrs.api.context.BasicAuthenticated;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.api.context.UsernamePasswordCredentials;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirBulkExportService;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirAllergyIntoleranceDao;
+import org.openmrs.module.fhir2.api.dao.FhirConditionDao;
+import org.openmrs.module.fhir2.api.dao.FhirDao;
+import org.openmrs.module.fhir2.api.dao.FhirEncounterDao;
+import org.openmrs.module.fhir2.api.dao.FhirGroupDao;
+import org.openmrs.module.fhir2.api.dao.FhirMedicationRequestDao;
+import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
+import org.openmrs.module.fhir2.api.export.BulkExportJob;
+import org.openmrs.module.fhir2.api.search.param.KeysetCursor;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+import org.openmrs.module.fhir2.api.translators.AllergyIntoleranceTranslator;
+import org.openmrs.module.fhir2.api.translators.ConditionTranslator;
+import org.openmrs.module.fhir2.api.translators.EncounterTranslator;
+import org.openmrs.module.fhir2.api.translators.MedicationRequestTranslator;
+import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+import org.openmrs.module.fhir2.api.translators.PatientTranslator;
+import org.openmrs.module.fhir2.api.translators.ToFhirTranslator;
+import org.openmrs.module.fhir2.api.util.FhirUtils;
+import org.openmrs.util.OpenmrsClassLoader;
+import org.openmrs.util.OpenmrsUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implements the FHIR Bulk Data {@code $export} operation. <br/>
+ * <br/>
+ * Each resource type of an export is handled by a separate task on a bounded worker pool. A task
+ * walks its resource type in id order using keyset pagination through the same {@link FhirDao}
+ * and translator used to answer searches, writing each chunk of resources to a gzipped NDJSON file
+ * before reading the next. The Hibernate session is cleared after each chunk, so at most one chunk
+ * of each resource type is held in memory at a time. <br/>
+ * <br/>
+ * Each task authenticates its own {@link UserContext} as the user who started the export, with the
+ * same locale and location, so the export is subject to the same privilege checks as the equivalent
+ * searches without sharing the user context of the request. Job state is held in memory; jobs and their
+ * files are removed a day after they finish.
+ */
+@Slf4j
+@Component
+public class FhirBulkExportServiceImpl implements FhirBulkExportService {
+	
+	private static final String EXPORT_DIRECTORY = "fhir2" + File.separator + "export";
+	
+	private static final String FILE_EXTENSION = ".ndjson.gz";
+	
+	private static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+	
+	private static final String EXPORT_AUTHENTICATION_SCHEME = "fhir2 bulk export";
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirPatientDao patientDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private PatientTranslator patientTranslator;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirAllergyIntoleranceDao allergyIntoleranceDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private AllergyIntoleranceTranslator allergyIntoleranceTranslator;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirConditionDao conditionDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private ConditionTranslator<Condition> conditionTranslator;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirEncounterDao encounterDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private EncounterTranslator<Encounter> encounterTranslator;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirMedicationRequestDao medicationRequestDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private MedicationRequestTranslator medicationRequestTranslator;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirObservationDao observationDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private ObservationTranslator observationTranslator;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirGroupDao groupDao;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = { @Autowired, @Qualifier("fhirR4") })
+	private FhirContext fhirContext;
+	
+	@Setter(value = AccessLevel.PACKAGE)
+	private File exportDirectory;
+	
+	private final Map<String, BulkExportJob> jobs = new ConcurrentHashMap<>();
+	
+	private ExecutorService executor;
+	
+	@Override
+	public BulkExportJob startExport(@Nonnull BulkExportJob.Level level, String groupId, Collection<String> resourceTypes,
+	        Date since, String request) {
+		purgeExpiredJobs();
+		
+		if (level == BulkExportJob.Level.GROUP) {
+			if (groupId == null || groupDao.get(groupId) == null) {
+				throw new ResourceNotFoundException("Resource of type Group with ID " + groupId + " is not known");
+			}
+		}
+		
+		Map<String, ExportableResource<?, ?>> exportableResources = getExportableResources();
+		List<String> types;
+		if (resourceTypes == null || resourceTypes.isEmpty()) {
+			types = new ArrayList<>(exportableResources.keySet());
+		} else {
+			types = resourceTypes.stream().distinct().collect(Collectors.toList());
+			for (String type : types) {
+				if (!exportableResources.containsKey(type)) {
+					throw new InvalidRequestException("Resource type " + type + " cannot be exported");
+				}
+			}
+		}
+		
+		String id = FhirUtils.newUuid();
+		File directory = new File(getExportDirectory(), id);
+		if (!directory.mkdirs()) {
+			throw new IllegalStateException("Could not create export directory " + directory);
+		}
+		
+		User user = Context.getAuthenticatedUser();
+		BulkExportJob job = new BulkExportJob(id, level, groupId, types, since, request, user == null ? null : user.getUuid(),
+		        directory);
+		jobs.put(id, job);
+		
+		Supplier<UserContext> taskUserContexts = taskUserContexts(Context.getUserContext());
+		ExecutorService executorService = getExecutor();
+		for (String type : types) {
+			executorService.execute(() -> runExport(job, type, exportableResources.get(type), taskUserContexts));
+		}
+		
+		return job;
+	}
+	
+	@Override
+	public BulkExportJob getExport(@Nonnull String jobId) {
+		purgeExpiredJobs();
+		
+		BulkExportJob job = jobs.get(jobId);
+		if (job == null || !isVisible(job)) {
+			return null;
+		}
+		
+		return job;
+	}
+	
+	@Override
+	public boolean cancelExport(@Nonnull String jobId) {
+		BulkExportJob job = getExport(jobId);
+		if (job == null) {
+			return false;
+		}
+		
+		job.cancel();
+		jobs.remove(jobId);
+		FileUtils.deleteQuietly(job.getDirectory());
+		return true;
+	}
+	
+	@Override
+	public File getExportFile(@Nonnull String jobId, @Nonnull String fileName) {
+		BulkExportJob job = getExport(jobId);
+		if (job == null || job.getStatus() != BulkExportJob.Status.COMPLETE) {
+			return null;
+		}
+		
+		// only names recorded by the job are accepted, so the request can never address other files
+		return job.getOutputs().stream().filter(output -> output.getFileName().equals(fileName)).findFirst()
+		        .map(output -> new File(job.getDirectory(), output.getFileName())).filter(File::isFile).orElse(null);
+	}
+	
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+	
+	protected void runExport(BulkExportJob job, String resourceType, ExportableResource<?, ?> exportableResource,
+	        Supplier<UserContext> taskUserContexts) {
+		Thread.currentThread().setContextClassLoader(OpenmrsClassLoader.getInstance());
+		
+		Context.openSession();
+		try {
+			Context.setUserContext(taskUserContexts.get());
+			
+			String fileName = resourceType + FILE_EXTENSION;
+			long count = 0;
+			try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+			        new GZIPOutputStream(Files.newOutputStream(new File(job.getDirectory(), fileName).toPath())),
+			        StandardCharsets.UTF_8))) {
+				// bulk data is read by machines, so there is no point in rendering narratives
+				IParser parser = fhirContext.newJsonParser().setPrettyPrint(false).setSuppressNarratives(true);
+				
+				if (job.getLevel() == BulkExportJob.Level.GROUP) {
+					count = exportGroup(job, exportableResource, parser, writer);
+				} else {
+					count = exportChunks(job, exportableResource, createSearchParameterMap(job), parser, writer);
+				}
+			}
+			
+			if (job.isCancelled()) {
+				FileUtils.deleteQuietly(job.getDirectory());
+			} else {
+				job.addOutput(resourceType, fileName, count);
+			}
+		}
+		catch (Exception e) {
+			log.error("Error while exporting {} for export {}", resourceType, job.getId(), e);
+			job.addError(resourceType, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+		}
+		finally {
+			Context.clearUserContext();
+			Context.closeSession();
+		}
+	}
+	
+	/**
+	 * Creates new {@link UserContext}s for the export tasks which are authenticated as the same user as
+	 * the given one, so that the {@link UserContext} of the request, e.g., its proxy privileges, is only
+	 * ever used by the request thread. The user, locale and location are read on the calling thread.
+	 */
+	private static Supplier<UserContext> taskUserContexts(UserContext userContext) {
+		User user = userContext.getAuthenticatedUser();
+		Locale locale = userContext.getLocale();
+		Integer locationId = userContext.getLocationId();
+		
+		return () -> {
+			UserContext taskUserContext = new UserContext(
+			        ignored -> new BasicAuthenticated(user, EXPORT_AUTHENTICATION_SCHEME));
+			if (user != null) {
+				taskUserContext.authenticate(new UsernamePasswordCredentials(user.getSystemId(), ""));
+			}
+			
+			taskUserContext.setLocale(locale);
+			taskUserContext.setLocationId(locationId);
+			return taskUserContext;
+		};
+	}
+	
+	private long exportGroup(BulkExportJob job, ExportableResource<?, ?> exportableResource, IParser parser, Writer writer)
+	        throws IOException {
+		SearchParameterMap memberParams = createSearchParameterMap(job).addParameter(FhirConstants.HAS_SEARCH_HANDLER,
+		    new HasAndListParam().addAnd(new HasOrListParam().add(
+		        new HasParam(FhirConstants.GROUP, FhirConstants.INCLUDE_MEMBER_PARAM, "id", job.getGroupId()))));
+		
+		// the members are walked a chunk at a time and the compartments of each chunk of members exported in turn
+		long count = 0;
+		KeysetCursor cursor = KeysetCursor.start();
+		while (cursor != null && !job.isCancelled()) {
+			List<Patient> members = getChunk(patientDao, memberParams, cursor);
+			cursor = memberParams.getNextKeysetCursor();
+			
+			List<String> memberUuids = members.stream().map(Patient::getUuid).collect(Collectors.toList());
+			Context.clearSession();
+			
+			if (!memberUuids.isEmpty()) {
+				count += exportChunks(job, exportableResource,
+				    createCompartmentSearchParameterMap(job, exportableResource, memberUuids), parser, writer);
+			}
+		}
+		
+		return count;
+	}
+	
+	private <T, U extends IBaseResource> long exportChunks(BulkExportJob job, ExportableResource<T, U> exportableResource,
+	        SearchParameterMap theParams, IParser parser, Writer writer) throws IOException {
+		long count = 0;
+		KeysetCursor cursor = KeysetCursor.start();
+		while (cursor != null && !job.isCancelled()) {
+			List<T> chunk = getChunk(exportableResource.dao, theParams, cursor);
+			cursor = theParams.getNextKeysetCursor();
+			
+			for (T object : chunk) {
+				writer.write(parser.encodeResourceToString(exportableResource.translator.toFhirResource(object)));
+				writer.write('\n');
+				count++;
+			}
+			
+			// nothing from the previous chunk is needed to read the next one
+			Context.clearSession();
+		}
+		
+		return count;
+	}
+	
+	private <T> List<T> getChunk(FhirDao<T> dao, SearchParameterMap theParams, KeysetCursor cursor) {
+		theParams.setFromIndex(0);
+		theParams.setToIndex(Math.max(globalPropertyService.getGlobalPropertyAsInteger(
+		    FhirConstants.OPENMRS_FHIR_EXPORT_CHUNK_SIZE, 500), 1));
+		theParams.setKeysetCursor(cursor);
+		return dao.getSearchResults(theParams);
+	}
+	
+	private SearchParameterMap createSearchParameterMap(BulkExportJob job) {
+		SearchParameterMap theParams = new SearchParameterMap();
+		if (job.getSince() != null) {
+			theParams.addParameter(FhirConstants.COMMON_SEARCH_HANDLER, FhirConstants.LAST_UPDATED_PROPERTY,
+			    new DateRangeParam().setLowerBoundInclusive(job.getSince()));
+		}
+		
+		return theParams;
+	}
+	
+	private SearchParameterMap createCompartmentSearchParameterMap(BulkExportJob job,
+	        ExportableResource<?, ?> exportableResource, List<String> patientUuids) {
+		SearchParameterMap theParams = createSearchParameterMap(job);
+		if (exportableResource.patientSearchHandler == null) {
+			TokenOrListParam ids = new TokenOrListParam();
+			patientUuids.forEach(uuid -> ids.add(new TokenParam().setValue(uuid)));
+			return theParams.addParameter(FhirConstants.COMMON_SEARCH_HANDLER, FhirConstants.ID_PROPERTY,
+			    new TokenAndListParam().addAnd(ids));
+		}
+		
+		ReferenceOrListParam patients = new ReferenceOrListParam();
+		patientUuids.forEach(uuid -> patients.add(new ReferenceParam(uuid)));
+		return theParams.addParameter(exportableResource.patientSearchHandler,
+		    new ReferenceAndListParam().addAnd(patients));
+	}
+	
+	private Map<String, ExportableResource<?, ?>> getExportableResources() {
+		Map<String, ExportableResource<?, ?>> result = new LinkedHashMap<>();
+		result.put(FhirConstants.PATIENT, new ExportableResource<>(patientDao, patientTranslator, null));
+		result.put(FhirConstants.ALLERGY_INTOLERANCE, new ExportableResource<>(allergyIntoleranceDao,
+		        allergyIntoleranceTranslator, FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER));
+		result.put(FhirConstants.CONDITION,
+		    new ExportableResource<>(conditionDao, conditionTranslator, FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER));
+		result.put(FhirConstants.ENCOUNTER,
+		    new ExportableResource<>(encounterDao, encounterTranslator, FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER));
+		result.put(FhirConstants.MEDICATION_REQUEST, new ExportableResource<>(medicationRequestDao,
+		        medicationRequestTranslator, FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER));
+		result.put(FhirConstants.OBSERVATION,
+		    new ExportableResource<>(observationDao, observationTranslator, FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER));
+		return result;
+	}
+	
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			int threads = Math.max(
+			    globalPropertyService.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_EXPORT_MAX_THREADS, 2), 1);
+			ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+			        new LinkedBlockingQueue<>(),
+			        new ThreadFactoryBuilder().setNameFormat("fhir2-export-%d").setDaemon(true).build());
+			threadPoolExecutor.allowCoreThreadTimeOut(true);
+			executor = threadPoolExecutor;
+		}
+		
+		return executor;
+	}
+	
+	private File getExportDirectory() {
+		if (exportDirectory == null) {
+			exportDirectory = OpenmrsUtil.getDirectoryInApplicationDataDirectory(EXPORT_DIRECTORY);
+		}
+		
+		return exportDirectory;
+	}
+	
+	private boolean isVisible(BulkExportJob job) {
+		User user = Context.getAuthenticatedUser();
+		return job.getOwner() == null || (user != null && (job.getOwner().equals(user.getUuid()) || user.isSuperUser()));
+	}
+	
+	private void purgeExpiredJobs() {
+		long expiredBefore = System.currentTimeMillis() - RETENTION_MILLIS;
+		jobs.values().removeIf(job -> {
+			Date completedTime = job.getCompletedTime();
+			if (completedTime != null && completedTime.getTime() < expiredBefore) {
+				FileUtils.deleteQuietly(job.getDirectory());
+				return true;
+			}
+			
+			return false;
+		});
+	}
+	
+	@AllArgsConstructor
+	protected static final class ExportableResource<T, U extends IBaseResource> {
+		
+		private final FhirDao<T> dao;
+		
+		private final ToFhirTranslator<T, U> translator;
+		
+		// the search handler used to restrict the resource to a set of patients, null for Patient itself
+		private final String patientSearchHandler;
+	}
+}
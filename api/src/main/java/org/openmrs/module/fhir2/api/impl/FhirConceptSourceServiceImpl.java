@@ -23,6 +23,7 @@ import org.openmrs.Duration;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirConceptSourceService;
 import org.openmrs.module.fhir2.api.dao.FhirConceptSourceDao;
+import org.openmrs.module.fhir2.api.translators.impl.CodeableConceptCache;
 import org.openmrs.module.fhir2.model.FhirConceptSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -36,6 +37,9 @@ public class FhirConceptSourceServiceImpl implements FhirConceptSourceService {
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = { @Autowired, @VisibleForTesting })
 	private FhirConceptSourceDao dao;
 	
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = { @Autowired(required = false) })
+	private CodeableConceptCache codeableConceptCache;
+	
 	@Override
 	@Cacheable(value = "fhir2GetFhirConceptSources")
 	public Collection<FhirConceptSource> getFhirConceptSources() {
@@ -86,6 +90,11 @@ public class FhirConceptSourceServiceImpl implements FhirConceptSourceService {
 	@Override
 	@CacheEvict(value = "fhir2GetFhirConceptSources", allEntries = true)
 	public FhirConceptSource saveFhirConceptSource(@Nonnull FhirConceptSource fhirConceptSource) {
-		return dao.saveFhirConceptSource(fhirConceptSource);
+		FhirConceptSource result = dao.saveFhirConceptSource(fhirConceptSource);
+		if (codeableConceptCache != null) {
+			codeableConceptCache.invalidateAll();
+		}
+		
+		return result;
 	}
 }
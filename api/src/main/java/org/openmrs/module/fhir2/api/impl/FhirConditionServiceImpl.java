@@ -19,15 +19,16 @@ import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
-import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hl7.fhir.r4.model.Condition;
+import org.openmrs.Diagnosis;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirConditionService;
 import org.openmrs.module.fhir2.api.FhirDiagnosisService;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
 import org.openmrs.module.fhir2.api.dao.FhirConditionDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryInclude;
@@ -67,17 +68,17 @@ public class FhirConditionServiceImpl extends BaseFhirService<Condition, org.ope
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
 	private FhirDiagnosisService diagnosisService;
 	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
+	private FhirBackingTypeDao backingTypeDao;
+	
 	@Override
 	public Condition get(@Nonnull String uuid) {
-		Condition result;
-		try {
-			result = super.get(uuid);
-		}
-		catch (ResourceNotFoundException e) {
-			result = diagnosisService.get(uuid);
+		if (isDiagnosis(uuid)) {
+			return diagnosisService.get(uuid);
 		}
 		
-		return result;
+		return super.get(uuid);
 	}
 	
 	@Override
@@ -129,11 +130,10 @@ public class FhirConditionServiceImpl extends BaseFhirService<Condition, org.ope
 			throw new InvalidRequestException("Uuid cannot be null.");
 		}
 		
-		try {
-			super.delete(uuid);
-		}
-		catch (ResourceNotFoundException e) {
+		if (isDiagnosis(uuid)) {
 			diagnosisService.delete(uuid);
+		} else {
+			super.delete(uuid);
 		}
 	}
 	
@@ -167,7 +167,8 @@ public class FhirConditionServiceImpl extends BaseFhirService<Condition, org.ope
 		}
 		
 		if (conditionBundle != null && diagnosisBundle != null) {
-			return new TwoSearchQueryBundleProvider(diagnosisBundle, conditionBundle, globalPropertyService);
+			return new TwoSearchQueryBundleProvider(diagnosisBundle, conditionBundle, globalPropertyService,
+			        conditionSearchParams.getSort());
 		} else if (conditionBundle == null && diagnosisBundle != null) {
 			return diagnosisBundle;
 		}
@@ -175,6 +176,11 @@ public class FhirConditionServiceImpl extends BaseFhirService<Condition, org.ope
 		return conditionBundle == null ? new SimpleBundleProvider() : conditionBundle;
 	}
 	
+	private boolean isDiagnosis(String uuid) {
+		return uuid != null && backingTypeDao.getBackingType(uuid, org.openmrs.Condition.class, Diagnosis.class)
+		        .filter(Diagnosis.class::equals).isPresent();
+	}
+	
 	/**
 	 * @return true if category param is provided with correct system and code. Also returns true if
 	 *         nothing is provided.
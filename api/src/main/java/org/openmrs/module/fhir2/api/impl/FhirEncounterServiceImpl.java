@@ -21,15 +21,16 @@ import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
-import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hl7.fhir.r4.model.Encounter;
+import org.openmrs.Visit;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirEncounterService;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.FhirVisitService;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
 import org.openmrs.module.fhir2.api.dao.FhirEncounterDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryInclude;
@@ -68,18 +69,17 @@ public class FhirEncounterServiceImpl extends BaseFhirService<Encounter, org.ope
 	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
 	private FhirVisitService visitService;
 	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirBackingTypeDao backingTypeDao;
+	
 	@Override
 	public Encounter get(@Nonnull String uuid) {
-		
-		Encounter result;
-		try {
-			result = super.get(uuid);
-		}
-		catch (ResourceNotFoundException e) {
-			result = visitService.get(uuid);
+		if (isVisit(uuid)) {
+			return visitService.get(uuid);
 		}
 		
-		return result;
+		return super.get(uuid);
 	}
 	
 	@Override
@@ -136,11 +136,10 @@ public class FhirEncounterServiceImpl extends BaseFhirService<Encounter, org.ope
 			throw new InvalidRequestException("Uuid cannot be null.");
 		}
 		
-		try {
-			super.delete(uuid);
-		}
-		catch (ResourceNotFoundException e) {
+		if (isVisit(uuid)) {
 			visitService.delete(uuid);
+		} else {
+			super.delete(uuid);
 		}
 	}
 	
@@ -160,7 +159,8 @@ public class FhirEncounterServiceImpl extends BaseFhirService<Encounter, org.ope
 		}
 		
 		if (encounterBundle != null && visitBundle != null) {
-			return new TwoSearchQueryBundleProvider(visitBundle, encounterBundle, globalPropertyService);
+			return new TwoSearchQueryBundleProvider(visitBundle, encounterBundle, globalPropertyService,
+			        searchParameters.getSort());
 		} else if (encounterBundle == null && visitBundle != null) {
 			return visitBundle;
 		}
@@ -168,6 +168,11 @@ public class FhirEncounterServiceImpl extends BaseFhirService<Encounter, org.ope
 		return encounterBundle == null ? new SimpleBundleProvider() : encounterBundle;
 	}
 	
+	private boolean isVisit(String uuid) {
+		return uuid != null && backingTypeDao.getBackingType(uuid, org.openmrs.Encounter.class, Visit.class)
+		        .filter(Visit.class::equals).isPresent();
+	}
+	
 	/**
 	 * @return true if the given tokenAndListParam contains the matching OpenMRS encounter type tag.
 	 */
@@ -29,6 +29,11 @@ public class FhirGlobalPropertyServiceImpl implements FhirGlobalPropertyService
 		return FhirGlobalPropertyHolder.getGlobalPropertyAsInteger(property, defaultValue);
 	}
 	
+	@Override
+	public boolean getGlobalPropertyAsBoolean(String property, boolean defaultValue) {
+		return FhirGlobalPropertyHolder.getGlobalPropertyAsBoolean(property, defaultValue);
+	}
+	
 	@Override
 	public String getGlobalProperty(String property, String defaultValue) {
 		return FhirGlobalPropertyHolder.getGlobalProperty(property, defaultValue);
@@ -14,6 +14,7 @@ import static lombok.AccessLevel.PROTECTED;
 import javax.annotation.Nonnull;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -98,18 +99,27 @@ public class FhirPatientServiceImpl extends BaseFhirService<Patient, org.openmrs
 	
 	@Override
 	public IBundleProvider getPatientEverything(TokenParam patientId) {
-		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.EVERYTHING_SEARCH_HANDLER, "")
-		        .addParameter(FhirConstants.COMMON_SEARCH_HANDLER, FhirConstants.ID_PROPERTY,
-		            new TokenAndListParam().addAnd(patientId));
-		
-		populateEverythingOperationParams(theParams);
-		return searchQuery.getQueryResults(theParams, dao, translator, searchQueryInclude);
+		return getPatientEverything(patientId, null);
 	}
 	
 	@Override
 	public IBundleProvider getPatientEverything() {
+		return getPatientEverything(null, null);
+	}
+	
+	@Override
+	public IBundleProvider getPatientEverything(TokenParam patientId, Date since) {
 		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.EVERYTHING_SEARCH_HANDLER, "");
 		
+		if (patientId != null) {
+			theParams.addParameter(FhirConstants.COMMON_SEARCH_HANDLER, FhirConstants.ID_PROPERTY,
+			    new TokenAndListParam().addAnd(patientId));
+		}
+		
+		if (since != null) {
+			theParams.addParameter(FhirConstants.SINCE_SEARCH_PARAMETER, since);
+		}
+		
 		populateEverythingOperationParams(theParams);
 		return searchQuery.getQueryResults(theParams, dao, translator, searchQueryInclude);
 	}
@@ -13,7 +13,6 @@ import javax.annotation.Nonnull;
 
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
-import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -24,13 +23,13 @@ import org.openmrs.User;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.FhirPractitionerService;
 import org.openmrs.module.fhir2.api.FhirUserService;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
 import org.openmrs.module.fhir2.api.dao.FhirPractitionerDao;
 import org.openmrs.module.fhir2.api.dao.FhirUserDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryInclude;
 import org.openmrs.module.fhir2.api.search.TwoSearchQueryBundleProvider;
 import org.openmrs.module.fhir2.api.search.param.PractitionerSearchParams;
-import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.PractitionerTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -67,21 +66,21 @@ public class FhirPractitionerServiceImpl extends BaseFhirService<Practitioner, P
 	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
 	private FhirUserService userService;
 	
+	@Getter(value = AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PACKAGE, onMethod_ = @Autowired)
+	private FhirBackingTypeDao backingTypeDao;
+	
 	@Override
 	public Practitioner get(@Nonnull String uuid) {
 		if (uuid == null) {
 			throw new InvalidRequestException("Uuid cannot be null.");
 		}
 		
-		Practitioner result;
-		try {
-			result = super.get(uuid);
-		}
-		catch (ResourceNotFoundException e) {
-			result = userService.get(uuid);
+		if (backingTypeDao.getBackingType(uuid, Provider.class, User.class).filter(User.class::equals).isPresent()) {
+			return userService.get(uuid);
 		}
 		
-		return result;
+		return super.get(uuid);
 	}
 	
 	@Override
@@ -98,15 +97,10 @@ public class FhirPractitionerServiceImpl extends BaseFhirService<Practitioner, P
 	public IBundleProvider searchForPractitioners(PractitionerSearchParams practitionerSearchParams) {
 		IBundleProvider providerBundle = searchQuery.getQueryResults(practitionerSearchParams.toSearchParameterMap(), dao,
 		    translator, searchQueryInclude);
-		SearchParameterMap theParams = new SearchParameterMap();
-		IBundleProvider userBundle = userService.searchForUsers(theParams);
-		
-		if (!providerBundle.isEmpty() && !userBundle.isEmpty()) {
-			return new TwoSearchQueryBundleProvider(providerBundle, userBundle, globalPropertyService);
-		} else if (providerBundle.isEmpty() && !userBundle.isEmpty()) {
-			return userBundle;
-		}
+		// each search gets its own parameter map, as the range of results to read is set on it
+		IBundleProvider userBundle = userService.searchForUsers(practitionerSearchParams.toSearchParameterMap());
 		
-		return providerBundle;
+		return new TwoSearchQueryBundleProvider(providerBundle, userBundle, globalPropertyService,
+		        practitionerSearchParams.getSort());
 	}
 }
@@ -11,6 +11,8 @@ package org.openmrs.module.fhir2.api.impl;
 
 import static lombok.AccessLevel.PROTECTED;
 
+import javax.annotation.Nonnull;
+
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import lombok.Getter;
 import lombok.Setter;
@@ -50,4 +52,9 @@ public class FhirRelatedPersonServiceImpl extends BaseFhirService<RelatedPerson,
 		    searchQueryInclude);
 	}
 	
+	@Override
+	protected void checkNotModified(@Nonnull String uuid) {
+		// related persons are built from both the relationship and the related person, so the relationship's
+		// last updated date does not tell us whether the resource has changed
+	}
 }
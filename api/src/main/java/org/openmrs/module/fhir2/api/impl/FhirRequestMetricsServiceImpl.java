@@ -0,0 +1,235 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PROTECTED;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.IntegerType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.hl7.fhir.r4.model.StringType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.FhirRequestMetricsService;
+import org.openmrs.module.fhir2.api.util.MetricsHistogram;
+import org.openmrs.module.fhir2.api.util.RequestMetrics;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+public class FhirRequestMetricsServiceImpl implements FhirRequestMetricsService {
+	
+	private static final String SYSTEM = "system";
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = { @Autowired, @Qualifier("sessionFactory") })
+	private SessionFactory sessionFactory;
+	
+	private final ConcurrentMap<String, RequestMetricsAggregate> aggregates = new ConcurrentHashMap<>();
+	
+	private final ConcurrentMap<String, CacheStatistics> caches = new ConcurrentHashMap<>();
+	
+	@Override
+	public RequestMetrics startRequest() {
+		RequestMetrics metrics = RequestMetrics.start();
+		
+		try {
+			sessionFactory.getCurrentSession().addEventListeners(new StatementCounter(metrics));
+		}
+		catch (HibernateException e) {
+			log.debug("Unable to count the SQL statements of the current request", e);
+		}
+		
+		return metrics;
+	}
+	
+	@Override
+	public void completeRequest(String resourceType, String operation) {
+		RequestMetrics metrics = RequestMetrics.finish();
+		if (metrics == null) {
+			return;
+		}
+		
+		String type = resourceType == null ? SYSTEM : resourceType;
+		aggregates.computeIfAbsent(type + " " + operation, k -> new RequestMetricsAggregate(type, operation))
+		        .record(metrics);
+	}
+	
+	@Override
+	public void registerCacheStatistics(String name, LongSupplier hits, LongSupplier misses) {
+		caches.putIfAbsent(name, new CacheStatistics(name, hits, misses));
+	}
+	
+	@Override
+	public Parameters getRequestMetrics() {
+		Context.requirePrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+		
+		Parameters parameters = new Parameters();
+		aggregates.values().stream()
+		        .sorted(Comparator.comparing((RequestMetricsAggregate aggregate) -> aggregate.resourceType)
+		                .thenComparing(aggregate -> String.valueOf(aggregate.operation)))
+		        .forEach(aggregate -> aggregate.addTo(parameters.addParameter().setName("request")));
+		caches.values().stream().sorted(Comparator.comparing((CacheStatistics cache) -> cache.name))
+		        .forEach(cache -> cache.addTo(parameters.addParameter().setName("cache")));
+		
+		return parameters;
+	}
+	
+	@Override
+	public void resetRequestMetrics() {
+		Context.requirePrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+		aggregates.clear();
+		caches.values().forEach(CacheStatistics::reset);
+	}
+	
+	private static IntegerType toIntegerType(long value) {
+		return new IntegerType((int) Math.min(value, Integer.MAX_VALUE));
+	}
+	
+	// counts the statements prepared by the session while the request it was registered for is running
+	private static class StatementCounter extends BaseSessionEventListener {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final transient RequestMetrics metrics;
+		
+		StatementCounter(RequestMetrics metrics) {
+			this.metrics = metrics;
+		}
+		
+		@Override
+		public void jdbcPrepareStatementStart() {
+			if (metrics != null && RequestMetrics.get() == metrics) {
+				metrics.statementPrepared();
+			}
+		}
+	}
+	
+	private static class RequestMetricsAggregate {
+		
+		private final String resourceType;
+		
+		private final String operation;
+		
+		private final LongAdder requests = new LongAdder();
+		
+		private final Map<String, MetricsHistogram> histograms = new LinkedHashMap<>();
+		
+		RequestMetricsAggregate(String resourceType, String operation) {
+			this.resourceType = resourceType;
+			this.operation = operation;
+			
+			histograms.put("duration", new MetricsHistogram(MetricsHistogram.DURATION_BUCKETS));
+			histograms.put("sqlStatements", new MetricsHistogram(MetricsHistogram.COUNT_BUCKETS));
+			for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+				String name = phase.name().toLowerCase(Locale.ROOT);
+				histograms.put(name + ".duration", new MetricsHistogram(MetricsHistogram.DURATION_BUCKETS));
+				histograms.put(name + ".sqlStatements", new MetricsHistogram(MetricsHistogram.COUNT_BUCKETS));
+			}
+			histograms.put("results", new MetricsHistogram(MetricsHistogram.COUNT_BUCKETS));
+			histograms.put("includedResources", new MetricsHistogram(MetricsHistogram.COUNT_BUCKETS));
+			histograms.put("includeQueries", new MetricsHistogram(MetricsHistogram.COUNT_BUCKETS));
+		}
+		
+		void record(RequestMetrics metrics) {
+			requests.increment();
+			
+			histograms.get("duration").record(metrics.getTotalMillis());
+			histograms.get("sqlStatements").record(metrics.getStatements());
+			for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+				String name = phase.name().toLowerCase(Locale.ROOT);
+				histograms.get(name + ".duration").record(metrics.getPhaseMillis(phase));
+				histograms.get(name + ".sqlStatements").record(metrics.getPhaseStatements(phase));
+			}
+			histograms.get("results").record(metrics.getResults());
+			histograms.get("includedResources").record(metrics.getIncludedResources());
+			histograms.get("includeQueries").record(metrics.getIncludeQueries());
+		}
+		
+		void addTo(Parameters.ParametersParameterComponent parameter) {
+			parameter.addPart().setName("resourceType").setValue(new StringType(resourceType));
+			if (operation != null) {
+				parameter.addPart().setName("operation").setValue(new StringType(operation));
+			}
+			parameter.addPart().setName("requests").setValue(toIntegerType(requests.sum()));
+			
+			histograms.forEach((name, histogram) -> {
+				Parameters.ParametersParameterComponent part = parameter.addPart().setName(name);
+				part.addPart().setName("count").setValue(toIntegerType(histogram.getCount()));
+				part.addPart().setName("sum").setValue(new DecimalType(histogram.getSum()));
+				part.addPart().setName("max").setValue(new DecimalType(histogram.getMax()));
+				
+				double[] upperBounds = histogram.getUpperBounds();
+				long[] counts = histogram.getCumulativeCounts();
+				for (int i = 0; i < upperBounds.length; i++) {
+					Parameters.ParametersParameterComponent bucket = part.addPart().setName("bucket");
+					bucket.addPart().setName("le").setValue(new DecimalType(upperBounds[i]));
+					bucket.addPart().setName("count").setValue(toIntegerType(counts[i]));
+				}
+			});
+		}
+	}
+	
+	// the statistics of a cache are counted from its creation, so a reset only moves the baseline
+	private static class CacheStatistics {
+		
+		private final String name;
+		
+		private final LongSupplier hits;
+		
+		private final LongSupplier misses;
+		
+		private volatile long hitsAtReset;
+		
+		private volatile long missesAtReset;
+		
+		CacheStatistics(String name, LongSupplier hits, LongSupplier misses) {
+			this.name = name;
+			this.hits = hits;
+			this.misses = misses;
+		}
+		
+		synchronized void reset() {
+			hitsAtReset = hits.getAsLong();
+			missesAtReset = misses.getAsLong();
+		}
+		
+		void addTo(Parameters.ParametersParameterComponent parameter) {
+			// a cache which was replaced since the last reset counts from zero again
+			long hitCount = Math.max(hits.getAsLong() - hitsAtReset, 0);
+			long missCount = Math.max(misses.getAsLong() - missesAtReset, 0);
+			long requestCount = hitCount + missCount;
+			
+			parameter.addPart().setName("name").setValue(new StringType(name));
+			parameter.addPart().setName("hits").setValue(toIntegerType(hitCount));
+			parameter.addPart().setName("misses").setValue(toIntegerType(missCount));
+			parameter.addPart().setName("hitRate")
+			        .setValue(new DecimalType(requestCount == 0 ? 0.0 : (double) hitCount / requestCount));
+		}
+	}
+}
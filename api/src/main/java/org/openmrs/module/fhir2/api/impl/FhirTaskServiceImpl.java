@@ -11,16 +11,23 @@ package org.openmrs.module.fhir2.api.impl;
 
 import static lombok.AccessLevel.PROTECTED;
 
+import javax.annotation.Nonnull;
+
+import java.util.concurrent.TimeUnit;
+
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import lombok.Getter;
 import lombok.Setter;
 import org.hl7.fhir.r4.model.Task;
+import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirTaskService;
 import org.openmrs.module.fhir2.api.dao.FhirTaskDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryInclude;
 import org.openmrs.module.fhir2.api.search.param.TaskSearchParams;
 import org.openmrs.module.fhir2.api.translators.TaskTranslator;
+import org.openmrs.module.fhir2.api.util.ChangeNotifier;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
 import org.openmrs.module.fhir2.model.FhirTask;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -28,6 +35,11 @@ import org.springframework.stereotype.Component;
 @Component
 public class FhirTaskServiceImpl extends BaseFhirService<Task, FhirTask> implements FhirTaskService {
 	
+	public static final int DEFAULT_MAX_WAIT_SECONDS = 30;
+	
+	// wakes searches waiting for tasks whenever a task is created or updated
+	private final ChangeNotifier changeNotifier = new ChangeNotifier();
+	
 	@Getter(value = PROTECTED)
 	@Setter(value = PROTECTED, onMethod_ = @Autowired)
 	private FhirTaskDao dao;
@@ -53,4 +65,47 @@ public class FhirTaskServiceImpl extends BaseFhirService<Task, FhirTask> impleme
 	public IBundleProvider searchForTasks(TaskSearchParams taskSearchParams) {
 		return searchQuery.getQueryResults(taskSearchParams.toSearchParameterMap(), dao, translator, searchQueryInclude);
 	}
+	
+	@Override
+	public IBundleProvider searchForTasks(TaskSearchParams taskSearchParams, int waitSeconds) {
+		int maxWaitSeconds = FhirGlobalPropertyHolder
+		        .getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_TASK_SEARCH_MAX_WAIT, DEFAULT_MAX_WAIT_SECONDS);
+		long deadline = System.currentTimeMillis()
+		        + TimeUnit.SECONDS.toMillis(Math.max(Math.min(waitSeconds, maxWaitSeconds), 0));
+		
+		while (true) {
+			// read before searching, so that a task saved while searching still ends the wait
+			long sequence = changeNotifier.getSequence();
+			IBundleProvider results = searchForTasks(taskSearchParams);
+			
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0 || !results.isEmpty()) {
+				return results;
+			}
+			
+			try {
+				if (!changeNotifier.awaitChange(sequence, remaining)) {
+					return results;
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return results;
+			}
+		}
+	}
+	
+	@Override
+	public Task create(@Nonnull Task newResource) {
+		Task task = super.create(newResource);
+		changeNotifier.changed();
+		return task;
+	}
+	
+	@Override
+	protected Task applyUpdate(FhirTask existingObject, Task updatedResource) {
+		Task task = super.applyUpdate(existingObject, updatedResource);
+		changeNotifier.changed();
+		return task;
+	}
 }
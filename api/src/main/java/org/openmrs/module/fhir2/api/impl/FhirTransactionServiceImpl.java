@@ -0,0 +1,527 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PROTECTED;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IBaseMetaType;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryRequestComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleEntryResponseComponent;
+import org.hl7.fhir.r4.model.Bundle.BundleType;
+import org.hl7.fhir.r4.model.Bundle.HTTPVerb;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirAllergyIntoleranceService;
+import org.openmrs.module.fhir2.api.FhirConditionService;
+import org.openmrs.module.fhir2.api.FhirDiagnosticReportService;
+import org.openmrs.module.fhir2.api.FhirEncounterService;
+import org.openmrs.module.fhir2.api.FhirEpisodeOfCareService;
+import org.openmrs.module.fhir2.api.FhirGroupService;
+import org.openmrs.module.fhir2.api.FhirImmunizationService;
+import org.openmrs.module.fhir2.api.FhirLocationService;
+import org.openmrs.module.fhir2.api.FhirMedicationDispenseService;
+import org.openmrs.module.fhir2.api.FhirMedicationRequestService;
+import org.openmrs.module.fhir2.api.FhirMedicationService;
+import org.openmrs.module.fhir2.api.FhirObservationService;
+import org.openmrs.module.fhir2.api.FhirPatientService;
+import org.openmrs.module.fhir2.api.FhirPersonService;
+import org.openmrs.module.fhir2.api.FhirPractitionerService;
+import org.openmrs.module.fhir2.api.FhirRelatedPersonService;
+import org.openmrs.module.fhir2.api.FhirService;
+import org.openmrs.module.fhir2.api.FhirServiceRequestService;
+import org.openmrs.module.fhir2.api.FhirTaskService;
+import org.openmrs.module.fhir2.api.FhirTransactionService;
+import org.openmrs.module.fhir2.api.FhirValueSetService;
+import org.openmrs.module.fhir2.api.util.ReferenceLookupContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Processes {@code transaction} and {@code batch} Bundles by handing each entry to the
+ * {@link FhirService} for its resource type, i.e., the same service that handles the equivalent
+ * single-resource request. <br/>
+ * <br/>
+ * Entries are processed in the order required by the FHIR specification: deletes, then creates,
+ * then updates and finally reads. Creates are further ordered so that an entry is created before any
+ * entry that refers to it by its full url (usually a {@code urn:uuid:}) and such references are
+ * replaced with a reference to the created resource. While a Bundle is processed, references to
+ * existing objects are resolved only once (see {@link ReferenceLookupContext}).
+ *
+ * @see <a href="https://hl7.org/fhir/R4/http.html#transaction">Batch/Transaction</a>
+ */
+@Slf4j
+@Component
+public class FhirTransactionServiceImpl implements FhirTransactionService {
+	
+	private static final int JDBC_BATCH_SIZE = 50;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @__({ @Autowired, @Qualifier("fhirR4") }))
+	private FhirContext fhirContext;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @__({ @Autowired, @Qualifier("sessionFactory") }))
+	private SessionFactory sessionFactory;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirAllergyIntoleranceService allergyIntoleranceService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirConditionService conditionService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirDiagnosticReportService diagnosticReportService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirEncounterService encounterService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirEpisodeOfCareService episodeOfCareService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirGroupService groupService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirImmunizationService immunizationService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirLocationService locationService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirMedicationService medicationService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirMedicationDispenseService medicationDispenseService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirMedicationRequestService medicationRequestService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirObservationService observationService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirPatientService patientService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirPersonService personService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirPractitionerService practitionerService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirRelatedPersonService relatedPersonService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirServiceRequestService serviceRequestService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirTaskService taskService;
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirValueSetService valueSetService;
+	
+	@Override
+	@Transactional
+	public Bundle processTransaction(@Nonnull Bundle bundle) {
+		checkBundleType(bundle, BundleType.TRANSACTION);
+		
+		// nothing is committed until the whole Bundle has been processed, so any statements Hibernate can
+		// batch are sent together when the session is flushed
+		Session session = sessionFactory.getCurrentSession();
+		Integer jdbcBatchSize = session.getJdbcBatchSize();
+		session.setJdbcBatchSize(JDBC_BATCH_SIZE);
+		try {
+			return processEntries(bundle, true);
+		}
+		finally {
+			session.setJdbcBatchSize(jdbcBatchSize);
+		}
+	}
+	
+	@Override
+	public Bundle processBatch(@Nonnull Bundle bundle) {
+		checkBundleType(bundle, BundleType.BATCH);
+		
+		return processEntries(bundle, false);
+	}
+	
+	private void checkBundleType(Bundle bundle, BundleType bundleType) {
+		if (bundle == null || bundle.getType() != bundleType) {
+			throw new InvalidRequestException("Expected a Bundle of type " + bundleType.toCode());
+		}
+	}
+	
+	private Bundle processEntries(Bundle bundle, boolean transaction) {
+		List<BundleEntryComponent> entries = bundle.getEntry();
+		BundleEntryComponent[] responseEntries = new BundleEntryComponent[entries.size()];
+		Map<String, String> createdReferences = new HashMap<>();
+		
+		ReferenceLookupContext.open();
+		try {
+			for (int index : getProcessingOrder(entries)) {
+				try {
+					responseEntries[index] = processEntry(entries.get(index), createdReferences);
+				}
+				catch (RuntimeException e) {
+					if (transaction) {
+						throw e;
+					}
+					
+					log.debug("Failed to process entry {} of batch Bundle", index, e);
+					responseEntries[index] = createErrorResponse(e);
+					// the failed entry may have left the session cleared or rolled back, so the objects
+					// resolved so far must not be reused by the remaining entries
+					ReferenceLookupContext.clear();
+				}
+			}
+		}
+		finally {
+			ReferenceLookupContext.close();
+		}
+		
+		Bundle response = new Bundle();
+		response.setType(transaction ? BundleType.TRANSACTIONRESPONSE : BundleType.BATCHRESPONSE);
+		response.setEntry(new ArrayList<>(Arrays.asList(responseEntries)));
+		return response;
+	}
+	
+	private List<Integer> getProcessingOrder(List<BundleEntryComponent> entries) {
+		List<Integer> order = IntStream.range(0, entries.size()).boxed()
+		        .sorted(Comparator.comparingInt((Integer index) -> getMethodRank(entries.get(index))))
+		        .collect(Collectors.toList());
+		
+		List<Integer> creates = order.stream().filter(index -> entries.get(index).getRequest().getMethod() == HTTPVerb.POST)
+		        .collect(Collectors.toList());
+		if (creates.size() > 1) {
+			int firstCreate = order.indexOf(creates.get(0));
+			List<Integer> orderedCreates = orderCreates(entries, creates);
+			for (int i = 0; i < orderedCreates.size(); i++) {
+				order.set(firstCreate + i, orderedCreates.get(i));
+			}
+		}
+		
+		return order;
+	}
+	
+	private static int getMethodRank(BundleEntryComponent entry) {
+		HTTPVerb method = entry.getRequest().getMethod();
+		if (method == null) {
+			return 4;
+		}
+		
+		switch (method) {
+			case DELETE:
+				return 0;
+			case POST:
+				return 1;
+			case PUT:
+			case PATCH:
+				return 2;
+			default:
+				return 3;
+		}
+	}
+	
+	/**
+	 * Orders the create entries so that each entry is preceded by the entries it refers to
+	 */
+	private List<Integer> orderCreates(List<BundleEntryComponent> entries, List<Integer> creates) {
+		Map<String, Integer> createsByFullUrl = new HashMap<>();
+		for (int index : creates) {
+			if (entries.get(index).hasFullUrl()) {
+				createsByFullUrl.put(entries.get(index).getFullUrl(), index);
+			}
+		}
+		
+		List<Integer> orderedCreates = new ArrayList<>(creates.size());
+		if (createsByFullUrl.isEmpty()) {
+			orderedCreates.addAll(creates);
+			return orderedCreates;
+		}
+		
+		Set<Integer> visited = new HashSet<>();
+		for (int index : creates) {
+			addCreate(entries, index, createsByFullUrl, visited, new HashSet<>(), orderedCreates);
+		}
+		
+		return orderedCreates;
+	}
+	
+	private void addCreate(List<BundleEntryComponent> entries, int index, Map<String, Integer> createsByFullUrl,
+	        Set<Integer> visited, Set<Integer> visiting, List<Integer> orderedCreates) {
+		if (visited.contains(index)) {
+			return;
+		}
+		
+		if (!visiting.add(index)) {
+			throw new InvalidRequestException(
+			        "Bundle contains a circular reference involving entry " + entries.get(index).getFullUrl());
+		}
+		
+		for (Reference reference : getReferences(entries.get(index).getResource())) {
+			Integer dependency = createsByFullUrl.get(reference.getReference());
+			if (dependency != null && dependency != index) {
+				addCreate(entries, dependency, createsByFullUrl, visited, visiting, orderedCreates);
+			}
+		}
+		
+		visiting.remove(index);
+		visited.add(index);
+		orderedCreates.add(index);
+	}
+	
+	private BundleEntryComponent processEntry(BundleEntryComponent entry, Map<String, String> createdReferences) {
+		BundleEntryRequestComponent request = entry.getRequest();
+		if (!request.hasMethod() || !request.hasUrl()) {
+			throw new InvalidRequestException("Bundle entries must specify a request method and url");
+		}
+		
+		if (request.getUrl().contains("?") || request.hasIfNoneExist() || request.hasIfMatch() || request.hasIfNoneMatch()
+		        || request.hasIfModifiedSince()) {
+			throw new InvalidRequestException(
+			        "Conditional and search requests are not supported in Bundles: " + request.getUrl());
+		}
+		
+		String[] urlParts = StringUtils.removeStart(request.getUrl(), "/").split("/");
+		if (urlParts.length > 2) {
+			throw new InvalidRequestException("Unsupported request url in Bundle: " + request.getUrl());
+		}
+		
+		String resourceType = urlParts[0];
+		String id = urlParts.length > 1 ? urlParts[1] : null;
+		FhirService<IAnyResource> service = getService(resourceType);
+		
+		Resource resource = entry.getResource();
+		if (resource != null) {
+			for (Reference reference : getReferences(resource)) {
+				String createdReference = createdReferences.get(reference.getReference());
+				if (createdReference != null) {
+					reference.setReference(createdReference);
+				}
+			}
+		}
+		
+		switch (request.getMethod()) {
+			case POST: {
+				checkResource(resource, resourceType);
+				IAnyResource created = service.create(resource);
+				if (entry.hasFullUrl()) {
+					createdReferences.put(entry.getFullUrl(), resourceType + "/" + created.getIdElement().getIdPart());
+				}
+				
+				return createResponse(201, created, false);
+			}
+			case PUT:
+				checkResource(resource, resourceType);
+				checkId(id, request);
+				if (!resource.getIdElement().hasIdPart()) {
+					resource.setId(id);
+				}
+				
+				return createResponse(200, service.update(id, resource), false);
+			case DELETE:
+				checkId(id, request);
+				service.delete(id);
+				return createResponse(204, null, false);
+			case GET:
+				checkId(id, request);
+				return createResponse(200, service.get(id), true);
+			default:
+				throw new InvalidRequestException(
+				        "Unsupported request method in Bundle: " + request.getMethod().toCode() + " " + request.getUrl());
+		}
+	}
+	
+	private void checkResource(Resource resource, String resourceType) {
+		if (resource == null || !resourceType.equals(resource.fhirType())) {
+			throw new InvalidRequestException("Bundle entry for " + resourceType + " must contain a " + resourceType);
+		}
+	}
+	
+	private void checkId(String id, BundleEntryRequestComponent request) {
+		if (id == null) {
+			throw new InvalidRequestException("Bundle entry url must include the resource id: " + request.getUrl());
+		}
+	}
+	
+	private List<Reference> getReferences(Resource resource) {
+		if (resource == null) {
+			return Collections.emptyList();
+		}
+		
+		return fhirContext.newTerser().getAllPopulatedChildElementsOfType(resource, Reference.class);
+	}
+	
+	private BundleEntryComponent createResponse(int status, IAnyResource resource, boolean includeResource) {
+		BundleEntryResponseComponent response = new BundleEntryResponseComponent().setStatus(getStatus(status));
+		BundleEntryComponent entry = new BundleEntryComponent().setResponse(response);
+		if (resource == null) {
+			return entry;
+		}
+		
+		response.setLocation(resource.fhirType() + "/" + resource.getIdElement().getIdPart());
+		
+		IBaseMetaType meta = resource.getMeta();
+		if (meta.getVersionId() != null) {
+			response.setEtag("W/\"" + meta.getVersionId() + "\"");
+		}
+		
+		if (meta.getLastUpdated() != null) {
+			response.setLastModified(meta.getLastUpdated());
+		}
+		
+		if (includeResource) {
+			entry.setResource((Resource) resource);
+		}
+		
+		return entry;
+	}
+	
+	private BundleEntryComponent createErrorResponse(RuntimeException e) {
+		int status = 500;
+		if (e instanceof BaseServerResponseException) {
+			status = ((BaseServerResponseException) e).getStatusCode();
+		} else if (e instanceof APIAuthenticationException) {
+			status = 403;
+		}
+		
+		OperationOutcome outcome = new OperationOutcome();
+		outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.ERROR).setCode(OperationOutcome.IssueType.PROCESSING)
+		        .setDiagnostics(e.getMessage());
+		
+		return new BundleEntryComponent()
+		        .setResponse(new BundleEntryResponseComponent().setStatus(getStatus(status)).setOutcome(outcome));
+	}
+	
+	private static String getStatus(int status) {
+		String statusName = Constants.HTTP_STATUS_NAMES.get(status);
+		return statusName == null ? Integer.toString(status) : status + " " + statusName;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private FhirService<IAnyResource> getService(String resourceType) {
+		FhirService<? extends IAnyResource> service;
+		switch (resourceType) {
+			case FhirConstants.ALLERGY_INTOLERANCE:
+				service = allergyIntoleranceService;
+				break;
+			case FhirConstants.CONDITION:
+				service = conditionService;
+				break;
+			case FhirConstants.DIAGNOSTIC_REPORT:
+				service = diagnosticReportService;
+				break;
+			case FhirConstants.ENCOUNTER:
+				service = encounterService;
+				break;
+			case FhirConstants.EPISODE_OF_CARE:
+				service = episodeOfCareService;
+				break;
+			case FhirConstants.GROUP:
+				service = groupService;
+				break;
+			case FhirConstants.IMMUNIZATION:
+				service = immunizationService;
+				break;
+			case FhirConstants.LOCATION:
+				service = locationService;
+				break;
+			case FhirConstants.MEDICATION:
+				service = medicationService;
+				break;
+			case FhirConstants.MEDICATION_DISPENSE:
+				service = medicationDispenseService;
+				break;
+			case FhirConstants.MEDICATION_REQUEST:
+				service = medicationRequestService;
+				break;
+			case FhirConstants.OBSERVATION:
+				service = observationService;
+				break;
+			case FhirConstants.PATIENT:
+				service = patientService;
+				break;
+			case FhirConstants.PERSON:
+				service = personService;
+				break;
+			case FhirConstants.PRACTITIONER:
+				service = practitionerService;
+				break;
+			case FhirConstants.RELATED_PERSON:
+				service = relatedPersonService;
+				break;
+			case FhirConstants.SERVICE_REQUEST:
+				service = serviceRequestService;
+				break;
+			case FhirConstants.TASK:
+				service = taskService;
+				break;
+			case FhirConstants.VALUESET:
+				service = valueSetService;
+				break;
+			default:
+				throw new InvalidRequestException("Resource type " + resourceType + " is not supported in Bundles");
+		}
+		
+		return (FhirService<IAnyResource>) service;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.scheduler;
+
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameIndexDao;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+/**
+ * Scheduler task that (re-)indexes the names of every person in the FHIR person name index, see
+ * {@link FhirPersonNameIndexDao}. Persons are indexed in batches, each in its own transaction; the
+ * size of each batch can be set with the task property {@code batchSize}. Once this task has
+ * completed, the index can be used for searches by setting the global property
+ * {@code fhir2.nameIndex.enabled} to {@code true}.
+ */
+@Slf4j
+public class FillPersonNameIndexTask extends AbstractTask {
+	
+	public static final String BATCH_SIZE_PROPERTY = "batchSize";
+	
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	@Override
+	public void execute() {
+		List<FhirPersonNameIndexDao> personNameIndexDaos = Context.getRegisteredComponents(FhirPersonNameIndexDao.class);
+		if (personNameIndexDaos.isEmpty()) {
+			log.warn("The FHIR person name index is not available");
+			return;
+		}
+		
+		FhirPersonNameIndexDao personNameIndexDao = personNameIndexDaos.get(0);
+		int batchSize = DEFAULT_BATCH_SIZE;
+		if (getTaskDefinition() != null) {
+			batchSize = NumberUtils.toInt(getTaskDefinition().getProperty(BATCH_SIZE_PROPERTY), DEFAULT_BATCH_SIZE);
+		}
+		
+		if (isExecuting()) {
+			log.warn("The FHIR person name index is already being filled");
+			return;
+		}
+		
+		startExecuting();
+		try {
+			int batches = 0;
+			Integer lastPersonId = null;
+			do {
+				lastPersonId = personNameIndexDao.indexPersons(lastPersonId, batchSize);
+				Context.flushSession();
+				Context.clearSession();
+				
+				if (++batches % 100 == 0) {
+					log.info("Indexed the names of persons up to person id {}", lastPersonId);
+				}
+			} while (lastPersonId != null);
+			
+			log.info("Finished filling the FHIR person name index");
+		}
+		finally {
+			stopExecuting();
+		}
+	}
+}
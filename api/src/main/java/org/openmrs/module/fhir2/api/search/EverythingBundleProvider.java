@@ -0,0 +1,131 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+
+/**
+ * Bundle provider for the type-level $everything operation. <br/>
+ * The wrapped provider is expected to walk the primary resources (e.g. patients) using keyset
+ * pagination and to load the compartment of each page of primary resources through reverse
+ * includes, so each page of the operation only holds the resources for a bounded number of primary
+ * resources. The reverse includes of a page are bounded by
+ * {@link FhirConstants#OPENMRS_FHIR_MAXIMUM_REVERSE_INCLUDES}; a page that leaves resources out
+ * carries an OperationOutcome saying so. Subsequent pages are reached through the page ids of the
+ * wrapped provider. <br/>
+ * No total is reported, as counting the whole graph would defeat the purpose of paging it.
+ */
+public class EverythingBundleProvider implements NamedPageBundleProvider, Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final NamedPageBundleProvider bundleProvider;
+	
+	private final Date since;
+	
+	/**
+	 * @param bundleProvider the keyset-paged provider for the primary resources and their compartments
+	 * @param since if not {@code null}, primary resources last updated before this time are left out; the
+	 *            compartment resources are already restricted to this time by the reverse include queries
+	 */
+	public EverythingBundleProvider(NamedPageBundleProvider bundleProvider, Date since) {
+		this.bundleProvider = bundleProvider;
+		this.since = since;
+	}
+	
+	@Override
+	@Nonnull
+	public List<IBaseResource> getResources(int fromIndex, int toIndex) {
+		return bundleProvider.getResources(fromIndex, toIndex).stream().filter(resource -> isUpdatedSince(resource, since))
+		        .collect(Collectors.toList());
+	}
+	
+	@Override
+	public IBundleProvider getPage(@Nonnull String pageId) {
+		IBundleProvider page = bundleProvider.getPage(pageId);
+		if (!(page instanceof NamedPageBundleProvider)) {
+			return null;
+		}
+		
+		return new EverythingBundleProvider((NamedPageBundleProvider) page, since);
+	}
+	
+	@Override
+	public String getCurrentPageId() {
+		return bundleProvider.getCurrentPageId();
+	}
+	
+	@Override
+	public String getNextPageId() {
+		return bundleProvider.getNextPageId();
+	}
+	
+	@Override
+	public IPrimitiveType<Date> getPublished() {
+		return bundleProvider.getPublished();
+	}
+	
+	@Override
+	@Nullable
+	public String getUuid() {
+		return bundleProvider.getUuid();
+	}
+	
+	@Override
+	public Integer preferredPageSize() {
+		return bundleProvider.preferredPageSize();
+	}
+	
+	@Override
+	@Nullable
+	public Integer size() {
+		return null;
+	}
+	
+	/**
+	 * Implements the $everything {@code _since} parameter for the primary resources, which cannot be
+	 * restricted in the database as the compartment of every primary resource is needed
+	 *
+	 * @param resource the resource to check
+	 * @param since the earliest last updated time to accept or {@code null} to accept all resources
+	 * @return {@code true} if the resource should be returned
+	 */
+	public static boolean isUpdatedSince(IBaseResource resource, Date since) {
+		if (since == null || resource.getMeta() == null) {
+			return true;
+		}
+		
+		Date lastUpdated = resource.getMeta().getLastUpdated();
+		return lastUpdated == null || !lastUpdated.before(since);
+	}
+	
+	/**
+	 * @param theParams the parameters of a search
+	 * @return {@code true} if the parameters are those of an $everything operation that covers every
+	 *         resource of the type rather than a single resource
+	 */
+	public static boolean isTypeLevelEverything(SearchParameterMap theParams) {
+		return !theParams.getParameters(FhirConstants.EVERYTHING_SEARCH_HANDLER).isEmpty()
+		        && theParams.getParameters(FhirConstants.COMMON_SEARCH_HANDLER).stream()
+		                .noneMatch(param -> FhirConstants.ID_PROPERTY.equals(param.getPropertyName()));
+	}
+}
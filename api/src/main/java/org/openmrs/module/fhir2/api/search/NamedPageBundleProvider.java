@@ -0,0 +1,35 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+
+/**
+ * An {@link IBundleProvider} whose pages are addressed by opaque page ids rather than by offsets.
+ * HAPI renders the next and previous links for such providers using
+ * {@link IBundleProvider#getNextPageId()} and {@link IBundleProvider#getPreviousPageId()}; when one of
+ * those links is followed, the paging provider uses {@link #getPage(String)} to obtain the provider for
+ * the requested page.
+ */
+public interface NamedPageBundleProvider extends IBundleProvider {
+	
+	/**
+	 * Returns a bundle provider for the page identified by the supplied page id
+	 *
+	 * @param pageId a page id previously returned by {@link #getNextPageId()} or
+	 *            {@link #getPreviousPageId()}
+	 * @return the bundle provider for the requested page or {@code null} if the page id is not known
+	 */
+	@Nullable
+	IBundleProvider getPage(@Nonnull String pageId);
+}
@@ -9,6 +9,11 @@
  */
 package org.openmrs.module.fhir2.api.search;
 
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import lombok.Setter;
@@ -18,6 +23,7 @@ import org.openmrs.OpenmrsObject;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.dao.FhirDao;
+import org.openmrs.module.fhir2.api.search.param.PropParam;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.OpenmrsFhirTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,21 +46,69 @@ public class SearchQuery<T extends OpenmrsObject & Auditable, U extends IBaseRes
 	 *
 	 * @param theParams search params.
 	 * @param dao generic dao
-	 * @param translator generic translator In case of $everything operation, package the results in
-	 *            SimpleBundleProvider to include count of _include and _revinclude resources in the
-	 *            total resources count and prevent paging
+	 * @param translator generic translator In case of an instance-level $everything operation, package
+	 *            the results in SimpleBundleProvider to include count of _include and _revinclude
+	 *            resources in the total resources count and prevent paging. A type-level $everything
+	 *            operation is paged by keyset instead, so that only one page of resources and their
+	 *            compartments is ever loaded at a time
 	 * @return IBundleProvider
 	 */
 	public IBundleProvider getQueryResults(SearchParameterMap theParams, O dao, V translator, W searchQueryInclude) {
 		if (!theParams.getParameters(FhirConstants.EVERYTHING_SEARCH_HANDLER).isEmpty()) {
+			Date since = getSince(theParams);
+			
+			// without an id, $everything covers every resource of the type, so it is walked one page at a time
+			if (EverythingBundleProvider.isTypeLevelEverything(theParams)) {
+				return new EverythingBundleProvider(new SearchQueryBundleProvider<>(theParams, dao, translator,
+				        globalPropertyService, searchQueryInclude, true), since);
+			}
+			
+			// the compartment is restricted to _since by the reverse include queries, only the patient is left to check
 			SimpleBundleProvider result = new SimpleBundleProvider(
 			        new SearchQueryBundleProvider<>(theParams, dao, translator, globalPropertyService, searchQueryInclude)
-			                .getAllResources());
+			                .getAllResources().stream()
+			                .filter(resource -> EverythingBundleProvider.isUpdatedSince(resource, since))
+			                .collect(Collectors.toList()));
 			
 			result.setPreferredPageSize(result.size());
 			return result;
 		}
 		
-		return new SearchQueryBundleProvider<>(theParams, dao, translator, globalPropertyService, searchQueryInclude);
+		return new SearchQueryBundleProvider<>(theParams, dao, translator, globalPropertyService, searchQueryInclude,
+		        isKeysetPagingEnabled(theParams), getTotalMode(theParams));
+	}
+	
+	private Date getSince(SearchParameterMap theParams) {
+		List<PropParam<Date>> since = theParams.getParameters(FhirConstants.SINCE_SEARCH_PARAMETER);
+		return since.isEmpty() ? null : since.get(0).getParam();
+	}
+	
+	private boolean isKeysetPagingEnabled(SearchParameterMap theParams) {
+		// $lastn queries are not paged by the database, so they always use offsets
+		if (isLastn(theParams)) {
+			return false;
+		}
+		
+		return globalPropertyService.getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_KEYSET_PAGING_ENABLED, false);
+	}
+	
+	private SearchTotalModeEnum getTotalMode(SearchParameterMap theParams) {
+		// $lastn queries are not paged by the database, so the end of the results can only be found by counting
+		if (isLastn(theParams)) {
+			return SearchTotalModeEnum.ACCURATE;
+		}
+		
+		SearchTotalModeEnum totalMode = SearchTotalModeContext.get();
+		if (totalMode == null) {
+			totalMode = SearchTotalModeContext
+			        .parse(globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_PAGING_DEFAULT_TOTAL, null));
+		}
+		
+		return totalMode == null ? SearchTotalModeEnum.ACCURATE : totalMode;
+	}
+	
+	private boolean isLastn(SearchParameterMap theParams) {
+		return !theParams.getParameters(FhirConstants.LASTN_OBSERVATION_SEARCH_HANDLER).isEmpty()
+		        || !theParams.getParameters(FhirConstants.LASTN_ENCOUNTERS_SEARCH_HANDLER).isEmpty();
 	}
 }
@@ -12,6 +12,9 @@ package org.openmrs.module.fhir2.api.search;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
@@ -19,6 +22,7 @@ import java.util.List;
 import java.util.Set;
 
 import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -29,39 +33,80 @@ import org.openmrs.OpenmrsObject;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.dao.FhirDao;
+import org.openmrs.module.fhir2.api.search.param.KeysetCursor;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.OpenmrsFhirTranslator;
 import org.openmrs.module.fhir2.api.util.FhirUtils;
+import org.openmrs.module.fhir2.api.util.ParallelTranslation;
+import org.openmrs.module.fhir2.api.util.RequestMetrics;
+import org.openmrs.module.fhir2.api.util.RequestMetrics.Phase;
 import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
-public class SearchQueryBundleProvider<T extends OpenmrsObject & Auditable, U extends IBaseResource> implements IBundleProvider, Serializable {
+public class SearchQueryBundleProvider<T extends OpenmrsObject & Auditable, U extends IBaseResource> implements NamedPageBundleProvider, Serializable {
 	
-	private static final long serialVersionUID = 4L;
+	private static final long serialVersionUID = 5L;
 	
-	private final FhirDao<T> dao;
+	private transient FhirDao<T> dao;
 	
 	@Getter
 	private final IPrimitiveType<Date> published;
 	
 	private final SearchParameterMap searchParameterMap;
 	
-	private final OpenmrsFhirTranslator<T, U> translator;
+	private transient OpenmrsFhirTranslator<T, U> translator;
 	
 	@Getter
 	private final String uuid;
 	
-	private final FhirGlobalPropertyService globalPropertyService;
+	private transient FhirGlobalPropertyService globalPropertyService;
 	
 	private transient Integer pageSize;
 	
-	private transient Integer size;
+	// kept when this provider is serialized so that resuming the search does not count the results again
+	private Integer size;
 	
-	private final SearchQueryInclude<U> searchQueryInclude;
+	private transient SearchQueryInclude<U> searchQueryInclude;
+	
+	private final boolean keysetPaging;
+	
+	private final SearchTotalModeEnum totalMode;
+	
+	// the cursor this page starts from; null for the bundle provider returned by the original search
+	private final KeysetCursor pageCursor;
+	
+	private transient KeysetCursor currentCursor;
+	
+	private transient KeysetCursor nextCursor;
 	
 	public SearchQueryBundleProvider(SearchParameterMap searchParameterMap, FhirDao<T> dao,
 	    OpenmrsFhirTranslator<T, U> translator, FhirGlobalPropertyService globalPropertyService,
 	    SearchQueryInclude<U> searchQueryInclude) {
+		this(searchParameterMap, dao, translator, globalPropertyService, searchQueryInclude, false);
+	}
+	
+	/**
+	 * @param keysetPaging if {@code true}, pages after the first are retrieved using keyset pagination
+	 *            and addressed by opaque page ids instead of by offset
+	 */
+	public SearchQueryBundleProvider(SearchParameterMap searchParameterMap, FhirDao<T> dao,
+	    OpenmrsFhirTranslator<T, U> translator, FhirGlobalPropertyService globalPropertyService,
+	    SearchQueryInclude<U> searchQueryInclude, boolean keysetPaging) {
+		this(searchParameterMap, dao, translator, globalPropertyService, searchQueryInclude, keysetPaging,
+		        SearchTotalModeEnum.ACCURATE);
+	}
+	
+	/**
+	 * @param keysetPaging if {@code true}, pages after the first are retrieved using keyset pagination
+	 *            and addressed by opaque page ids instead of by offset
+	 * @param totalMode how the total number of results is determined: {@code ACCURATE} counts the
+	 *            results, {@code ESTIMATED} may use a recent count of the same search, and {@code NONE}
+	 *            does not count the results at all, so the total is only known once the last page has
+	 *            been read
+	 */
+	public SearchQueryBundleProvider(SearchParameterMap searchParameterMap, FhirDao<T> dao,
+	    OpenmrsFhirTranslator<T, U> translator, FhirGlobalPropertyService globalPropertyService,
+	    SearchQueryInclude<U> searchQueryInclude, boolean keysetPaging, SearchTotalModeEnum totalMode) {
 		this.dao = dao;
 		this.published = InstantDt.withCurrentTime();
 		this.searchParameterMap = searchParameterMap;
@@ -69,18 +114,35 @@ public class SearchQueryBundleProvider<T extends OpenmrsObject & Auditable, U ex
 		this.uuid = FhirUtils.newUuid();
 		this.globalPropertyService = globalPropertyService;
 		this.searchQueryInclude = searchQueryInclude;
+		this.keysetPaging = keysetPaging;
+		this.totalMode = totalMode == null ? SearchTotalModeEnum.ACCURATE : totalMode;
+		this.pageCursor = null;
+	}
+	
+	// creates the bundle provider for a page of a keyset-paged search
+	private SearchQueryBundleProvider(SearchQueryBundleProvider<T, U> original, KeysetCursor pageCursor) {
+		this.dao = original.dao;
+		this.published = original.published;
+		this.searchParameterMap = original.searchParameterMap;
+		this.translator = original.translator;
+		this.uuid = original.uuid;
+		this.globalPropertyService = original.globalPropertyService;
+		this.searchQueryInclude = original.searchQueryInclude;
+		this.keysetPaging = true;
+		this.totalMode = original.totalMode;
+		this.pageCursor = pageCursor;
+		this.pageSize = original.pageSize;
+		this.size = original.size;
 	}
 	
 	@Transactional(readOnly = true)
 	@Override
 	@Nonnull
 	public List<IBaseResource> getResources(int fromIndex, int toIndex) {
-		searchParameterMap.setFromIndex(fromIndex);
-		searchParameterMap.setToIndex(toIndex);
-		
-		List<U> resources = translator.toFhirResources(dao.getSearchResults(searchParameterMap));
+		List<U> resources = getMatches(fromIndex, toIndex);
 		
-		Set<IBaseResource> includedResources = searchQueryInclude.getIncludedResources(resources, this.searchParameterMap);
+		Set<IBaseResource> includedResources = getIncludedResources(resources);
+		RequestMetrics.recordResults(resources.size(), includedResources.size());
 		
 		List<IBaseResource> resultList = new ArrayList<>(resources.size() + includedResources.size());
 		resultList.addAll(resources);
@@ -89,6 +151,76 @@ public class SearchQueryBundleProvider<T extends OpenmrsObject & Auditable, U ex
 		return resultList;
 	}
 	
+	/**
+	 * Reads the resources matching this search in the given range, without any resources they include
+	 *
+	 * @param fromIndex the index of the first result to read
+	 * @param toIndex the index after the last result to read
+	 * @return the translated results in the given range
+	 */
+	List<U> getMatches(int fromIndex, int toIndex) {
+		List<T> results;
+		if (keysetPaging) {
+			currentCursor = pageCursor != null ? pageCursor : KeysetCursor.atOffset(fromIndex);
+			
+			// the parameter map is shared by all pages of this search
+			synchronized (searchParameterMap) {
+				searchParameterMap.setFromIndex(fromIndex);
+				searchParameterMap.setToIndex(toIndex);
+				searchParameterMap.setKeysetCursor(currentCursor);
+				
+				results = RequestMetrics.time(Phase.SEARCH, () -> dao.getSearchResults(searchParameterMap));
+				nextCursor = searchParameterMap.getNextKeysetCursor();
+			}
+			
+			if (totalMode == SearchTotalModeEnum.NONE && nextCursor == null) {
+				size = currentCursor.getOffset() + results.size();
+			}
+		} else if (totalMode == SearchTotalModeEnum.NONE && toIndex != Integer.MAX_VALUE && toIndex >= fromIndex) {
+			// one extra result is requested so that we can tell whether there is a further page without counting
+			searchParameterMap.setFromIndex(fromIndex);
+			searchParameterMap.setToIndex(toIndex + 1);
+			
+			results = RequestMetrics.time(Phase.SEARCH, () -> dao.getSearchResults(searchParameterMap));
+			if (results.size() > toIndex - fromIndex) {
+				results = results.subList(0, toIndex - fromIndex);
+			} else {
+				// this is the last page, so the total is now known
+				size = fromIndex + results.size();
+			}
+		} else {
+			searchParameterMap.setFromIndex(fromIndex);
+			searchParameterMap.setToIndex(toIndex);
+			
+			results = RequestMetrics.time(Phase.SEARCH, () -> dao.getSearchResults(searchParameterMap));
+		}
+		
+		List<T> pageResults = results;
+		return RequestMetrics.time(Phase.TRANSLATION, () -> translate(pageResults));
+	}
+	
+	/**
+	 * Loads the resources included by the supplied results of this search, i.e., those requested by its
+	 * _include and _revinclude parameters
+	 *
+	 * @param matches results previously read by {@link #getMatches(int, int)}
+	 * @return the included resources
+	 */
+	Set<IBaseResource> getIncludedResources(List<U> matches) {
+		return RequestMetrics.time(Phase.INCLUDE,
+		    () -> searchQueryInclude.getIncludedResources(matches, this.searchParameterMap));
+	}
+	
+	private List<U> translate(List<T> results) {
+		if (ParallelTranslation.shouldTranslateInParallel(translator, results.size())) {
+			// the translation threads cannot use the session, so everything they need is loaded here first
+			dao.initializeForTranslation(results);
+			return ParallelTranslation.translate(translator, results);
+		}
+		
+		return translator.toFhirResources(results);
+	}
+	
 	@Override
 	public Integer preferredPageSize() {
 		if (pageSize == null) {
@@ -102,8 +234,81 @@ public class SearchQueryBundleProvider<T extends OpenmrsObject & Auditable, U ex
 	@Nullable
 	public Integer size() {
 		if (size == null) {
-			size = dao.getSearchResultsCount(searchParameterMap);
+			switch (totalMode) {
+				case NONE:
+					return null;
+				case ESTIMATED:
+					size = RequestMetrics.time(Phase.COUNT, () -> dao.getSearchResultsCountEstimate(searchParameterMap));
+					break;
+				default:
+					size = RequestMetrics.time(Phase.COUNT, () -> dao.getSearchResultsCount(searchParameterMap));
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * Counts the results of this search, regardless of the requested total mode
+	 *
+	 * @return the number of results
+	 */
+	int countResults() {
+		if (size == null || totalMode == SearchTotalModeEnum.ESTIMATED) {
+			size = RequestMetrics.time(Phase.COUNT, () -> dao.getSearchResultsCount(searchParameterMap));
 		}
+		
 		return size;
 	}
+	
+	@Override
+	public String getCurrentPageId() {
+		if (!keysetPaging) {
+			return null;
+		}
+		
+		if (currentCursor != null) {
+			return currentCursor.encode();
+		}
+		
+		return pageCursor != null ? pageCursor.encode() : KeysetCursor.start().encode();
+	}
+	
+	@Override
+	public String getNextPageId() {
+		if (!keysetPaging || nextCursor == null) {
+			return null;
+		}
+		
+		return nextCursor.encode();
+	}
+	
+	@Override
+	public IBundleProvider getPage(@Nonnull String pageId) {
+		if (!keysetPaging) {
+			return null;
+		}
+		
+		return new SearchQueryBundleProvider<>(this, KeysetCursor.decode(pageId));
+	}
+	
+	// the Spring beans used to run the search are written as references and looked up again when read
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(SpringBeanReference.of(dao, FhirDao.class));
+		out.writeObject(SpringBeanReference.of(translator, OpenmrsFhirTranslator.class));
+		out.writeObject(SpringBeanReference.of(globalPropertyService, FhirGlobalPropertyService.class));
+		out.writeObject(SpringBeanReference.of(searchQueryInclude, SearchQueryInclude.class));
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		dao = resolve(in.readObject());
+		translator = resolve(in.readObject());
+		globalPropertyService = resolve(in.readObject());
+		searchQueryInclude = resolve(in.readObject());
+	}
+	
+	private static <V> V resolve(Object reference) throws IOException {
+		return reference == null ? null : ((SpringBeanReference) reference).resolve();
+	}
 }
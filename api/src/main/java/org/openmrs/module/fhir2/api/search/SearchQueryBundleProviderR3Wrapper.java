@@ -9,8 +9,6 @@
  */
 package org.openmrs.module.fhir2.api.search;
 
-import static org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40.convertResource;
-
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -23,13 +21,10 @@ import java.util.stream.Collectors;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
-import org.hl7.fhir.r4.model.Condition;
 import org.hl7.fhir.r4.model.Resource;
-import org.hl7.fhir.r4.model.Task;
-import org.openmrs.module.fhir2.api.util.FhirUtils;
-import org.openmrs.module.fhir2.providers.util.TaskVersionConverter;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 
-public class SearchQueryBundleProviderR3Wrapper implements IBundleProvider, Serializable {
+public class SearchQueryBundleProviderR3Wrapper implements NamedPageBundleProvider, Serializable {
 	
 	private static final long serialVersionUID = 1L;
 	
@@ -54,6 +49,16 @@ public class SearchQueryBundleProviderR3Wrapper implements IBundleProvider, Seri
 		return bundleProvider.getPreviousPageId();
 	}
 	
+	@Override
+	public IBundleProvider getPage(@Nonnull String pageId) {
+		if (!(bundleProvider instanceof NamedPageBundleProvider)) {
+			return null;
+		}
+		
+		IBundleProvider page = ((NamedPageBundleProvider) bundleProvider).getPage(pageId);
+		return page == null ? null : new SearchQueryBundleProviderR3Wrapper(page);
+	}
+	
 	@Override
 	public IPrimitiveType<Date> getPublished() {
 		return bundleProvider.getPublished();
@@ -87,20 +92,7 @@ public class SearchQueryBundleProviderR3Wrapper implements IBundleProvider, Seri
 		if (resource instanceof org.hl7.fhir.dstu3.model.Resource) {
 			return resource;
 		} else if (resource instanceof Resource) {
-			if (resource instanceof Task) {
-				return TaskVersionConverter.convertTask((Task) resource);
-			}
-			
-			if (resource instanceof Condition) {
-				Condition condition = ((Condition) resource).copy();
-				if (FhirUtils.getOpenmrsConditionType(condition)
-				        .filter(type -> type == FhirUtils.OpenmrsConditionType.DIAGNOSIS).isPresent()) {
-					condition.setClinicalStatus(null);
-					return convertResource(condition);
-				}
-			}
-			
-			return convertResource((Resource) resource);
+			return R3ResourceConverter.convertToR3((Resource) resource);
 		}
 		
 		return null;
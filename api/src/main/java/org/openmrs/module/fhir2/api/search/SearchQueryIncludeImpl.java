@@ -10,17 +10,22 @@
 package org.openmrs.module.fhir2.api.search;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.ReferenceOrListParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
@@ -31,6 +36,7 @@ import lombok.Setter;
 import org.apache.commons.collections.CollectionUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.AllergyIntolerance;
+import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.Condition;
 import org.hl7.fhir.r4.model.DiagnosticReport;
 import org.hl7.fhir.r4.model.Encounter;
@@ -38,6 +44,7 @@ import org.hl7.fhir.r4.model.Location;
 import org.hl7.fhir.r4.model.MedicationDispense;
 import org.hl7.fhir.r4.model.MedicationRequest;
 import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Person;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.RelatedPerson;
@@ -47,6 +54,7 @@ import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirAllergyIntoleranceService;
 import org.openmrs.module.fhir2.api.FhirDiagnosticReportService;
 import org.openmrs.module.fhir2.api.FhirEncounterService;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.FhirLocationService;
 import org.openmrs.module.fhir2.api.FhirMedicationDispenseService;
 import org.openmrs.module.fhir2.api.FhirMedicationRequestService;
@@ -64,6 +72,7 @@ import org.openmrs.module.fhir2.api.search.param.MedicationRequestSearchParams;
 import org.openmrs.module.fhir2.api.search.param.ObservationSearchParams;
 import org.openmrs.module.fhir2.api.search.param.PropParam;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+import org.openmrs.module.fhir2.api.util.RequestMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -71,6 +80,8 @@ import org.springframework.stereotype.Component;
 @NoArgsConstructor
 public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQueryInclude<U> {
 	
+	public static final int DEFAULT_MAXIMUM_REVERSE_INCLUDES = 1000;
+	
 	@Getter(AccessLevel.PROTECTED)
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
 	private FhirLocationService locationService;
@@ -115,6 +126,10 @@ public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQu
 	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
 	private FhirMedicationDispenseService medicationDispenseService;
 	
+	@Getter(AccessLevel.PROTECTED)
+	@Setter(value = AccessLevel.PROTECTED, onMethod_ = @Autowired)
+	private FhirGlobalPropertyService globalPropertyService;
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	public Set<IBaseResource> getIncludedResources(List<U> resourceList, SearchParameterMap theParams) {
@@ -133,11 +148,22 @@ public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQu
 		}
 		
 		Set<? extends IBaseResource> _includeResources = handleInclude(resourceList, includeSet);
-		Set<? extends IBaseResource> _revIncludeResources = handleRevInclude(resourceList, includeSet, revIncludeSet);
+		// only the compartments of a page of type-level $everything are bounded, as the page cannot hold all of them
+		int maximumRevIncludes = EverythingBundleProvider.isTypeLevelEverything(theParams)
+		        ? globalPropertyService.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_MAXIMUM_REVERSE_INCLUDES,
+		            DEFAULT_MAXIMUM_REVERSE_INCLUDES)
+		        : -1;
+		Set<? extends IBaseResource> _revIncludeResources = handleRevInclude(resourceList, includeSet, revIncludeSet,
+		    getLastUpdatedSince(theParams), maximumRevIncludes);
+		
+		// the same resource may be reached through several include parameters or may already be on the page
+		Set<String> seenResources = resourceList.stream().map(this::getResourceKey).collect(Collectors.toSet());
 		
 		Set<IBaseResource> resourcesToBeReturned = new LinkedHashSet<>();
-		resourcesToBeReturned.addAll(_includeResources);
-		resourcesToBeReturned.addAll(_revIncludeResources);
+		Stream.<IBaseResource> concat(_includeResources.stream(), _revIncludeResources.stream()).filter(resource -> {
+			String key = getResourceKey(resource);
+			return key == null || seenResources.add(key);
+		}).forEach(resourcesToBeReturned::add);
 		
 		return resourcesToBeReturned;
 	}
@@ -149,49 +175,130 @@ public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQu
 			return includedResourcesSet;
 		}
 		
-		includeSet.forEach((includeParam) -> {
-			Optional.ofNullable(handleIncludeParam(resourceList, includeParam)).ifPresent(includedResourcesSet::addAll);
+		// gather the references for all includes first so that each target type is loaded with a single query
+		Map<String, Set<String>> referencesByType = new LinkedHashMap<>();
+		includeSet.forEach(includeParam -> handleIncludeParam(resourceList, includeParam, referencesByType));
+		
+		// resources that are already part of the page do not need to be loaded again
+		resourceList.forEach(resource -> {
+			Set<String> references = referencesByType.get(resource.fhirType());
+			if (references != null) {
+				references.remove(resource.getIdElement().getIdPart());
+			}
+		});
+		
+		referencesByType.forEach((resourceType, references) -> {
+			references.removeIf(Objects::isNull);
+			
+			if (!references.isEmpty()) {
+				RequestMetrics.recordIncludeQuery();
+				includedResourcesSet.addAll(fetchIncludedResources(resourceType, references));
+			}
 		});
 		
 		return includedResourcesSet;
 	}
 	
-	protected Set<? extends IBaseResource> handleIncludeParam(List<U> resourceList, Include includeParam) {
+	protected void handleIncludeParam(List<U> resourceList, Include includeParam,
+	        Map<String, Set<String>> referencesByType) {
 		switch (includeParam.getParamName()) {
 			case FhirConstants.INCLUDE_PART_OF_PARAM:
-				return handleParentLocationInclude(resourceList, includeParam.getParamType());
+				handleParentLocationInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.LOCATION));
+				break;
 			case FhirConstants.INCLUDE_CONTEXT_PARAM:
 			case FhirConstants.INCLUDE_ENCOUNTER_PARAM:
-				return handleEncounterInclude(resourceList, includeParam.getParamType());
+				handleEncounterInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.ENCOUNTER));
+				break;
 			case FhirConstants.INCLUDE_PATIENT_PARAM:
-				return handlePatientInclude(resourceList, includeParam.getParamType());
+				handlePatientInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.PATIENT));
+				break;
 			case FhirConstants.INCLUDE_HAS_MEMBER_PARAM:
 			case FhirConstants.INCLUDE_RESULT_PARAM:
 			case FhirConstants.INCLUDE_RELATED_TYPE_PARAM:
-				return handleObsGroupInclude(resourceList, includeParam.getParamType());
+				handleObsGroupInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.OBSERVATION));
+				break;
 			case FhirConstants.INCLUDE_REQUESTER_PARAM:
 			case FhirConstants.INCLUDE_PERFORMER_PARAM:
 			case FhirConstants.INCLUDE_PARTICIPANT_PARAM:
-				return handleParticipantInclude(resourceList, includeParam.getParamType());
+				handleParticipantInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.PRACTITIONER));
+				break;
 			case FhirConstants.INCLUDE_LOCATION_PARAM:
-				return handleLocationInclude(resourceList, includeParam.getParamType());
+				handleLocationInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.LOCATION));
+				break;
 			case FhirConstants.INCLUDE_MEDICATION_PARAM:
-				return handleMedicationInclude(resourceList, includeParam.getParamType());
+				handleMedicationInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.MEDICATION));
+				break;
 			case FhirConstants.INCLUDE_LINK_PARAM:
-				return handlePersonLinkInclude(resourceList, includeParam.getParamTargetType());
+				handlePersonLinkInclude(resourceList, includeParam.getParamTargetType(),
+				    getReferences(referencesByType, FhirConstants.PATIENT));
+				break;
 			case FhirConstants.INCLUDE_BASED_0N_PARAM:
-				return handleServiceRequestInclude(resourceList, includeParam.getParamType());
+				handleServiceRequestInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.SERVICE_REQUEST));
+				break;
 			case FhirConstants.INCLUDE_OWNER_PARAM:
-				return handlePractitionerInclude(resourceList, includeParam.getParamType());
+				handlePractitionerInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.PRACTITIONER));
+				break;
 			case FhirConstants.INCLUDE_PRESCRIPTION_PARAM:
-				return handleMedicationRequestInclude(resourceList, includeParam.getParamType());
+				handleMedicationRequestInclude(resourceList, includeParam.getParamType(),
+				    getReferences(referencesByType, FhirConstants.MEDICATION_REQUEST));
+				break;
+		}
+	}
+	
+	/**
+	 * Loads all the included resources of a single type
+	 *
+	 * @param resourceType the FHIR resource type to load
+	 * @param uuids the uuids of the resources to load, gathered from all the include parameters
+	 * @return the loaded resources
+	 */
+	protected Collection<? extends IBaseResource> fetchIncludedResources(String resourceType, Collection<String> uuids) {
+		switch (resourceType) {
+			case FhirConstants.LOCATION:
+				return locationService.get(uuids);
+			case FhirConstants.ENCOUNTER:
+				return encounterService.get(uuids);
+			case FhirConstants.PATIENT:
+				return patientService.get(uuids);
+			case FhirConstants.OBSERVATION:
+				return observationService.get(uuids);
+			case FhirConstants.PRACTITIONER:
+				return practitionerService.get(uuids);
+			case FhirConstants.MEDICATION:
+				return medicationService.get(uuids);
+			case FhirConstants.SERVICE_REQUEST:
+				return serviceRequestService.get(uuids);
+			case FhirConstants.MEDICATION_REQUEST:
+				return medicationRequestService.get(uuids);
 		}
 		
-		return null;
+		return Collections.emptyList();
 	}
 	
-	protected Set<IBaseResource> handleRevInclude(List<U> resourceList, Set<Include> includeSet,
-	        Set<Include> revIncludeSet) {
+	/**
+	 * Loads the resources that reference the supplied resources. If a maximum is given and more
+	 * resources reference the supplied resources, the resources past the maximum are left out and an
+	 * {@link OperationOutcome} warning the client about it is returned with the loaded resources.
+	 *
+	 * @param resourceList the resources to load the referencing resources for
+	 * @param includeSet the _include parameters of the search
+	 * @param revIncludeSet the _revinclude parameters of the search
+	 * @param lastUpdated if not {@code null}, only resources last updated in this range are loaded
+	 * @param maximum the largest number of resources to load across all reverse include parameters or a
+	 *            negative number to load all of them
+	 * @return the referencing resources
+	 */
+	protected Set<IBaseResource> handleRevInclude(List<U> resourceList, Set<Include> includeSet, Set<Include> revIncludeSet,
+	        DateRangeParam lastUpdated, int maximum) {
 		Set<IBaseResource> revIncludedResourcesSet = new LinkedHashSet<>();
 		
 		if (CollectionUtils.isEmpty(revIncludeSet)) {
@@ -203,269 +310,249 @@ public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQu
 		resourceList.forEach(resource -> params.addOr(new ReferenceParam(resource.getIdElement().getIdPart())));
 		referenceParams.addAnd(params);
 		
-		revIncludeSet.forEach(revIncludeParam -> {
+		List<String> truncated = new ArrayList<>();
+		for (Include revIncludeParam : revIncludeSet) {
 			IBundleProvider bundleProvider = handleRevIncludeParam(includeSet, revIncludeSet, referenceParams,
-			    revIncludeParam);
+			    revIncludeParam, lastUpdated);
+			if (bundleProvider == null) {
+				continue;
+			}
 			
-			if (bundleProvider != null && !bundleProvider.isEmpty()) {
+			// all results are loaded, so there is no need to count them first
+			if (maximum < 0) {
+				RequestMetrics.recordIncludeQuery();
 				revIncludedResourcesSet.addAll(bundleProvider.getResources(0, -1));
+				continue;
 			}
-		});
+			
+			int remaining = maximum - revIncludedResourcesSet.size();
+			if (remaining <= 0) {
+				truncated.add(revIncludeParam.getValue());
+				continue;
+			}
+			
+			// one more resource than can be used is loaded to tell whether any are left out, which avoids counting them
+			RequestMetrics.recordIncludeQuery();
+			List<IBaseResource> resources = bundleProvider.getResources(0, remaining + 1);
+			if (resources.size() > remaining) {
+				truncated.add(revIncludeParam.getValue());
+				resources = resources.subList(0, remaining);
+			}
+			
+			revIncludedResourcesSet.addAll(resources);
+		}
+		
+		if (!truncated.isEmpty()) {
+			revIncludedResourcesSet.add(createTruncationOutcome(truncated, maximum));
+		}
 		
 		return revIncludedResourcesSet;
 	}
 	
+	protected OperationOutcome createTruncationOutcome(List<String> truncatedRevIncludes, int maximum) {
+		OperationOutcome outcome = new OperationOutcome();
+		outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.WARNING).setCode(OperationOutcome.IssueType.TOOCOSTLY)
+		        .setDiagnostics("Not all resources for " + String.join(", ", truncatedRevIncludes)
+		                + " are included, as at most " + maximum
+		                + " resources are included per page. Use a smaller _count to receive all of them.");
+		ResourceMetadataKeyEnum.ENTRY_SEARCH_MODE.put(outcome, Bundle.SearchEntryMode.OUTCOME.toCode());
+		return outcome;
+	}
+	
 	protected IBundleProvider handleRevIncludeParam(Set<Include> includeSet, Set<Include> revIncludeSet,
-	        ReferenceAndListParam referenceParams, Include revIncludeParam) {
+	        ReferenceAndListParam referenceParams, Include revIncludeParam, DateRangeParam lastUpdated) {
 		switch (revIncludeParam.getParamName()) {
 			case FhirConstants.INCLUDE_PART_OF_PARAM:
 			case FhirConstants.INCLUDE_LOCATION_PARAM:
-				return handleLocationReverseInclude(referenceParams, revIncludeParam.getParamType());
+				return handleLocationReverseInclude(referenceParams, revIncludeParam.getParamType(), lastUpdated);
 			case FhirConstants.INCLUDE_CONTEXT_PARAM:
 			case FhirConstants.INCLUDE_ENCOUNTER_PARAM:
 				return handleEncounterReverseInclude(referenceParams, revIncludeParam.getParamType(),
-				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet));
+				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet), lastUpdated);
 			case FhirConstants.INCLUDE_MEDICATION_PARAM:
 				return handleMedicationReverseInclude(referenceParams, revIncludeParam.getParamType(),
-				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet));
+				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet), lastUpdated);
 			case FhirConstants.INCLUDE_PATIENT_PARAM:
 				return handlePatientReverseInclude(referenceParams, revIncludeParam.getParamType(),
-				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet));
+				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet), lastUpdated);
 			case FhirConstants.INCLUDE_HAS_MEMBER_PARAM:
 			case FhirConstants.INCLUDE_RESULT_PARAM:
 			case FhirConstants.INCLUDE_RELATED_TYPE_PARAM:
-				return handleObservationReverseInclude(referenceParams, revIncludeParam.getParamType());
+				return handleObservationReverseInclude(referenceParams, revIncludeParam.getParamType(), lastUpdated);
 			case FhirConstants.INCLUDE_REQUESTER_PARAM:
 			case FhirConstants.INCLUDE_PARTICIPANT_PARAM:
 				return handlePractitionerReverseInclude(referenceParams, revIncludeParam.getParamType(),
-				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet));
+				    getRecursiveIncludes(includeSet), getRecursiveIncludes(revIncludeSet), lastUpdated);
 			case FhirConstants.INCLUDE_PRESCRIPTION_PARAM:
-				return handlePrescriptionReverseInclude(referenceParams, revIncludeParam.getParamType());
+				return handlePrescriptionReverseInclude(referenceParams, revIncludeParam.getParamType(), lastUpdated);
 		}
 		
 		return null;
 	}
 	
-	protected Set<IBaseResource> handleEncounterInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueEncounterUUIDs = new LinkedHashSet<>();
-		
+	protected void handleEncounterInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.OBSERVATION:
-				resourceList.forEach(
-				    resource -> uniqueEncounterUUIDs.add(getIdFromReference(((Observation) resource).getEncounter())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Observation) resource).getEncounter())));
 				break;
 			case FhirConstants.DIAGNOSTIC_REPORT:
 				resourceList.forEach(
-				    resource -> uniqueEncounterUUIDs.add(getIdFromReference(((DiagnosticReport) resource).getEncounter())));
+				    resource -> references.add(getIdFromReference(((DiagnosticReport) resource).getEncounter())));
 				break;
 			case FhirConstants.MEDICATION_REQUEST:
 				resourceList.forEach(
-				    resource -> uniqueEncounterUUIDs.add(getIdFromReference(((MedicationRequest) resource).getEncounter())));
+				    resource -> references.add(getIdFromReference(((MedicationRequest) resource).getEncounter())));
 				break;
 			case FhirConstants.MEDICATION_DISPENSE:
 				resourceList.forEach(
-				    resource -> uniqueEncounterUUIDs.add(getIdFromReference(((MedicationDispense) resource).getContext())));
+				    resource -> references.add(getIdFromReference(((MedicationDispense) resource).getContext())));
 				break;
 			case FhirConstants.PROCEDURE_REQUEST:
 			case FhirConstants.SERVICE_REQUEST:
 				resourceList.forEach(
-				    resource -> uniqueEncounterUUIDs.add(getIdFromReference(((ServiceRequest) resource).getEncounter())));
+				    resource -> references.add(getIdFromReference(((ServiceRequest) resource).getEncounter())));
 				break;
 			case FhirConstants.TASK:
-				resourceList
-				        .forEach(resource -> uniqueEncounterUUIDs.add(getIdFromReference(((Task) resource).getEncounter())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Task) resource).getEncounter())));
 				break;
 		}
-		
-		uniqueEncounterUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(encounterService.get(uniqueEncounterUUIDs));
 	}
 	
-	protected Set<IBaseResource> handleLocationInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueLocationUUIDs = new HashSet<>();
-		
+	protected void handleLocationInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.ENCOUNTER:
 				resourceList.forEach(resource -> {
-					uniqueLocationUUIDs.addAll(getIdsFromReferenceList(((Encounter) resource).getLocation().stream()
+					references.addAll(getIdsFromReferenceList(((Encounter) resource).getLocation().stream()
 					        .map(Encounter.EncounterLocationComponent::getLocation).collect(Collectors.toList())));
 				});
 				break;
 		}
-		
-		uniqueLocationUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(locationService.get(uniqueLocationUUIDs));
 	}
 	
-	protected Set<IBaseResource> handleMedicationInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueMedicationUUIDs = new LinkedHashSet<>();
-		
+	protected void handleMedicationInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.MEDICATION_REQUEST:
 				resourceList.stream()
 				        .map(resource -> getIdFromReference(((MedicationRequest) resource).getMedicationReference()))
-				        .forEach(uniqueMedicationUUIDs::add);
+				        .forEach(references::add);
 				break;
 			case FhirConstants.MEDICATION_DISPENSE:
 				resourceList.stream()
 				        .map(resource -> getIdFromReference(((MedicationDispense) resource).getMedicationReference()))
-				        .forEach(uniqueMedicationUUIDs::add);
+				        .forEach(references::add);
 				break;
 		}
-		
-		uniqueMedicationUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(medicationService.get(uniqueMedicationUUIDs));
 	}
 	
-	protected Set<IBaseResource> handleMedicationRequestInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueUuids = new LinkedHashSet<>();
-		
+	protected void handleMedicationRequestInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.MEDICATION_DISPENSE:
-				resourceList.forEach(resource -> uniqueUuids
+				resourceList.forEach(resource -> references
 				        .addAll(getIdsFromReferenceList((((MedicationDispense) resource).getAuthorizingPrescription()))));
 				break;
 		}
-		
-		uniqueUuids.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(medicationRequestService.get(uniqueUuids));
 	}
 	
-	protected Set<IBaseResource> handleObsGroupInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueObservationUUIDs = new LinkedHashSet<>();
-		
+	protected void handleObsGroupInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.OBSERVATION:
-				resourceList.forEach(resource -> uniqueObservationUUIDs
-				        .addAll(getIdsFromReferenceList(((Observation) resource).getHasMember())));
+				resourceList.forEach(
+				    resource -> references.addAll(getIdsFromReferenceList(((Observation) resource).getHasMember())));
 				break;
 			case FhirConstants.DIAGNOSTIC_REPORT:
-				resourceList.forEach(resource -> uniqueObservationUUIDs
-				        .addAll(getIdsFromReferenceList(((DiagnosticReport) resource).getResult())));
+				resourceList.forEach(
+				    resource -> references.addAll(getIdsFromReferenceList(((DiagnosticReport) resource).getResult())));
 				break;
 		}
-		
-		uniqueObservationUUIDs.removeIf(Objects::isNull);
-		
-		if (uniqueObservationUUIDs.isEmpty()) {
-			return null;
-		}
-		
-		return new LinkedHashSet<>(observationService.get(uniqueObservationUUIDs));
 	}
 	
-	protected Set<IBaseResource> handlePatientInclude(List<U> resourceList, String paramType) {
-		Set<String> uniquePatientUUIDs = new LinkedHashSet<>();
-		
+	protected void handlePatientInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.OBSERVATION:
-				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((Observation) resource).getSubject())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Observation) resource).getSubject())));
 				break;
 			case FhirConstants.ALLERGY_INTOLERANCE:
 				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((AllergyIntolerance) resource).getPatient())));
+				    resource -> references.add(getIdFromReference(((AllergyIntolerance) resource).getPatient())));
 				break;
 			case FhirConstants.DIAGNOSTIC_REPORT:
 				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((DiagnosticReport) resource).getSubject())));
+				    resource -> references.add(getIdFromReference(((DiagnosticReport) resource).getSubject())));
 				break;
 			case FhirConstants.ENCOUNTER:
-				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((Encounter) resource).getSubject())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Encounter) resource).getSubject())));
 				break;
 			case FhirConstants.MEDICATION_REQUEST:
 				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((MedicationRequest) resource).getSubject())));
+				    resource -> references.add(getIdFromReference(((MedicationRequest) resource).getSubject())));
 				break;
 			case FhirConstants.MEDICATION_DISPENSE:
 				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((MedicationDispense) resource).getSubject())));
+				    resource -> references.add(getIdFromReference(((MedicationDispense) resource).getSubject())));
 				break;
 			case FhirConstants.PERSON:
 				resourceList.forEach(resource -> {
 					List<Reference> patientReferenceList = new ArrayList<>();
 					((Person) resource).getLink().forEach(patient -> patientReferenceList.add(patient.getTarget()));
-					uniquePatientUUIDs.addAll(getIdsFromReferenceList(patientReferenceList));
+					references.addAll(getIdsFromReferenceList(patientReferenceList));
 				});
 				break;
 			case FhirConstants.RELATED_PERSON:
 				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((RelatedPerson) resource).getPatient())));
+				    resource -> references.add(getIdFromReference(((RelatedPerson) resource).getPatient())));
 				break;
 			case FhirConstants.PROCEDURE_REQUEST:
 			case FhirConstants.SERVICE_REQUEST:
 				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((ServiceRequest) resource).getSubject())));
+				    resource -> references.add(getIdFromReference(((ServiceRequest) resource).getSubject())));
 				break;
 			case FhirConstants.CONDITION:
-				resourceList.forEach(
-				    resource -> uniquePatientUUIDs.add(getIdFromReference(((Condition) resource).getSubject())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Condition) resource).getSubject())));
 				break;
 			case FhirConstants.TASK:
-				resourceList.forEach(resource -> uniquePatientUUIDs.add(getIdFromReference(((Task) resource).getFor())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Task) resource).getFor())));
 				break;
 		}
-		
-		uniquePatientUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(patientService.get(uniquePatientUUIDs));
 	}
 	
-	protected Set<Location> handleParentLocationInclude(List<U> resourceList, String targetType) {
+	protected void handleParentLocationInclude(List<U> resourceList, String targetType, Set<String> references) {
 		if (targetType.equals(FhirConstants.LOCATION)) {
-			Set<String> uniqueParentLocationUUIDs = resourceList.stream().filter(it -> it instanceof Location)
-			        .map(it -> (Location) it).map(Location::getPartOf).map(this::getIdFromReference).filter(Objects::nonNull)
-			        .collect(Collectors.toSet());
-			return new LinkedHashSet<>(locationService.get(uniqueParentLocationUUIDs));
+			resourceList.stream().filter(it -> it instanceof Location).map(it -> (Location) it).map(Location::getPartOf)
+			        .map(this::getIdFromReference).forEach(references::add);
 		}
-		
-		return Collections.emptySet();
 	}
 	
-	protected Set<IBaseResource> handleParticipantInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueParticipantUUIDs = new LinkedHashSet<>();
-		
+	protected void handleParticipantInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.ENCOUNTER:
 				resourceList.forEach(resource -> {
 					List<Reference> participantReferenceList = new ArrayList<>();
 					((Encounter) resource).getParticipant()
 					        .forEach(participant -> participantReferenceList.add(participant.getIndividual()));
-					uniqueParticipantUUIDs.addAll(getIdsFromReferenceList(participantReferenceList));
+					references.addAll(getIdsFromReferenceList(participantReferenceList));
 				});
 				break;
 			case FhirConstants.MEDICATION_REQUEST:
-				resourceList.forEach(resource -> uniqueParticipantUUIDs
-				        .add(getIdFromReference(((MedicationRequest) resource).getRequester())));
+				resourceList.forEach(
+				    resource -> references.add(getIdFromReference(((MedicationRequest) resource).getRequester())));
 				break;
 			case FhirConstants.MEDICATION_DISPENSE:
 				resourceList.forEach(resource -> {
 					List<Reference> performerReferenceList = new ArrayList<>();
 					((MedicationDispense) resource).getPerformer()
 					        .forEach(performer -> performerReferenceList.add(performer.getActor()));
-					uniqueParticipantUUIDs.addAll(getIdsFromReferenceList(performerReferenceList));
+					references.addAll(getIdsFromReferenceList(performerReferenceList));
 				});
 				break;
 			case FhirConstants.PROCEDURE_REQUEST:
 			case FhirConstants.SERVICE_REQUEST:
 				resourceList.forEach(
-				    resource -> uniqueParticipantUUIDs.add(getIdFromReference(((ServiceRequest) resource).getRequester())));
+				    resource -> references.add(getIdFromReference(((ServiceRequest) resource).getRequester())));
 				break;
 		}
-		
-		uniqueParticipantUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(practitionerService.get(uniqueParticipantUUIDs));
 	}
 	
-	protected Set<IBaseResource> handlePersonLinkInclude(List<U> resourceList, String targetType) {
-		Set<IBaseResource> includedResources = new LinkedHashSet<>();
-		
+	protected void handlePersonLinkInclude(List<U> resourceList, String targetType, Set<String> references) {
 		switch (targetType) {
 			case FhirConstants.PATIENT:
 				resourceList.forEach(resource -> {
@@ -474,75 +561,62 @@ public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQu
 					        .filter(res -> res.getTarget().getType().equals(FhirConstants.PATIENT))
 					        .forEach(patient -> patientReferenceList.add(patient.getTarget()));
 					
-					includedResources
-					        .addAll(patientService.get(new LinkedHashSet<>(getIdsFromReferenceList(patientReferenceList))));
+					references.addAll(getIdsFromReferenceList(patientReferenceList));
 				});
 				break;
 		}
-		
-		return includedResources;
 	}
 	
-	protected Set<IBaseResource> handlePractitionerInclude(List<U> resourceList, String paramType) {
-		Set<String> uniquePractitionerUUIDs = new LinkedHashSet<>();
-		
+	protected void handlePractitionerInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.TASK:
-				resourceList
-				        .forEach(resource -> uniquePractitionerUUIDs.add(getIdFromReference(((Task) resource).getOwner())));
+				resourceList.forEach(resource -> references.add(getIdFromReference(((Task) resource).getOwner())));
 				break;
 		}
-		
-		uniquePractitionerUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(practitionerService.get(uniquePractitionerUUIDs));
 	}
 	
-	protected Set<IBaseResource> handleServiceRequestInclude(List<U> resourceList, String paramType) {
-		Set<String> uniqueServiceRequestUUIDs = new LinkedHashSet<>();
-		
+	protected void handleServiceRequestInclude(List<U> resourceList, String paramType, Set<String> references) {
 		switch (paramType) {
 			case FhirConstants.TASK:
-				resourceList.forEach(resource -> {
-					uniqueServiceRequestUUIDs.addAll(getIdsFromReferenceList(((Task) resource).getBasedOn()));
-				});
+				resourceList.forEach(resource -> references.addAll(getIdsFromReferenceList(((Task) resource).getBasedOn())));
 				break;
 		}
-		
-		uniqueServiceRequestUUIDs.removeIf(Objects::isNull);
-		
-		return new LinkedHashSet<>(serviceRequestService.get(uniqueServiceRequestUUIDs));
 	}
 	
 	protected IBundleProvider handleEncounterReverseInclude(ReferenceAndListParam params, String targetType,
-	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes) {
+	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes, DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.OBSERVATION:
-				return observationService
-				        .searchForObservations(ObservationSearchParams.builder().encounterReference(params).build());
+				return observationService.searchForObservations(
+				    ObservationSearchParams.builder().encounterReference(params).lastUpdated(lastUpdated).build());
 			case FhirConstants.DIAGNOSTIC_REPORT:
 				return diagnosticReportService.searchForDiagnosticReports(
-				    DiagnosticReportSearchParams.builder().encounterReference(params).build());
+				    DiagnosticReportSearchParams.builder().encounterReference(params).lastUpdated(lastUpdated).build());
 			case FhirConstants.MEDICATION_REQUEST:
-				return medicationRequestService.searchForMedicationRequests(MedicationRequestSearchParams.builder()
-				        .encounterReference(params).includes(recursiveIncludes).revIncludes(recursiveRevIncludes).build());
+				return medicationRequestService.searchForMedicationRequests(
+				    MedicationRequestSearchParams.builder().encounterReference(params).lastUpdated(lastUpdated)
+				            .includes(recursiveIncludes).revIncludes(recursiveRevIncludes).build());
 			case FhirConstants.PROCEDURE_REQUEST:
 			case FhirConstants.SERVICE_REQUEST:
-				return serviceRequestService.searchForServiceRequests(null, null, params, null, null, null, null, null);
+				return serviceRequestService.searchForServiceRequests(null, null, params, null, null, null, lastUpdated,
+				    null);
 		}
 		
 		return null;
 	}
 	
-	protected IBundleProvider handleLocationReverseInclude(ReferenceAndListParam params, String targetType) {
+	protected IBundleProvider handleLocationReverseInclude(ReferenceAndListParam params, String targetType,
+	        DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.LOCATION:
 				LocationSearchParams locationSearchParams = new LocationSearchParams();
 				locationSearchParams.setParent(params);
+				locationSearchParams.setLastUpdated(lastUpdated);
 				return locationService.searchForLocations(locationSearchParams);
 			case FhirConstants.ENCOUNTER:
 				EncounterSearchParams encounterSearchParams = new EncounterSearchParams();
 				encounterSearchParams.setLocation(params);
+				encounterSearchParams.setLastUpdated(lastUpdated);
 				return encounterService.searchForEncounters(encounterSearchParams);
 		}
 		
@@ -550,87 +624,122 @@ public class SearchQueryIncludeImpl<U extends IBaseResource> implements SearchQu
 	}
 	
 	protected IBundleProvider handleMedicationReverseInclude(ReferenceAndListParam params, String targetType,
-	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes) {
+	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes, DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.MEDICATION_REQUEST:
 				return medicationRequestService.searchForMedicationRequests(new MedicationRequestSearchParams(null, null,
-				        null, null, params, null, null, null, null, recursiveIncludes, recursiveRevIncludes));
+				        null, null, params, null, null, null, lastUpdated, recursiveIncludes, recursiveRevIncludes));
 		}
 		
 		return null;
 	}
 	
-	protected IBundleProvider handleObservationReverseInclude(ReferenceAndListParam params, String targetType) {
+	protected IBundleProvider handleObservationReverseInclude(ReferenceAndListParam params, String targetType,
+	        DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.OBSERVATION:
 				ObservationSearchParams observationSearchParams = new ObservationSearchParams();
 				observationSearchParams.setHasMember(params);
+				observationSearchParams.setLastUpdated(lastUpdated);
 				return observationService.searchForObservations(observationSearchParams);
 			case FhirConstants.DIAGNOSTIC_REPORT:
 				return diagnosticReportService.searchForDiagnosticReports(
-				    new DiagnosticReportSearchParams(null, null, null, null, params, null, null, null, null));
+				    new DiagnosticReportSearchParams(null, null, null, null, params, null, lastUpdated, null, null));
 		}
 		
 		return null;
 	}
 	
 	protected IBundleProvider handlePatientReverseInclude(ReferenceAndListParam params, String targetType,
-	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes) {
+	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes, DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.OBSERVATION:
 				ObservationSearchParams observationSearchParams = new ObservationSearchParams();
 				observationSearchParams.setPatient(params);
+				observationSearchParams.setLastUpdated(lastUpdated);
 				return observationService.searchForObservations(observationSearchParams);
 			case FhirConstants.DIAGNOSTIC_REPORT:
 				return diagnosticReportService.searchForDiagnosticReports(
-				    new DiagnosticReportSearchParams(null, params, null, null, null, null, null, null, null));
+				    new DiagnosticReportSearchParams(null, params, null, null, null, null, lastUpdated, null, null));
 			case FhirConstants.ALLERGY_INTOLERANCE:
-				return allergyIntoleranceService.searchForAllergies(
-				    new FhirAllergyIntoleranceSearchParams(params, null, null, null, null, null, null, null, null, null));
+				return allergyIntoleranceService.searchForAllergies(new FhirAllergyIntoleranceSearchParams(params, null,
+				        null, null, null, null, null, lastUpdated, null, null));
 			case FhirConstants.ENCOUNTER:
 				EncounterSearchParams encounterSearchParams = new EncounterSearchParams();
 				encounterSearchParams.setSubject(params);
+				encounterSearchParams.setLastUpdated(lastUpdated);
 				return encounterService.searchForEncounters(encounterSearchParams);
 			case FhirConstants.MEDICATION_REQUEST:
 				return medicationRequestService.searchForMedicationRequests(new MedicationRequestSearchParams(params, null,
-				        null, null, null, null, null, null, null, recursiveIncludes, recursiveRevIncludes));
+				        null, null, null, null, null, null, lastUpdated, recursiveIncludes, recursiveRevIncludes));
 			case FhirConstants.SERVICE_REQUEST:
 			case FhirConstants.PROCEDURE_REQUEST:
-				return serviceRequestService.searchForServiceRequests(params, null, null, null, null, null, null, null);
+				return serviceRequestService.searchForServiceRequests(params, null, null, null, null, null, lastUpdated,
+				    null);
 		}
 		
 		return null;
 	}
 	
 	protected IBundleProvider handlePractitionerReverseInclude(ReferenceAndListParam params, String targetType,
-	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes) {
+	        Set<Include> recursiveIncludes, Set<Include> recursiveRevIncludes, DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.ENCOUNTER:
 				EncounterSearchParams encounterSearchParams = new EncounterSearchParams();
 				encounterSearchParams.setParticipant(params);
+				encounterSearchParams.setLastUpdated(lastUpdated);
 				return encounterService.searchForEncounters(encounterSearchParams);
 			case FhirConstants.MEDICATION_REQUEST:
 				return medicationRequestService.searchForMedicationRequests(new MedicationRequestSearchParams(null, null,
-				        null, params, null, null, null, null, null, recursiveIncludes, recursiveRevIncludes));
+				        null, params, null, null, null, null, lastUpdated, recursiveIncludes, recursiveRevIncludes));
 			case FhirConstants.PROCEDURE_REQUEST:
 			case FhirConstants.SERVICE_REQUEST:
-				return serviceRequestService.searchForServiceRequests(null, null, null, params, null, null, null, null);
+				return serviceRequestService.searchForServiceRequests(null, null, null, params, null, null, lastUpdated,
+				    null);
 		}
 		
 		return null;
 	}
 	
-	protected IBundleProvider handlePrescriptionReverseInclude(ReferenceAndListParam params, String targetType) {
+	protected IBundleProvider handlePrescriptionReverseInclude(ReferenceAndListParam params, String targetType,
+	        DateRangeParam lastUpdated) {
 		switch (targetType) {
 			case FhirConstants.MEDICATION_DISPENSE:
 				MedicationDispenseSearchParams medicationDispenseSearchParams = new MedicationDispenseSearchParams();
 				medicationDispenseSearchParams.setMedicationRequest(params);
+				medicationDispenseSearchParams.setLastUpdated(lastUpdated);
 				return medicationDispenseService.searchMedicationDispenses(medicationDispenseSearchParams);
 		}
 		
 		return null;
 	}
 	
+	/**
+	 * Gets the range of last updated times for the included resources, which is set by the
+	 * {@code _since} parameter of the $everything operation
+	 *
+	 * @param theParams the parameters of the search
+	 * @return the range of last updated times or {@code null} if the included resources are not
+	 *         restricted
+	 */
+	protected DateRangeParam getLastUpdatedSince(SearchParameterMap theParams) {
+		List<PropParam<Date>> since = theParams.getParameters(FhirConstants.SINCE_SEARCH_PARAMETER);
+		if (since.isEmpty() || since.get(0).getParam() == null) {
+			return null;
+		}
+		
+		return new DateRangeParam(since.get(0).getParam(), null);
+	}
+	
+	protected Set<String> getReferences(Map<String, Set<String>> referencesByType, String resourceType) {
+		return referencesByType.computeIfAbsent(resourceType, k -> new LinkedHashSet<>());
+	}
+	
+	protected String getResourceKey(IBaseResource resource) {
+		String id = resource.getIdElement().getIdPart();
+		return id == null ? null : resource.fhirType() + "/" + id;
+	}
+	
 	protected Set<Include> getRecursiveIncludes(Set<Include> includeSet) {
 		return includeSet.stream().filter(Include::isRecurse).collect(Collectors.toSet());
 	}
@@ -0,0 +1,71 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
+
+/**
+ * Holds the total mode requested for searches run by the current thread, i.e., the value of the
+ * {@code _total} parameter of the request being handled. This is set by the web layer for the
+ * duration of a request so that the mode does not need to be passed through every resource provider
+ * and service; {@link SearchQuery} records it in each bundle provider it creates.
+ *
+ * @see <a href="https://www.hl7.org/fhir/search.html#total">Search: _total</a>
+ */
+public final class SearchTotalModeContext {
+	
+	private static final ThreadLocal<SearchTotalModeEnum> totalMode = new ThreadLocal<>();
+	
+	private SearchTotalModeContext() {
+	}
+	
+	/**
+	 * @return the total mode requested for searches on this thread or {@code null} if none was requested
+	 */
+	public static SearchTotalModeEnum get() {
+		return totalMode.get();
+	}
+	
+	/**
+	 * @param mode the total mode requested for searches on this thread
+	 */
+	public static void set(SearchTotalModeEnum mode) {
+		if (mode == null) {
+			totalMode.remove();
+		} else {
+			totalMode.set(mode);
+		}
+	}
+	
+	public static void clear() {
+		totalMode.remove();
+	}
+	
+	/**
+	 * Parses a value of the {@code _total} parameter. Both {@code estimate} and the {@code estimated}
+	 * value used by the specification are accepted.
+	 *
+	 * @param value the value to parse
+	 * @return the corresponding {@link SearchTotalModeEnum} or {@code null} if the value is not a
+	 *         known total mode
+	 */
+	public static SearchTotalModeEnum parse(String value) {
+		if (value == null) {
+			return null;
+		}
+		
+		String code = value.trim().toLowerCase();
+		if ("estimate".equals(code)) {
+			return SearchTotalModeEnum.ESTIMATED;
+		}
+		
+		return SearchTotalModeEnum.fromCode(code);
+	}
+}
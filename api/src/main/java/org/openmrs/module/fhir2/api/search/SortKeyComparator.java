@@ -0,0 +1,106 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import javax.annotation.Nullable;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.function.Function;
+
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.DomainResource;
+import org.hl7.fhir.r4.model.Encounter;
+import org.openmrs.module.fhir2.FhirConstants;
+
+/**
+ * Orders translated resources the way the DAOs order search results for a {@link SortSpec}, so that
+ * the already sorted results of two searches can be merged. <br/>
+ * <br/>
+ * Only sort parameters whose values can be read from the resources are supported, and only the leading
+ * supported parameters of a sort are used, as the order for any parameter after an unsupported one
+ * cannot be reproduced. Missing values sort before any other value, as they do in MySQL.
+ */
+final class SortKeyComparator {
+	
+	private SortKeyComparator() {
+	}
+	
+	/**
+	 * @param sort the sort requested for a search
+	 * @return a comparator ordering resources by the requested sort, or {@code null} if the first sort
+	 *         parameter is not supported
+	 */
+	@Nullable
+	static Comparator<IBaseResource> forSort(@Nullable SortSpec sort) {
+		Comparator<IBaseResource> result = null;
+		for (SortSpec sortSpec = sort; sortSpec != null; sortSpec = sortSpec.getChain()) {
+			Comparator<IBaseResource> comparator = forParameter(sortSpec.getParamName());
+			if (comparator == null) {
+				break;
+			}
+			
+			if (sortSpec.getOrder() == SortOrderEnum.DESC) {
+				comparator = comparator.reversed();
+			}
+			
+			result = result == null ? comparator : result.thenComparing(comparator);
+		}
+		
+		return result;
+	}
+	
+	private static Comparator<IBaseResource> forParameter(String param) {
+		if (DomainResource.SP_RES_ID.equalsIgnoreCase(param)) {
+			return comparing(resource -> resource.getIdElement().getIdPart());
+		}
+		
+		if (FhirConstants.SP_LAST_UPDATED.equalsIgnoreCase(param)) {
+			return comparing(resource -> resource.getMeta().getLastUpdated());
+		}
+		
+		if (Encounter.SP_DATE.equalsIgnoreCase(param)) {
+			return comparing(resource -> resource instanceof Encounter && ((Encounter) resource).hasPeriod()
+			        ? ((Encounter) resource).getPeriod().getStart()
+			        : null);
+		}
+		
+		if (Condition.SP_ONSET_DATE.equalsIgnoreCase(param)) {
+			return comparing(SortKeyComparator::getOnsetDate);
+		}
+		
+		if (Condition.SP_RECORDED_DATE.equalsIgnoreCase(param)) {
+			return comparing(resource -> resource instanceof Condition ? ((Condition) resource).getRecordedDate() : null);
+		}
+		
+		return null;
+	}
+	
+	private static Date getOnsetDate(IBaseResource resource) {
+		if (!(resource instanceof Condition)) {
+			return null;
+		}
+		
+		Condition condition = (Condition) resource;
+		if (condition.hasOnsetDateTimeType()) {
+			return condition.getOnsetDateTimeType().getValue();
+		}
+		
+		return condition.hasOnsetPeriod() ? condition.getOnsetPeriod().getStart() : null;
+	}
+	
+	private static <K extends Comparable<? super K>> Comparator<IBaseResource> comparing(
+	        Function<IBaseResource, K> sortKey) {
+		return Comparator.comparing(sortKey, Comparator.nullsFirst(Comparator.naturalOrder()));
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.Map;
+
+import org.openmrs.module.fhir2.FhirActivator;
+import org.springframework.beans.BeansException;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Serializable stand-in for a singleton Spring bean held by a bundle provider. Bundle providers
+ * reference the DAOs, translators, and services used to run the search; these cannot be serialized
+ * themselves, so only the name of the bean is recorded and the bean is looked up again from the
+ * application context when the bundle provider is deserialized.
+ */
+final class SpringBeanReference implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final String beanName;
+	
+	private SpringBeanReference(String beanName) {
+		this.beanName = beanName;
+	}
+	
+	/**
+	 * @param bean the bean to reference
+	 * @param type a type the bean is registered under, used to narrow down the candidate beans
+	 * @return a reference to the bean or {@code null} if bean is {@code null}
+	 * @throws NotSerializableException if the bean is not a singleton bean in the application context
+	 */
+	static SpringBeanReference of(Object bean, Class<?> type) throws NotSerializableException {
+		if (bean == null) {
+			return null;
+		}
+		
+		ApplicationContext applicationContext = FhirActivator.getApplicationContext();
+		if (applicationContext == null) {
+			throw new NotSerializableException(bean.getClass().getName());
+		}
+		
+		for (Map.Entry<String, ?> entry : applicationContext.getBeansOfType(type, false, false).entrySet()) {
+			if (entry.getValue() == bean) {
+				return new SpringBeanReference(entry.getKey());
+			}
+		}
+		
+		throw new NotSerializableException(bean.getClass().getName());
+	}
+	
+	@SuppressWarnings("unchecked")
+	<T> T resolve() throws InvalidObjectException {
+		ApplicationContext applicationContext = FhirActivator.getApplicationContext();
+		if (applicationContext == null) {
+			throw new InvalidObjectException("The application context is not available");
+		}
+		
+		try {
+			return (T) applicationContext.getBean(beanName);
+		}
+		catch (BeansException e) {
+			InvalidObjectException invalidObjectException = new InvalidObjectException(
+			        "Could not find the bean named " + beanName);
+			invalidObjectException.initCause(e);
+			throw invalidObjectException;
+		}
+	}
+}
@@ -13,36 +13,52 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.util.FhirUtils;
+import org.openmrs.module.fhir2.api.util.RequestMetrics;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * Combines the results of two searches, e.g., for encounters and visits, into a single set of results.
+ * <br/>
+ * <br/>
+ * If the results are sorted by a parameter supported by {@link SortKeyComparator}, the results of the
+ * two searches are merged in that order, otherwise the results of the first search are followed by
+ * those of the second. Each page is merged from the positions in the two searches where the previous
+ * page ended, so only about one page of each search is read for it, and neither search is counted
+ * unless the total is requested.
+ */
 public class TwoSearchQueryBundleProvider implements IBundleProvider {
 	
-	private final IBundleProvider firstProvider;
-	
-	private final IBundleProvider secondProvider;
+	private final Source firstSource;
 	
-	private final FhirGlobalPropertyService globalPropertyService;
+	private final Source secondSource;
 	
-	private transient Integer pageSize;
+	private final Comparator<IBaseResource> comparator;
 	
-	private transient Integer count;
+	private final FhirGlobalPropertyService globalPropertyService;
 	
-	private final int firstProviderSize;
+	// the positions in both searches at which pages that have been read end, keyed by their index in the results
+	private final NavigableMap<Integer, Position> positions = new TreeMap<>();
 	
-	private final int secondProviderSize;
+	private transient Integer pageSize;
 	
 	@Getter
 	private final IPrimitiveType<Date> published;
@@ -52,71 +68,103 @@ public class TwoSearchQueryBundleProvider implements IBundleProvider {
 	
 	public TwoSearchQueryBundleProvider(IBundleProvider firstProvider, IBundleProvider secondProvider,
 	    FhirGlobalPropertyService globalPropertyService) {
-		this.firstProvider = firstProvider;
-		this.secondProvider = secondProvider;
+		this(firstProvider, secondProvider, globalPropertyService, null);
+	}
+	
+	/**
+	 * @param sort the sort requested for both searches, used to merge their results
+	 */
+	public TwoSearchQueryBundleProvider(IBundleProvider firstProvider, IBundleProvider secondProvider,
+	    FhirGlobalPropertyService globalPropertyService, SortSpec sort) {
+		this.firstSource = new Source(firstProvider);
+		this.secondSource = new Source(secondProvider);
+		this.comparator = SortKeyComparator.forSort(sort);
 		this.published = InstantDt.withCurrentTime();
 		this.uuid = FhirUtils.newUuid();
 		this.globalPropertyService = globalPropertyService;
-		this.firstProviderSize = Optional.ofNullable(firstProvider.size()).orElse(Integer.MAX_VALUE);
-		this.secondProviderSize = Optional.ofNullable(secondProvider.size()).orElse(Integer.MAX_VALUE);
+		this.positions.put(0, new Position(0, 0));
 	}
 	
 	@Transactional(readOnly = true)
 	@Nonnull
 	@Override
-	public List<IBaseResource> getResources(int fromIndex, int toIndex) {
-		int firstResult = 0;
-		if (fromIndex >= 0) {
-			firstResult = fromIndex;
+	public synchronized List<IBaseResource> getResources(int fromIndex, int toIndex) {
+		int firstResult = Math.max(fromIndex, 0);
+		if (toIndex <= firstResult) {
+			return Collections.emptyList();
 		}
 		
-		Integer size = size();
-		if (size != null && firstResult > size) {
-			return Collections.emptyList();
+		Map.Entry<Integer, Position> start = positions.floorEntry(firstResult);
+		int index = start.getKey();
+		Position position = start.getValue();
+		if (index < firstResult) {
+			position = skip(position, firstResult - index);
+			if (position == null) {
+				return Collections.emptyList();
+			}
 		}
 		
-		// NPE-safe unboxing
-		int lastResult = Integer.MAX_VALUE;
-		lastResult = size == null ? lastResult : size;
+		Page page = merge(position, toIndex - firstResult);
+		positions.put(firstResult + page.matches.size(), page.end);
 		
-		if (toIndex - firstResult > 0) {
-			lastResult = Math.min(lastResult, toIndex);
-		}
+		// the included resources follow all the matches of the page
+		List<IBaseResource> includedResources = new ArrayList<>(firstSource.getIncludedResources(page.firstMatches));
+		includedResources.addAll(secondSource.getIncludedResources(page.secondMatches));
+		RequestMetrics.recordResults(page.matches.size(), includedResources.size());
 		
-		if (lastResult <= firstProviderSize) {
-			return firstProvider.getResources(firstResult, lastResult);
-		}
+		List<IBaseResource> resultList = new ArrayList<>(page.matches.size() + includedResources.size());
+		resultList.addAll(page.matches);
+		resultList.addAll(includedResources);
 		
-		if (firstResult >= firstProviderSize) {
-			return secondProvider.getResources(firstResult - firstProviderSize, lastResult - firstProviderSize);
+		return resultList;
+	}
+	
+	// finds the positions in both searches a number of results after the given positions
+	private Position skip(Position position, int count) {
+		if (comparator == null) {
+			// without a sort, the results of the second search start after all the results of the first
+			int firstSize = firstSource.countResults(position.first + count);
+			int fromFirst = Math.max(Math.min(count, firstSize - position.first), 0);
+			return new Position(position.first + fromFirst, position.second + count - fromFirst);
 		}
 		
-		// case of intersection
-		int numResultsFromFirstProvider = firstProviderSize - firstResult;
-		int numResultsFromSecondProvider = lastResult - firstProviderSize;
-		
-		List<IBaseResource> resourcesFromFirstProvider = firstProvider.getResources(firstResult, firstProviderSize);
-		List<IBaseResource> requiredResourcesFromFirstProvider = resourcesFromFirstProvider.subList(0,
-		    numResultsFromFirstProvider);
-		List<IBaseResource> includedResourcesFromFirstProvider = resourcesFromFirstProvider
-		        .subList(numResultsFromFirstProvider, resourcesFromFirstProvider.size());
+		Integer preferredPageSize = preferredPageSize();
+		int chunkSize = preferredPageSize == null ? 10 : Math.max(preferredPageSize, 1);
+		for (int skipped = 0; skipped < count;) {
+			Page page = merge(position, Math.min(chunkSize, count - skipped));
+			if (page.matches.isEmpty()) {
+				return null;
+			}
+			
+			skipped += page.matches.size();
+			position = page.end;
+		}
 		
-		List<IBaseResource> resourcesFromSecondProvider = secondProvider.getResources(0, numResultsFromSecondProvider);
-		List<IBaseResource> requiredResourcesFromSecondProvider = resourcesFromSecondProvider.subList(0,
-		    numResultsFromSecondProvider);
-		List<IBaseResource> includedResourcesFromSecondProvider = resourcesFromSecondProvider
-		        .subList(numResultsFromSecondProvider, resourcesFromSecondProvider.size());
+		return position;
+	}
+	
+	private Page merge(Position position, int count) {
+		List<IBaseResource> first = firstSource.read(position.first, count);
 		
-		List<IBaseResource> resultList = new ArrayList<>();
+		// without a sort, the second search is only read once the first has run out of results
+		int secondCount = comparator == null ? count - first.size() : count;
+		List<IBaseResource> second = secondSource.read(position.second, secondCount);
 		
-		// resources to be added in the following way for every page -
-		// resources from first -> resources from second -> included from first -> included from second
-		resultList.addAll(requiredResourcesFromFirstProvider);
-		resultList.addAll(requiredResourcesFromSecondProvider);
-		resultList.addAll(includedResourcesFromFirstProvider);
-		resultList.addAll(includedResourcesFromSecondProvider);
+		Page page = new Page();
+		int i = 0, j = 0;
+		while (i + j < count && (i < first.size() || j < second.size())) {
+			if (i < first.size()
+			        && (j >= second.size() || comparator == null || comparator.compare(first.get(i), second.get(j)) <= 0)) {
+				page.matches.add(first.get(i));
+				page.firstMatches.add(first.get(i++));
+			} else {
+				page.matches.add(second.get(j));
+				page.secondMatches.add(second.get(j++));
+			}
+		}
 		
-		return resultList;
+		page.end = new Position(position.first + i, position.second + j);
+		return page;
 	}
 	
 	@Override
@@ -128,22 +176,126 @@ public class TwoSearchQueryBundleProvider implements IBundleProvider {
 		return pageSize;
 	}
 	
+	/**
+	 * @return the sum of the sizes of both searches, which are determined according to their total mode,
+	 *         or {@code null} if either size is not known
+	 */
 	@Nullable
 	@Override
-	public Integer size() {
-		if (count == null) {
-			if (firstProviderSize == Integer.MAX_VALUE || secondProviderSize == Integer.MAX_VALUE) {
-				return Integer.MAX_VALUE;
+	public synchronized Integer size() {
+		Integer firstSize = firstSource.size();
+		if (firstSize == null) {
+			return null;
+		}
+		
+		Integer secondSize = secondSource.size();
+		if (secondSize == null) {
+			return null;
+		}
+		
+		int count = firstSize + secondSize;
+		
+		// accounting for integer overflow
+		return count < 0 ? Integer.MAX_VALUE : count;
+	}
+	
+	@AllArgsConstructor
+	private static final class Position {
+		
+		private final int first;
+		
+		private final int second;
+	}
+	
+	private static final class Page {
+		
+		private final List<IBaseResource> matches = new ArrayList<>();
+		
+		private final List<IBaseResource> firstMatches = new ArrayList<>();
+		
+		private final List<IBaseResource> secondMatches = new ArrayList<>();
+		
+		private Position end;
+	}
+	
+	/**
+	 * One of the two searches. The results of a {@link SearchQueryBundleProvider} are read without their
+	 * included resources, which are only loaded for the results that end up on a page. Any other
+	 * provider is expected to return the included resources after the requested results.
+	 */
+	private static final class Source {
+		
+		private final IBundleProvider provider;
+		
+		// the number of results, once the last of them has been read
+		private Integer end;
+		
+		private final List<IBaseResource> includedResources = new ArrayList<>();
+		
+		private Source(IBundleProvider provider) {
+			this.provider = provider;
+		}
+		
+		@SuppressWarnings("unchecked")
+		private List<IBaseResource> read(int fromIndex, int count) {
+			includedResources.clear();
+			if (count <= 0 || (end != null && fromIndex >= end)) {
+				return Collections.emptyList();
+			}
+			
+			int toIndex = fromIndex + count < 0 ? Integer.MAX_VALUE : fromIndex + count;
+			List<IBaseResource> matches;
+			if (provider instanceof SearchQueryBundleProvider) {
+				matches = ((SearchQueryBundleProvider<?, IBaseResource>) provider).getMatches(fromIndex, toIndex);
 			} else {
-				count = firstProviderSize + secondProviderSize;
+				Integer size = provider.size();
+				if (size != null && fromIndex >= size) {
+					return Collections.emptyList();
+				}
+				
+				List<IBaseResource> resources = provider.getResources(fromIndex, toIndex);
+				matches = resources.subList(0, Math.min(count, resources.size()));
+				includedResources.addAll(resources.subList(matches.size(), resources.size()));
 			}
 			
-			// accounting for integer overflow
-			if (count < 0) {
-				count = Integer.MAX_VALUE;
+			if (matches.size() < count) {
+				end = fromIndex + matches.size();
 			}
+			
+			return matches;
 		}
 		
-		return count;
+		@SuppressWarnings("unchecked")
+		private Collection<IBaseResource> getIncludedResources(List<IBaseResource> matches) {
+			if (provider instanceof SearchQueryBundleProvider) {
+				return matches.isEmpty() ? Collections.emptySet()
+				        : ((SearchQueryBundleProvider<?, IBaseResource>) provider).getIncludedResources(matches);
+			}
+			
+			return matches.isEmpty() ? Collections.emptyList() : includedResources;
+		}
+		
+		// the number of results, or the given limit if there are at least that many
+		private int countResults(int limit) {
+			if (end == null) {
+				if (provider instanceof SearchQueryBundleProvider) {
+					end = ((SearchQueryBundleProvider<?, ?>) provider).countResults();
+				} else {
+					Integer size = provider.size();
+					if (size != null) {
+						return size;
+					}
+					
+					read(0, limit);
+					return end == null ? limit : end;
+				}
+			}
+			
+			return end;
+		}
+		
+		private Integer size() {
+			return end != null ? end : provider.size();
+		}
 	}
 }
@@ -0,0 +1,223 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search.param;
+
+import javax.annotation.Nonnull;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@code KeysetCursor} describes a position in an ordered set of search results for keyset (or
+ * "seek") pagination. Rather than asking the database to skip the first {@code n} rows of a query,
+ * a keyset query asks for the rows that sort after the last row that was previously returned, which
+ * allows the database to use an index to find the start of the page. <br/>
+ * <br/>
+ * A cursor holds the values of every sort expression for the last row of the previous page,
+ * including the trailing id ordering used as a tie-breaker, together with the number of rows that
+ * have been consumed so far. The offset is used as a fallback when the cursor cannot be used to seek,
+ * e.g., because one of the sort values is {@code null} and the database's null ordering cannot be
+ * expressed as a portable predicate. <br/>
+ * <br/>
+ * Cursors are exchanged with clients as opaque page ids (see {@link #encode()} and
+ * {@link #decode(String)}). The encoding only supports a fixed set of simple value types, so no
+ * arbitrary objects are ever deserialized from client-supplied data.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class KeysetCursor implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final String VERSION = "1";
+	
+	private static final String FIELD_SEPARATOR = "~";
+	
+	private static final KeysetCursor START = new KeysetCursor(0, Collections.emptyList());
+	
+	private final int offset;
+	
+	private final List<Serializable> values;
+	
+	private KeysetCursor(int offset, List<Serializable> values) {
+		this.offset = offset;
+		this.values = values;
+	}
+	
+	/**
+	 * @return a cursor positioned before the first result
+	 */
+	public static KeysetCursor start() {
+		return START;
+	}
+	
+	/**
+	 * @param offset the number of results to skip
+	 * @return a cursor with no sort values that positions the query by offset
+	 */
+	public static KeysetCursor atOffset(int offset) {
+		if (offset <= 0) {
+			return START;
+		}
+		
+		return new KeysetCursor(offset, Collections.emptyList());
+	}
+	
+	/**
+	 * Creates the cursor for the page following the one that ended with a row having the supplied sort
+	 * values.
+	 *
+	 * @param lastRowValues the values of each sort expression for the last row of the current page
+	 * @param pageLength the number of results returned in the current page
+	 * @return a cursor positioned after the supplied row
+	 */
+	public KeysetCursor next(@Nonnull Object[] lastRowValues, int pageLength) {
+		List<Serializable> nextValues = new ArrayList<>(lastRowValues.length);
+		for (Object value : lastRowValues) {
+			nextValues.add(isSupported(value) ? (Serializable) value : null);
+		}
+		
+		return new KeysetCursor(offset + pageLength, Collections.unmodifiableList(nextValues));
+	}
+	
+	/**
+	 * @return {@code true} if this cursor is positioned before the first result
+	 */
+	public boolean isStart() {
+		return offset == 0 && values.isEmpty();
+	}
+	
+	/**
+	 * Determines whether this cursor can be used to build a seek predicate for a query with the given
+	 * number of sort expressions.
+	 *
+	 * @param numberOfOrderings the number of sort expressions, including the id tie-breaker
+	 * @return {@code true} if a seek predicate can be built, {@code false} if the offset must be used
+	 */
+	public boolean canSeek(int numberOfOrderings) {
+		return !values.isEmpty() && values.size() == numberOfOrderings && values.stream().allMatch(Objects::nonNull);
+	}
+	
+	/**
+	 * @return an opaque, URL-safe representation of this cursor suitable for use as a page id
+	 */
+	public String encode() {
+		StringBuilder sb = new StringBuilder(VERSION).append(FIELD_SEPARATOR).append(offset);
+		for (Serializable value : values) {
+			sb.append(FIELD_SEPARATOR).append(encodeValue(value));
+		}
+		
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Parses a page id produced by {@link #encode()}
+	 *
+	 * @param pageId the page id to parse
+	 * @return the corresponding {@link KeysetCursor}
+	 * @throws InvalidRequestException if the page id is not a valid cursor
+	 */
+	public static KeysetCursor decode(String pageId) {
+		if (pageId == null || pageId.isEmpty()) {
+			throw new InvalidRequestException("Invalid page id");
+		}
+		
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(pageId), StandardCharsets.UTF_8);
+			List<String> fields = Arrays.asList(decoded.split(FIELD_SEPARATOR, -1));
+			if (fields.size() < 2 || !VERSION.equals(fields.get(0))) {
+				throw new InvalidRequestException("Invalid page id " + pageId);
+			}
+			
+			int offset = Integer.parseInt(fields.get(1));
+			if (offset < 0) {
+				throw new InvalidRequestException("Invalid page id " + pageId);
+			}
+			
+			List<Serializable> values = new ArrayList<>(fields.size() - 2);
+			for (String field : fields.subList(2, fields.size())) {
+				values.add(decodeValue(field));
+			}
+			
+			return values.isEmpty() ? atOffset(offset) : new KeysetCursor(offset, Collections.unmodifiableList(values));
+		}
+		catch (IllegalArgumentException e) {
+			throw new InvalidRequestException("Invalid page id " + pageId, e);
+		}
+	}
+	
+	private static boolean isSupported(Object value) {
+		return value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof BigDecimal
+		        || value instanceof Boolean || value instanceof Date || value instanceof String;
+	}
+	
+	private static String encodeValue(Serializable value) {
+		if (value == null) {
+			return "n";
+		} else if (value instanceof Integer) {
+			return "i" + value;
+		} else if (value instanceof Long) {
+			return "l" + value;
+		} else if (value instanceof Double) {
+			return "d" + value;
+		} else if (value instanceof BigDecimal) {
+			return "m" + ((BigDecimal) value).toPlainString();
+		} else if (value instanceof Boolean) {
+			return (Boolean) value ? "b1" : "b0";
+		} else if (value instanceof Date) {
+			return "t" + ((Date) value).getTime();
+		}
+		
+		return "s" + Base64.getUrlEncoder().withoutPadding()
+		        .encodeToString(value.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static Serializable decodeValue(String field) {
+		if (field.isEmpty()) {
+			throw new IllegalArgumentException("Empty cursor value");
+		}
+		
+		String value = field.substring(1);
+		switch (field.charAt(0)) {
+			case 'n':
+				return null;
+			case 'i':
+				return Integer.valueOf(value);
+			case 'l':
+				return Long.valueOf(value);
+			case 'd':
+				return Double.valueOf(value);
+			case 'm':
+				return new BigDecimal(value);
+			case 'b':
+				return "1".equals(value);
+			case 't':
+				return new Date(Long.parseLong(value));
+			case 's':
+				return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+			default:
+				throw new IllegalArgumentException("Unknown cursor value type " + field.charAt(0));
+		}
+	}
+}
@@ -45,6 +45,23 @@ public class SearchParameterMap implements Serializable {
 	@Setter
 	private int toIndex = Integer.MAX_VALUE;
 	
+	/**
+	 * When set, the search is paged using keyset pagination starting from this cursor instead of by
+	 * {@link #getFromIndex()}
+	 */
+	@Getter
+	@Setter
+	private KeysetCursor keysetCursor;
+	
+	/**
+	 * Set by the DAO after a keyset search to the cursor for the following page or {@code null} if
+	 * there are no further results
+	 */
+	@Getter
+	@Setter
+	@EqualsAndHashCode.Exclude
+	private KeysetCursor nextKeysetCursor;
+	
 	private final Map<String, List<PropParam<?>>> params = new LinkedCaseInsensitiveMap<>();
 	
 	/**
@@ -30,4 +30,16 @@ public interface OpenmrsFhirTranslator<T, U> extends ToFhirTranslator<T, U>, ToO
 	default List<U> toFhirResources(Collection<T> data) {
 		return data.stream().distinct().map(this::toFhirResource).collect(Collectors.toList());
 	}
+	
+	/**
+	 * Indicates whether {@link #toFhirResource(Object)} may be called for several data elements at the
+	 * same time on threads other than the one that loaded them. Translators should only return
+	 * {@code true} if they are thread-safe and only use the associations of the data elements that are
+	 * loaded by {@link org.openmrs.module.fhir2.api.dao.FhirDao#initializeForTranslation(List)}.
+	 *
+	 * @return {@code true} if data elements may be translated in parallel, {@code false} otherwise
+	 */
+	default boolean supportsParallelTranslation() {
+		return false;
+	}
 }
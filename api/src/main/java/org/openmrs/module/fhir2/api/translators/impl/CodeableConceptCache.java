@@ -0,0 +1,188 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.translators.impl;
+
+import static lombok.AccessLevel.PROTECTED;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the {@link CodeableConcept}s built by {@link ConceptTranslatorImpl}, keyed by concept id and
+ * the locale used for their display strings, together with the map from concept source uuids to the
+ * URLs used as coding systems. It also holds the reverse index used to resolve incoming codings,
+ * from a coding's system and code to the id of the concept it resolved to. <br/>
+ * <br/>
+ * Entries do not expire; instead they are discarded when the concept or the concept sources they
+ * were built from are changed (see {@link ConceptChangeAdvice}). The cached {@link CodeableConcept}s
+ * are shared between threads and must never be modified.
+ */
+@Component
+public class CodeableConceptCache {
+	
+	public static final int DEFAULT_MAXIMUM_SIZE = 20000;
+	
+	/**
+	 * Recorded in the reverse index for codings that do not resolve to any concept
+	 */
+	public static final Integer NO_CONCEPT = -1;
+	
+	@Setter(value = PROTECTED, onMethod_ = @Autowired)
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	private volatile Cache<CacheKey, CodeableConcept> cache;
+	
+	private volatile Cache<CodingKey, Integer> codingIndex;
+	
+	private volatile Map<String, String> conceptSourceUrls;
+	
+	public CodeableConceptCache() {
+	}
+	
+	public CodeableConceptCache(int maximumSize) {
+		cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+		codingIndex = Caffeine.newBuilder().maximumSize(maximumSize).build();
+	}
+	
+	/**
+	 * @param conceptId the id of the concept
+	 * @param locale the locale of the display strings
+	 * @return the cached {@link CodeableConcept}, which must not be modified, or {@code null}
+	 */
+	public CodeableConcept get(Integer conceptId, Locale locale) {
+		return getCache().getIfPresent(new CacheKey(conceptId, locale));
+	}
+	
+	/**
+	 * @param conceptId the id of the concept
+	 * @param locale the locale of the display strings
+	 * @param codeableConcept the {@link CodeableConcept} for the concept, which must not be modified
+	 *            after it has been cached
+	 */
+	public void put(Integer conceptId, Locale locale, CodeableConcept codeableConcept) {
+		getCache().put(new CacheKey(conceptId, locale), codeableConcept);
+	}
+	
+	/**
+	 * @param system the system of the coding, which may be {@code null}
+	 * @param code the code of the coding
+	 * @return the id of the concept the coding resolved to, {@link #NO_CONCEPT} if it did not resolve
+	 *         to any concept or {@code null} if the coding has not been resolved yet
+	 */
+	public Integer getConceptId(String system, String code) {
+		return getCodingIndex().getIfPresent(new CodingKey(system, code));
+	}
+	
+	/**
+	 * @param system the system of the coding, which may be {@code null}
+	 * @param code the code of the coding
+	 * @param conceptId the id of the concept the coding resolved to or {@code null} if it did not
+	 *            resolve to any concept
+	 */
+	public void putConceptId(String system, String code, Integer conceptId) {
+		getCodingIndex().put(new CodingKey(system, code), conceptId == null ? NO_CONCEPT : conceptId);
+	}
+	
+	/**
+	 * @param loader builds the map if it is not cached
+	 * @return an unmodifiable map from concept source uuids to the URLs used for the concept source
+	 */
+	public Map<String, String> getConceptSourceUrls(Supplier<Map<String, String>> loader) {
+		Map<String, String> result = conceptSourceUrls;
+		if (result == null) {
+			result = Collections.unmodifiableMap(loader.get());
+			conceptSourceUrls = result;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Discards the {@link CodeableConcept}s for the given concept in every locale, together with the
+	 * whole reverse index. The concept's mappings may have changed, which can change the concept any
+	 * coding resolves to, e.g., a new SAME-AS mapping is preferred over the mapping of another concept,
+	 * and the mappings the concept had before the change are no longer known.
+	 *
+	 * @param conceptId the id of the concept that changed
+	 */
+	public void invalidate(Integer conceptId) {
+		if (conceptId != null) {
+			getCache().asMap().keySet().removeIf(key -> conceptId.equals(key.conceptId));
+			getCodingIndex().invalidateAll();
+		}
+	}
+	
+	/**
+	 * Discards every cached {@link CodeableConcept}, the reverse index and the concept source URLs
+	 */
+	public void invalidateAll() {
+		conceptSourceUrls = null;
+		getCache().invalidateAll();
+		getCodingIndex().invalidateAll();
+	}
+	
+	private Cache<CacheKey, CodeableConcept> getCache() {
+		if (cache == null) {
+			initialize();
+		}
+		
+		return cache;
+	}
+	
+	private Cache<CodingKey, Integer> getCodingIndex() {
+		if (codingIndex == null) {
+			initialize();
+		}
+		
+		return codingIndex;
+	}
+	
+	private synchronized void initialize() {
+		if (cache == null || codingIndex == null) {
+			int maximumSize = Math.max(globalPropertyService == null ? DEFAULT_MAXIMUM_SIZE
+			        : globalPropertyService.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_CONCEPT_CACHE_SIZE,
+			            DEFAULT_MAXIMUM_SIZE),
+			    0);
+			codingIndex = Caffeine.newBuilder().maximumSize(maximumSize).build();
+			cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+		}
+	}
+	
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	private static final class CacheKey {
+		
+		private final Integer conceptId;
+		
+		private final Locale locale;
+	}
+	
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	private static final class CodingKey {
+		
+		private final String system;
+		
+		private final String code;
+	}
+}
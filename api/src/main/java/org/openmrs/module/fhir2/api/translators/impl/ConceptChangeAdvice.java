@@ -0,0 +1,60 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.translators.impl;
+
+import java.lang.reflect.Method;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptMapType;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.context.Context;
+import org.springframework.aop.AfterReturningAdvice;
+
+/**
+ * Keeps the {@link CodeableConceptCache} up to date with changes made through the
+ * {@link org.openmrs.api.ConceptService}. Changing a concept discards the entries for that concept
+ * and the codings resolved so far; changing a concept source, reference term or map type may affect
+ * the codings of any number of concepts, so it discards every entry.
+ */
+public class ConceptChangeAdvice implements AfterReturningAdvice {
+	
+	private static final String[] CHANGING_METHOD_PREFIXES = { "save", "update", "retire", "unretire", "purge" };
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (args == null || args.length == 0 || !isChangingMethod(method.getName())) {
+			return;
+		}
+		
+		Object changed = args[0];
+		if (changed instanceof Concept) {
+			Integer conceptId = ((Concept) changed).getConceptId();
+			for (CodeableConceptCache cache : Context.getRegisteredComponents(CodeableConceptCache.class)) {
+				cache.invalidate(conceptId);
+			}
+		} else if (changed instanceof ConceptSource || changed instanceof ConceptReferenceTerm
+		        || changed instanceof ConceptMapType) {
+			for (CodeableConceptCache cache : Context.getRegisteredComponents(CodeableConceptCache.class)) {
+				cache.invalidateAll();
+			}
+		}
+	}
+	
+	private boolean isChangingMethod(String methodName) {
+		for (String prefix : CHANGING_METHOD_PREFIXES) {
+			if (methodName.startsWith(prefix)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -13,9 +13,10 @@ import static lombok.AccessLevel.PROTECTED;
 
 import javax.annotation.Nonnull;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -30,22 +31,19 @@ import org.openmrs.ConceptMapType;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSource;
 import org.openmrs.Duration;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirConceptService;
 import org.openmrs.module.fhir2.api.FhirConceptSourceService;
 import org.openmrs.module.fhir2.api.translators.ConceptTranslator;
 import org.openmrs.module.fhir2.model.FhirConceptSource;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
 public class ConceptTranslatorImpl implements ConceptTranslator {
 	
-	private static final String CACHE_NAME = "fhir2ConceptToCodeableConcept";
-	
 	@Getter(PROTECTED)
 	@Setter(value = PROTECTED, onMethod_ = @Autowired)
 	private FhirConceptService conceptService;
@@ -55,7 +53,7 @@ public class ConceptTranslatorImpl implements ConceptTranslator {
 	private FhirConceptSourceService conceptSourceService;
 	
 	@Setter(value = PROTECTED, onMethod_ = { @Autowired(required = false) })
-	private CacheManager cacheManager;
+	private CodeableConceptCache codeableConceptCache;
 	
 	@Override
 	public CodeableConcept toFhirResource(@Nonnull Concept concept) {
@@ -63,25 +61,34 @@ public class ConceptTranslatorImpl implements ConceptTranslator {
 			return null;
 		}
 		
-		Cache cache = cacheManager != null ? cacheManager.getCache(CACHE_NAME) : null;
-		if (cache != null) {
-			CodeableConcept cached = cache.get(concept, CodeableConcept.class);
-			if (cached != null) {
-				return cached.copy();
-			}
+		if (codeableConceptCache == null || concept.getConceptId() == null) {
+			return buildCodeableConcept(concept);
 		}
 		
-		CodeableConcept codeableConcept = buildCodeableConcept(concept);
-		
-		if (cache != null) {
-			cache.put(concept, codeableConcept);
+		Locale locale = Context.getLocale();
+		CodeableConcept cached = codeableConceptCache.get(concept.getConceptId(), locale);
+		if (cached == null) {
+			cached = buildCodeableConcept(concept);
+			codeableConceptCache.put(concept.getConceptId(), locale, cached);
 		}
 		
-		return codeableConcept.copy();
+		return copyOnWrite(cached);
+	}
+	
+	/**
+	 * Creates a {@link CodeableConcept} that can be modified without affecting the cached one. Rather
+	 * than copying every coding, the copy has its own list of codings holding the cached
+	 * {@link Coding}s, which are never modified by the translators.
+	 */
+	private CodeableConcept copyOnWrite(CodeableConcept cached) {
+		CodeableConcept result = new CodeableConcept();
+		result.setText(cached.getText());
+		result.setCoding(new ArrayList<>(cached.getCoding()));
+		return result;
 	}
 	
 	private CodeableConcept buildCodeableConcept(Concept concept) {
-		Collection<FhirConceptSource> allFhirConceptSources = conceptSourceService.getFhirConceptSources();
+		Map<String, String> conceptSourceUrls = getConceptSourceUrls();
 		CodeableConcept codeableConcept = new CodeableConcept();
 		codeableConcept.setText(concept.getDisplayString());
 		addConceptCoding(codeableConcept.addCoding(), null, concept.getUuid(), concept);
@@ -93,7 +100,7 @@ public class ConceptTranslatorImpl implements ConceptTranslator {
 				boolean sameAs = mapType.getUuid() != null && mapType.getUuid().equals(ConceptMapType.SAME_AS_MAP_TYPE_UUID);
 				sameAs = sameAs || (mapType.getName() != null && mapType.getName().equalsIgnoreCase("SAME-AS"));
 				ConceptReferenceTerm crt = mapping.getConceptReferenceTerm();
-				String sourceUrl = getSourceUrl(crt.getConceptSource(), allFhirConceptSources);
+				String sourceUrl = getSourceUrl(crt.getConceptSource(), conceptSourceUrls);
 				if (sourceUrl != null) {
 					if (sameAs) {
 						addSystemToCodeMap(systemUrlToCodeMap, sourceUrl, "SAME-AS", crt.getCode());
@@ -124,31 +131,59 @@ public class ConceptTranslatorImpl implements ConceptTranslator {
 		if (concept != null) {
 			for (Coding coding : concept.getCoding()) {
 				if (coding.getCode() != null) {
-					if (!coding.hasSystem()) {
-						Concept c = conceptService.get(coding.getCode());
-						if (c != null) {
-							return c;
-						}
-					} else {
-						Optional<ConceptSource> conceptSource = conceptSourceService
-						        .getConceptSourceByUrl(coding.getSystem());
-						if (conceptSource.isPresent()) {
-							List<Concept> allMatchingConcepts = conceptService
-							        .getConceptsWithAnyMappingInSource(conceptSource.get(), coding.getCode());
-							if (!allMatchingConcepts.isEmpty()) {
-								Map<String, Concept> mapTypeToConceptMap = new HashMap<>();
-								addConceptsToMap(mapTypeToConceptMap, allMatchingConcepts, conceptSource.get(),
-								    coding.getCode());
-								if (mapTypeToConceptMap.size() == 1) {
-									for (String mapType : mapTypeToConceptMap.keySet()) {
-										return mapTypeToConceptMap.get(mapType);
-									}
-								} else if (mapTypeToConceptMap.size() > 1 && mapTypeToConceptMap.containsKey("SAME-AS")) {
-									return mapTypeToConceptMap.get("SAME-AS");
-								}
-							}
-						}
+					Concept c = resolveCoding(coding.hasSystem() ? coding.getSystem() : null, coding.getCode());
+					if (c != null) {
+						return c;
+					}
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Resolves a coding using the reverse index in the {@link CodeableConceptCache}, so that codings
+	 * that have been seen before do not need to be looked up in the database again
+	 */
+	private Concept resolveCoding(String system, String code) {
+		if (codeableConceptCache == null) {
+			return findConcept(system, code);
+		}
+		
+		Integer conceptId = codeableConceptCache.getConceptId(system, code);
+		if (CodeableConceptCache.NO_CONCEPT.equals(conceptId)) {
+			return null;
+		} else if (conceptId != null) {
+			Concept c = conceptService.get(conceptId);
+			if (c != null) {
+				return c;
+			}
+		}
+		
+		Concept c = findConcept(system, code);
+		codeableConceptCache.putConceptId(system, code, c == null ? null : c.getConceptId());
+		return c;
+	}
+	
+	private Concept findConcept(String system, String code) {
+		if (system == null) {
+			return conceptService.get(code);
+		}
+		
+		Optional<ConceptSource> conceptSource = conceptSourceService.getConceptSourceByUrl(system);
+		if (conceptSource.isPresent()) {
+			List<Concept> allMatchingConcepts = conceptService.getConceptsWithAnyMappingInSource(conceptSource.get(),
+			    code);
+			if (!allMatchingConcepts.isEmpty()) {
+				Map<String, Concept> mapTypeToConceptMap = new HashMap<>();
+				addConceptsToMap(mapTypeToConceptMap, allMatchingConcepts, conceptSource.get(), code);
+				if (mapTypeToConceptMap.size() == 1) {
+					for (String mapType : mapTypeToConceptMap.keySet()) {
+						return mapTypeToConceptMap.get(mapType);
 					}
+				} else if (mapTypeToConceptMap.size() > 1 && mapTypeToConceptMap.containsKey("SAME-AS")) {
+					return mapTypeToConceptMap.get("SAME-AS");
 				}
 			}
 		}
@@ -195,16 +230,30 @@ public class ConceptTranslatorImpl implements ConceptTranslator {
 		});
 	}
 	
-	private String getSourceUrl(ConceptSource conceptSource, Collection<FhirConceptSource> fhirConceptSources) {
+	private Map<String, String> getConceptSourceUrls() {
+		if (codeableConceptCache == null) {
+			return loadConceptSourceUrls();
+		}
+		
+		return codeableConceptCache.getConceptSourceUrls(this::loadConceptSourceUrls);
+	}
+	
+	private Map<String, String> loadConceptSourceUrls() {
+		Map<String, String> conceptSourceUrls = new HashMap<>();
+		for (FhirConceptSource fhirConceptSource : conceptSourceService.getFhirConceptSources()) {
+			if (fhirConceptSource.getConceptSource() != null && fhirConceptSource.getUrl() != null) {
+				conceptSourceUrls.putIfAbsent(fhirConceptSource.getConceptSource().getUuid(), fhirConceptSource.getUrl());
+			}
+		}
+		
+		return conceptSourceUrls;
+	}
+	
+	private String getSourceUrl(ConceptSource conceptSource, Map<String, String> conceptSourceUrls) {
 		String sourceUrl = null;
 		if (conceptSource != null) {
-			FhirConceptSource fhirConceptSource = fhirConceptSources.stream().filter(fcs -> fcs.getConceptSource() != null)
-			        .filter(fcs -> fcs.getConceptSource().getUuid().equals(conceptSource.getUuid())).findFirst()
-			        .orElse(null);
-			
-			if (fhirConceptSource != null && fhirConceptSource.getUrl() != null) {
-				sourceUrl = fhirConceptSource.getUrl();
-			} else {
+			sourceUrl = conceptSourceUrls.get(conceptSource.getUuid());
+			if (sourceUrl == null) {
 				sourceUrl = Duration.SNOMED_CT_CONCEPT_SOURCE_HL7_CODE.equals(conceptSource.getHl7Code())
 				        ? FhirConstants.SNOMED_SYSTEM_URI
 				        : null;
@@ -96,6 +96,11 @@ public class EncounterTranslatorImpl extends BaseEncounterTranslator implements
 		return encounter;
 	}
 	
+	@Override
+	public boolean supportsParallelTranslation() {
+		return true;
+	}
+	
 	@Override
 	public org.openmrs.Encounter toOpenmrsType(@Nonnull Encounter fhirEncounter) {
 		notNull(fhirEncounter, "The Encounter object should not be null");
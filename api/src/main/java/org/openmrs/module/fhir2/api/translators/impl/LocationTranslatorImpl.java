@@ -169,6 +169,10 @@ public class LocationTranslatorImpl implements LocationTranslator {
 	
 	private Map<org.openmrs.Location, List<ContactPoint>> getLocationContactDetails(
 	        Collection<org.openmrs.Location> locations) {
+		if (locations.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		
 		final String locationContactPointAttributeType = propertyService
 		        .getGlobalProperty(FhirConstants.LOCATION_CONTACT_POINT_ATTRIBUTE_TYPE);
 		
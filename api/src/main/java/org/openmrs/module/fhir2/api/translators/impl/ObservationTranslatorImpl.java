@@ -153,6 +153,11 @@ public class ObservationTranslatorImpl implements ObservationTranslator {
 		return obs;
 	}
 	
+	@Override
+	public boolean supportsParallelTranslation() {
+		return true;
+	}
+	
 	@Override
 	public Obs toOpenmrsType(@Nonnull Observation fhirObservation) {
 		notNull(fhirObservation, "The Observation object should not be null");
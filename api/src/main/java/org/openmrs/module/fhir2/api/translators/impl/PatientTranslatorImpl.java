@@ -16,8 +16,10 @@ import static org.openmrs.module.fhir2.api.translators.impl.FhirTranslatorUtils.
 
 import javax.annotation.Nonnull;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -97,6 +99,21 @@ public class PatientTranslatorImpl implements PatientTranslator {
 	public Patient toFhirResource(@Nonnull org.openmrs.Patient openmrsPatient) {
 		notNull(openmrsPatient, "The Openmrs Patient object should not be null");
 		
+		return toFhirResource(openmrsPatient, getPatientContactDetails(Collections.singletonList(openmrsPatient)));
+	}
+	
+	/**
+	 * Translates a page of patients, fetching the contact details of all the patients in one query
+	 */
+	@Override
+	public List<Patient> toFhirResources(Collection<org.openmrs.Patient> openmrsPatients) {
+		Map<Integer, List<ContactPoint>> contactDetails = getPatientContactDetails(openmrsPatients);
+		
+		return openmrsPatients.stream().distinct().map(openmrsPatient -> toFhirResource(openmrsPatient, contactDetails))
+		        .collect(Collectors.toList());
+	}
+	
+	private Patient toFhirResource(org.openmrs.Patient openmrsPatient, Map<Integer, List<ContactPoint>> contactDetails) {
 		Patient patient = new Patient();
 		patient.setId(openmrsPatient.getUuid());
 		patient.setActive(!openmrsPatient.getVoided());
@@ -138,7 +155,7 @@ public class PatientTranslatorImpl implements PatientTranslator {
 			}
 		}
 		
-		patient.setTelecom(getPatientContactDetails(openmrsPatient));
+		patient.setTelecom(contactDetails.getOrDefault(openmrsPatient.getId(), Collections.emptyList()));
 		patient.getMeta().setLastUpdated(getLastUpdated(openmrsPatient));
 		patient.getMeta().setVersionId(getVersionId(openmrsPatient));
 		
@@ -146,15 +163,21 @@ public class PatientTranslatorImpl implements PatientTranslator {
 	}
 	
 	public List<ContactPoint> getPatientContactDetails(@Nonnull org.openmrs.Patient patient) {
+		return getPatientContactDetails(Collections.singletonList(patient)).getOrDefault(patient.getId(),
+		    Collections.emptyList());
+	}
+	
+	private Map<Integer, List<ContactPoint>> getPatientContactDetails(Collection<org.openmrs.Patient> patients) {
 		String personContactAttributeType = globalPropertyService
 		        .getGlobalProperty(FhirConstants.PERSON_CONTACT_POINT_ATTRIBUTE_TYPE);
 		
 		if (personContactAttributeType == null || personContactAttributeType.isEmpty()) {
-			return Collections.emptyList();
+			return Collections.emptyMap();
 		}
 		
-		return fhirPersonDao.getActiveAttributesByPersonAndAttributeTypeUuid(patient, personContactAttributeType).stream()
-		        .map(telecomTranslator::toFhirResource).collect(Collectors.toList());
+		return fhirPersonDao.getActiveAttributesByPersonsAndAttributeTypeUuid(patients, personContactAttributeType)
+		        .entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream()
+		                .map(telecomTranslator::toFhirResource).collect(Collectors.toList())));
 	}
 	
 	@Override
@@ -23,6 +23,7 @@ import org.openmrs.Provider;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirPractitionerDao;
 import org.openmrs.module.fhir2.api.translators.PractitionerReferenceTranslator;
+import org.openmrs.module.fhir2.api.util.ReferenceLookupContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -51,6 +52,7 @@ public class PractitionerReferenceTranslatorProviderImpl implements Practitioner
 			throw new IllegalArgumentException("Reference must be to an Provider not a " + getReferenceType(reference));
 		}
 		
-		return getReferenceId(reference).map(uuid -> practitionerDao.get(uuid)).orElse(null);
+		return getReferenceId(reference)
+		        .map(uuid -> ReferenceLookupContext.lookup(Provider.class, uuid, practitionerDao::get)).orElse(null);
 	}
 }
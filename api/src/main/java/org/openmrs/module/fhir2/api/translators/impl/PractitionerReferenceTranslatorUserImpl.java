@@ -23,6 +23,7 @@ import org.openmrs.User;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirUserDao;
 import org.openmrs.module.fhir2.api.translators.PractitionerReferenceTranslator;
+import org.openmrs.module.fhir2.api.util.ReferenceLookupContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -52,6 +53,7 @@ public class PractitionerReferenceTranslatorUserImpl implements PractitionerRefe
 			        "Reference must be to an User not a " + getReferenceType(reference).orElse(""));
 		}
 		
-		return getReferenceId(reference).map(uuid -> userDao.get(uuid)).orElse(null);
+		return getReferenceId(reference).map(uuid -> ReferenceLookupContext.lookup(User.class, uuid, userDao::get))
+		        .orElse(null);
 	}
 }
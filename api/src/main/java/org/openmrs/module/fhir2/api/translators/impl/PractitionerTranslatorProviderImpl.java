@@ -15,8 +15,10 @@ import static org.openmrs.module.fhir2.api.translators.impl.FhirTranslatorUtils.
 
 import javax.annotation.Nonnull;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -125,6 +127,21 @@ public class PractitionerTranslatorProviderImpl implements PractitionerTranslato
 			return null;
 		}
 		
+		return toFhirResource(provider, getProviderContactDetails(Collections.singletonList(provider)));
+	}
+	
+	/**
+	 * Translates a page of providers, fetching the contact details of all the providers in one query
+	 */
+	@Override
+	public List<Practitioner> toFhirResources(Collection<Provider> providers) {
+		Map<Integer, List<ContactPoint>> contactDetails = getProviderContactDetails(providers);
+		
+		return providers.stream().distinct().map(provider -> provider == null ? null : toFhirResource(provider, contactDetails))
+		        .collect(Collectors.toList());
+	}
+	
+	private Practitioner toFhirResource(Provider provider, Map<Integer, List<ContactPoint>> contactDetails) {
 		Practitioner practitioner = new Practitioner();
 		Identifier identifier = new Identifier();
 		identifier.setSystem(FhirConstants.OPENMRS_FHIR_EXT_PROVIDER_IDENTIFIER);
@@ -133,7 +150,7 @@ public class PractitionerTranslatorProviderImpl implements PractitionerTranslato
 		
 		practitioner.setId(provider.getUuid());
 		practitioner.setActive(!provider.getRetired());
-		practitioner.setTelecom(getProviderContactDetails(provider));
+		practitioner.setTelecom(contactDetails.getOrDefault(provider.getProviderId(), Collections.emptyList()));
 		
 		if (provider.getPerson() != null) {
 			practitioner.setBirthDateElement(birthDateTranslator.toFhirResource(provider.getPerson()));
@@ -156,16 +173,24 @@ public class PractitionerTranslatorProviderImpl implements PractitionerTranslato
 	}
 	
 	public List<ContactPoint> getProviderContactDetails(@Nonnull Provider provider) {
+		return getProviderContactDetails(Collections.singletonList(provider)).getOrDefault(provider.getProviderId(),
+		    Collections.emptyList());
+	}
+	
+	private Map<Integer, List<ContactPoint>> getProviderContactDetails(Collection<Provider> providers) {
 		String providerContactPointAttributeType = globalPropertyService
 		        .getGlobalProperty(FhirConstants.PROVIDER_CONTACT_POINT_ATTRIBUTE_TYPE);
 		
 		if (providerContactPointAttributeType == null || providerContactPointAttributeType.isEmpty()) {
-			return Collections.emptyList();
+			return Collections.emptyMap();
 		}
 		
+		List<Provider> nonNullProviders = providers.stream().filter(Objects::nonNull).collect(Collectors.toList());
+		
 		return fhirPractitionerDao
-		        .getActiveAttributesByPractitionerAndAttributeTypeUuid(provider, providerContactPointAttributeType).stream()
-		        .map(telecomTranslator::toFhirResource).collect(Collectors.toList());
+		        .getActiveAttributesByPractitionersAndAttributeTypeUuid(nonNullProviders, providerContactPointAttributeType)
+		        .entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream()
+		                .map(telecomTranslator::toFhirResource).collect(Collectors.toList())));
 	}
 	
 	@Override
@@ -23,6 +23,7 @@ import org.openmrs.Visit;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirVisitDao;
 import org.openmrs.module.fhir2.api.translators.EncounterReferenceTranslator;
+import org.openmrs.module.fhir2.api.util.ReferenceLookupContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -53,6 +54,7 @@ public class VisitReferenceTranslatorImpl implements EncounterReferenceTranslato
 			        "Reference must be to an Encounter not a " + getReferenceType(reference).orElse(""));
 		}
 		
-		return getReferenceId(reference).map(uuid -> dao.get(uuid)).orElse(null);
+		return getReferenceId(reference).map(uuid -> ReferenceLookupContext.lookup(Visit.class, uuid, dao::get))
+		        .orElse(null);
 	}
 }
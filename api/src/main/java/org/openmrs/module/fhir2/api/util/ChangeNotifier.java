@@ -0,0 +1,78 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Signals changes to objects of one type to threads of this server waiting for them. <br/>
+ * <br/>
+ * Each change increments a sequence number, so a thread that reads the sequence number before it
+ * searches and then waits for it to change cannot miss a change made in between. Changes made within
+ * a transaction are only signalled once the transaction commits, so that the woken threads find them.
+ */
+public class ChangeNotifier {
+	
+	private long sequence;
+	
+	/**
+	 * @return the number of changes signalled so far
+	 */
+	public synchronized long getSequence() {
+		return sequence;
+	}
+	
+	/**
+	 * Signals a change, once the current transaction, if any, commits
+	 */
+	public void changed() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				
+				@Override
+				public void afterCommit() {
+					signal();
+				}
+			});
+		} else {
+			signal();
+		}
+	}
+	
+	/**
+	 * Waits until a change has been signalled since the given sequence number was read
+	 *
+	 * @param sequence a sequence number previously returned by {@link #getSequence()}
+	 * @param timeoutMillis the longest time to wait, in milliseconds
+	 * @return {@code true} if a change was signalled, {@code false} if the timeout passed first
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	public synchronized boolean awaitChange(long sequence, long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (this.sequence == sequence) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		
+		return true;
+	}
+	
+	private synchronized void signal() {
+		sequence++;
+		notifyAll();
+	}
+}
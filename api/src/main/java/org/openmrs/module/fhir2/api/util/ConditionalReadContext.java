@@ -0,0 +1,103 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Holds the conditions of a conditional read, i.e., the {@code If-None-Match} and
+ * {@code If-Modified-Since} headers of the read request being handled by the current thread. This is
+ * set by the web layer for the duration of a request so that services can answer the request with
+ * "304 Not Modified" using only the last updated date of the requested object, before the object is
+ * loaded and translated.
+ *
+ * @see <a href="https://www.hl7.org/fhir/http.html#cread">Conditional Read</a>
+ */
+public final class ConditionalReadContext {
+	
+	private static final String ANY_VERSION = "*";
+	
+	private static final ThreadLocal<ConditionalReadContext> conditionalRead = new ThreadLocal<>();
+	
+	private final String resourceType;
+	
+	private final String id;
+	
+	private final Set<String> versionIds;
+	
+	private final Date ifModifiedSince;
+	
+	private ConditionalReadContext(String resourceType, String id, Set<String> versionIds, Date ifModifiedSince) {
+		this.resourceType = resourceType;
+		this.id = id;
+		this.versionIds = versionIds;
+		this.ifModifiedSince = ifModifiedSince;
+	}
+	
+	/**
+	 * Records the conditions of the read request being handled by this thread
+	 *
+	 * @param resourceType the type of the resource being read
+	 * @param id the id of the resource being read
+	 * @param versionIds the version ids listed in the {@code If-None-Match} header, if any
+	 * @param ifModifiedSince the date in the {@code If-Modified-Since} header, if any
+	 */
+	public static void set(String resourceType, String id, Collection<String> versionIds, Date ifModifiedSince) {
+		if (resourceType == null || id == null || ((versionIds == null || versionIds.isEmpty()) && ifModifiedSince == null)) {
+			conditionalRead.remove();
+			return;
+		}
+		
+		conditionalRead.set(new ConditionalReadContext(resourceType, id,
+		        versionIds == null ? Collections.emptySet() : new HashSet<>(versionIds), ifModifiedSince));
+	}
+	
+	public static void clear() {
+		conditionalRead.remove();
+	}
+	
+	/**
+	 * Determines whether the object being read by the current request has not been modified since the
+	 * version the client already has. As required by RFC 7232, {@code If-Modified-Since} is ignored if
+	 * {@code If-None-Match} is present.
+	 *
+	 * @param resourceType the type of the resource being read
+	 * @param id the id of the resource being read
+	 * @param lastUpdated supplies the date the object was last updated; this is only called if the
+	 *            current request is a conditional read of the given resource and may return {@code null}
+	 *            if the date is unknown
+	 * @return {@code true} if the request can be answered with "304 Not Modified"
+	 */
+	public static boolean isNotModified(String resourceType, String id, Supplier<Date> lastUpdated) {
+		ConditionalReadContext context = conditionalRead.get();
+		if (context == null || !context.resourceType.equals(resourceType) || !context.id.equals(id)) {
+			return false;
+		}
+		
+		Date lastUpdatedDate = lastUpdated.get();
+		if (lastUpdatedDate == null) {
+			return false;
+		}
+		
+		if (!context.versionIds.isEmpty()) {
+			// must match the version id produced by FhirTranslatorUtils#getVersionId()
+			return context.versionIds.contains(ANY_VERSION)
+			        || context.versionIds.contains(String.valueOf(lastUpdatedDate.getTime()));
+		}
+		
+		// HTTP dates only have a precision of seconds
+		return lastUpdatedDate.getTime() / 1000 <= context.ifModifiedSince.getTime() / 1000;
+	}
+}
@@ -93,6 +93,16 @@ public class FhirGlobalPropertyHolder implements GlobalPropertyListener {
 		}
 	}
 	
+	public static boolean getGlobalPropertyAsBoolean(String globalProperty, boolean defaultValue) {
+		String globalPropertyValue = getGlobalProperty(globalProperty);
+		
+		if (globalPropertyValue == null || globalPropertyValue.trim().isEmpty()) {
+			return defaultValue;
+		}
+		
+		return Boolean.parseBoolean(globalPropertyValue.trim());
+	}
+	
 	public static Map<String, String> getGlobalProperties(String... globalProperties) {
 		Map<String, String> result = new HashMap<>(globalProperties.length);
 		for (String globalProperty : globalProperties) {
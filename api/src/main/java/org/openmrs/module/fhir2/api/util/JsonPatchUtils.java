@@ -18,10 +18,10 @@ import ca.uhn.fhir.parser.DataFormatException;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.StrictErrorHandler;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
-import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
 import com.github.fge.jsonpatch.JsonPatch;
 import com.github.fge.jsonpatch.JsonPatchException;
 import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
@@ -29,55 +29,24 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 
 public class JsonPatchUtils {
 	
+	// ObjectMapper is thread-safe once configured, so a single instance is shared by all patches
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+	        .configure(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION, false);
+	
 	/**
 	 * Handles json merge patch operations ("application/merge-patch+json")
 	 */
 	public static <T extends IBaseResource> T applyJsonMergePatch(FhirContext theCtx, T theResourceToUpdate,
 	        String thePatchBody) {
-		// Parse the patch
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.configure(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION, false);
-		
-		JsonFactory factory = mapper.getFactory();
-		
-		final JsonMergePatch patch;
+		JsonNode jsonPatchNode = readPatch(thePatchBody);
 		
-		try {
-			JsonNode jsonPatchNode = mapper.readTree(factory.createParser(thePatchBody));
-			JsonNode originalJsonDocument = mapper
-			        .readTree(theCtx.newJsonParser().encodeResourceToString(theResourceToUpdate));
-			
-			// https://github.com/java-json-tools/json-patch
-			patch = JsonMergePatch.fromJson(jsonPatchNode);
-			JsonNode after = patch.apply(originalJsonDocument);
-			
-			@SuppressWarnings("unchecked")
-			Class<T> clazz = (Class<T>) theResourceToUpdate.getClass();
-			
-			String postPatchedContent = mapper.writeValueAsString(after);
-			
-			IParser fhirJsonParser = theCtx.newJsonParser();
-			fhirJsonParser.setParserErrorHandler(new StrictErrorHandler());
-			
-			T retVal;
-			try {
-				retVal = fhirJsonParser.parseResource(clazz, postPatchedContent);
-			}
-			catch (DataFormatException e) {
-				String resourceId = theResourceToUpdate.getIdElement().toUnqualifiedVersionless().getValue();
-				String resourceType = theCtx.getResourceDefinition(theResourceToUpdate).getName();
-				resourceId = defaultString(resourceId, resourceType);
-				String msg = theCtx.getLocalizer().getMessage(JsonPatchUtils.class, "failedToApplyPatch", resourceId,
-				    e.getMessage());
-				throw new InvalidRequestException(msg);
-			}
+		// most patches only change primitive values, which can be changed without encoding the resource
+		T retVal = ResourcePatcher.applyJsonMergePatch(theCtx, theResourceToUpdate, jsonPatchNode);
+		if (retVal != null) {
 			return retVal;
-			
-		}
-		catch (IOException | JsonPatchException theE) {
-			throw new InvalidRequestException(theE);
 		}
 		
+		return applyJsonMergePatchToEncodedResource(theCtx, theResourceToUpdate, jsonPatchNode);
 	}
 	
 	/**
@@ -85,49 +54,92 @@ public class JsonPatchUtils {
 	 */
 	public static <T extends IBaseResource> T applyJsonPatch(FhirContext theCtx, T theResourceToUpdate,
 	        String thePatchBody) {
-		// Parse the patch
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.configure(JsonParser.Feature.INCLUDE_SOURCE_IN_LOCATION, false);
+		JsonNode jsonPatchNode = readPatch(thePatchBody);
 		
-		JsonFactory factory = mapper.getFactory();
+		T retVal = ResourcePatcher.applyJsonPatch(theCtx, theResourceToUpdate, jsonPatchNode);
+		if (retVal != null) {
+			return retVal;
+		}
 		
-		final JsonPatch patch;
+		return applyJsonPatchToEncodedResource(theCtx, theResourceToUpdate, jsonPatchNode);
+	}
+	
+	/**
+	 * Handles json merge patch operations by always patching the encoded resource, i.e., without first
+	 * trying to change the resource itself
+	 */
+	@VisibleForTesting
+	public static <T extends IBaseResource> T applyJsonMergePatchToEncodedResource(FhirContext theCtx,
+	        T theResourceToUpdate, String thePatchBody) {
+		return applyJsonMergePatchToEncodedResource(theCtx, theResourceToUpdate, readPatch(thePatchBody));
+	}
+	
+	/**
+	 * Handles json patches by always patching the encoded resource, i.e., without first trying to
+	 * change the resource itself
+	 */
+	@VisibleForTesting
+	public static <T extends IBaseResource> T applyJsonPatchToEncodedResource(FhirContext theCtx, T theResourceToUpdate,
+	        String thePatchBody) {
+		return applyJsonPatchToEncodedResource(theCtx, theResourceToUpdate, readPatch(thePatchBody));
+	}
+	
+	static <T extends IBaseResource> T applyJsonMergePatchToEncodedResource(FhirContext theCtx, T theResourceToUpdate,
+	        JsonNode jsonPatchNode) {
 		try {
-			JsonParser parser = factory.createParser(thePatchBody);
-			JsonNode jsonPatchNode = mapper.readTree(parser);
-			patch = JsonPatch.fromJson(jsonPatchNode);
-			
-			JsonNode originalJsonDocument = mapper
-			        .readTree(theCtx.newJsonParser().encodeResourceToString(theResourceToUpdate));
-			JsonNode after = patch.apply(originalJsonDocument);
-			
-			@SuppressWarnings("unchecked")
-			Class<T> clazz = (Class<T>) theResourceToUpdate.getClass();
-			
-			String postPatchedContent = mapper.writeValueAsString(after);
-			
-			IParser fhirJsonParser = theCtx.newJsonParser();
-			fhirJsonParser.setParserErrorHandler(new StrictErrorHandler());
-			
-			T retVal;
-			try {
-				retVal = fhirJsonParser.parseResource(clazz, postPatchedContent);
-			}
-			catch (DataFormatException e) {
-				String resourceId = theResourceToUpdate.getIdElement().toUnqualifiedVersionless().getValue();
-				String resourceType = theCtx.getResourceDefinition(theResourceToUpdate).getName();
-				resourceId = defaultString(resourceId, resourceType);
-				String msg = theCtx.getLocalizer().getMessage(JsonPatchUtils.class, "failedToApplyPatch", resourceId,
-				    e.getMessage());
-				throw new InvalidRequestException(msg);
-			}
-			return retVal;
-			
+			// https://github.com/java-json-tools/json-patch
+			JsonMergePatch patch = JsonMergePatch.fromJson(jsonPatchNode);
+			return parsePatchedResource(theCtx, theResourceToUpdate, patch.apply(encodeResource(theCtx, theResourceToUpdate)));
+		}
+		catch (IOException | JsonPatchException theE) {
+			throw new InvalidRequestException(theE);
+		}
+	}
+	
+	static <T extends IBaseResource> T applyJsonPatchToEncodedResource(FhirContext theCtx, T theResourceToUpdate,
+	        JsonNode jsonPatchNode) {
+		try {
+			JsonPatch patch = JsonPatch.fromJson(jsonPatchNode);
+			return parsePatchedResource(theCtx, theResourceToUpdate, patch.apply(encodeResource(theCtx, theResourceToUpdate)));
 		}
 		catch (IOException | JsonPatchException theE) {
 			throw new InvalidRequestException(theE);
 		}
-		
 	}
 	
+	static JsonNode readPatch(String thePatchBody) {
+		try {
+			return MAPPER.readTree(thePatchBody);
+		}
+		catch (IOException theE) {
+			throw new InvalidRequestException(theE);
+		}
+	}
+	
+	private static JsonNode encodeResource(FhirContext theCtx, IBaseResource theResource) throws IOException {
+		return MAPPER.readTree(theCtx.newJsonParser().encodeResourceToString(theResource));
+	}
+	
+	private static <T extends IBaseResource> T parsePatchedResource(FhirContext theCtx, T theResourceToUpdate,
+	        JsonNode after) throws IOException {
+		@SuppressWarnings("unchecked")
+		Class<T> clazz = (Class<T>) theResourceToUpdate.getClass();
+		
+		String postPatchedContent = MAPPER.writeValueAsString(after);
+		
+		IParser fhirJsonParser = theCtx.newJsonParser();
+		fhirJsonParser.setParserErrorHandler(new StrictErrorHandler());
+		
+		try {
+			return fhirJsonParser.parseResource(clazz, postPatchedContent);
+		}
+		catch (DataFormatException e) {
+			String resourceId = theResourceToUpdate.getIdElement().toUnqualifiedVersionless().getValue();
+			String resourceType = theCtx.getResourceDefinition(theResourceToUpdate).getName();
+			resourceId = defaultString(resourceId, resourceType);
+			String msg = theCtx.getLocalizer().getMessage(JsonPatchUtils.class, "failedToApplyPatch", resourceId,
+			    e.getMessage());
+			throw new InvalidRequestException(msg);
+		}
+	}
 }
@@ -0,0 +1,97 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram with fixed bucket boundaries, used to aggregate the
+ * {@link RequestMetrics} of many requests. Each bucket counts the values which are less than or
+ * equal to its upper bound and greater than the upper bound of the previous bucket; values greater
+ * than the last upper bound are only reflected in {@link #getCount()}, {@link #getSum()} and
+ * {@link #getMax()}.
+ */
+public class MetricsHistogram {
+	
+	/** bucket boundaries for durations, in milliseconds */
+	public static final double[] DURATION_BUCKETS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+	
+	/** bucket boundaries for counts, e.g., of SQL statements or results */
+	public static final double[] COUNT_BUCKETS = { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000 };
+	
+	private final double[] upperBounds;
+	
+	private final LongAdder[] buckets;
+	
+	private final LongAdder count = new LongAdder();
+	
+	private final DoubleAdder sum = new DoubleAdder();
+	
+	private final DoubleAccumulator max = new DoubleAccumulator(Math::max, 0);
+	
+	public MetricsHistogram(double[] upperBounds) {
+		this.upperBounds = upperBounds.clone();
+		Arrays.sort(this.upperBounds);
+		
+		this.buckets = new LongAdder[this.upperBounds.length];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+	
+	public void record(double value) {
+		int bucket = Arrays.binarySearch(upperBounds, value);
+		if (bucket < 0) {
+			bucket = -bucket - 1;
+		}
+		
+		if (bucket < buckets.length) {
+			buckets[bucket].increment();
+		}
+		
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+	
+	public double[] getUpperBounds() {
+		return upperBounds.clone();
+	}
+	
+	/**
+	 * @return the number of values in each bucket, cumulatively, i.e., the value at index {@code i} is
+	 *         the number of values less than or equal to the upper bound at index {@code i}
+	 */
+	public long[] getCumulativeCounts() {
+		long[] counts = new long[buckets.length];
+		long total = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			total += buckets[i].sum();
+			counts[i] = total;
+		}
+		
+		return counts;
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	public double getSum() {
+		return sum.sum();
+	}
+	
+	public double getMax() {
+		return max.get();
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.openmrs.User;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.BasicAuthenticated;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.api.context.UsernamePasswordCredentials;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.translators.OpenmrsFhirTranslator;
+import org.openmrs.module.fhir2.api.translators.ToFhirTranslator;
+import org.openmrs.util.OpenmrsClassLoader;
+
+/**
+ * Translates pages of search results on a bounded {@link ForkJoinPool} shared by all requests. <br/>
+ * <br/>
+ * This is only used for translators that declare
+ * {@link OpenmrsFhirTranslator#supportsParallelTranslation()} and only once the results have been
+ * initialized and detached by
+ * {@link org.openmrs.module.fhir2.api.dao.FhirDao#initializeForTranslation(List)}, so the worker
+ * threads never use the Hibernate session of the request. Each worker authenticates its own
+ * {@link UserContext} as the user of the request, with the same locale and location, and opens its
+ * own session for any services the translators call. The translated resources are returned in the
+ * order of the results.
+ */
+public final class ParallelTranslation {
+	
+	public static final int DEFAULT_POOL_SIZE = 4;
+	
+	public static final int DEFAULT_THRESHOLD = 20;
+	
+	private static final String TRANSLATION_AUTHENTICATION_SCHEME = "fhir2 parallel translation";
+	
+	private static ForkJoinPool pool;
+	
+	private ParallelTranslation() {
+	}
+	
+	/**
+	 * Determines whether a page of results should be translated in parallel
+	 *
+	 * @param translator the translator for the results
+	 * @param numberOfResults the number of results in the page
+	 * @return {@code true} if parallel translation is enabled, supported by the translator and the page
+	 *         is at least as large as the configured threshold
+	 */
+	public static boolean shouldTranslateInParallel(OpenmrsFhirTranslator<?, ?> translator, int numberOfResults) {
+		if (!translator.supportsParallelTranslation() || !FhirGlobalPropertyHolder
+		        .getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_PARALLEL_TRANSLATION_ENABLED, false)) {
+			return false;
+		}
+		
+		int threshold = FhirGlobalPropertyHolder
+		        .getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_PARALLEL_TRANSLATION_THRESHOLD, DEFAULT_THRESHOLD);
+		return numberOfResults >= Math.max(threshold, 2);
+	}
+	
+	/**
+	 * Translates the supplied data elements in parallel. Like
+	 * {@link OpenmrsFhirTranslator#toFhirResources(java.util.Collection)}, duplicate elements are only
+	 * translated once.
+	 *
+	 * @param translator the translator to use
+	 * @param data the data elements to translate, whose associations must already be loaded
+	 * @return the translated resources, in the order of the supplied data elements
+	 */
+	public static <T, U> List<U> translate(ToFhirTranslator<T, U> translator, List<T> data) {
+		UserContext userContext;
+		try {
+			userContext = Context.getUserContext();
+		}
+		catch (APIException e) {
+			userContext = null;
+		}
+		
+		return translate(getPool(), translator, data, userContext);
+	}
+	
+	/**
+	 * Shuts down the translation threads. They are started again if further pages are translated.
+	 */
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+	
+	static <T, U> List<U> translate(ForkJoinPool pool, ToFhirTranslator<T, U> translator, List<T> data,
+	        UserContext userContext) {
+		List<T> distinctData = new ArrayList<>(new LinkedHashSet<>(data));
+		if (distinctData.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		Supplier<UserContext> workerUserContexts = userContext == null ? null : workerUserContexts(userContext);
+		
+		// one chunk per thread, as each chunk opens and closes a session
+		int chunkSize = (distinctData.size() + pool.getParallelism() - 1) / pool.getParallelism();
+		List<Callable<List<U>>> tasks = new ArrayList<>();
+		for (int i = 0; i < distinctData.size(); i += chunkSize) {
+			List<T> chunk = distinctData.subList(i, Math.min(i + chunkSize, distinctData.size()));
+			tasks.add(() -> translateChunk(pool, translator, chunk, workerUserContexts));
+		}
+		
+		List<U> result = new ArrayList<>(distinctData.size());
+		for (Future<List<U>> future : pool.invokeAll(tasks)) {
+			result.addAll(getResult(future));
+		}
+		
+		return result;
+	}
+	
+	private static <T, U> List<U> translateChunk(ForkJoinPool pool, ToFhirTranslator<T, U> translator, List<T> chunk,
+	        Supplier<UserContext> workerUserContexts) {
+		// a waiting request thread may run a chunk itself, in which case it must keep its own session
+		boolean workerThread = Thread.currentThread() instanceof ForkJoinWorkerThread
+		        && ((ForkJoinWorkerThread) Thread.currentThread()).getPool() == pool;
+		if (workerUserContexts == null || !workerThread) {
+			return chunk.stream().map(translator::toFhirResource).collect(Collectors.toList());
+		}
+		
+		Context.openSession();
+		try {
+			Context.setUserContext(workerUserContexts.get());
+			return chunk.stream().map(translator::toFhirResource).collect(Collectors.toList());
+		}
+		finally {
+			Context.clearUserContext();
+			Context.closeSession();
+		}
+	}
+	
+	/**
+	 * Creates new {@link UserContext}s for the worker threads which are authenticated as the same user
+	 * as the given one, so that the {@link UserContext} of the request, e.g., its proxy privileges, is
+	 * only ever used by the request thread. The user, locale and location are read on the calling
+	 * thread.
+	 */
+	private static Supplier<UserContext> workerUserContexts(UserContext userContext) {
+		User user = userContext.getAuthenticatedUser();
+		Locale locale = userContext.getLocale();
+		Integer locationId = userContext.getLocationId();
+		
+		return () -> {
+			UserContext workerUserContext = new UserContext(
+			        ignored -> new BasicAuthenticated(user, TRANSLATION_AUTHENTICATION_SCHEME));
+			if (user != null) {
+				workerUserContext.authenticate(new UsernamePasswordCredentials(user.getSystemId(), ""));
+			}
+			
+			workerUserContext.setLocale(locale);
+			workerUserContext.setLocationId(locationId);
+			return workerUserContext;
+		};
+	}
+	
+	private static <U> List<U> getResult(Future<List<U>> future) {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException("Interrupted while translating search results", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			
+			throw new InternalErrorException("Error while translating search results", e.getCause());
+		}
+	}
+	
+	private static synchronized ForkJoinPool getPool() {
+		int poolSize = Math.max(FhirGlobalPropertyHolder
+		        .getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_PARALLEL_TRANSLATION_POOL_SIZE, DEFAULT_POOL_SIZE), 1);
+		
+		if (pool == null || pool.getParallelism() != poolSize) {
+			if (pool != null) {
+				// tasks already submitted to the old pool still complete
+				pool.shutdown();
+			}
+			
+			pool = new ForkJoinPool(poolSize, ParallelTranslation::newWorkerThread, null, false);
+		}
+		
+		return pool;
+	}
+	
+	private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("fhir2-translation-" + thread.getPoolIndex());
+		thread.setContextClassLoader(OpenmrsClassLoader.getInstance());
+		return thread;
+	}
+}
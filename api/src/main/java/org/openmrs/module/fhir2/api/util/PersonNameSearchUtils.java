@@ -0,0 +1,79 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.openmrs.PersonName;
+
+/**
+ * Utilities shared by the code that writes the FHIR person name index and the code that searches it,
+ * so that indexed names and search values are always normalized the same way.
+ */
+public final class PersonNameSearchUtils {
+	
+	/**
+	 * The name part code for {@link PersonName#getGivenName()}
+	 */
+	public static final String GIVEN_NAME = "G";
+	
+	/**
+	 * The name part code for {@link PersonName#getMiddleName()}
+	 */
+	public static final String MIDDLE_NAME = "M";
+	
+	/**
+	 * The name part code for {@link PersonName#getFamilyName()}
+	 */
+	public static final String FAMILY_NAME = "F";
+	
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+	
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	
+	private PersonNameSearchUtils() {}
+	
+	/**
+	 * Normalizes a name or search value by removing diacritics, collapsing whitespace and converting it
+	 * to lower case
+	 *
+	 * @param value the value to normalize
+	 * @return the normalized value, which is empty if the value is {@code null} or blank
+	 */
+	public static String normalize(String value) {
+		if (value == null) {
+			return "";
+		}
+		
+		String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+		return WHITESPACE.matcher(COMBINING_MARKS.matcher(decomposed).replaceAll("")).replaceAll(" ")
+		        .toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * @param personNameProperty the name of a property of {@link PersonName}
+	 * @return the name part code used in the index for that property or {@code null} if the property is
+	 *         not indexed
+	 */
+	public static String getNamePart(String personNameProperty) {
+		switch (personNameProperty) {
+			case "givenName":
+				return GIVEN_NAME;
+			case "middleName":
+				return MIDDLE_NAME;
+			case "familyName":
+				return FAMILY_NAME;
+			default:
+				return null;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caches the objects that references are resolved to while a single request that touches many
+ * resources is being processed, e.g., a transaction or batch Bundle. Without this, each resource in
+ * such a request looks up the same patient, encounter, practitioner, etc. again. <br/>
+ * <br/>
+ * The cache is only active between {@link #open()} and {@link #close()} on the current thread;
+ * outside of these calls, {@link #lookup(Class, String, Function)} simply delegates to the supplied
+ * loader. Since the cached objects are attached to the Hibernate session used by the request, the
+ * context must not outlive that session.
+ */
+public final class ReferenceLookupContext {
+	
+	private static final ThreadLocal<ReferenceLookupContext> referenceLookups = new ThreadLocal<>();
+	
+	private final Map<Class<?>, Map<String, Object>> objects = new HashMap<>();
+	
+	private int depth = 0;
+	
+	private ReferenceLookupContext() {}
+	
+	/**
+	 * Starts caching reference lookups on the current thread. Calls to this method may be nested; the
+	 * cache is discarded when the outermost call is closed.
+	 */
+	public static void open() {
+		ReferenceLookupContext context = referenceLookups.get();
+		if (context == null) {
+			context = new ReferenceLookupContext();
+			referenceLookups.set(context);
+		}
+		
+		context.depth++;
+	}
+	
+	/**
+	 * Stops caching reference lookups started by the matching call to {@link #open()}
+	 */
+	public static void close() {
+		ReferenceLookupContext context = referenceLookups.get();
+		if (context != null && --context.depth <= 0) {
+			referenceLookups.remove();
+		}
+	}
+	
+	/**
+	 * Discards the objects cached on the current thread without closing the context, e.g., because
+	 * the session they are attached to was cleared or rolled back
+	 */
+	public static void clear() {
+		ReferenceLookupContext context = referenceLookups.get();
+		if (context != null) {
+			context.objects.clear();
+		}
+	}
+	
+	/**
+	 * Resolves the object of the given type with the given uuid, using the cached object if the same
+	 * object has already been resolved within the current context.
+	 *
+	 * @param type the type of object to resolve
+	 * @param uuid the uuid of the object to resolve
+	 * @param loader loads the object if it is not cached; may return {@code null}
+	 * @return the resolved object or {@code null} if the loader did not find it
+	 */
+	public static <T> T lookup(Class<T> type, String uuid, Function<String, T> loader) {
+		ReferenceLookupContext context = referenceLookups.get();
+		if (context == null || uuid == null) {
+			return loader.apply(uuid);
+		}
+		
+		Map<String, Object> objectsOfType = context.objects.computeIfAbsent(type, k -> new HashMap<>());
+		Object cached = objectsOfType.get(uuid);
+		if (cached != null) {
+			return type.cast(cached);
+		}
+		
+		// not found objects are not cached, as they may be created later on in the same request
+		T object = loader.apply(uuid);
+		if (object != null) {
+			objectsOfType.put(uuid, object);
+		}
+		
+		return object;
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Records where the time of the FHIR request handled by the current thread is spent. The web layer
+ * starts recording when a request is received and hands the recorded metrics to the
+ * {@link org.openmrs.module.fhir2.api.FhirRequestMetricsService} once the response has been
+ * written. While no request is being recorded, all methods of this class are no-ops. <br/>
+ * <br/>
+ * Phases do not nest: if a phase is started while another phase is running, e.g., because a
+ * {@code _revinclude} runs a search of its own, the time is attributed to the outer phase. SQL
+ * statements are likewise counted against the phase running when they are prepared, which makes it
+ * possible to tell lazy loading during translation apart from the queries run by the DAO.
+ */
+public final class RequestMetrics {
+	
+	public enum Phase {
+		/** counting the results of a search */
+		COUNT,
+		/** running the query for a page of search results */
+		SEARCH,
+		/** translating OpenMRS objects to FHIR resources */
+		TRANSLATION,
+		/** loading the resources requested by {@code _include} and {@code _revinclude} */
+		INCLUDE,
+		/** rendering narratives and writing the response */
+		SERIALIZATION
+	}
+	
+	private static final ThreadLocal<RequestMetrics> requestMetrics = new ThreadLocal<>();
+	
+	private final long startTime = System.nanoTime();
+	
+	private final long[] phaseNanos = new long[Phase.values().length];
+	
+	private final int[] phaseStatements = new int[Phase.values().length];
+	
+	private Phase activePhase;
+	
+	private long activePhaseStart;
+	
+	private int statements;
+	
+	private int results;
+	
+	private int includedResources;
+	
+	private int includeQueries;
+	
+	private long totalNanos = -1;
+	
+	private RequestMetrics() {
+	}
+	
+	/**
+	 * Starts recording metrics for the request handled by the current thread
+	 *
+	 * @return the metrics for the request
+	 */
+	public static RequestMetrics start() {
+		RequestMetrics metrics = new RequestMetrics();
+		requestMetrics.set(metrics);
+		return metrics;
+	}
+	
+	/**
+	 * @return the metrics being recorded for the current request or {@code null} if no metrics are
+	 *         being recorded
+	 */
+	public static RequestMetrics get() {
+		return requestMetrics.get();
+	}
+	
+	/**
+	 * Stops recording metrics for the current request
+	 *
+	 * @return the recorded metrics or {@code null} if no metrics were being recorded
+	 */
+	public static RequestMetrics finish() {
+		RequestMetrics metrics = requestMetrics.get();
+		requestMetrics.remove();
+		
+		if (metrics != null) {
+			metrics.endPhase();
+			metrics.totalNanos = System.nanoTime() - metrics.startTime;
+		}
+		
+		return metrics;
+	}
+	
+	/**
+	 * Runs the supplied code, attributing the time it takes to the given phase
+	 *
+	 * @param phase the phase the code belongs to
+	 * @param supplier the code to run
+	 * @return the result of the supplier
+	 */
+	public static <T> T time(Phase phase, Supplier<T> supplier) {
+		RequestMetrics metrics = requestMetrics.get();
+		if (metrics == null || metrics.activePhase != null) {
+			return supplier.get();
+		}
+		
+		metrics.startPhase(phase);
+		try {
+			return supplier.get();
+		}
+		finally {
+			metrics.endPhase();
+		}
+	}
+	
+	/**
+	 * Records the number of resources matched by the current request and the number of resources
+	 * added by {@code _include} and {@code _revinclude}. Results recorded by searches run as part of a
+	 * phase, e.g., to resolve a {@code _revinclude}, are ignored.
+	 *
+	 * @param results the number of matching resources
+	 * @param includedResources the number of included resources
+	 */
+	public static void recordResults(int results, int includedResources) {
+		RequestMetrics metrics = requestMetrics.get();
+		if (metrics != null && metrics.activePhase == null) {
+			metrics.results += results;
+			metrics.includedResources += includedResources;
+		}
+	}
+	
+	/**
+	 * Records that a query was run to load included resources
+	 */
+	public static void recordIncludeQuery() {
+		RequestMetrics metrics = requestMetrics.get();
+		if (metrics != null) {
+			metrics.includeQueries++;
+		}
+	}
+	
+	/**
+	 * Starts a phase which cannot be expressed as a single call to {@link #time(Phase, Supplier)}. Any
+	 * running phase is ended first.
+	 *
+	 * @param phase the phase to start
+	 */
+	public void startPhase(Phase phase) {
+		endPhase();
+		activePhase = phase;
+		activePhaseStart = System.nanoTime();
+	}
+	
+	/**
+	 * Ends the running phase, if any
+	 */
+	public void endPhase() {
+		if (activePhase != null) {
+			phaseNanos[activePhase.ordinal()] += System.nanoTime() - activePhaseStart;
+			activePhase = null;
+		}
+	}
+	
+	/**
+	 * Records that a SQL statement was prepared
+	 */
+	public void statementPrepared() {
+		statements++;
+		if (activePhase != null) {
+			phaseStatements[activePhase.ordinal()]++;
+		}
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the time spent in the given phase so far, in milliseconds
+	 */
+	public double getPhaseMillis(Phase phase) {
+		long nanos = phaseNanos[phase.ordinal()];
+		if (phase == activePhase) {
+			nanos += System.nanoTime() - activePhaseStart;
+		}
+		
+		return nanos / 1_000_000.0;
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the number of SQL statements prepared during the given phase so far
+	 */
+	public int getPhaseStatements(Phase phase) {
+		return phaseStatements[phase.ordinal()];
+	}
+	
+	/**
+	 * @return the time the request took, in milliseconds; while the request is still running, the time
+	 *         it has taken so far
+	 */
+	public double getTotalMillis() {
+		return (totalNanos >= 0 ? totalNanos : System.nanoTime() - startTime) / 1_000_000.0;
+	}
+	
+	public int getStatements() {
+		return statements;
+	}
+	
+	public int getResults() {
+		return results;
+	}
+	
+	public int getIncludedResources() {
+		return includedResources;
+	}
+	
+	public int getIncludeQueries() {
+		return includeQueries;
+	}
+}
@@ -0,0 +1,643 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeChildChoiceDefinition;
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseBooleanDatatype;
+import org.hl7.fhir.instance.model.api.IBaseDecimalDatatype;
+import org.hl7.fhir.instance.model.api.IBaseIntegerDatatype;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.hl7.fhir.r4.model.Element;
+import org.hl7.fhir.r4.model.Resource;
+import org.openmrs.module.fhir2.api.util.xmlpatch.XmlPatchException;
+import org.openmrs.module.fhir2.api.util.xmlpatch.XmlPatcher;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Applies JSON Patch, JSON Merge Patch and XML Patch documents directly to a copy of an R4 resource,
+ * navigating it with the element definitions of the {@link FhirContext}, instead of encoding the
+ * resource, patching the encoded document and parsing the result. <br/>
+ * <br/>
+ * Only patches that set, test or remove primitive values and remove elements are applied this way,
+ * which covers the usual patches that change a status or a code. Each method returns {@code null} for
+ * any patch it cannot apply with exactly the result of patching the encoded resource, including any
+ * patch that is invalid or fails, so that the caller can fall back to patching the encoded resource
+ * and report the same errors as before.
+ */
+final class ResourcePatcher {
+	
+	private static final String FHIR_NS = "http://hl7.org/fhir";
+	
+	private static final Pattern XML_STEP = Pattern.compile("([A-Za-z_][\\w.-]*):([A-Za-z][A-Za-z0-9]*)(?:\\[([1-9][0-9]*)])?");
+	
+	private static final UnsupportedPatchException UNSUPPORTED = new UnsupportedPatchException();
+	
+	private final FhirContext fhirContext;
+	
+	private ResourcePatcher(FhirContext fhirContext) {
+		this.fhirContext = fhirContext;
+	}
+	
+	/**
+	 * Applies a JSON Patch ("application/json-patch+json") to a copy of the resource
+	 *
+	 * @return the patched copy, or {@code null} if the patch needs to be applied to the encoded resource
+	 */
+	static <T extends IBaseResource> T applyJsonPatch(FhirContext fhirContext, T resource, JsonNode patch) {
+		T result = copy(resource);
+		if (result == null || !patch.isArray()) {
+			return null;
+		}
+		
+		try {
+			ResourcePatcher patcher = new ResourcePatcher(fhirContext);
+			for (JsonNode operation : patch) {
+				patcher.applyJsonPatchOperation((Resource) result, operation);
+			}
+		}
+		catch (UnsupportedPatchException | IllegalArgumentException | DataFormatException e) {
+			return null;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Applies a JSON Merge Patch ("application/merge-patch+json") to a copy of the resource
+	 *
+	 * @return the patched copy, or {@code null} if the patch needs to be applied to the encoded resource
+	 */
+	static <T extends IBaseResource> T applyJsonMergePatch(FhirContext fhirContext, T resource, JsonNode patch) {
+		T result = copy(resource);
+		if (result == null || !patch.isObject()) {
+			return null;
+		}
+		
+		try {
+			new ResourcePatcher(fhirContext).merge((Resource) result, patch, true);
+		}
+		catch (UnsupportedPatchException | IllegalArgumentException | DataFormatException e) {
+			return null;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Applies an XML Patch to a copy of the resource
+	 *
+	 * @return the patched copy, or {@code null} if the patch needs to be applied to the encoded resource
+	 */
+	static <T extends IBaseResource> T applyXmlPatch(FhirContext fhirContext, T resource, Document patch) {
+		T result = copy(resource);
+		if (result == null || patch.getDocumentElement() == null) {
+			return null;
+		}
+		
+		try {
+			ResourcePatcher patcher = new ResourcePatcher(fhirContext);
+			NodeList operations = patch.getDocumentElement().getChildNodes();
+			for (int i = 0; i < operations.getLength(); i++) {
+				Node operation = operations.item(i);
+				if (operation.getNodeType() == Node.ELEMENT_NODE) {
+					patcher.applyXmlPatchOperation((Resource) result, (org.w3c.dom.Element) operation);
+				}
+			}
+		}
+		catch (UnsupportedPatchException | IllegalArgumentException | DataFormatException | XmlPatchException e) {
+			return null;
+		}
+		
+		return result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T extends IBaseResource> T copy(T resource) {
+		// the encoded resource is only a copy, so the resource to patch must not be changed either
+		return resource instanceof Resource ? (T) ((Resource) resource).copy() : null;
+	}
+	
+	// -- JSON Patch ----------------------------------------------------------------------------
+	
+	private void applyJsonPatchOperation(Resource resource, JsonNode operation) {
+		String op = operation.path("op").textValue();
+		String path = operation.path("path").textValue();
+		if (op == null || path == null || !path.startsWith("/")) {
+			throw UNSUPPORTED;
+		}
+		
+		List<String> tokens = new ArrayList<>();
+		for (String token : path.substring(1).split("/", -1)) {
+			tokens.add(token.replace("~1", "/").replace("~0", "~"));
+		}
+		
+		IBase element = resource;
+		int i = 0;
+		while (true) {
+			String name = tokens.get(i);
+			if (element == resource && "id".equals(name)) {
+				throw UNSUPPORTED;
+			}
+			
+			Child child = getChild(element, name);
+			if (!child.isRepeating()) {
+				IBase value = child.getSingleValue();
+				if (i == tokens.size() - 1) {
+					applyToValue(op, operation.get("value"), child, value);
+					return;
+				}
+				
+				element = getPresentComposite(child, value);
+				i++;
+				continue;
+			}
+			
+			if (i == tokens.size() - 1) {
+				if (!"remove".equals(op) || child.getValues().isEmpty()) {
+					throw UNSUPPORTED;
+				}
+				
+				child.requireAllPresent();
+				child.requireNoPrimitiveIdOrExtensions();
+				child.clear();
+				return;
+			}
+			
+			String indexToken = tokens.get(i + 1);
+			child.requireAllPresent();
+			if (i + 1 == tokens.size() - 1) {
+				applyToListItem(op, operation.get("value"), child, indexToken);
+				return;
+			}
+			
+			element = getPresentComposite(child, child.getValues().get(parseIndex(indexToken, child.getValues().size())));
+			i += 2;
+		}
+	}
+	
+	private void applyToValue(String op, JsonNode jsonValue, Child child, IBase value) {
+		switch (op) {
+			case "add":
+				setPrimitiveValue(child, value, getJsonText(child, jsonValue));
+				break;
+			case "replace":
+				requirePrimitiveValue(value);
+				setPrimitiveValue(child, value, getJsonText(child, jsonValue));
+				break;
+			case "remove":
+				if (child.isPrimitive()) {
+					requirePrimitiveValue(value);
+					removePrimitiveValue(child, value);
+				} else {
+					if (value == null || value.isEmpty()) {
+						throw UNSUPPORTED;
+					}
+					child.clear();
+				}
+				break;
+			case "test":
+				requirePrimitiveValue(value);
+				if (!getJsonText(child, jsonValue).equals(((IPrimitiveType<?>) value).getValueAsString())) {
+					throw UNSUPPORTED;
+				}
+				break;
+			default:
+				throw UNSUPPORTED;
+		}
+	}
+	
+	private void applyToListItem(String op, JsonNode jsonValue, Child child, String indexToken) {
+		child.requireNoPrimitiveIdOrExtensions();
+		List<IBase> values = new ArrayList<>(child.getValues());
+		
+		switch (op) {
+			case "add":
+				int index = "-".equals(indexToken) ? values.size() : parseIndex(indexToken, values.size() + 1);
+				IPrimitiveType<?> primitive = child.newPrimitive();
+				primitive.setValueAsString(getJsonText(primitive, jsonValue));
+				values.add(index, primitive);
+				child.setValues(values);
+				break;
+			case "replace":
+				IBase value = values.get(parseIndex(indexToken, values.size()));
+				requirePrimitiveValue(value);
+				((IPrimitiveType<?>) value).setValueAsString(getJsonText(child, jsonValue));
+				break;
+			case "remove":
+				values.remove(parseIndex(indexToken, values.size()));
+				child.setValues(values);
+				break;
+			case "test":
+				IBase tested = values.get(parseIndex(indexToken, values.size()));
+				requirePrimitiveValue(tested);
+				if (!getJsonText(child, jsonValue).equals(((IPrimitiveType<?>) tested).getValueAsString())) {
+					throw UNSUPPORTED;
+				}
+				break;
+			default:
+				throw UNSUPPORTED;
+		}
+	}
+	
+	// -- JSON Merge Patch ----------------------------------------------------------------------
+	
+	private void merge(IBase element, JsonNode patch, boolean root) {
+		Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			String name = field.getKey();
+			JsonNode jsonValue = field.getValue();
+			
+			if (root && "resourceType".equals(name)) {
+				if (!jsonValue.isTextual() || !jsonValue.textValue().equals(((Resource) element).fhirType())) {
+					throw UNSUPPORTED;
+				}
+				continue;
+			}
+			
+			if (root && "id".equals(name)) {
+				throw UNSUPPORTED;
+			}
+			
+			Child child = getChild(element, name);
+			if (jsonValue.isNull()) {
+				if (child.isRepeating()) {
+					child.requireNoPrimitiveIdOrExtensions();
+					child.clear();
+				} else if (child.getSingleValue() != null) {
+					if (child.isPrimitive()) {
+						removePrimitiveValue(child, child.getSingleValue());
+					} else {
+						child.clear();
+					}
+				}
+			} else if (child.isRepeating()) {
+				throw UNSUPPORTED;
+			} else if (child.isPrimitive()) {
+				setPrimitiveValue(child, child.getSingleValue(), getJsonText(child, jsonValue));
+			} else if (child.isComposite() && jsonValue.isObject()) {
+				IBase value = child.getSingleValue();
+				if (value == null) {
+					value = child.newValue();
+					child.setValue(value);
+				}
+				
+				merge(value, jsonValue, false);
+			} else {
+				throw UNSUPPORTED;
+			}
+		}
+	}
+	
+	private String getJsonText(Child child, JsonNode jsonValue) {
+		return getJsonText(child.newPrimitive(), jsonValue);
+	}
+	
+	private static String getJsonText(IPrimitiveType<?> primitive, JsonNode jsonValue) {
+		// the parser rejects values whose JSON type does not match the type of the element
+		boolean matches;
+		if (jsonValue == null) {
+			matches = false;
+		} else if (primitive instanceof IBaseBooleanDatatype) {
+			matches = jsonValue.isBoolean();
+		} else if (primitive instanceof IBaseIntegerDatatype || primitive instanceof IBaseDecimalDatatype) {
+			matches = jsonValue.isNumber();
+		} else {
+			matches = jsonValue.isTextual();
+		}
+		
+		if (!matches || jsonValue.asText().isEmpty()) {
+			throw UNSUPPORTED;
+		}
+		
+		return jsonValue.asText();
+	}
+	
+	// -- XML Patch -----------------------------------------------------------------------------
+	
+	private void applyXmlPatchOperation(Resource resource, org.w3c.dom.Element operation) {
+		String op = operation.getLocalName() != null ? operation.getLocalName() : operation.getTagName();
+		String selector = operation.getAttribute("sel");
+		
+		boolean valueAttribute = selector.endsWith("/@value");
+		if (valueAttribute) {
+			selector = selector.substring(0, selector.length() - "/@value".length());
+		}
+		
+		String[] steps = selector.split("/", -1);
+		if (steps.length < 3 || !steps[0].isEmpty()) {
+			throw UNSUPPORTED;
+		}
+		
+		Matcher rootStep = matchXmlStep(operation, steps[1]);
+		if (!rootStep.group(2).equals(resource.fhirType()) || rootStep.group(3) != null) {
+			throw UNSUPPORTED;
+		}
+		
+		IBase element = resource;
+		Child child = null;
+		IBase value = null;
+		for (int i = 2; i < steps.length; i++) {
+			if (value != null) {
+				element = getPresentComposite(child, value);
+			}
+			
+			Matcher step = matchXmlStep(operation, steps[i]);
+			if (element == resource && "id".equals(step.group(2))) {
+				throw UNSUPPORTED;
+			}
+			
+			child = getChild(element, step.group(2));
+			List<IBase> values = child.getValues();
+			child.requireAllPresent();
+			if (step.group(3) != null) {
+				int index = Integer.parseInt(step.group(3)) - 1;
+				if (index >= values.size()) {
+					throw UNSUPPORTED;
+				}
+				value = values.get(index);
+			} else if (values.size() == 1) {
+				value = values.get(0);
+			} else {
+				throw UNSUPPORTED;
+			}
+		}
+		
+		if ("replace".equals(op) && valueAttribute) {
+			requirePrimitiveValue(value);
+			requireOnlyText(operation);
+			String text = XmlPatcher.getText(operation);
+			if (text.isEmpty()) {
+				throw UNSUPPORTED;
+			}
+			
+			((IPrimitiveType<?>) value).setValueAsString(text);
+		} else if ("remove".equals(op) && isValidWhitespaceOption(operation.getAttribute("ws"))) {
+			if (valueAttribute) {
+				// the element itself is kept, even though it is then empty
+				requirePrimitiveValue(value);
+				clearPrimitiveValue(value);
+			} else {
+				List<IBase> values = new ArrayList<>(child.getValues());
+				values.remove(value);
+				child.setValues(values);
+			}
+		} else {
+			throw UNSUPPORTED;
+		}
+	}
+	
+	private static Matcher matchXmlStep(org.w3c.dom.Element operation, String step) {
+		Matcher matcher = XML_STEP.matcher(step);
+		if (!matcher.matches() || !FHIR_NS.equals(operation.lookupNamespaceURI(matcher.group(1)))) {
+			throw UNSUPPORTED;
+		}
+		
+		return matcher;
+	}
+	
+	private static void requireOnlyText(org.w3c.dom.Element operation) {
+		NodeList children = operation.getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			short type = children.item(i).getNodeType();
+			if (type != Node.TEXT_NODE && type != Node.CDATA_SECTION_NODE) {
+				throw UNSUPPORTED;
+			}
+		}
+	}
+	
+	private static boolean isValidWhitespaceOption(String ws) {
+		return ws.isEmpty() || "before".equals(ws) || "after".equals(ws) || "both".equals(ws);
+	}
+	
+	// -- navigation ----------------------------------------------------------------------------
+	
+	private Child getChild(IBase element, String name) {
+		if (name.isEmpty() || name.startsWith("_") || name.indexOf('[') >= 0) {
+			throw UNSUPPORTED;
+		}
+		
+		BaseRuntimeElementDefinition<?> elementDefinition = element instanceof IBaseResource
+		        ? fhirContext.getResourceDefinition((IBaseResource) element)
+		        : fhirContext.getElementDefinition(element.getClass());
+		if (!(elementDefinition instanceof BaseRuntimeElementCompositeDefinition)) {
+			throw UNSUPPORTED;
+		}
+		
+		BaseRuntimeChildDefinition childDefinition = ((BaseRuntimeElementCompositeDefinition<?>) elementDefinition)
+		        .getChildByName(name);
+		if (childDefinition == null || !childDefinition.getValidChildNames().contains(name)) {
+			throw UNSUPPORTED;
+		}
+		
+		BaseRuntimeElementDefinition<?> valueDefinition = childDefinition.getChildByName(name);
+		if (valueDefinition == null) {
+			throw UNSUPPORTED;
+		}
+		
+		Child child = new Child(element, name, childDefinition, valueDefinition);
+		if (childDefinition instanceof RuntimeChildChoiceDefinition) {
+			for (IBase value : child.getValues()) {
+				// a choice element holding another type is encoded under another name
+				if (!name.equals(childDefinition.getChildNameByDatatype(value.getClass()))) {
+					throw UNSUPPORTED;
+				}
+			}
+		}
+		
+		return child;
+	}
+	
+	private static IBase getPresentComposite(Child child, IBase value) {
+		if (!child.isComposite() || value == null || value.isEmpty()) {
+			throw UNSUPPORTED;
+		}
+		
+		return value;
+	}
+	
+	private static int parseIndex(String token, int size) {
+		if (!token.matches("0|[1-9][0-9]{0,8}")) {
+			throw UNSUPPORTED;
+		}
+		
+		int index = Integer.parseInt(token);
+		if (index >= size) {
+			throw UNSUPPORTED;
+		}
+		
+		return index;
+	}
+	
+	private static void requirePrimitiveValue(IBase value) {
+		if (!(value instanceof IPrimitiveType) || !((IPrimitiveType<?>) value).hasValue()) {
+			throw UNSUPPORTED;
+		}
+	}
+	
+	private static void setPrimitiveValue(Child child, IBase value, String text) {
+		if (!child.isPrimitive()) {
+			throw UNSUPPORTED;
+		}
+		
+		if (value == null) {
+			IPrimitiveType<?> primitive = child.newPrimitive();
+			primitive.setValueAsString(text);
+			child.setValue(primitive);
+		} else {
+			((IPrimitiveType<?>) value).setValueAsString(text);
+		}
+	}
+	
+	private static void removePrimitiveValue(Child child, IBase value) {
+		if (hasIdOrExtensions(value)) {
+			// the id and extensions of a primitive are encoded separately from its value, so they are kept
+			clearPrimitiveValue(value);
+		} else {
+			child.clear();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void clearPrimitiveValue(IBase value) {
+		((IPrimitiveType<Object>) value).setValue(null);
+	}
+	
+	private static boolean hasIdOrExtensions(IBase value) {
+		return value instanceof Element && (((Element) value).hasId() || ((Element) value).hasExtension());
+	}
+	
+	/**
+	 * A named child of an element, together with the definitions used to read and change it
+	 */
+	private static final class Child {
+		
+		private final IBase element;
+		
+		private final String name;
+		
+		private final BaseRuntimeChildDefinition definition;
+		
+		private final BaseRuntimeElementDefinition<?> valueDefinition;
+		
+		private Child(IBase element, String name, BaseRuntimeChildDefinition definition,
+		    BaseRuntimeElementDefinition<?> valueDefinition) {
+			this.element = element;
+			this.name = name;
+			this.definition = definition;
+			this.valueDefinition = valueDefinition;
+		}
+		
+		boolean isRepeating() {
+			return definition.getMax() != 1;
+		}
+		
+		boolean isPrimitive() {
+			return valueDefinition.getChildType() == BaseRuntimeElementDefinition.ChildTypeEnum.PRIMITIVE_DATATYPE;
+		}
+		
+		boolean isComposite() {
+			BaseRuntimeElementDefinition.ChildTypeEnum childType = valueDefinition.getChildType();
+			return childType == BaseRuntimeElementDefinition.ChildTypeEnum.COMPOSITE_DATATYPE
+			        || childType == BaseRuntimeElementDefinition.ChildTypeEnum.RESOURCE_BLOCK;
+		}
+		
+		List<IBase> getValues() {
+			return definition.getAccessor().getValues(element);
+		}
+		
+		IBase getSingleValue() {
+			List<IBase> values = getValues();
+			return values.isEmpty() ? null : values.get(0);
+		}
+		
+		void requireAllPresent() {
+			// empty elements are not encoded, so they would shift the positions of the following elements
+			for (IBase value : getValues()) {
+				if (value.isEmpty()) {
+					throw UNSUPPORTED;
+				}
+			}
+		}
+		
+		void requireNoPrimitiveIdOrExtensions() {
+			// the ids and extensions of repeating primitives are encoded in a separate array, which a path
+			// into the array of values does not change
+			if (isPrimitive()) {
+				for (IBase value : getValues()) {
+					if (hasIdOrExtensions(value)) {
+						throw UNSUPPORTED;
+					}
+				}
+			}
+		}
+		
+		IBase newValue() {
+			return valueDefinition.newInstance(definition.getInstanceConstructorArguments());
+		}
+		
+		IPrimitiveType<?> newPrimitive() {
+			if (!isPrimitive()) {
+				throw UNSUPPORTED;
+			}
+			
+			return (IPrimitiveType<?>) newValue();
+		}
+		
+		void setValue(IBase value) {
+			definition.getMutator().setValue(element, value);
+		}
+		
+		void setValues(List<IBase> values) {
+			clear();
+			for (IBase value : values) {
+				definition.getMutator().addValue(element, value);
+			}
+		}
+		
+		void clear() {
+			definition.getMutator().setValue(element, null);
+		}
+		
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+	
+	/**
+	 * Thrown while applying a patch that cannot be applied to the resource itself
+	 */
+	private static final class UnsupportedPatchException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private UnsupportedPatchException() {
+			super("Patch cannot be applied to the resource", null, false, false);
+		}
+	}
+}
@@ -18,9 +18,11 @@ import java.io.IOException;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import com.google.common.annotations.VisibleForTesting;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.openmrs.module.fhir2.api.util.xmlpatch.XmlPatchException;
 import org.openmrs.module.fhir2.api.util.xmlpatch.XmlPatcher;
+import org.w3c.dom.Document;
 
 public class XmlPatchUtils {
 	
@@ -34,6 +36,35 @@ public class XmlPatchUtils {
 	 * @return The updated resource after applying the XML patch.
 	 */
 	public static <T extends IBaseResource> T applyXmlPatch(FhirContext theCtx, T theResourceToUpdate, String thePatchBody) {
+		Document patch = readPatch(thePatchBody);
+		
+		// most patches only change primitive values, which can be changed without encoding the resource
+		T retVal = ResourcePatcher.applyXmlPatch(theCtx, theResourceToUpdate, patch);
+		if (retVal != null) {
+			return retVal;
+		}
+		
+		return applyXmlPatchToEncodedResource(theCtx, theResourceToUpdate, patch);
+	}
+	
+	/**
+	 * Applies an XML Patch to the encoded FHIR Resource, i.e., without first trying to change the
+	 * resource itself
+	 *
+	 * @param theCtx The {@link FhirContext} object representing the FHIR context.
+	 * @param theResourceToUpdate the resource of type {@link T} to be updated.
+	 * @param thePatchBody The XML patch to apply to the resource.
+	 * @param <T> A type that extends IBaseResource.
+	 * @return The updated resource after applying the XML patch.
+	 */
+	@VisibleForTesting
+	public static <T extends IBaseResource> T applyXmlPatchToEncodedResource(FhirContext theCtx, T theResourceToUpdate,
+	        String thePatchBody) {
+		return applyXmlPatchToEncodedResource(theCtx, theResourceToUpdate, readPatch(thePatchBody));
+	}
+	
+	static <T extends IBaseResource> T applyXmlPatchToEncodedResource(FhirContext theCtx, T theResourceToUpdate,
+	        Document patch) {
 		@SuppressWarnings("unchecked")
 		Class<T> clazz = (Class<T>) theResourceToUpdate.getClass();
 		
@@ -41,8 +72,7 @@ public class XmlPatchUtils {
 		
 		ByteArrayOutputStream result = new ByteArrayOutputStream();
 		try {
-			XmlPatcher.patch(new ByteArrayInputStream(inputResource.getBytes(Constants.CHARSET_UTF8)),
-			    new ByteArrayInputStream(thePatchBody.getBytes(Constants.CHARSET_UTF8)), result);
+			XmlPatcher.patch(new ByteArrayInputStream(inputResource.getBytes(Constants.CHARSET_UTF8)), patch, result);
 		}
 		catch (IOException | XmlPatchException e) {
 			throw new InvalidRequestException(e);
@@ -51,4 +81,13 @@ public class XmlPatchUtils {
 		return theCtx.newXmlParser().parseResource(clazz, toUtf8String(result.toByteArray()));
 	}
 	
+	private static Document readPatch(String thePatchBody) {
+		try {
+			return XmlPatcher.parse(new ByteArrayInputStream(thePatchBody.getBytes(Constants.CHARSET_UTF8)));
+		}
+		catch (IOException | XmlPatchException e) {
+			throw new InvalidRequestException(e);
+		}
+	}
+	
 }
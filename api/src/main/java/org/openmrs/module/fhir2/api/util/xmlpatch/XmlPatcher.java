@@ -57,6 +57,15 @@ public final class XmlPatcher {
 	
 	private static final String XMLNS_NS = "http://www.w3.org/2000/xmlns/";
 	
+	// factories are not guaranteed to be thread-safe, so each thread reuses its own parser, serializer and
+	// XPath evaluator rather than creating a factory per patch
+	private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal
+	        .withInitial(XmlPatcher::newDocumentBuilder);
+	
+	private static final ThreadLocal<Transformer> TRANSFORMER = ThreadLocal.withInitial(XmlPatcher::newTransformer);
+	
+	private static final ThreadLocal<XPath> XPATH = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+	
 	private XmlPatcher() {
 	}
 	
@@ -65,8 +74,17 @@ public final class XmlPatcher {
 	 * {@code out}. Streams are read but not closed by this method.
 	 */
 	public static void patch(InputStream target, InputStream diff, OutputStream out) throws IOException {
+		patch(target, parse(diff), out);
+	}
+	
+	/**
+	 * Applies an already parsed patch document to the document in {@code target}, writing the result
+	 * to {@code out}. The patch document is not modified, so it may be applied again.
+	 *
+	 * @see #parse(InputStream)
+	 */
+	public static void patch(InputStream target, Document diffDoc, OutputStream out) throws IOException {
 		Document targetDoc = parse(target);
-		Document diffDoc = parse(diff);
 		
 		Element diffRoot = diffDoc.getDocumentElement();
 		if (diffRoot == null) {
@@ -89,7 +107,34 @@ public final class XmlPatcher {
 		write(targetDoc, out);
 	}
 	
-	private static Document parse(InputStream in) throws IOException {
+	/**
+	 * Parses an XML document, such as a patch document, with external entities and DTDs disabled.
+	 * Streams are read but not closed by this method.
+	 */
+	public static Document parse(InputStream in) throws IOException {
+		DocumentBuilder builder = DOCUMENT_BUILDER.get();
+		try {
+			return builder.parse(new InputSource(in));
+		}
+		catch (SAXException e) {
+			throw new XmlPatchException("Failed to parse XML: " + e.getMessage(), e);
+		}
+		finally {
+			builder.reset();
+		}
+	}
+	
+	/**
+	 * Returns the text content of a patch operation, trimmed as it is when the operation is applied
+	 *
+	 * @param op the patch operation element
+	 * @return the text of the operation
+	 */
+	public static String getText(Element op) {
+		return getTextMaybeTrim(op);
+	}
+	
+	private static DocumentBuilder newDocumentBuilder() {
 		try {
 			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 			dbf.setNamespaceAware(true);
@@ -100,15 +145,14 @@ public final class XmlPatcher {
 			dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
 			dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
 			dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-			DocumentBuilder builder = dbf.newDocumentBuilder();
-			return builder.parse(new InputSource(in));
+			return dbf.newDocumentBuilder();
 		}
-		catch (ParserConfigurationException | SAXException e) {
-			throw new XmlPatchException("Failed to parse XML: " + e.getMessage(), e);
+		catch (ParserConfigurationException e) {
+			throw new XmlPatchException("Failed to configure XML parser: " + e.getMessage(), e);
 		}
 	}
 	
-	private static void write(Document doc, OutputStream out) throws IOException {
+	private static Transformer newTransformer() {
 		try {
 			TransformerFactory tf = TransformerFactory.newInstance();
 			tf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
@@ -116,7 +160,16 @@ public final class XmlPatcher {
 			trySetAttribute(tf, XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
 			Transformer t = tf.newTransformer();
 			t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-			t.transform(new DOMSource(doc), new StreamResult(out));
+			return t;
+		}
+		catch (TransformerException e) {
+			throw new XmlPatchException("Failed to configure XML serializer: " + e.getMessage(), e);
+		}
+	}
+	
+	private static void write(Document doc, OutputStream out) throws IOException {
+		try {
+			TRANSFORMER.get().transform(new DOMSource(doc), new StreamResult(out));
 		}
 		catch (TransformerException e) {
 			throw new XmlPatchException("Failed to serialize XML: " + e.getMessage(), e);
@@ -167,7 +220,8 @@ public final class XmlPatcher {
 		}
 		
 		try {
-			XPath xpath = XPathFactory.newInstance().newXPath();
+			XPath xpath = XPATH.get();
+			xpath.reset();
 			xpath.setNamespaceContext(buildNamespaceContext(op));
 			NodeList nodes = (NodeList) xpath.evaluate(selector, target, XPathConstants.NODESET);
 			
@@ -0,0 +1,70 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import java.io.Serializable;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.openmrs.Location;
+
+/**
+ * A row in the location hierarchy closure table. Each location has one row linking it to itself with
+ * a depth of 0 and one row for every one of its ancestors, where the depth is the number of
+ * {@code parentLocation} steps between the two locations. This allows the descendants (or ancestors)
+ * of a location at any depth to be found with a single indexed join.
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString(onlyExplicitlyIncluded = true)
+@Entity
+@Table(name = "fhir_location_closure")
+public class FhirLocationClosure implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	@EqualsAndHashCode.Include
+	@ToString.Include
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	@Column(name = "location_closure_id")
+	private Integer id;
+	
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "ancestor_id", nullable = false)
+	private Location ancestor;
+	
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "descendant_id", nullable = false)
+	private Location descendant;
+	
+	@ToString.Include
+	@Column(name = "depth", nullable = false)
+	private Integer depth;
+	
+	public FhirLocationClosure(Location ancestor, Location descendant, int depth) {
+		this.ancestor = ancestor;
+		this.descendant = descendant;
+		this.depth = depth;
+	}
+}
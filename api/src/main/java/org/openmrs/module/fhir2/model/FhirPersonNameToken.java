@@ -0,0 +1,63 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import java.io.Serializable;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * A row in the FHIR person name index. Each non-voided person name has one row per indexed name
+ * part holding the normalized value of that part at position 0 and, if substrings are being indexed,
+ * one row for each of its suffixes at the position the suffix starts. A prefix search on a name is
+ * then an indexed range scan on {@link #token} restricted to position 0, and a "contains" search is
+ * the same range scan over every position.
+ *
+ * @see org.openmrs.module.fhir2.api.util.PersonNameSearchUtils
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@Entity
+@Table(name = "fhir_person_name_token")
+public class FhirPersonNameToken implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	@EqualsAndHashCode.Include
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	@Column(name = "person_name_token_id")
+	private Integer id;
+	
+	@Column(name = "person_id", nullable = false)
+	private Integer personId;
+	
+	@Column(name = "person_name_id", nullable = false)
+	private Integer personNameId;
+	
+	@Column(name = "name_part", nullable = false, length = 1)
+	private String namePart;
+	
+	@Column(name = "token_position", nullable = false)
+	private Integer position;
+	
+	@Column(name = "token", nullable = false)
+	private String token;
+}
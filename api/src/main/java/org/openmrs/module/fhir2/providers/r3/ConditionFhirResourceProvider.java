@@ -50,8 +50,8 @@ import org.openmrs.module.fhir2.api.FhirConditionService;
 import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.ConditionSearchParams;
-import org.openmrs.module.fhir2.api.util.FhirUtils;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -136,16 +136,6 @@ public class ConditionFhirResourceProvider implements IResourceProvider {
 	}
 	
 	private Condition convertToR3Condition(org.hl7.fhir.r4.model.Condition condition) {
-		if (condition == null) {
-			return null;
-		}
-		
-		org.hl7.fhir.r4.model.Condition copy = condition.copy();
-		if (FhirUtils.getOpenmrsConditionType(condition).filter(type -> type == FhirUtils.OpenmrsConditionType.DIAGNOSIS)
-		        .isPresent()) {
-			copy.setClinicalStatus(null);
-		}
-		
-		return (Condition) VersionConvertorFactory_30_40.convertResource(copy);
+		return (Condition) R3ResourceConverter.convertToR3(condition);
 	}
 }
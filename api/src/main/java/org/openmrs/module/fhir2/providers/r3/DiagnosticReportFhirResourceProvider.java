@@ -50,6 +50,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.DiagnosticReportSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -74,7 +75,7 @@ public class DiagnosticReportFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find diagnosticReport with Id " + id.getIdPart());
 		}
 		
-		return (DiagnosticReport) VersionConvertorFactory_30_40.convertResource(diagnosticReport);
+		return (DiagnosticReport) R3ResourceConverter.convertToR3(diagnosticReport);
 	}
 	
 	@Create
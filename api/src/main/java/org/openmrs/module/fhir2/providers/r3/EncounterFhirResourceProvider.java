@@ -66,6 +66,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.EncounterSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -90,7 +91,7 @@ public class EncounterFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find encounter with Id " + id.getIdPart());
 		}
 		
-		return (Encounter) VersionConvertorFactory_30_40.convertResource(encounter);
+		return (Encounter) R3ResourceConverter.convertToR3(encounter);
 	}
 	
 	@Create
@@ -18,12 +18,12 @@ import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.Getter;
 import lombok.Setter;
-import org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40;
 import org.hl7.fhir.dstu3.model.EpisodeOfCare;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.openmrs.module.fhir2.api.FhirEpisodeOfCareService;
 import org.openmrs.module.fhir2.api.annotations.R3Provider;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -46,6 +46,6 @@ public class EpisodeOfCareFhirResourceProvider implements IResourceProvider {
 		if (episodeOfCare == null) {
 			throw new ResourceNotFoundException("Could not find EpisodeOfCare with Id " + id.getIdPart());
 		}
-		return (EpisodeOfCare) VersionConvertorFactory_30_40.convertResource(episodeOfCare);
+		return (EpisodeOfCare) R3ResourceConverter.convertToR3(episodeOfCare);
 	}
 }
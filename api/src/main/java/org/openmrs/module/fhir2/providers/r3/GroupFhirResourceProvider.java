@@ -34,6 +34,7 @@ import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.openmrs.module.fhir2.api.FhirGroupService;
 import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -56,7 +57,7 @@ public class GroupFhirResourceProvider implements IResourceProvider {
 		if (group == null) {
 			throw new ResourceNotFoundException("Could not find Group with Id " + id.getIdPart());
 		}
-		return (Group) VersionConvertorFactory_30_40.convertResource(group);
+		return (Group) R3ResourceConverter.convertToR3(group);
 	}
 	
 	@Create
@@ -51,6 +51,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.LocationSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -75,7 +76,7 @@ public class LocationFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find location with Id " + id.getIdPart());
 		}
 		
-		return (Location) VersionConvertorFactory_30_40.convertResource(location);
+		return (Location) R3ResourceConverter.convertToR3(location);
 	}
 	
 	@Create
@@ -50,6 +50,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.MedicationDispenseSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -71,7 +72,7 @@ public class MedicationDispenseFhirResourceProvider implements IResourceProvider
 		if (r4Obj == null) {
 			throw new ResourceNotFoundException("Could not find medicationDispense with Id " + id.getIdPart());
 		}
-		return (MedicationDispense) VersionConvertorFactory_30_40.convertResource(r4Obj);
+		return (MedicationDispense) R3ResourceConverter.convertToR3(r4Obj);
 	}
 	
 	@Create
@@ -47,6 +47,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.MedicationSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -71,7 +72,7 @@ public class MedicationFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find medication with Id " + id.getIdPart());
 		}
 		
-		return (Medication) VersionConvertorFactory_30_40.convertResource(medication);
+		return (Medication) R3ResourceConverter.convertToR3(medication);
 	}
 	
 	@Create
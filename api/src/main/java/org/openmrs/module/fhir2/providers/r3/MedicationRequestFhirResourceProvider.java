@@ -37,7 +37,6 @@ import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.collections.CollectionUtils;
-import org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40;
 import org.hl7.fhir.dstu3.model.Encounter;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Medication;
@@ -53,6 +52,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.MedicationRequestSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -77,7 +77,7 @@ public class MedicationRequestFhirResourceProvider implements IResourceProvider
 			throw new ResourceNotFoundException("Could not find medicationRequest with Id " + id.getIdPart());
 		}
 		
-		return (MedicationRequest) VersionConvertorFactory_30_40.convertResource(medicationRequest);
+		return (MedicationRequest) R3ResourceConverter.convertToR3(medicationRequest);
 	}
 	
 	// NOTE: POST/Create not yet supported, see: https://issues.openmrs.org/browse/FM2-568
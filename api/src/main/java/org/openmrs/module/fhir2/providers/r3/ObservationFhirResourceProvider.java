@@ -56,6 +56,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.ObservationSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -80,7 +81,7 @@ public class ObservationFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find observation with Id " + id.getIdPart());
 		}
 		
-		return (Observation) VersionConvertorFactory_30_40.convertResource(observation);
+		return (Observation) R3ResourceConverter.convertToR3(observation);
 	}
 	
 	@Create
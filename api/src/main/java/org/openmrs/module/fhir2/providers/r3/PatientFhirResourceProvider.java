@@ -23,6 +23,7 @@ import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
@@ -48,6 +49,7 @@ import org.hl7.fhir.dstu3.model.AllergyIntolerance;
 import org.hl7.fhir.dstu3.model.DiagnosticReport;
 import org.hl7.fhir.dstu3.model.Encounter;
 import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.InstantType;
 import org.hl7.fhir.dstu3.model.MedicationDispense;
 import org.hl7.fhir.dstu3.model.MedicationRequest;
 import org.hl7.fhir.dstu3.model.Observation;
@@ -63,6 +65,7 @@ import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.OpenmrsPatientSearchParams;
 import org.openmrs.module.fhir2.api.search.param.PatientSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -87,7 +90,7 @@ public class PatientFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find patient with Id " + id.getIdPart());
 		}
 		
-		return (Patient) VersionConvertorFactory_30_40.convertResource(patient);
+		return (Patient) R3ResourceConverter.convertToR3(patient);
 	}
 	
 	@Create
@@ -182,10 +185,12 @@ public class PatientFhirResourceProvider implements IResourceProvider {
 	 * The $everything operation fetches all the information related the specified patient
 	 *
 	 * @param patientId The id of the patient
+	 * @param since if supplied, only resources updated at or after this time are returned
 	 * @return a bundle of resources which reference to or are referenced from the patient
 	 */
 	@Operation(name = "everything", idempotent = true, type = Patient.class, bundleType = BundleTypeEnum.SEARCHSET)
-	public IBundleProvider getPatientEverything(@IdParam IdType patientId) {
+	public IBundleProvider getPatientEverything(@IdParam IdType patientId,
+	        @OperationParam(name = "_since") InstantType since) {
 		
 		if (patientId == null || patientId.getIdPart() == null || patientId.getIdPart().isEmpty()) {
 			return null;
@@ -193,16 +198,27 @@ public class PatientFhirResourceProvider implements IResourceProvider {
 		
 		TokenParam patientReference = new TokenParam().setValue(patientId.getIdPart());
 		
-		return new SearchQueryBundleProviderR3Wrapper(patientService.getPatientEverything(patientReference));
+		if (since == null || since.getValue() == null) {
+			return new SearchQueryBundleProviderR3Wrapper(patientService.getPatientEverything(patientReference));
+		}
+		
+		return new SearchQueryBundleProviderR3Wrapper(patientService.getPatientEverything(patientReference, since.getValue()));
 	}
 	
 	/**
-	 * The $everything operation fetches all the information related to all the patients
+	 * The $everything operation fetches all the information related to all the patients. <br/>
+	 * The results are paged by patient, so each page holds a bounded number of patients together with
+	 * everything related to them.
 	 *
+	 * @param since if supplied, only resources updated at or after this time are returned
 	 * @return a bundle of resources which reference to or are referenced from the patients
 	 */
 	@Operation(name = "everything", idempotent = true, type = Patient.class, bundleType = BundleTypeEnum.SEARCHSET)
-	public IBundleProvider getPatientEverything() {
-		return new SearchQueryBundleProviderR3Wrapper(patientService.getPatientEverything());
+	public IBundleProvider getPatientEverything(@OperationParam(name = "_since") InstantType since) {
+		if (since == null || since.getValue() == null) {
+			return new SearchQueryBundleProviderR3Wrapper(patientService.getPatientEverything());
+		}
+		
+		return new SearchQueryBundleProviderR3Wrapper(patientService.getPatientEverything(null, since.getValue()));
 	}
 }
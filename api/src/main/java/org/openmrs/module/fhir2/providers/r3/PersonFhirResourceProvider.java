@@ -49,6 +49,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.PersonSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -73,7 +74,7 @@ public class PersonFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find person with Id " + id.getIdPart());
 		}
 		
-		return (Person) VersionConvertorFactory_30_40.convertResource(person);
+		return (Person) R3ResourceConverter.convertToR3(person);
 	}
 	
 	@Create
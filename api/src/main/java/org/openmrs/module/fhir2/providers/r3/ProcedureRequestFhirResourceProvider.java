@@ -47,6 +47,7 @@ import org.openmrs.module.fhir2.api.FhirServiceRequestService;
 import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -70,7 +71,7 @@ public class ProcedureRequestFhirResourceProvider implements IResourceProvider {
 		if (serviceRequest == null) {
 			throw new ResourceNotFoundException("Could not find serviceRequest with Id " + id.getIdPart());
 		}
-		return (ProcedureRequest) VersionConvertorFactory_30_40.convertResource(serviceRequest);
+		return (ProcedureRequest) R3ResourceConverter.convertToR3(serviceRequest);
 	}
 	
 	public MethodOutcome createProcedureRequest(@ResourceParam ProcedureRequest procedureRequest) {
@@ -33,7 +33,6 @@ import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.collections.CollectionUtils;
-import org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.RelatedPerson;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -41,6 +40,7 @@ import org.openmrs.module.fhir2.api.FhirRelatedPersonService;
 import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.RelatedPersonSearchParams;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -65,7 +65,7 @@ public class RelatedPersonFhirResourceProvider implements IResourceProvider {
 		if (relatedPerson == null) {
 			throw new ResourceNotFoundException("Could not find relatedPerson with Id " + id.getIdPart());
 		}
-		return (RelatedPerson) VersionConvertorFactory_30_40.convertResource(relatedPerson);
+		return (RelatedPerson) R3ResourceConverter.convertToR3(relatedPerson);
 	}
 	
 	@Search
@@ -30,6 +30,7 @@ import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceAndListParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
@@ -47,6 +48,7 @@ import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
 import org.openmrs.module.fhir2.api.search.param.TaskSearchParams;
 import org.openmrs.module.fhir2.providers.util.FhirProviderUtils;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.openmrs.module.fhir2.providers.util.TaskVersionConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -71,7 +73,7 @@ public class TaskFhirResourceProvider implements IResourceProvider {
 			throw new ResourceNotFoundException("Could not find task with Id " + id.getIdPart());
 		}
 		
-		return TaskVersionConverter.convertTask(task);
+		return (Task) R3ResourceConverter.convertToR3(task);
 	}
 	
 	@Create
@@ -104,12 +106,21 @@ public class TaskFhirResourceProvider implements IResourceProvider {
 	        @OptionalParam(name = Task.SP_RES_ID) TokenAndListParam id,
 	        @OptionalParam(name = "_lastUpdated") DateRangeParam lastUpdated, @Sort SortSpec sort,
 	        @IncludeParam(allow = { "Task:" + Task.SP_PATIENT, "Task:" + Task.SP_OWNER, "Task:" + Task.SP_BASED_ON,
-	                "Task:" + Task.SP_CONTEXT }) HashSet<Include> includes) {
+	                "Task:" + Task.SP_CONTEXT }) HashSet<Include> includes,
+	        RequestDetails requestDetails) {
 		
 		if (CollectionUtils.isEmpty(includes)) {
 			includes = null;
 		}
-		return new SearchQueryBundleProviderR3Wrapper(fhirTaskService.searchForTasks(new TaskSearchParams(basedOnReference,
-		        ownerReference, forReference, taskCode, status, id, lastUpdated, sort, includes)));
+		
+		TaskSearchParams taskSearchParams = new TaskSearchParams(basedOnReference, ownerReference, forReference, taskCode,
+		        status, id, lastUpdated, sort, includes);
+		
+		Integer wait = FhirProviderUtils.getPreferredWait(requestDetails);
+		if (wait != null && wait > 0) {
+			return new SearchQueryBundleProviderR3Wrapper(fhirTaskService.searchForTasks(taskSearchParams, wait));
+		}
+		
+		return new SearchQueryBundleProviderR3Wrapper(fhirTaskService.searchForTasks(taskSearchParams));
 	}
 }
@@ -24,13 +24,13 @@ import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import lombok.Getter;
 import lombok.Setter;
-import org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.ValueSet;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.openmrs.module.fhir2.api.FhirValueSetService;
 import org.openmrs.module.fhir2.api.annotations.R3Provider;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -53,7 +53,7 @@ public class ValueSetFhirResourceProvider implements IResourceProvider {
 		if (valueSet == null) {
 			throw new ResourceNotFoundException("Could not find valueset with Id" + id.getIdPart());
 		}
-		return (ValueSet) VersionConvertorFactory_30_40.convertResource(valueSet);
+		return (ValueSet) R3ResourceConverter.convertToR3(valueSet);
 	}
 	
 	@Search
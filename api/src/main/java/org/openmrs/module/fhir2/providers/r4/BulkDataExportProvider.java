@@ -0,0 +1,238 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.r4;
+
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PROTECTED;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.r4.model.Group;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.InstantType;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StringType;
+import org.openmrs.module.fhir2.api.FhirBulkExportService;
+import org.openmrs.module.fhir2.api.annotations.R4Provider;
+import org.openmrs.module.fhir2.api.export.BulkExportJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implements the kick-off, status and download requests of the
+ * <a href="https://hl7.org/fhir/uv/bulkdata/export.html">FHIR Bulk Data export</a>. <br/>
+ * <br/>
+ * Kick-off requests ({@code $export}) must be sent with {@code Prefer: respond-async}. They answer
+ * with {@code 202 Accepted} and a
+ * {@code Content-Location} header pointing at {@code $export-poll-status}, which answers
+ * {@code 202 Accepted} until the export has finished and then returns the completion manifest. The
+ * files listed in the manifest are served by {@code $export-download}. Since operations cannot be
+ * invoked with {@code DELETE}, a running export is cancelled by a {@code POST} to
+ * {@code $export-cancel}. <br/>
+ * This is a plain provider rather than a resource provider, as most of its operations are
+ * system-level operations.
+ */
+@Component("bulkDataExportFhirR4Provider")
+@R4Provider
+public class BulkDataExportProvider {
+	
+	private static final String NDJSON_CONTENT_TYPE = "application/fhir+ndjson";
+	
+	private static final String RETRY_AFTER_SECONDS = "10";
+	
+	// the manifest is written with a single shared instance, as ObjectMapper is thread-safe once configured
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirBulkExportService bulkExportService;
+	
+	@Operation(name = "$export", idempotent = true, manualResponse = true)
+	public void systemExport(@OperationParam(name = "_since") InstantType since,
+	        @OperationParam(name = "_type") StringType type, RequestDetails requestDetails, HttpServletResponse response) {
+		startExport(BulkExportJob.Level.SYSTEM, null, since, type, requestDetails, response);
+	}
+	
+	@Operation(name = "$export", idempotent = true, manualResponse = true, type = Patient.class)
+	public void patientExport(@OperationParam(name = "_since") InstantType since,
+	        @OperationParam(name = "_type") StringType type, RequestDetails requestDetails, HttpServletResponse response) {
+		startExport(BulkExportJob.Level.PATIENT, null, since, type, requestDetails, response);
+	}
+	
+	@Operation(name = "$export", idempotent = true, manualResponse = true, type = Group.class)
+	public void groupExport(@IdParam IdType groupId, @OperationParam(name = "_since") InstantType since,
+	        @OperationParam(name = "_type") StringType type, RequestDetails requestDetails, HttpServletResponse response) {
+		if (groupId == null || StringUtils.isBlank(groupId.getIdPart())) {
+			throw new InvalidRequestException("A group id is required");
+		}
+		
+		startExport(BulkExportJob.Level.GROUP, groupId.getIdPart(), since, type, requestDetails, response);
+	}
+	
+	@Operation(name = "$export-poll-status", idempotent = true, manualResponse = true)
+	public void exportPollStatus(@OperationParam(name = "_jobId") StringType jobId, RequestDetails requestDetails,
+	        HttpServletResponse response) throws IOException {
+		BulkExportJob job = getJob(jobId);
+		
+		switch (job.getStatus()) {
+			case IN_PROGRESS:
+				response.setStatus(HttpServletResponse.SC_ACCEPTED);
+				response.setHeader("X-Progress", job.getCompletedResourceTypes() + " of " + job.getResourceTypes().size()
+				        + " resource types exported");
+				response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+				break;
+			case ERROR:
+				throw new InternalErrorException("Export failed: " + job.getErrors().entrySet().stream()
+				        .map(error -> error.getKey() + ": " + error.getValue()).collect(Collectors.joining("; ")));
+			case CANCELLED:
+				throw new ResourceNotFoundException("Export " + job.getId() + " was cancelled");
+			default:
+				response.setStatus(HttpServletResponse.SC_OK);
+				response.setContentType("application/json");
+				response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+				MAPPER.writeValue(response.getOutputStream(), createManifest(job, requestDetails));
+		}
+	}
+	
+	@Operation(name = "$export-download", idempotent = true, manualResponse = true)
+	public void exportDownload(@OperationParam(name = "_jobId") StringType jobId,
+	        @OperationParam(name = "_file") StringType fileName, HttpServletRequest request, HttpServletResponse response)
+	        throws IOException {
+		if (jobId == null || fileName == null || StringUtils.isBlank(fileName.getValue())) {
+			throw new InvalidRequestException("Both _jobId and _file are required");
+		}
+		
+		File file = bulkExportService.getExportFile(jobId.getValue(), fileName.getValue());
+		if (file == null) {
+			throw new ResourceNotFoundException("File " + fileName.getValue() + " is not part of export " + jobId.getValue());
+		}
+		
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType(NDJSON_CONTENT_TYPE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		
+		// files are stored compressed, so they are only decompressed for clients which cannot accept gzip
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+		if (gzip) {
+			response.setHeader("Content-Encoding", "gzip");
+			response.setContentLengthLong(file.length());
+		}
+		
+		try (InputStream in = gzip ? Files.newInputStream(file.toPath())
+		        : new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+			OutputStream out = response.getOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			out.flush();
+		}
+	}
+	
+	@Operation(name = "$export-cancel", manualResponse = true)
+	public void exportCancel(@OperationParam(name = "_jobId") StringType jobId, HttpServletResponse response) {
+		if (jobId == null || !bulkExportService.cancelExport(jobId.getValue())) {
+			throw new ResourceNotFoundException("Export " + (jobId == null ? null : jobId.getValue()) + " is not known");
+		}
+		
+		response.setStatus(HttpServletResponse.SC_ACCEPTED);
+	}
+	
+	private void startExport(BulkExportJob.Level level, String groupId, InstantType since, StringType type,
+	        RequestDetails requestDetails, HttpServletResponse response) {
+		// the specification requires kick-off requests to ask for an asynchronous response
+		String prefer = requestDetails.getHeader(Constants.HEADER_PREFER);
+		if (prefer == null || !prefer.toLowerCase().contains(Constants.HEADER_PREFER_RESPOND_ASYNC)) {
+			throw new InvalidRequestException("Export requests must include the header Prefer: respond-async");
+		}
+		
+		Date sinceDate = since == null ? null : since.getValue();
+		
+		List<String> types = Collections.emptyList();
+		if (type != null && StringUtils.isNotBlank(type.getValue())) {
+			types = Arrays.stream(type.getValue().split(",")).map(String::trim).filter(StringUtils::isNotEmpty)
+			        .collect(Collectors.toList());
+		}
+		
+		BulkExportJob job = bulkExportService.startExport(level, groupId, types, sinceDate,
+		    requestDetails.getCompleteUrl());
+		
+		response.setStatus(HttpServletResponse.SC_ACCEPTED);
+		response.setHeader("Content-Location",
+		    requestDetails.getFhirServerBase() + "/$export-poll-status?_jobId=" + job.getId());
+	}
+	
+	private BulkExportJob getJob(StringType jobId) {
+		if (jobId == null || StringUtils.isBlank(jobId.getValue())) {
+			throw new InvalidRequestException("_jobId is required");
+		}
+		
+		BulkExportJob job = bulkExportService.getExport(jobId.getValue());
+		if (job == null) {
+			throw new ResourceNotFoundException("Export " + jobId.getValue() + " is not known");
+		}
+		
+		return job;
+	}
+	
+	private ObjectNode createManifest(BulkExportJob job, RequestDetails requestDetails) {
+		ObjectNode manifest = MAPPER.createObjectNode();
+		manifest.put("transactionTime", new InstantType(job.getTransactionTime()).getValueAsString());
+		manifest.put("request", job.getRequest());
+		manifest.put("requiresAccessToken", true);
+		
+		ArrayNode output = manifest.putArray("output");
+		for (BulkExportJob.Output jobOutput : job.getOutputs()) {
+			output.addObject().put("type", jobOutput.getType())
+			        .put("url", requestDetails.getFhirServerBase() + "/$export-download?_jobId=" + job.getId() + "&_file="
+			                + jobOutput.getFileName())
+			        .put("count", jobOutput.getCount());
+		}
+		
+		ArrayNode error = manifest.putArray("error");
+		for (Map.Entry<String, String> jobError : job.getErrors().entrySet()) {
+			error.addObject().put("type", "OperationOutcome").put("message",
+			    jobError.getKey() + ": " + jobError.getValue());
+		}
+		
+		return manifest;
+	}
+}
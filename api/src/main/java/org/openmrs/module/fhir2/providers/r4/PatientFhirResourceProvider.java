@@ -23,6 +23,7 @@ import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
 import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Patch;
 import ca.uhn.fhir.rest.annotation.Read;
@@ -51,6 +52,7 @@ import org.hl7.fhir.r4.model.AllergyIntolerance;
 import org.hl7.fhir.r4.model.DiagnosticReport;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.InstantType;
 import org.hl7.fhir.r4.model.MedicationDispense;
 import org.hl7.fhir.r4.model.MedicationRequest;
 import org.hl7.fhir.r4.model.Observation;
@@ -186,10 +188,12 @@ public class PatientFhirResourceProvider implements IResourceProvider {
 	 * The $everything operation fetches all the information related the specified patient
 	 * 
 	 * @param patientId The id of the patient
+	 * @param since if supplied, only resources updated at or after this time are returned
 	 * @return a bundle of resources which reference to or are referenced from the patient
 	 */
 	@Operation(name = "everything", idempotent = true, type = Patient.class, bundleType = BundleTypeEnum.SEARCHSET)
-	public IBundleProvider getPatientEverything(@IdParam IdType patientId) {
+	public IBundleProvider getPatientEverything(@IdParam IdType patientId,
+	        @OperationParam(name = "_since") InstantType since) {
 		
 		if (patientId == null || patientId.getIdPart() == null || patientId.getIdPart().isEmpty()) {
 			return null;
@@ -197,16 +201,27 @@ public class PatientFhirResourceProvider implements IResourceProvider {
 		
 		TokenParam patientReference = new TokenParam().setValue(patientId.getIdPart());
 		
-		return patientService.getPatientEverything(patientReference);
+		if (since == null || since.getValue() == null) {
+			return patientService.getPatientEverything(patientReference);
+		}
+		
+		return patientService.getPatientEverything(patientReference, since.getValue());
 	}
 	
 	/**
-	 * The $everything operation fetches all the information related to all the patients
+	 * The $everything operation fetches all the information related to all the patients. <br/>
+	 * The results are paged by patient, so each page holds a bounded number of patients together with
+	 * everything related to them.
 	 *
+	 * @param since if supplied, only resources updated at or after this time are returned
 	 * @return a bundle of resources which reference to or are referenced from the patients
 	 */
 	@Operation(name = "everything", idempotent = true, type = Patient.class, bundleType = BundleTypeEnum.SEARCHSET)
-	public IBundleProvider getPatientEverything() {
-		return patientService.getPatientEverything();
+	public IBundleProvider getPatientEverything(@OperationParam(name = "_since") InstantType since) {
+		if (since == null || since.getValue() == null) {
+			return patientService.getPatientEverything();
+		}
+		
+		return patientService.getPatientEverything(null, since.getValue());
 	}
 }
@@ -0,0 +1,53 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.r4;
+
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PROTECTED;
+
+import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OperationParam;
+import lombok.Getter;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.Parameters;
+import org.openmrs.module.fhir2.api.FhirRequestMetricsService;
+import org.openmrs.module.fhir2.api.annotations.R4Provider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the request metrics aggregated by the {@link FhirRequestMetricsService} through the
+ * system-level {@code $request-metrics} operation. For each resource type and operation, the
+ * result contains histograms of the request duration, the number of SQL statements, the time and
+ * SQL statements of each phase of the request and the number of results and included resources.
+ * For each registered cache, e.g., the cache of authenticated Basic credentials, it contains the
+ * number of hits and misses and the hit rate. If {@code reset} is {@code true}, the metrics are
+ * discarded after they have been returned.
+ */
+@Component("requestMetricsFhirR4Provider")
+@R4Provider
+public class RequestMetricsProvider {
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirRequestMetricsService requestMetricsService;
+	
+	@Operation(name = "$request-metrics", idempotent = true)
+	public Parameters getRequestMetrics(@OperationParam(name = "reset") BooleanType reset) {
+		Parameters metrics = requestMetricsService.getRequestMetrics();
+		
+		if (reset != null && reset.booleanValue()) {
+			requestMetricsService.resetRequestMetrics();
+		}
+		
+		return metrics;
+	}
+}
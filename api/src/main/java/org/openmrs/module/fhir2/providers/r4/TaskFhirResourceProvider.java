@@ -110,12 +110,22 @@ public class TaskFhirResourceProvider extends BaseUpsertFhirResourceProvider<Tas
 	        @OptionalParam(name = Task.SP_RES_ID) TokenAndListParam id,
 	        @OptionalParam(name = "_lastUpdated") DateRangeParam lastUpdated, @Sort SortSpec sort,
 	        @IncludeParam(allow = { "Task:" + Task.SP_PATIENT, "Task:" + Task.SP_OWNER, "Task:" + Task.SP_BASED_ON,
-	                "Task:" + Task.SP_ENCOUNTER }) HashSet<Include> includes) {
+	                "Task:" + Task.SP_ENCOUNTER }) HashSet<Include> includes,
+	        RequestDetails requestDetails) {
 		if (CollectionUtils.isEmpty(includes)) {
 			includes = null;
 		}
-		return service.searchForTasks(TaskSearchParams.builder().basedOnReference(basedOnReference)
+		
+		TaskSearchParams taskSearchParams = TaskSearchParams.builder().basedOnReference(basedOnReference)
 		        .ownerReference(ownerReference).forReference(forReference).focusReference(focusReference).taskCode(taskCode)
-		        .status(status).id(id).lastUpdated(lastUpdated).sort(sort).includes(includes).build());
+		        .status(status).id(id).lastUpdated(lastUpdated).sort(sort).includes(includes).build();
+		
+		// workers polling for tasks can send "Prefer: wait=N" to wait for a matching task instead of polling again
+		Integer wait = FhirProviderUtils.getPreferredWait(requestDetails);
+		if (wait != null && wait > 0) {
+			return service.searchForTasks(taskSearchParams, wait);
+		}
+		
+		return service.searchForTasks(taskSearchParams);
 	}
 }
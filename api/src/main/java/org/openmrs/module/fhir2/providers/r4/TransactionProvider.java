@@ -0,0 +1,55 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.r4;
+
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PROTECTED;
+
+import ca.uhn.fhir.rest.annotation.Transaction;
+import ca.uhn.fhir.rest.annotation.TransactionParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import lombok.Getter;
+import lombok.Setter;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openmrs.module.fhir2.api.FhirTransactionService;
+import org.openmrs.module.fhir2.api.annotations.R4Provider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handles {@code transaction} and {@code batch} Bundles posted to the base url of the server. <br/>
+ * This is a plain provider rather than a resource provider, as these are system-level interactions.
+ */
+@Component("transactionFhirR4Provider")
+@R4Provider
+public class TransactionProvider {
+	
+	@Getter(PROTECTED)
+	@Setter(value = PACKAGE, onMethod_ = @Autowired)
+	private FhirTransactionService transactionService;
+	
+	@Transaction
+	@SuppressWarnings("unused")
+	public Bundle transaction(@TransactionParam Bundle bundle) {
+		if (bundle == null || bundle.getType() == null) {
+			throw new InvalidRequestException("A Bundle of type transaction or batch is required");
+		}
+		
+		switch (bundle.getType()) {
+			case TRANSACTION:
+				return transactionService.processTransaction(bundle);
+			case BATCH:
+				return transactionService.processBatch(bundle);
+			default:
+				throw new InvalidRequestException(
+				        "Unable to process a Bundle of type " + bundle.getType().toCode() + ", expected transaction or batch");
+		}
+	}
+}
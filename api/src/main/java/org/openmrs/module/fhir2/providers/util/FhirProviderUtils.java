@@ -9,9 +9,14 @@
  */
 package org.openmrs.module.fhir2.providers.util;
 
+import java.util.List;
+
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IAnyResource;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -63,6 +68,40 @@ public class FhirProviderUtils {
 		return outcome;
 	}
 	
+	/**
+	 * Reads the {@code wait} preference of the {@code Prefer} header, e.g. {@code Prefer: wait=10}
+	 *
+	 * @param requestDetails the request
+	 * @return the number of seconds the client prefers to wait, or {@code null} if the request has no
+	 *         valid wait preference
+	 */
+	public static Integer getPreferredWait(RequestDetails requestDetails) {
+		if (requestDetails == null) {
+			return null;
+		}
+		
+		List<String> headers = requestDetails.getHeaders(Constants.HEADER_PREFER);
+		if (headers == null) {
+			return null;
+		}
+		
+		for (String header : headers) {
+			for (String preference : StringUtils.split(header, ',')) {
+				String[] nameAndValue = StringUtils.split(StringUtils.substringBefore(preference, ";"), "=", 2);
+				if (nameAndValue.length == 2 && "wait".equalsIgnoreCase(nameAndValue[0].trim())) {
+					try {
+						return Math.max(Integer.parseInt(StringUtils.strip(nameAndValue[1].trim(), "\"")), 0);
+					}
+					catch (NumberFormatException e) {
+						return null;
+					}
+				}
+			}
+		}
+		
+		return null;
+	}
+	
 	private static MethodOutcome buildWithResource(MethodOutcome methodOutcome, IAnyResource resource) {
 		if (resource != null) {
 			methodOutcome.setId(resource.getIdElement());
@@ -0,0 +1,65 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.util;
+
+import org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.Task;
+import org.openmrs.module.fhir2.api.util.FhirUtils;
+
+/**
+ * Converts the R4 resources produced by the FHIR2 services into the STU3 resources returned by the R3
+ * resource providers. <br/>
+ * <br/>
+ * Conversions are not cached. The version id of a resource only reflects changes to its root entity,
+ * not to, e.g., its names or identifiers, and the text of a resource depends on the locale of the
+ * user, so a cached conversion could only be reused safely after comparing the whole resource, which
+ * costs about as much as converting it again.
+ */
+public class R3ResourceConverter {
+	
+	private R3ResourceConverter() {
+	}
+	
+	/**
+	 * Converts an R4 resource to STU3. Tasks are converted using {@link TaskVersionConverter} and
+	 * conditions that represent diagnoses are converted without their clinical status.
+	 *
+	 * @param resource the R4 resource to convert
+	 * @return the equivalent STU3 resource, or {@code null} if the supplied resource is {@code null}
+	 */
+	public static org.hl7.fhir.dstu3.model.Resource convertToR3(Resource resource) {
+		if (resource == null) {
+			return null;
+		}
+		
+		if (resource instanceof Task) {
+			return TaskVersionConverter.convertTask((Task) resource);
+		}
+		
+		if (resource instanceof Condition && FhirUtils.getOpenmrsConditionType((Condition) resource)
+		        .filter(type -> type == FhirUtils.OpenmrsConditionType.DIAGNOSIS).isPresent()) {
+			// the clinical status is left out for the conversion, rather than converting a copy of the condition
+			Condition condition = (Condition) resource;
+			CodeableConcept clinicalStatus = condition.getClinicalStatus();
+			condition.setClinicalStatus(null);
+			try {
+				return VersionConvertorFactory_30_40.convertResource(condition);
+			}
+			finally {
+				condition.setClinicalStatus(clinicalStatus);
+			}
+		}
+		
+		return VersionConvertorFactory_30_40.convertResource(resource);
+	}
+}
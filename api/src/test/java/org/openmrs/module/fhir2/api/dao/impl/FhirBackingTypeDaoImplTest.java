@@ -0,0 +1,103 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Optional;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Condition;
+import org.openmrs.Diagnosis;
+import org.openmrs.Encounter;
+import org.openmrs.Provider;
+import org.openmrs.User;
+import org.openmrs.Visit;
+import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class FhirBackingTypeDaoImplTest extends BaseFhirContextSensitiveTest {
+	
+	private static final String CONDITION_INITIAL_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirConditionDaoImplTest_initial_data.xml";
+	
+	private static final String DIAGNOSIS_INITIAL_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirDiagnosisDaoImplTest_initial_dataset.xml";
+	
+	private static final String ENCOUNTER_UUID = "6519d653-393b-4118-9c83-a3715b82d4ac";
+	
+	private static final String VISIT_UUID = "1e5d5d48-6b78-11e0-93c3-18a905e044dc";
+	
+	private static final String CONDITION_UUID = "604953c5-b5c6-4e1e-be95-e37d8f392046";
+	
+	private static final String DIAGNOSIS_UUID = "9f1e6734-4935-4abb-9dda-ace8331d4d2f";
+	
+	private static final String PROVIDER_UUID = "c2299800-cca9-11e0-9572-0800200c9a66";
+	
+	private static final String USER_UUID = "1010d442-e134-11de-babe-001e378eb67e";
+	
+	private static final String UNKNOWN_UUID = "a1b2c3d4-0000-4000-8000-000000000000";
+	
+	@Autowired
+	private SessionFactory sessionFactory;
+	
+	private FhirBackingTypeDaoImpl dao;
+	
+	@Before
+	public void setup() {
+		dao = new FhirBackingTypeDaoImpl();
+		dao.setSessionFactory(sessionFactory);
+	}
+	
+	@Test
+	public void getBackingType_shouldResolveEncounter() {
+		assertThat(dao.getBackingType(ENCOUNTER_UUID, Encounter.class, Visit.class), equalTo(Optional.of(Encounter.class)));
+	}
+	
+	@Test
+	public void getBackingType_shouldResolveVisit() {
+		assertThat(dao.getBackingType(VISIT_UUID, Encounter.class, Visit.class), equalTo(Optional.of(Visit.class)));
+	}
+	
+	@Test
+	public void getBackingType_shouldResolveCondition() throws Exception {
+		executeDataSet(CONDITION_INITIAL_DATA_XML);
+		
+		assertThat(dao.getBackingType(CONDITION_UUID, Condition.class, Diagnosis.class),
+		    equalTo(Optional.of(Condition.class)));
+	}
+	
+	@Test
+	public void getBackingType_shouldResolveDiagnosis() throws Exception {
+		executeDataSet(DIAGNOSIS_INITIAL_DATA_XML);
+		
+		assertThat(dao.getBackingType(DIAGNOSIS_UUID, Condition.class, Diagnosis.class),
+		    equalTo(Optional.of(Diagnosis.class)));
+	}
+	
+	@Test
+	public void getBackingType_shouldResolveProviderAndUser() {
+		assertThat(dao.getBackingType(PROVIDER_UUID, Provider.class, User.class), equalTo(Optional.of(Provider.class)));
+		assertThat(dao.getBackingType(USER_UUID, Provider.class, User.class), equalTo(Optional.of(User.class)));
+	}
+	
+	@Test
+	public void getBackingType_shouldReturnCachedTypeRegardlessOfOrderOfTypes() {
+		dao.getBackingType(VISIT_UUID, Encounter.class, Visit.class);
+		
+		assertThat(dao.getBackingType(VISIT_UUID, Visit.class, Encounter.class), equalTo(Optional.of(Visit.class)));
+	}
+	
+	@Test
+	public void getBackingType_shouldReturnEmptyOptionalForUnknownUuid() {
+		assertThat(dao.getBackingType(UNKNOWN_UUID, Encounter.class, Visit.class), equalTo(Optional.empty()));
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.api.LocationService;
+import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
+import org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class FhirLocationClosureDaoImplTest extends BaseFhirContextSensitiveTest {
+	
+	private static final String LOCATION_INITIAL_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirLocationDaoImplTest_initial_data.xml";
+	
+	private static final String ANCESTOR_LOCATION_UUID = "76cd2d30-2411-44ef-84ea-8b7473256a6a";
+	
+	private static final String GREAT_GRANDCHILD_LOCATION_UUID = "f47ac10b-58cc-4372-a567-0e02b2c3d479";
+	
+	@Autowired
+	private FhirLocationClosureDao locationClosureDao;
+	
+	@Autowired
+	private LocationService locationService;
+	
+	@Autowired
+	private SessionFactory sessionFactory;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet(LOCATION_INITIAL_DATA_XML);
+	}
+	
+	@Test
+	public void updateLocation_shouldRecordEveryAncestorOfLocation() {
+		assertThat(locationClosureDao.isIndexedAbove(GREAT_GRANDCHILD_LOCATION_UUID), is(false));
+		
+		locationClosureDao.updateLocation(locationService.getLocation(12));
+		
+		assertThat(locationClosureDao.isIndexedAbove(GREAT_GRANDCHILD_LOCATION_UUID), is(true));
+		
+		Map<Integer, Integer> ancestors = getAncestors(12);
+		assertThat(ancestors, aMapWithSize(4));
+		assertThat(ancestors, hasEntry(12, 0));
+		assertThat(ancestors, hasEntry(11, 1));
+		assertThat(ancestors, hasEntry(8, 2));
+		assertThat(ancestors, hasEntry(4, 3));
+	}
+	
+	@Test
+	public void updateLocation_shouldMoveDescendantsWhenParentLocationChanges() {
+		for (Location location : locationService.getAllLocations()) {
+			locationClosureDao.updateLocation(location);
+		}
+		
+		Location location = locationService.getLocation(8);
+		location.setParentLocation(locationService.getLocation(5));
+		locationClosureDao.updateLocation(location);
+		
+		Map<Integer, Integer> ancestors = getAncestors(12);
+		assertThat(ancestors, aMapWithSize(4));
+		assertThat(ancestors, hasEntry(11, 1));
+		assertThat(ancestors, hasEntry(8, 2));
+		assertThat(ancestors, hasEntry(5, 3));
+		assertThat(getAncestors(6), equalTo(getAncestorsOf(6, 4)));
+	}
+	
+	@Test
+	public void updateLocation_shouldNotRecordLocationAsItsOwnAncestor() {
+		Location parent = locationService.getLocation(4);
+		Location child = locationService.getLocation(6);
+		locationClosureDao.updateLocation(child);
+		
+		parent.setParentLocation(child);
+		locationClosureDao.updateLocation(parent);
+		
+		assertThat(getAncestors(4), equalTo(getAncestorsOf(4)));
+	}
+	
+	@Test
+	public void isIndexedBelow_shouldReturnFalseIfDescendantIsNotRecorded() {
+		assertThat(locationClosureDao.isIndexedBelow(ANCESTOR_LOCATION_UUID), is(false));
+		
+		locationService.getAllLocations().forEach(locationClosureDao::updateLocation);
+		assertThat(locationClosureDao.isIndexedBelow(ANCESTOR_LOCATION_UUID), is(true));
+		
+		// the closure table is only updated by the module, so this location is not recorded
+		Location location = new Location();
+		location.setName("Test location 13");
+		location.setParentLocation(locationService.getLocation(12));
+		locationService.saveLocation(location);
+		
+		assertThat(locationClosureDao.isIndexedBelow(ANCESTOR_LOCATION_UUID), is(false));
+	}
+	
+	@Test
+	public void isIndexedBelow_shouldReturnFalseIfDescendantWasMovedAway() {
+		locationService.getAllLocations().forEach(locationClosureDao::updateLocation);
+		
+		Location location = locationService.getLocation(11);
+		location.setParentLocation(locationService.getLocation(5));
+		locationService.saveLocation(location);
+		
+		assertThat(locationClosureDao.isIndexedBelow(ANCESTOR_LOCATION_UUID), is(false));
+	}
+	
+	@Test
+	public void isIndexedAbove_shouldReturnFalseIfAncestorWasMoved() {
+		locationService.getAllLocations().forEach(locationClosureDao::updateLocation);
+		assertThat(locationClosureDao.isIndexedAbove(GREAT_GRANDCHILD_LOCATION_UUID), is(true));
+		
+		Location location = locationService.getLocation(8);
+		location.setParentLocation(locationService.getLocation(5));
+		locationService.saveLocation(location);
+		
+		assertThat(locationClosureDao.isIndexedAbove(GREAT_GRANDCHILD_LOCATION_UUID), is(false));
+	}
+	
+	private Map<Integer, Integer> getAncestors(int locationId) {
+		Map<Integer, Integer> ancestors = new HashMap<>();
+		sessionFactory.getCurrentSession()
+		        .createQuery("select c.ancestor.locationId, c.depth from FhirLocationClosure c "
+		                + "where c.descendant.locationId = :id",
+		            Object[].class)
+		        .setParameter("id", locationId).getResultList()
+		        .forEach(row -> ancestors.put((Integer) row[0], (Integer) row[1]));
+		return ancestors;
+	}
+	
+	private static Map<Integer, Integer> getAncestorsOf(int locationId, int... ancestorIds) {
+		Map<Integer, Integer> ancestors = new HashMap<>();
+		ancestors.put(locationId, 0);
+		for (int i = 0; i < ancestorIds.length; i++) {
+			ancestors.put(ancestorIds[i], i + 1);
+		}
+		return ancestors;
+	}
+}
@@ -10,17 +10,38 @@
 package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThrows;
 import static org.openmrs.util.PrivilegeConstants.GET_OBS;
 
+import javax.annotation.Nonnull;
+
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import ca.uhn.fhir.rest.param.NumberParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hl7.fhir.r4.model.Observation;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Obs;
@@ -30,7 +51,11 @@ import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+import org.openmrs.module.fhir2.api.util.ParallelTranslation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 
 public class FhirObservationDaoImplTest extends BaseFhirContextSensitiveTest {
 	
@@ -45,6 +70,13 @@ public class FhirObservationDaoImplTest extends BaseFhirContextSensitiveTest {
 	@Autowired
 	private FhirObservationDao dao;
 	
+	@Autowired
+	private ObservationTranslator translator;
+	
+	@Autowired
+	@Qualifier("sessionFactory")
+	private SessionFactory sessionFactory;
+	
 	@Before
 	public void setup() throws Exception {
 		executeDataSet(OBS_DATA_XML);
@@ -106,6 +138,159 @@ public class FhirObservationDaoImplTest extends BaseFhirContextSensitiveTest {
 		}
 	}
 	
+	@Test
+	public void getSearchResults_shouldReturnMostRecentObsOfEachConceptForLastn() {
+		SearchParameterMap theParams = new SearchParameterMap()
+		        .addParameter(FhirConstants.MAX_SEARCH_HANDLER, new NumberParam(1))
+		        .addParameter(FhirConstants.LASTN_OBSERVATION_SEARCH_HANDLER, new StringParam());
+		
+		List<Obs> results = dao.getSearchResults(theParams);
+		
+		assertThat(results, not(empty()));
+		assertThat(dao.getSearchResultsCount(theParams), equalTo(results.size()));
+		
+		Map<Integer, Date> mostRecent = new HashMap<>();
+		for (Obs obs : dao.getSearchResults(new SearchParameterMap())) {
+			mostRecent.merge(obs.getConcept().getConceptId(), obs.getObsDatetime(), (a, b) -> a.after(b) ? a : b);
+		}
+		
+		Integer previousConceptId = null;
+		for (Obs obs : results) {
+			assertThat(obs.getObsDatetime(), equalTo(mostRecent.get(obs.getConcept().getConceptId())));
+			if (previousConceptId != null) {
+				assertThat(obs.getConcept().getConceptId(), greaterThanOrEqualTo(previousConceptId));
+			}
+			previousConceptId = obs.getConcept().getConceptId();
+		}
+		
+		theParams.setFromIndex(1);
+		theParams.setToIndex(2);
+		assertThat(dao.getSearchResults(theParams), equalTo(results.subList(1, Math.min(2, results.size()))));
+	}
+	
+	@Test
+	public void getSearchResults_shouldRankLastnObsAmongTheMatchingObsOnly() {
+		Obs anyObs = dao.get(OBS_UUID);
+		ReferenceAndListParam patientReference = new ReferenceAndListParam().addAnd(
+		    new ReferenceOrListParam().add(new ReferenceParam().setValue(anyObs.getPerson().getUuid())));
+		SearchParameterMap theParams = new SearchParameterMap()
+		        .addParameter(FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER, patientReference)
+		        .addParameter(FhirConstants.MAX_SEARCH_HANDLER, new NumberParam(2))
+		        .addParameter(FhirConstants.LASTN_OBSERVATION_SEARCH_HANDLER, new StringParam());
+		
+		List<Obs> results = dao.getSearchResults(theParams);
+		
+		// the two most recent distinct times of each concept, among the obs of the patient
+		List<Obs> patientObs = dao.getSearchResults(
+		    new SearchParameterMap().addParameter(FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER, patientReference));
+		Map<Integer, TreeSet<Date>> obsDatetimes = new HashMap<>();
+		for (Obs obs : patientObs) {
+			obsDatetimes.computeIfAbsent(obs.getConcept().getConceptId(), conceptId -> new TreeSet<>())
+			        .add(obs.getObsDatetime());
+		}
+		
+		int expectedSize = 0;
+		for (Obs obs : patientObs) {
+			if (obsDatetimes.get(obs.getConcept().getConceptId()).tailSet(obs.getObsDatetime(), false).size() < 2) {
+				expectedSize++;
+			}
+		}
+		
+		assertThat(results, hasSize(expectedSize));
+		assertThat(dao.getSearchResultsCount(theParams), equalTo(expectedSize));
+		for (Obs obs : results) {
+			assertThat(obs.getPerson().getUuid(), equalTo(anyObs.getPerson().getUuid()));
+			assertThat(obsDatetimes.get(obs.getConcept().getConceptId()).tailSet(obs.getObsDatetime(), false).size(),
+			    lessThan(2));
+		}
+	}
+	
+	@Test
+	public void getSearchResultsCountEstimate_shouldUseOneEstimateForEqualParameters() {
+		AtomicInteger counts = new AtomicInteger();
+		FhirObservationDaoImpl countingDao = new FhirObservationDaoImpl() {
+			
+			@Override
+			public int getSearchResultsCount(@Nonnull SearchParameterMap theParams) {
+				return counts.incrementAndGet();
+			}
+		};
+		countingDao.setCacheManager(new ConcurrentMapCacheManager(FhirConstants.COUNT_ESTIMATE_CACHE));
+		
+		int estimate = countingDao.getSearchResultsCountEstimate(observationSearchParams());
+		
+		assertThat(countingDao.getSearchResultsCountEstimate(observationSearchParams()), equalTo(estimate));
+		assertThat(counts.get(), equalTo(1));
+		
+		SearchParameterMap otherParams = new SearchParameterMap().addParameter(FhirConstants.CODED_SEARCH_HANDLER,
+		    new TokenAndListParam().addAnd(new TokenParam().setValue("5090")));
+		assertThat(countingDao.getSearchResultsCountEstimate(otherParams), not(equalTo(estimate)));
+		assertThat(counts.get(), equalTo(2));
+	}
+	
+	@Test
+	public void initializeForTranslation_shouldLoadAssociationsUsedByTranslator() {
+		Context.flushSession();
+		Context.clearSession();
+		
+		List<Obs> results = dao.getSearchResults(new SearchParameterMap());
+		assertThat(results, not(empty()));
+		
+		dao.initializeForTranslation(results);
+		
+		for (Obs obs : results) {
+			assertThat(Hibernate.isInitialized(obs.getConcept()), equalTo(true));
+			assertThat(Hibernate.isInitialized(obs.getConcept().getNames()), equalTo(true));
+			assertThat(Hibernate.isInitialized(obs.getConcept().getConceptMappings()), equalTo(true));
+			if (obs.getPerson() != null) {
+				assertThat(Hibernate.isInitialized(obs.getPerson()), equalTo(true));
+				assertThat(Hibernate.isInitialized(obs.getPerson().getNames()), equalTo(true));
+			}
+		}
+	}
+	
+	@Test
+	public void initializeForTranslation_shouldDetachResults() {
+		List<Obs> results = dao.getSearchResults(new SearchParameterMap());
+		assertThat(results, not(empty()));
+		
+		dao.initializeForTranslation(results);
+		
+		for (Obs obs : results) {
+			assertThat(sessionFactory.getCurrentSession().contains(obs), equalTo(false));
+		}
+	}
+	
+	@Test
+	public void initializeForTranslation_shouldAllowResultsToBeTranslatedInParallelWithoutSession() {
+		Context.flushSession();
+		Context.clearSession();
+		
+		List<Obs> results = dao.getSearchResults(new SearchParameterMap());
+		assertThat(results, not(empty()));
+		
+		dao.initializeForTranslation(results);
+		Context.clearSession();
+		
+		try {
+			List<Observation> observations = ParallelTranslation.translate(translator, results);
+			
+			assertThat(observations, hasSize(results.size()));
+			for (int i = 0; i < results.size(); i++) {
+				Obs obs = results.get(i);
+				Observation observation = observations.get(i);
+				assertThat(observation.getIdElement().getIdPart(), equalTo(obs.getUuid()));
+				assertThat(observation.getCode().getText(), equalTo(obs.getConcept().getDisplayString()));
+				if (obs.getPerson() != null && obs.getPerson().getIsPatient()) {
+					assertThat(observation.getSubject().getDisplay(), notNullValue());
+				}
+			}
+		}
+		finally {
+			ParallelTranslation.shutdown();
+		}
+	}
+	
 	private static SearchParameterMap observationSearchParams() {
 		TokenAndListParam code = new TokenAndListParam();
 		TokenParam codingToken = new TokenParam();
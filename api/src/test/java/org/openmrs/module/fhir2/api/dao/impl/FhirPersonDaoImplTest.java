@@ -11,11 +11,17 @@ package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hibernate.SessionFactory;
 import org.junit.Before;
@@ -39,6 +45,20 @@ public class FhirPersonDaoImplTest extends BaseFhirContextSensitiveTest {
 	
 	private static final String PERSON_ATTRIBUTE_TYPE_UUID = "14d4f066-15f5-102d-96e4-000c29c2a5d7";
 	
+	private static final String PERSON_ATTRIBUTE_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirPersonDaoImplTest_attribute_data.xml";
+	
+	private static final String OTHER_PERSON_UUID = "5c521595-4e12-46b0-8248-b8f2d3697766";
+	
+	private static final String PERSON_WITHOUT_CONTACT_POINT_UUID = "256ccf6d-6b41-455c-9be2-51ff4386ae76";
+	
+	private static final String CONTACT_POINT_ATTRIBUTE_TYPE_UUID = "c8b2c2a6-0e3b-4a7e-8d07-3c8b0b0f6a11";
+	
+	private static final String RETIRED_CONTACT_POINT_ATTRIBUTE_TYPE_UUID = "e6e5f1c2-7c1d-4a0e-9d9f-5b3c0f6d2b22";
+	
+	private static final String PERSON_CONTACT_POINT_UUID = "5f0a6b3e-2c1d-4e8f-9a7b-1c2d3e4f5a01";
+	
+	private static final String OTHER_PERSON_CONTACT_POINT_UUID = "5f0a6b3e-2c1d-4e8f-9a7b-1c2d3e4f5a03";
+	
 	private FhirPersonDaoImpl fhirPersonDao;
 	
 	@Autowired
@@ -78,6 +98,45 @@ public class FhirPersonDaoImplTest extends BaseFhirContextSensitiveTest {
 		assertThat(attributeList, notNullValue());
 	}
 	
+	@Test
+	public void getActiveAttributesByPersonsAndAttributeTypeUuid_shouldReturnActiveAttributesOfTypeByPersonId()
+	        throws Exception {
+		executeDataSet(PERSON_ATTRIBUTE_DATA_XML);
+		Person person = fhirPersonDao.get(PERSON_UUID);
+		Person otherPerson = fhirPersonDao.get(OTHER_PERSON_UUID);
+		Person personWithoutContactPoint = fhirPersonDao.get(PERSON_WITHOUT_CONTACT_POINT_UUID);
+		
+		Map<Integer, List<PersonAttribute>> result = fhirPersonDao.getActiveAttributesByPersonsAndAttributeTypeUuid(
+		    Arrays.asList(person, otherPerson, personWithoutContactPoint), CONTACT_POINT_ATTRIBUTE_TYPE_UUID);
+		
+		// the voided attribute of the person and the other attribute types of the other person are left out
+		assertThat(result.keySet(), containsInAnyOrder(person.getPersonId(), otherPerson.getPersonId()));
+		assertThat(result.get(person.getPersonId()).stream().map(PersonAttribute::getUuid).collect(Collectors.toList()),
+		    contains(PERSON_CONTACT_POINT_UUID));
+		assertThat(
+		    result.get(otherPerson.getPersonId()).stream().map(PersonAttribute::getUuid).collect(Collectors.toList()),
+		    contains(OTHER_PERSON_CONTACT_POINT_UUID));
+	}
+	
+	@Test
+	public void getActiveAttributesByPersonsAndAttributeTypeUuid_shouldNotReturnAttributesOfRetiredType() throws Exception {
+		executeDataSet(PERSON_ATTRIBUTE_DATA_XML);
+		
+		Map<Integer, List<PersonAttribute>> result = fhirPersonDao.getActiveAttributesByPersonsAndAttributeTypeUuid(
+		    Collections.singletonList(fhirPersonDao.get(PERSON_WITHOUT_CONTACT_POINT_UUID)),
+		    RETIRED_CONTACT_POINT_ATTRIBUTE_TYPE_UUID);
+		
+		assertThat(result.isEmpty(), equalTo(true));
+	}
+	
+	@Test
+	public void getActiveAttributesByPersonsAndAttributeTypeUuid_shouldReturnEmptyMapForNoPersons() {
+		Map<Integer, List<PersonAttribute>> result = fhirPersonDao.getActiveAttributesByPersonsAndAttributeTypeUuid(
+		    Collections.emptyList(), CONTACT_POINT_ATTRIBUTE_TYPE_UUID);
+		
+		assertThat(result.isEmpty(), equalTo(true));
+	}
+	
 	@Test
 	public void delete_shouldVoidPerson() {
 		Person person = fhirPersonDao.delete(PERSON_UUID);
@@ -0,0 +1,104 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Person;
+import org.openmrs.PersonName;
+import org.openmrs.api.PersonService;
+import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameIndexDao;
+import org.springframework.beans.factory.annotation.Autowired;
+
+public class FhirPersonNameIndexDaoImplTest extends BaseFhirContextSensitiveTest {
+	
+	private static final String PATIENT_INITIAL_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirPatientDaoImplTest_initial_data.xml";
+	
+	private static final int PERSON_ID = 6;
+	
+	private static final int PERSON_NAME_ID = 6;
+	
+	@Autowired
+	private FhirPersonNameIndexDao personNameIndexDao;
+	
+	@Autowired
+	private PersonService personService;
+	
+	@Autowired
+	private SessionFactory sessionFactory;
+	
+	@Before
+	public void setup() throws Exception {
+		executeDataSet(PATIENT_INITIAL_DATA_XML);
+	}
+	
+	@Test
+	public void indexPersons_shouldIndexEveryNamePrefixAndSuffix() {
+		Integer last = null;
+		do {
+			last = personNameIndexDao.indexPersons(last, 2);
+		} while (last != null);
+		
+		List<String> tokens = getTokens(PERSON_NAME_ID, 0);
+		assertThat(tokens, hasItems("jeannette", "claudent"));
+		assertThat(getTokens(PERSON_NAME_ID, null), hasItems("nette", "ette", "dent"));
+	}
+	
+	@Test
+	public void indexPersons_shouldReturnNullWhenNoPersonsRemain() {
+		assertThat(personNameIndexDao.indexPersons(Integer.MAX_VALUE - 1, 10), nullValue());
+	}
+	
+	@Test
+	public void updatePerson_shouldNotIndexVoidedNames() {
+		Person person = personService.getPerson(PERSON_ID);
+		personNameIndexDao.updatePerson(person);
+		assertThat(getTokens(PERSON_NAME_ID, 0), hasItem("jeannette"));
+		
+		PersonName name = person.getPersonName();
+		name.setVoided(true);
+		name.setVoidReason("test");
+		personNameIndexDao.updatePerson(person);
+		
+		assertThat(getTokens(PERSON_NAME_ID, null), empty());
+	}
+	
+	@Test
+	public void updatePerson_shouldReplaceTokensWhenNameChanges() {
+		Person person = personService.getPerson(PERSON_ID);
+		personNameIndexDao.updatePerson(person);
+		
+		person.getPersonName().setGivenName("Jos\u00e9e");
+		personNameIndexDao.updatePerson(person);
+		
+		List<String> tokens = getTokens(PERSON_NAME_ID, 0);
+		assertThat(tokens, hasItem("josee"));
+		assertThat(tokens, not(hasItem("jeannette")));
+	}
+	
+	private List<String> getTokens(int personNameId, Integer position) {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("select t.token from FhirPersonNameToken t where t.personNameId = :personNameId"
+		                + (position == null ? "" : " and t.position = " + position),
+		            String.class)
+		        .setParameter("personNameId", personNameId).getResultList();
+	}
+}
@@ -10,14 +10,21 @@
 package org.openmrs.module.fhir2.api.dao.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hibernate.SessionFactory;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.Provider;
 import org.openmrs.ProviderAttribute;
 import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +38,18 @@ public class FhirPractitionerDaoImplTest extends BaseFhirContextSensitiveTest {
 	
 	private static final String PERSON_ATTRIBUTE_TYPE_UUID = "FF89DD99-OOX78-KKG89D-XX89CC8";
 	
+	private static final String PRACTITIONER_ATTRIBUTE_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirPractitionerDaoImplTest_attribute_data.xml";
+	
+	private static final String OTHER_PRACTITIONER_UUID = "f23add80-ab76-11e2-9e96-0800210c9a56";
+	
+	private static final String PRACTITIONER_WITHOUT_CONTACT_POINT_UUID = "f23add80-ab76-11e2-9e96-0803210c9a56";
+	
+	private static final String CONTACT_POINT_ATTRIBUTE_TYPE_UUID = "0b7f3f0e-5d2a-4c1b-8e6f-7a9b0c1d2e11";
+	
+	private static final String PRACTITIONER_CONTACT_POINT_UUID = "9d1e2f3a-4b5c-4d6e-8f7a-0b1c2d3e4f01";
+	
+	private static final String OTHER_PRACTITIONER_CONTACT_POINT_UUID = "9d1e2f3a-4b5c-4d6e-8f7a-0b1c2d3e4f03";
+	
 	@Autowired
 	@Qualifier("sessionFactory")
 	private SessionFactory sessionFactory;
@@ -62,4 +81,33 @@ public class FhirPractitionerDaoImplTest extends BaseFhirContextSensitiveTest {
 		
 		assertThat(attributeList, notNullValue());
 	}
+	
+	@Test
+	public void getActiveAttributesByPractitionersAndAttributeTypeUuid_shouldReturnActiveAttributesOfTypeByProviderId()
+	        throws Exception {
+		executeDataSet(PRACTITIONER_ATTRIBUTE_DATA_XML);
+		Provider provider = dao.get(PRACTITIONER_UUID);
+		Provider otherProvider = dao.get(OTHER_PRACTITIONER_UUID);
+		Provider providerWithoutContactPoint = dao.get(PRACTITIONER_WITHOUT_CONTACT_POINT_UUID);
+		
+		Map<Integer, List<ProviderAttribute>> result = dao.getActiveAttributesByPractitionersAndAttributeTypeUuid(
+		    Arrays.asList(provider, otherProvider, providerWithoutContactPoint), CONTACT_POINT_ATTRIBUTE_TYPE_UUID);
+		
+		// the voided attribute of the provider and the attribute of another type are left out
+		assertThat(result.keySet(), containsInAnyOrder(provider.getProviderId(), otherProvider.getProviderId()));
+		assertThat(
+		    result.get(provider.getProviderId()).stream().map(ProviderAttribute::getUuid).collect(Collectors.toList()),
+		    contains(PRACTITIONER_CONTACT_POINT_UUID));
+		assertThat(
+		    result.get(otherProvider.getProviderId()).stream().map(ProviderAttribute::getUuid).collect(Collectors.toList()),
+		    contains(OTHER_PRACTITIONER_CONTACT_POINT_UUID));
+	}
+	
+	@Test
+	public void getActiveAttributesByPractitionersAndAttributeTypeUuid_shouldReturnEmptyMapForNoProviders() {
+		Map<Integer, List<ProviderAttribute>> result = dao.getActiveAttributesByPractitionersAndAttributeTypeUuid(
+		    Collections.emptyList(), CONTACT_POINT_ATTRIBUTE_TYPE_UUID);
+		
+		assertThat(result.isEmpty(), equalTo(true));
+	}
 }
@@ -0,0 +1,91 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.export;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkExportJobTest {
+	
+	private static final String JOB_ID = "5d1c2d0f-5c35-4a4c-9c0b-3cde1e7d8f10";
+	
+	private BulkExportJob job;
+	
+	@Before
+	public void setup() {
+		job = new BulkExportJob(JOB_ID, BulkExportJob.Level.SYSTEM, null, Arrays.asList("Patient", "Observation"), null,
+		        "http://localhost/ws/fhir2/R4/$export", null, new File(JOB_ID));
+	}
+	
+	@Test
+	public void shouldStayInProgressUntilAllResourceTypesAreDone() {
+		assertThat(job.addOutput("Patient", "Patient.ndjson.gz", 3), is(false));
+		
+		assertThat(job.getStatus(), equalTo(BulkExportJob.Status.IN_PROGRESS));
+		assertThat(job.getCompletedResourceTypes(), equalTo(1));
+		assertThat(job.getCompletedTime(), nullValue());
+	}
+	
+	@Test
+	public void shouldCompleteWhenAllResourceTypesAreDone() {
+		job.addOutput("Patient", "Patient.ndjson.gz", 3);
+		assertThat(job.addOutput("Observation", "Observation.ndjson.gz", 10), is(true));
+		
+		assertThat(job.getStatus(), equalTo(BulkExportJob.Status.COMPLETE));
+		assertThat(job.getCompletedTime(), notNullValue());
+		assertThat(job.getOutputs(), hasSize(2));
+		assertThat(job.getOutputs().get(1).getCount(), equalTo(10L));
+	}
+	
+	@Test
+	public void shouldCompleteWithErrorsWhenSomeResourceTypesFailed() {
+		job.addOutput("Patient", "Patient.ndjson.gz", 3);
+		job.addError("Observation", "failed");
+		
+		assertThat(job.getStatus(), equalTo(BulkExportJob.Status.COMPLETE));
+		assertThat(job.getErrors(), hasEntry("Observation", "failed"));
+	}
+	
+	@Test
+	public void shouldFailWhenAllResourceTypesFailed() {
+		job.addError("Patient", "failed");
+		job.addError("Observation", "failed");
+		
+		assertThat(job.getStatus(), equalTo(BulkExportJob.Status.ERROR));
+		assertThat(job.getOutputs(), hasSize(0));
+	}
+	
+	@Test
+	public void shouldNotCompleteOnceCancelled() {
+		job.cancel();
+		job.addOutput("Patient", "Patient.ndjson.gz", 3);
+		job.addOutput("Observation", "Observation.ndjson.gz", 10);
+		
+		assertThat(job.isCancelled(), is(true));
+		assertThat(job.getStatus(), equalTo(BulkExportJob.Status.CANCELLED));
+	}
+	
+	@Test
+	public void shouldKeepResourceTypesInRequestedOrder() {
+		assertThat(job.getResourceTypes(), contains("Patient", "Observation"));
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.dao.FhirGroupDao;
+import org.openmrs.module.fhir2.api.export.BulkExportJob;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FhirBulkExportServiceImplTest {
+	
+	private static final String GROUP_UUID = "1d64befb-3b2e-48e5-85f5-353d43e23e46";
+	
+	private static final String JOB_ID = "5d1c2d0f-5c35-4a4c-9c0b-3cde1e7d8f10";
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	@Mock
+	private FhirGroupDao groupDao;
+	
+	private FhirBulkExportServiceImpl bulkExportService;
+	
+	@Before
+	public void setup() {
+		bulkExportService = new FhirBulkExportServiceImpl();
+		bulkExportService.setGroupDao(groupDao);
+		bulkExportService.setExportDirectory(temporaryFolder.getRoot());
+	}
+	
+	@After
+	public void tearDown() {
+		bulkExportService.shutdown();
+	}
+	
+	@Test
+	public void startExport_shouldRejectUnsupportedResourceTypes() {
+		assertThrows(InvalidRequestException.class, () -> bulkExportService.startExport(BulkExportJob.Level.SYSTEM, null,
+		    Collections.singletonList("Practitioner"), null, null));
+	}
+	
+	@Test
+	public void startExport_shouldRejectUnknownGroup() {
+		when(groupDao.get(GROUP_UUID)).thenReturn(null);
+		
+		assertThrows(ResourceNotFoundException.class,
+		    () -> bulkExportService.startExport(BulkExportJob.Level.GROUP, GROUP_UUID, null, null, null));
+	}
+	
+	@Test
+	public void startExport_shouldRequireGroupIdForGroupExport() {
+		assertThrows(ResourceNotFoundException.class,
+		    () -> bulkExportService.startExport(BulkExportJob.Level.GROUP, null, null, null, null));
+	}
+	
+	@Test
+	public void getExport_shouldReturnNullForUnknownJob() {
+		assertThat(bulkExportService.getExport(JOB_ID), nullValue());
+	}
+	
+	@Test
+	public void getExportFile_shouldReturnNullForUnknownJob() {
+		assertThat(bulkExportService.getExportFile(JOB_ID, "Patient.ndjson.gz"), nullValue());
+	}
+}
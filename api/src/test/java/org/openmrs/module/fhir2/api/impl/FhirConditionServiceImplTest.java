@@ -19,12 +19,14 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 
 import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.api.SortSpec;
@@ -52,9 +54,11 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.Condition;
+import org.openmrs.Diagnosis;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirDiagnosisService;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
 import org.openmrs.module.fhir2.api.dao.FhirConditionDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProvider;
@@ -98,6 +102,9 @@ public class FhirConditionServiceImplTest {
 	@Mock
 	private FhirDiagnosisService diagnosisService;
 	
+	@Mock
+	private FhirBackingTypeDao backingTypeDao;
+	
 	private Condition openmrsCondition;
 	
 	private org.hl7.fhir.r4.model.Condition fhirCondition;
@@ -115,6 +122,7 @@ public class FhirConditionServiceImplTest {
 		conditionService.setSearchQuery(searchQuery);
 		conditionService.setSearchQueryInclude(searchQueryInclude);
 		conditionService.setDiagnosisService(diagnosisService);
+		conditionService.setBackingTypeDao(backingTypeDao);
 		conditionService.setGlobalPropertyService(globalPropertyService);
 		
 		openmrsCondition = new Condition();
@@ -142,7 +150,6 @@ public class FhirConditionServiceImplTest {
 	
 	@Test
 	public void shouldThrowExceptionWhenGetMissingUuid() {
-		when(diagnosisService.get(WRONG_CONDITION_UUID)).thenThrow(ResourceNotFoundException.class);
 		assertThrows(ResourceNotFoundException.class, () -> conditionService.get(WRONG_CONDITION_UUID));
 	}
 	
@@ -353,8 +360,9 @@ public class FhirConditionServiceImplTest {
 	}
 	
 	@Test
-	public void get_shouldReturnDiagnosisWhenConditionNotFound() {
-		when(dao.get(CONDITION_UUID)).thenReturn(null);
+	public void get_shouldReturnDiagnosisWhenUuidBelongsToDiagnosis() {
+		when(backingTypeDao.getBackingType(CONDITION_UUID, Condition.class, Diagnosis.class))
+		        .thenReturn(Optional.of(Diagnosis.class));
 		org.hl7.fhir.r4.model.Condition diagnosis = new org.hl7.fhir.r4.model.Condition();
 		diagnosis.setId(CONDITION_UUID);
 		when(diagnosisService.get(CONDITION_UUID)).thenReturn(diagnosis);
@@ -362,15 +370,18 @@ public class FhirConditionServiceImplTest {
 		org.hl7.fhir.r4.model.Condition result = conditionService.get(CONDITION_UUID);
 		
 		assertThat(result, equalTo(diagnosis));
+		verify(dao, never()).get(CONDITION_UUID);
 	}
 	
 	@Test
-	public void delete_shouldDelegateToDiagnosisServiceWhenConditionMissing() {
-		when(dao.delete(CONDITION_UUID)).thenReturn(null);
+	public void delete_shouldDelegateToDiagnosisServiceWhenUuidBelongsToDiagnosis() {
+		when(backingTypeDao.getBackingType(CONDITION_UUID, Condition.class, Diagnosis.class))
+		        .thenReturn(Optional.of(Diagnosis.class));
 		
 		conditionService.delete(CONDITION_UUID);
 		
 		verify(diagnosisService).delete(CONDITION_UUID);
+		verify(dao, never()).delete(CONDITION_UUID);
 	}
 	
 	@Test
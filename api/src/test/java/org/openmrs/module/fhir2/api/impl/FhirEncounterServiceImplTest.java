@@ -21,12 +21,15 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 
 import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
@@ -56,9 +59,11 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.Encounter;
+import org.openmrs.Visit;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.FhirVisitService;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
 import org.openmrs.module.fhir2.api.dao.FhirEncounterDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProvider;
@@ -105,6 +110,9 @@ public class FhirEncounterServiceImplTest {
 	@Mock
 	private FhirGlobalPropertyService globalPropertyService;
 	
+	@Mock
+	private FhirBackingTypeDao backingTypeDao;
+	
 	@Mock
 	private SearchQueryInclude<org.hl7.fhir.r4.model.Encounter> searchQueryInclude;
 	
@@ -128,6 +136,7 @@ public class FhirEncounterServiceImplTest {
 		encounterService.setDao(dao);
 		encounterService.setTranslator(encounterTranslator);
 		encounterService.setVisitService(visitService);
+		encounterService.setBackingTypeDao(backingTypeDao);
 		encounterService.setSearchQuery(searchQuery);
 		encounterService.setSearchQueryInclude(searchQueryInclude);
 		
@@ -156,6 +165,8 @@ public class FhirEncounterServiceImplTest {
 	
 	@Test
 	public void get_shouldGetEncounterByUuidFromOpenMrsVisit() {
+		when(backingTypeDao.getBackingType(ENCOUNTER_UUID, Encounter.class, Visit.class))
+		        .thenReturn(Optional.of(Visit.class));
 		when(visitService.get(ENCOUNTER_UUID)).thenReturn(fhirEncounter);
 		
 		org.hl7.fhir.r4.model.Encounter fhirEncounter = encounterService.get(ENCOUNTER_UUID);
@@ -163,6 +174,7 @@ public class FhirEncounterServiceImplTest {
 		assertThat(fhirEncounter, notNullValue());
 		assertThat(fhirEncounter.getId(), notNullValue());
 		assertThat(fhirEncounter.getId(), equalTo(ENCOUNTER_UUID));
+		verify(dao, never()).get(ENCOUNTER_UUID);
 	}
 	
 	@Test(expected = InvalidRequestException.class)
@@ -290,9 +302,13 @@ public class FhirEncounterServiceImplTest {
 	
 	@Test
 	public void delete_shouldDeleteEncounterFromOpenMrsVisit() {
-		when(dao.delete(ENCOUNTER_UUID)).thenReturn(null);
+		when(backingTypeDao.getBackingType(ENCOUNTER_UUID, Encounter.class, Visit.class))
+		        .thenReturn(Optional.of(Visit.class));
 		
 		encounterService.delete(ENCOUNTER_UUID);
+		
+		verify(visitService).delete(ENCOUNTER_UUID);
+		verify(dao, never()).delete(ENCOUNTER_UUID);
 	}
 	
 	@Test
@@ -308,7 +324,6 @@ public class FhirEncounterServiceImplTest {
 		fhirEncounter.setId(ENCOUNTER_UUID);
 		
 		when(dao.getSearchResults(any())).thenReturn(encounters);
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -341,7 +356,6 @@ public class FhirEncounterServiceImplTest {
 		    location);
 		
 		when(dao.getSearchResults(any())).thenReturn(encounters);
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -377,7 +391,6 @@ public class FhirEncounterServiceImplTest {
 		        .addParameter(FhirConstants.PARTICIPANT_REFERENCE_SEARCH_HANDLER, participant);
 		
 		when(dao.getSearchResults(any())).thenReturn(encounters);
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -413,7 +426,6 @@ public class FhirEncounterServiceImplTest {
 		    subject);
 		
 		when(dao.getSearchResults(any())).thenReturn(encounters);
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -441,7 +453,6 @@ public class FhirEncounterServiceImplTest {
 		    FhirConstants.ID_PROPERTY, uuid);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -473,7 +484,6 @@ public class FhirEncounterServiceImplTest {
 		fhirEncounter.setId(ENCOUNTER_UUID);
 		
 		when(dao.getSearchResults(any())).thenReturn(encounters);
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -501,7 +511,6 @@ public class FhirEncounterServiceImplTest {
 		    FhirConstants.LAST_UPDATED_PROPERTY, lastUpdated);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -529,7 +538,6 @@ public class FhirEncounterServiceImplTest {
 		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.INCLUDE_SEARCH_HANDLER, includes);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -557,7 +565,6 @@ public class FhirEncounterServiceImplTest {
 		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.INCLUDE_SEARCH_HANDLER, includes);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -586,7 +593,6 @@ public class FhirEncounterServiceImplTest {
 		    revIncludes);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -615,7 +621,6 @@ public class FhirEncounterServiceImplTest {
 		    revIncludes);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
@@ -645,7 +650,6 @@ public class FhirEncounterServiceImplTest {
 		    hasAndListParam);
 		
 		when(dao.getSearchResults(any())).thenReturn(Collections.singletonList(openMrsEncounter));
-		when(dao.getSearchResultsCount(any())).thenReturn(1);
 		when(encounterTranslator.toFhirResource(openMrsEncounter)).thenReturn(fhirEncounter);
 		when(encounterTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(
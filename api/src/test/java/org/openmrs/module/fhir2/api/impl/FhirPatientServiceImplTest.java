@@ -29,6 +29,8 @@ import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.text.ParseException;
@@ -47,11 +49,13 @@ import ca.uhn.fhir.rest.param.StringAndListParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenAndListParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.CodeableConcept;
 import org.hl7.fhir.r4.model.HumanName;
 import org.hl7.fhir.r4.model.Identifier;
 import org.hl7.fhir.r4.model.Observation;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -72,6 +76,7 @@ import org.openmrs.module.fhir2.api.search.param.OpenmrsPatientSearchParams;
 import org.openmrs.module.fhir2.api.search.param.PatientSearchParams;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.PatientTranslator;
+import org.openmrs.module.fhir2.api.util.ConditionalReadContext;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FhirPatientServiceImplTest {
@@ -181,6 +186,11 @@ public class FhirPatientServiceImplTest {
 		fhirPatient.addName(humanName);
 	}
 	
+	@After
+	public void tearDown() {
+		ConditionalReadContext.clear();
+	}
+	
 	@Test
 	public void getPatientByUuid_shouldRetrievePatientByUuid() {
 		when(dao.get(PATIENT_UUID)).thenReturn(patient);
@@ -193,6 +203,36 @@ public class FhirPatientServiceImplTest {
 		assertThat(result.getId(), equalTo(PATIENT_UUID));
 	}
 	
+	@Test(expected = NotModifiedException.class)
+	public void getPatientByUuid_shouldThrowNotModifiedWithoutLoadingPatientIfVersionMatches() {
+		Date lastUpdated = new Date();
+		ConditionalReadContext.set(FhirConstants.PATIENT, PATIENT_UUID,
+		    Collections.singletonList(String.valueOf(lastUpdated.getTime())), null);
+		when(dao.getLastUpdated(PATIENT_UUID)).thenReturn(lastUpdated);
+		
+		try {
+			patientService.get(PATIENT_UUID);
+		}
+		finally {
+			verify(dao, never()).get(PATIENT_UUID);
+		}
+	}
+	
+	@Test
+	public void getPatientByUuid_shouldRetrievePatientIfVersionDoesNotMatch() {
+		Date lastUpdated = new Date();
+		ConditionalReadContext.set(FhirConstants.PATIENT, PATIENT_UUID,
+		    Collections.singletonList(String.valueOf(lastUpdated.getTime() - 1000)), null);
+		when(dao.getLastUpdated(PATIENT_UUID)).thenReturn(lastUpdated);
+		when(dao.get(PATIENT_UUID)).thenReturn(patient);
+		when(patientTranslator.toFhirResource(patient)).thenReturn(fhirPatient);
+		
+		org.hl7.fhir.r4.model.Patient result = patientService.get(PATIENT_UUID);
+		
+		assertThat(result, notNullValue());
+		assertThat(result.getId(), equalTo(PATIENT_UUID));
+	}
+	
 	@Test
 	public void getById_shouldReturnPatientById() {
 		when(dao.getPatientById(1)).thenReturn(patient);
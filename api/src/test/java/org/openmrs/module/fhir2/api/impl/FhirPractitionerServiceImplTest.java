@@ -23,16 +23,17 @@ import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
-import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openmrs.module.fhir2.FhirConstants.FAMILY_PROPERTY;
 import static org.openmrs.module.fhir2.FhirConstants.NAME_PROPERTY;
 import static org.openmrs.module.fhir2.FhirConstants.NAME_SEARCH_HANDLER;
 
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 
 import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
@@ -59,7 +60,9 @@ import org.openmrs.User;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.FhirUserService;
+import org.openmrs.module.fhir2.api.dao.FhirBackingTypeDao;
 import org.openmrs.module.fhir2.api.dao.FhirPractitionerDao;
+import org.openmrs.module.fhir2.api.dao.FhirUserDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
 import org.openmrs.module.fhir2.api.search.SearchQueryBundleProvider;
 import org.openmrs.module.fhir2.api.search.SearchQueryInclude;
@@ -141,7 +144,13 @@ public class FhirPractitionerServiceImplTest {
 	private FhirUserService userService;
 	
 	@Mock
-	private SearchQueryBundleProvider<User, Practitioner> userPractitionerSearchQueryBundleProvider;
+	private FhirBackingTypeDao backingTypeDao;
+	
+	@Mock
+	private FhirUserDao userDao;
+	
+	@Mock
+	private PractitionerTranslator<User> userTranslator;
 	
 	private FhirPractitionerServiceImpl practitionerService;
 	
@@ -160,6 +169,7 @@ public class FhirPractitionerServiceImplTest {
 		practitionerService.setTranslator(practitionerTranslator);
 		practitionerService.setSearchQuery(searchQuery);
 		practitionerService.setUserService(userService);
+		practitionerService.setBackingTypeDao(backingTypeDao);
 		practitionerService.setSearchQueryInclude(searchQueryInclude);
 		practitionerService.setGlobalPropertyService(globalPropertyService);
 		
@@ -197,14 +207,14 @@ public class FhirPractitionerServiceImplTest {
 	
 	@Test
 	public void shouldRetrievePractitionerByUuidWhoIsUser() {
-		when(practitionerDao.get(UUID2)).thenReturn(null);
-		
+		when(backingTypeDao.getBackingType(UUID2, Provider.class, User.class)).thenReturn(Optional.of(User.class));
 		when(userService.get(UUID2)).thenReturn(practitioner2);
 		
 		Practitioner result = practitionerService.get(UUID2);
 		assertThat(result, notNullValue());
 		assertThat(result.getId(), notNullValue());
 		assertThat(result.getId(), equalTo(UUID2));
+		verify(practitionerDao, never()).get(UUID2);
 	}
 	
 	@Test
@@ -257,7 +267,6 @@ public class FhirPractitionerServiceImplTest {
 		SearchParameterMap theParams = new SearchParameterMap().addParameter(NAME_SEARCH_HANDLER, NAME_PROPERTY, name);
 		
 		when(practitionerDao.getSearchResults(any())).thenReturn(Collections.singletonList(provider));
-		when(practitionerDao.getSearchResultsCount(any())).thenReturn(1);
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SearchQueryBundleProvider<>(theParams,
 		        practitionerDao, practitionerTranslator, globalPropertyService, searchQueryInclude));
 		when(searchQueryInclude.getIncludedResources(any(), any())).thenReturn(Collections.emptySet());
@@ -346,7 +355,6 @@ public class FhirPractitionerServiceImplTest {
 		    FhirConstants.GIVEN_PROPERTY, givenName);
 		
 		when(practitionerDao.getSearchResults(any())).thenReturn(Collections.singletonList(provider));
-		when(practitionerDao.getSearchResultsCount(any())).thenReturn(1);
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SearchQueryBundleProvider<>(theParams,
 		        practitionerDao, practitionerTranslator, globalPropertyService, searchQueryInclude));
 		when(searchQueryInclude.getIncludedResources(any(), any())).thenReturn(Collections.emptySet());
@@ -438,7 +446,6 @@ public class FhirPractitionerServiceImplTest {
 		    familyName);
 		
 		when(practitionerDao.getSearchResults(any())).thenReturn(singletonList(provider));
-		when(practitionerDao.getSearchResultsCount(any())).thenReturn(1);
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SearchQueryBundleProvider<>(theParams,
 		        practitionerDao, practitionerTranslator, globalPropertyService, searchQueryInclude));
 		when(searchQueryInclude.getIncludedResources(any(), any())).thenReturn(Collections.emptySet());
@@ -754,7 +761,6 @@ public class FhirPractitionerServiceImplTest {
 		    revIncludes);
 		
 		when(practitionerDao.getSearchResults(any())).thenReturn(singletonList(provider));
-		when(practitionerDao.getSearchResultsCount(any())).thenReturn(1);
 		when(searchQueryInclude.getIncludedResources(any(), any())).thenReturn(Collections.singleton(new Encounter()));
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SearchQueryBundleProvider<>(theParams,
 		        practitionerDao, practitionerTranslator, globalPropertyService, searchQueryInclude));
@@ -782,7 +788,6 @@ public class FhirPractitionerServiceImplTest {
 		    revIncludes);
 		
 		when(practitionerDao.getSearchResults(any())).thenReturn(singletonList(provider));
-		when(practitionerDao.getSearchResultsCount(any())).thenReturn(1);
 		when(searchQueryInclude.getIncludedResources(any(), any())).thenReturn(Collections.emptySet());
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SearchQueryBundleProvider<>(theParams,
 		        practitionerDao, practitionerTranslator, globalPropertyService, searchQueryInclude));
@@ -809,17 +814,18 @@ public class FhirPractitionerServiceImplTest {
 		    revIncludes);
 		
 		when(practitionerDao.getSearchResults(any())).thenReturn(singletonList(provider));
-		when(practitionerDao.getSearchResultsCount(any())).thenReturn(1);
 		when(searchQueryInclude.getIncludedResources(any(), any())).thenReturn(Collections.singleton(new Encounter()));
 		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SearchQueryBundleProvider<>(theParams,
 		        practitionerDao, practitionerTranslator, globalPropertyService, searchQueryInclude));
 		when(practitionerTranslator.toFhirResource(provider)).thenReturn(practitioner);
 		when(practitionerTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
-		when(userService.searchForUsers(any())).thenReturn(userPractitionerSearchQueryBundleProvider);
 		
-		when(userPractitionerSearchQueryBundleProvider.size()).thenReturn(1);
-		when(userPractitionerSearchQueryBundleProvider.getResources(anyInt(), anyInt()))
-		        .thenReturn(Arrays.asList(practitioner2, new Encounter()));
+		User user = new User();
+		when(userDao.getSearchResults(any())).thenReturn(singletonList(user));
+		when(userTranslator.toFhirResource(user)).thenReturn(practitioner2);
+		when(userTranslator.toFhirResources(anyCollection())).thenCallRealMethod();
+		when(userService.searchForUsers(any())).thenReturn(
+		    new SearchQueryBundleProvider<>(theParams, userDao, userTranslator, globalPropertyService, searchQueryInclude));
 		
 		IBundleProvider results = practitionerService.searchForPractitioners(
 		    new PractitionerSearchParams(null, null, null, null, null, null, null, null, null, null, revIncludes));
@@ -10,30 +10,44 @@
 package org.openmrs.module.fhir2.api.impl;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Task;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.GlobalProperty;
+import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.dao.FhirTaskDao;
 import org.openmrs.module.fhir2.api.search.SearchQuery;
@@ -42,6 +56,7 @@ import org.openmrs.module.fhir2.api.search.SearchQueryInclude;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.search.param.TaskSearchParams;
 import org.openmrs.module.fhir2.api.translators.TaskTranslator;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
 import org.openmrs.module.fhir2.model.FhirTask;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -86,6 +101,11 @@ public class FhirTaskServiceImplTest {
 	
 	private FhirTaskServiceImpl fhirTaskService;
 	
+	@After
+	public void resetGlobalProperties() {
+		FhirGlobalPropertyHolder.reset();
+	}
+	
 	@Before
 	public void setUp() {
 		fhirTaskService = new FhirTaskServiceImpl() {
@@ -226,4 +246,61 @@ public class FhirTaskServiceImplTest {
 		assertThat(resultList, not(empty()));
 		assertThat(resultList, hasItem(hasProperty("id", equalTo(TASK_UUID))));
 	}
+	
+	@Test
+	public void searchForTasks_shouldReturnMatchingTasksWithoutWaiting() {
+		Task task = new Task();
+		task.setId(TASK_UUID);
+		when(searchQuery.getQueryResults(any(), any(), any(), any()))
+		        .thenReturn(new SimpleBundleProvider(Collections.singletonList(task)));
+		
+		IBundleProvider results = fhirTaskService.searchForTasks(new TaskSearchParams(), 30);
+		
+		assertThat(get(results), contains(task));
+		verify(searchQuery, times(1)).getQueryResults(any(), any(), any(), any());
+	}
+	
+	@Test
+	public void searchForTasks_shouldSearchAgainWhenTaskIsCreated() throws Exception {
+		Task task = new Task();
+		task.setId(TASK_UUID);
+		FhirTask openmrsTask = new FhirTask();
+		openmrsTask.setUuid(TASK_UUID);
+		
+		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SimpleBundleProvider())
+		        .thenReturn(new SimpleBundleProvider(Collections.singletonList(task)));
+		when(translator.toOpenmrsType(task)).thenReturn(openmrsTask);
+		when(dao.createOrUpdate(openmrsTask)).thenReturn(openmrsTask);
+		when(translator.toFhirResource(openmrsTask)).thenReturn(task);
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<IBundleProvider> search = executor
+			        .submit(() -> fhirTaskService.searchForTasks(new TaskSearchParams(), 30));
+			
+			verify(searchQuery, timeout(5000)).getQueryResults(any(), any(), any(), any());
+			fhirTaskService.create(task);
+			
+			assertThat(get(search.get(5, TimeUnit.SECONDS)), contains(task));
+			verify(searchQuery, times(2)).getQueryResults(any(), any(), any(), any());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void searchForTasks_shouldReturnEmptyResultsOnceTheMaximumWaitHasPassed() {
+		new FhirGlobalPropertyHolder()
+		        .globalPropertyChanged(new GlobalProperty(FhirConstants.OPENMRS_FHIR_TASK_SEARCH_MAX_WAIT, "1"));
+		when(searchQuery.getQueryResults(any(), any(), any(), any())).thenReturn(new SimpleBundleProvider());
+		
+		long start = System.currentTimeMillis();
+		IBundleProvider results = fhirTaskService.searchForTasks(new TaskSearchParams(), 600);
+		long elapsed = System.currentTimeMillis() - start;
+		
+		assertThat(results.isEmpty(), equalTo(true));
+		assertThat(elapsed, greaterThanOrEqualTo(900L));
+		assertThat(elapsed, lessThan(TimeUnit.SECONDS.toMillis(10)));
+	}
 }
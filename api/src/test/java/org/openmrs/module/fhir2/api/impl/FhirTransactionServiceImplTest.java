@@ -0,0 +1,229 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirEncounterService;
+import org.openmrs.module.fhir2.api.FhirObservationService;
+import org.openmrs.module.fhir2.api.FhirPatientService;
+import org.openmrs.module.fhir2.api.util.ReferenceLookupContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FhirTransactionServiceImplTest {
+	
+	private static final String PATIENT_UUID = "5946f880-b197-400b-9caa-a3c661d23041";
+	
+	private static final String ENCOUNTER_UUID = "6519d653-393b-4118-9c83-a3715b82d4ac";
+	
+	private static final String OBSERVATION_UUID = "39fb7f47-e80a-4056-9285-bd798be13c63";
+	
+	private static final String ENCOUNTER_FULL_URL = "urn:uuid:0f6c4d6a-7d3e-4d89-a5d6-2b1f3f0c6b52";
+	
+	private static final String OBSERVATION_FULL_URL = "urn:uuid:3e0d1c5c-8c2b-4a8c-9a1e-5d0bfc6e1a77";
+	
+	@Mock
+	private SessionFactory sessionFactory;
+	
+	@Mock
+	private Session session;
+	
+	@Mock
+	private FhirPatientService patientService;
+	
+	@Mock
+	private FhirEncounterService encounterService;
+	
+	@Mock
+	private FhirObservationService observationService;
+	
+	private FhirTransactionServiceImpl transactionService;
+	
+	@Before
+	public void setup() {
+		transactionService = new FhirTransactionServiceImpl();
+		transactionService.setFhirContext(FhirContext.forR4Cached());
+		transactionService.setSessionFactory(sessionFactory);
+		transactionService.setPatientService(patientService);
+		transactionService.setEncounterService(encounterService);
+		transactionService.setObservationService(observationService);
+	}
+	
+	@Test
+	public void processTransaction_shouldCreateReferencedEntriesFirstAndResolveTheirReferences() {
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		
+		Observation observation = new Observation();
+		observation.setEncounter(new Reference(ENCOUNTER_FULL_URL));
+		observation.setSubject(new Reference("Patient/" + PATIENT_UUID));
+		
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.TRANSACTION);
+		addEntry(bundle, OBSERVATION_FULL_URL, observation, Bundle.HTTPVerb.POST, "Observation");
+		addEntry(bundle, ENCOUNTER_FULL_URL, new Encounter(), Bundle.HTTPVerb.POST, "Encounter");
+		addEntry(bundle, null, null, Bundle.HTTPVerb.DELETE, "Patient/" + PATIENT_UUID);
+		
+		Encounter createdEncounter = new Encounter();
+		createdEncounter.setId(ENCOUNTER_UUID);
+		when(encounterService.create(any(Encounter.class))).thenReturn(createdEncounter);
+		
+		Observation createdObservation = new Observation();
+		createdObservation.setId(OBSERVATION_UUID);
+		when(observationService.create(any(Observation.class))).thenReturn(createdObservation);
+		
+		Bundle response = transactionService.processTransaction(bundle);
+		
+		InOrder inOrder = inOrder(patientService, encounterService, observationService);
+		inOrder.verify(patientService).delete(PATIENT_UUID);
+		inOrder.verify(encounterService).create(any(Encounter.class));
+		ArgumentCaptor<Observation> observationCaptor = ArgumentCaptor.forClass(Observation.class);
+		inOrder.verify(observationService).create(observationCaptor.capture());
+		
+		assertThat(observationCaptor.getValue().getEncounter().getReference(), equalTo("Encounter/" + ENCOUNTER_UUID));
+		assertThat(observationCaptor.getValue().getSubject().getReference(), equalTo("Patient/" + PATIENT_UUID));
+		
+		assertThat(response.getType(), equalTo(Bundle.BundleType.TRANSACTIONRESPONSE));
+		assertThat(response.getEntry(), hasSize(3));
+		assertThat(response.getEntry().get(0).getResponse().getStatus(), equalTo("201 Created"));
+		assertThat(response.getEntry().get(0).getResponse().getLocation(), equalTo("Observation/" + OBSERVATION_UUID));
+		assertThat(response.getEntry().get(1).getResponse().getLocation(), equalTo("Encounter/" + ENCOUNTER_UUID));
+		assertThat(response.getEntry().get(2).getResponse().getStatus(), equalTo("204 No Content"));
+		verify(session).setJdbcBatchSize(50);
+	}
+	
+	@Test
+	public void processTransaction_shouldFailWhenAnyEntryFails() {
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		when(patientService.get(PATIENT_UUID)).thenThrow(new ResourceNotFoundException("Patient/" + PATIENT_UUID));
+		
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.TRANSACTION);
+		addEntry(bundle, null, new Encounter(), Bundle.HTTPVerb.PUT, "Encounter/" + ENCOUNTER_UUID);
+		addEntry(bundle, null, null, Bundle.HTTPVerb.GET, "Patient/" + PATIENT_UUID);
+		
+		when(encounterService.update(any(), any(Encounter.class))).thenReturn(new Encounter());
+		
+		assertThrows(ResourceNotFoundException.class, () -> transactionService.processTransaction(bundle));
+	}
+	
+	@Test
+	public void processTransaction_shouldRejectCircularReferences() {
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		
+		Observation first = new Observation();
+		first.addHasMember(new Reference(ENCOUNTER_FULL_URL));
+		Observation second = new Observation();
+		second.addHasMember(new Reference(OBSERVATION_FULL_URL));
+		
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.TRANSACTION);
+		addEntry(bundle, OBSERVATION_FULL_URL, first, Bundle.HTTPVerb.POST, "Observation");
+		addEntry(bundle, ENCOUNTER_FULL_URL, second, Bundle.HTTPVerb.POST, "Observation");
+		
+		assertThrows(InvalidRequestException.class, () -> transactionService.processTransaction(bundle));
+		verify(observationService, never()).create(any());
+	}
+	
+	@Test
+	public void processBatch_shouldReportFailedEntriesAndProcessTheRemainingEntries() {
+		when(patientService.get(PATIENT_UUID)).thenThrow(new ResourceNotFoundException("Patient/" + PATIENT_UUID));
+		Encounter encounter = new Encounter();
+		encounter.setId(ENCOUNTER_UUID);
+		when(encounterService.get(ENCOUNTER_UUID)).thenReturn(encounter);
+		
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+		addEntry(bundle, null, null, Bundle.HTTPVerb.GET, "Patient/" + PATIENT_UUID);
+		addEntry(bundle, null, null, Bundle.HTTPVerb.GET, "Encounter/" + ENCOUNTER_UUID);
+		addEntry(bundle, null, new Patient(), Bundle.HTTPVerb.POST, "Unknown");
+		
+		Bundle response = transactionService.processBatch(bundle);
+		
+		assertThat(response.getType(), equalTo(Bundle.BundleType.BATCHRESPONSE));
+		assertThat(response.getEntry(), hasSize(3));
+		assertThat(response.getEntry().get(0).getResponse().getStatus(), equalTo("404 Not Found"));
+		assertThat(response.getEntry().get(0).getResponse().getOutcome(), notNullValue());
+		assertThat(response.getEntry().get(1).getResponse().getStatus(), equalTo("200 OK"));
+		assertThat(response.getEntry().get(1).getResource(), sameInstance(encounter));
+		assertThat(response.getEntry().get(2).getResponse().getStatus(), equalTo("400 Bad Request"));
+	}
+	
+	@Test
+	public void processBatch_shouldResolveReferencesAgainAfterAFailedEntry() {
+		AtomicInteger patientLookups = new AtomicInteger();
+		AtomicInteger creates = new AtomicInteger();
+		when(observationService.create(any(Observation.class))).thenAnswer(invocation -> {
+			ReferenceLookupContext.lookup(org.openmrs.Patient.class, PATIENT_UUID, uuid -> {
+				patientLookups.incrementAndGet();
+				return new org.openmrs.Patient();
+			});
+			
+			if (creates.incrementAndGet() == 1) {
+				throw new InvalidRequestException("Invalid Observation");
+			}
+			
+			Observation createdObservation = new Observation();
+			createdObservation.setId(OBSERVATION_UUID);
+			return createdObservation;
+		});
+		
+		Observation first = new Observation();
+		first.setSubject(new Reference("Patient/" + PATIENT_UUID));
+		Observation second = new Observation();
+		second.setSubject(new Reference("Patient/" + PATIENT_UUID));
+		
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+		addEntry(bundle, null, first, Bundle.HTTPVerb.POST, "Observation");
+		addEntry(bundle, null, second, Bundle.HTTPVerb.POST, "Observation");
+		
+		Bundle response = transactionService.processBatch(bundle);
+		
+		assertThat(response.getEntry().get(0).getResponse().getStatus(), equalTo("400 Bad Request"));
+		assertThat(response.getEntry().get(1).getResponse().getStatus(), equalTo("201 Created"));
+		assertThat(patientLookups.get(), equalTo(2));
+	}
+	
+	@Test
+	public void processBatch_shouldRejectTransactionBundles() {
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.TRANSACTION);
+		
+		assertThrows(InvalidRequestException.class, () -> transactionService.processBatch(bundle));
+	}
+	
+	private static void addEntry(Bundle bundle, String fullUrl, Resource resource, Bundle.HTTPVerb method, String url) {
+		bundle.addEntry().setFullUrl(fullUrl).setResource(resource).getRequest().setMethod(method).setUrl(url);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EverythingBundleProviderTest {
+	
+	private static final String NEXT_PAGE_ID = "MX4xMA";
+	
+	private static final Date SINCE = new Date(1_600_000_000_000L);
+	
+	@Mock
+	private NamedPageBundleProvider delegate;
+	
+	@Mock
+	private NamedPageBundleProvider nextPage;
+	
+	@Test
+	public void shouldReturnAllResourcesWithoutSince() {
+		IBaseResource older = patient("older", new Date(SINCE.getTime() - 1));
+		IBaseResource newer = patient("newer", new Date(SINCE.getTime() + 1));
+		when(delegate.getResources(0, 10)).thenReturn(Arrays.asList(older, newer));
+		
+		List<IBaseResource> result = new EverythingBundleProvider(delegate, null).getResources(0, 10);
+		
+		assertThat(result, contains(older, newer));
+	}
+	
+	@Test
+	public void shouldOnlyReturnResourcesUpdatedSince() {
+		IBaseResource older = patient("older", new Date(SINCE.getTime() - 1));
+		IBaseResource same = patient("same", SINCE);
+		IBaseResource unknown = patient("unknown", null);
+		when(delegate.getResources(0, 10)).thenReturn(Arrays.asList(older, same, unknown));
+		
+		List<IBaseResource> result = new EverythingBundleProvider(delegate, SINCE).getResources(0, 10);
+		
+		assertThat(result, contains(same, unknown));
+	}
+	
+	@Test
+	public void shouldNotReportATotal() {
+		assertThat(new EverythingBundleProvider(delegate, null).size(), nullValue());
+	}
+	
+	@Test
+	public void shouldWrapNextPage() {
+		IBaseResource newer = patient("newer", new Date(SINCE.getTime() + 1));
+		IBaseResource older = patient("older", new Date(SINCE.getTime() - 1));
+		when(delegate.getNextPageId()).thenReturn(NEXT_PAGE_ID);
+		when(delegate.getPage(NEXT_PAGE_ID)).thenReturn(nextPage);
+		when(nextPage.getResources(0, 10)).thenReturn(Arrays.asList(newer, older));
+		
+		EverythingBundleProvider provider = new EverythingBundleProvider(delegate, SINCE);
+		assertThat(provider.getNextPageId(), equalTo(NEXT_PAGE_ID));
+		
+		IBundleProvider page = provider.getPage(NEXT_PAGE_ID);
+		
+		assertThat(page, instanceOf(EverythingBundleProvider.class));
+		assertThat(page.getResources(0, 10), contains(newer));
+	}
+	
+	@Test
+	public void shouldReturnNullForUnknownPage() {
+		when(delegate.getPage(NEXT_PAGE_ID)).thenReturn(null);
+		
+		assertThat(new EverythingBundleProvider(delegate, null).getPage(NEXT_PAGE_ID), is(nullValue()));
+	}
+	
+	private static Patient patient(String id, Date lastUpdated) {
+		Patient patient = new Patient();
+		patient.setId(id);
+		patient.getMeta().setLastUpdated(lastUpdated);
+		return patient;
+	}
+}
@@ -23,8 +23,10 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -48,8 +50,11 @@ import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Location;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.api.LocationService;
 import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
 import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirLocationClosureDao;
 import org.openmrs.module.fhir2.api.dao.FhirLocationDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.LocationTranslator;
@@ -97,6 +102,8 @@ public class LocationSearchQueryTest extends BaseFhirContextSensitiveTest {
 	
 	private static final String LOCATION_ANCESTOR_TEST_UUID = "76cd2d30-2411-44ef-84ea-8b7473256a6a";
 	
+	private static final String LOCATION_DESCENDANT_TEST_UUID = "f47ac10b-58cc-4372-a567-0e02b2c3d479";
+	
 	private static final String DATE_CREATED = "2005-01-01";
 	
 	private static final String DATE_CHANGED = "2010-03-31";
@@ -121,6 +128,15 @@ public class LocationSearchQueryTest extends BaseFhirContextSensitiveTest {
 	@Autowired
 	private LocationTranslator translator;
 	
+	@Autowired
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	@Autowired
+	private FhirLocationClosureDao locationClosureDao;
+	
+	@Autowired
+	private LocationService locationService;
+	
 	@Before
 	public void setup() throws Exception {
 		executeDataSet(INITIAL_XML_DATASET_PACKAGE_PATH);
@@ -777,6 +793,106 @@ public class LocationSearchQueryTest extends BaseFhirContextSensitiveTest {
 		assertThat(locationNames, hasItem("Test location 12")); // great grandchild element
 	}
 	
+	@Test
+	public void searchForLocations_shouldReturnCorrectLocationsByAncestorUUIDFromClosureTable() {
+		locationService.getAllLocations().forEach(locationClosureDao::updateLocation);
+		
+		ReferenceParam param = new ReferenceParam("below", null, LOCATION_ANCESTOR_TEST_UUID);
+		ReferenceAndListParam ancestorLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam().add(param));
+		
+		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.LOCATION_REFERENCE_SEARCH_HANDLER,
+		    ancestorLocation);
+		
+		IBundleProvider locations = search(theParams);
+		
+		assertThat(locations, notNullValue());
+		assertThat(locations.size(), equalTo(4));
+		
+		List<String> locationNames = get(locations).stream().map(Location::getName).collect(Collectors.toList());
+		assertThat(locationNames, not(hasItem("Test location 4")));
+		assertThat(locationNames, hasItem("Test location 6"));
+		assertThat(locationNames, hasItem("Test location 8"));
+		assertThat(locationNames, hasItem("Test location 11"));
+		assertThat(locationNames, hasItem("Test location 12"));
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnLocationsMissingFromClosureTableByAncestorUUID() {
+		locationService.getAllLocations().forEach(locationClosureDao::updateLocation);
+		
+		// the closure table is only updated by the module, so this location is not recorded
+		org.openmrs.Location location = new org.openmrs.Location();
+		location.setName("Test location 13");
+		location.setParentLocation(locationService.getLocation(12));
+		locationService.saveLocation(location);
+		
+		ReferenceParam param = new ReferenceParam("below", null, LOCATION_ANCESTOR_TEST_UUID);
+		ReferenceAndListParam ancestorLocation = new ReferenceAndListParam().addAnd(new ReferenceOrListParam().add(param));
+		
+		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.LOCATION_REFERENCE_SEARCH_HANDLER,
+		    ancestorLocation);
+		
+		IBundleProvider locations = search(theParams);
+		
+		assertThat(locations, notNullValue());
+		assertThat(locations.size(), equalTo(5));
+		
+		List<String> locationNames = get(locations).stream().map(Location::getName).collect(Collectors.toList());
+		assertThat(locationNames, hasItem("Test location 12"));
+		assertThat(locationNames, hasItem("Test location 13"));
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnCorrectLocationsByDescendantUUID() {
+		ReferenceParam param = new ReferenceParam("above", null, LOCATION_DESCENDANT_TEST_UUID);
+		ReferenceAndListParam descendantLocation = new ReferenceAndListParam()
+		        .addAnd(new ReferenceOrListParam().add(param));
+		
+		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.LOCATION_REFERENCE_SEARCH_HANDLER,
+		    descendantLocation);
+		
+		List<String> unindexedNames = get(search(theParams)).stream().map(Location::getName).collect(Collectors.toList());
+		
+		locationService.getAllLocations().forEach(locationClosureDao::updateLocation);
+		
+		List<String> indexedNames = get(search(theParams)).stream().map(Location::getName).collect(Collectors.toList());
+		
+		for (List<String> locationNames : Arrays.asList(unindexedNames, indexedNames)) {
+			assertThat(locationNames, hasSize(equalTo(3)));
+			assertThat(locationNames, not(hasItem("Test location 12")));
+			assertThat(locationNames, hasItem("Test location 11"));
+			assertThat(locationNames, hasItem("Test location 8"));
+			assertThat(locationNames, hasItem("Test location 4"));
+		}
+	}
+	
+	@Test
+	public void searchForLocations_shouldReturnSamePagesWithKeysetPagingAsWithOffsets() {
+		SortSpec sort = new SortSpec();
+		sort.setParamName("name");
+		sort.setOrder(SortOrderEnum.DESC);
+		
+		List<String> expectedIds = search(new SearchParameterMap().setSortSpec(sort)).getAllResources().stream()
+		        .map(it -> ((Location) it).getIdPart()).collect(Collectors.toList());
+		
+		IBundleProvider page = new SearchQueryBundleProvider<>(new SearchParameterMap().setSortSpec(sort), fhirLocationDao,
+		        translator, globalPropertyService, searchQueryInclude, true);
+		
+		List<String> keysetIds = new ArrayList<>();
+		String nextPageId;
+		do {
+			page.getResources(0, 3).stream().map(it -> ((Location) it).getIdPart()).forEach(keysetIds::add);
+			nextPageId = page.getNextPageId();
+			
+			if (nextPageId != null) {
+				page = ((NamedPageBundleProvider) page).getPage(nextPageId);
+			}
+		} while (nextPageId != null);
+		
+		assertThat(keysetIds, equalTo(expectedIds));
+		assertThat(page.getNextPageId(), nullValue());
+	}
+	
 	private List<Location> getLocationListWithoutNulls(SortSpec sort) {
 		SearchParameterMap theParams = new SearchParameterMap().setSortSpec(sort);
 		IBundleProvider locations = search(theParams);
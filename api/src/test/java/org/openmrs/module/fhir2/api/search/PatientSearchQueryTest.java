@@ -25,11 +25,13 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.hl7.fhir.r4.model.Patient.SP_FAMILY;
 import static org.hl7.fhir.r4.model.Patient.SP_GIVEN;
 import static org.openmrs.module.fhir2.matchers.FhirMatchers.isDeceased;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -57,11 +59,15 @@ import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.ServiceRequest;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
+import org.openmrs.module.fhir2.api.dao.FhirPersonNameIndexDao;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.PatientTranslator;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class PatientSearchQueryTest extends BaseFhirContextSensitiveTest {
@@ -143,6 +149,9 @@ public class PatientSearchQueryTest extends BaseFhirContextSensitiveTest {
 	@Autowired
 	private SearchQueryInclude<Patient> searchQueryInclude;
 	
+	@Autowired
+	private FhirPersonNameIndexDao personNameIndexDao;
+	
 	@Autowired
 	private SearchQuery<org.openmrs.Patient, Patient, FhirPatientDao, PatientTranslator, SearchQueryInclude<Patient>> searchQuery;
 	
@@ -153,6 +162,17 @@ public class PatientSearchQueryTest extends BaseFhirContextSensitiveTest {
 		}
 	}
 	
+	private void enableNameIndex() {
+		Context.getAdministrationService()
+		        .saveGlobalProperty(new GlobalProperty(FhirConstants.OPENMRS_FHIR_NAME_INDEX_ENABLED, "true"));
+		FhirGlobalPropertyHolder.reset();
+		
+		Integer lastPersonId = null;
+		do {
+			lastPersonId = personNameIndexDao.indexPersons(lastPersonId, 100);
+		} while (lastPersonId != null);
+	}
+	
 	private IBundleProvider search(SearchParameterMap theParams) {
 		return searchQuery.getQueryResults(theParams, dao, translator, searchQueryInclude);
 	}
@@ -288,6 +308,30 @@ public class PatientSearchQueryTest extends BaseFhirContextSensitiveTest {
 		assertThat(results.size(), greaterThan(1));
 	}
 	
+	@Test
+	public void searchForPatients_shouldSearchNamesThroughNameIndexIgnoringCaseAndAccents() {
+		enableNameIndex();
+		
+		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.NAME_SEARCH_HANDLER,
+		    FhirConstants.GIVEN_PROPERTY, new StringAndListParam().addAnd(new StringParam("AZALAIS")));
+		List<Patient> resultList = get(search(theParams));
+		
+		assertThat(resultList, hasSize(1));
+		assertThat(resultList.get(0).getNameFirstRep().getGivenAsSingleString(), equalTo("Azala\u00efs"));
+	}
+	
+	@Test
+	public void searchForPatients_shouldSearchNamesContainingValueThroughNameIndexWhenEnabled() {
+		enableNameIndex();
+		
+		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.NAME_SEARCH_HANDLER,
+		    FhirConstants.NAME_PROPERTY, new StringAndListParam().addAnd(new StringParam("annet").setContains(true)));
+		List<Patient> resultList = get(search(theParams));
+		
+		assertThat(resultList, hasSize(1));
+		assertThat(resultList.get(0).getNameFirstRep().getGivenAsSingleString(), equalTo("Jeannette"));
+	}
+	
 	@Test
 	public void searchForPatients_shouldReturnEmptyCollectionWhenPatientFamilyNameNotMatched() {
 		SearchParameterMap theParams = new SearchParameterMap().addParameter(FhirConstants.NAME_SEARCH_HANDLER,
@@ -1321,10 +1365,19 @@ public class PatientSearchQueryTest extends BaseFhirContextSensitiveTest {
 		IBundleProvider results = search(theParams);
 		
 		assertThat(results, notNullValue());
-		assertThat(results.size(), equalTo(45));
+		assertThat(results.size(), nullValue());
+		assertThat(results, instanceOf(NamedPageBundleProvider.class));
 		
-		List<IBaseResource> resultList = getAllResources(results);
+		List<IBaseResource> resultList = new ArrayList<>(results.getResources(0, 10));
+		IBundleProvider page = results;
+		while (page.getNextPageId() != null) {
+			page = ((NamedPageBundleProvider) results).getPage(page.getNextPageId());
+			assertThat(page, notNullValue());
+			resultList.addAll(page.getResources(0, 10));
+		}
 		
 		assertThat(resultList, hasSize(45));
+		assertThat(resultList.stream().map(r -> r.fhirType() + "/" + r.getIdElement().getIdPart()).distinct().count(),
+		    equalTo(45L));
 	}
 }
@@ -12,17 +12,27 @@ package org.openmrs.module.fhir2.api.search;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import org.exparity.hamcrest.date.DateMatchers;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
@@ -35,6 +45,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.Obs;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
 import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.search.param.KeysetCursor;
 import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
 import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
 
@@ -89,4 +100,125 @@ public class SearchQueryBundleProviderTest {
 		assertThat(searchQueryBundleProvider.getUuid(), not(equalTo(new SearchQueryBundleProvider<>(new SearchParameterMap(),
 		        observationDao, translator, globalPropertyService, searchQueryInclude).getUuid())));
 	}
+	
+	@Test
+	public void shouldNotReturnPageIdsWithoutKeysetPaging() {
+		when(observationDao.getSearchResults(any())).thenReturn(Collections.emptyList());
+		searchQueryBundleProvider.getResources(0, 10);
+		
+		assertThat(searchQueryBundleProvider.getCurrentPageId(), nullValue());
+		assertThat(searchQueryBundleProvider.getNextPageId(), nullValue());
+		assertThat(searchQueryBundleProvider.getPage(KeysetCursor.start().encode()), nullValue());
+	}
+	
+	@Test
+	public void shouldReturnNextPageIdFromDaoWithKeysetPaging() {
+		SearchParameterMap theParams = new SearchParameterMap();
+		KeysetCursor nextCursor = KeysetCursor.start().next(new Object[] { "name", 10 }, 10);
+		doAnswer(invocation -> {
+			SearchParameterMap params = invocation.getArgument(0);
+			assertThat(params.getKeysetCursor(), equalTo(KeysetCursor.start()));
+			params.setNextKeysetCursor(nextCursor);
+			return Collections.emptyList();
+		}).when(observationDao).getSearchResults(theParams);
+		
+		SearchQueryBundleProvider<Obs, Observation> keysetProvider = new SearchQueryBundleProvider<>(theParams,
+		        observationDao, translator, globalPropertyService, searchQueryInclude, true);
+		keysetProvider.getResources(0, 10);
+		
+		assertThat(keysetProvider.getCurrentPageId(), equalTo(KeysetCursor.start().encode()));
+		assertThat(keysetProvider.getNextPageId(), equalTo(nextCursor.encode()));
+	}
+	
+	@Test
+	public void shouldSearchFromCursorForRequestedPage() {
+		SearchParameterMap theParams = new SearchParameterMap();
+		KeysetCursor pageCursor = KeysetCursor.start().next(new Object[] { "name", 10 }, 10);
+		doAnswer(invocation -> {
+			SearchParameterMap params = invocation.getArgument(0);
+			assertThat(params.getKeysetCursor(), equalTo(pageCursor));
+			params.setNextKeysetCursor(null);
+			return Collections.emptyList();
+		}).when(observationDao).getSearchResults(theParams);
+		
+		SearchQueryBundleProvider<Obs, Observation> keysetProvider = new SearchQueryBundleProvider<>(theParams,
+		        observationDao, translator, globalPropertyService, searchQueryInclude, true);
+		IBundleProvider page = keysetProvider.getPage(pageCursor.encode());
+		
+		assertThat(page, notNullValue());
+		assertThat(page.getUuid(), equalTo(keysetProvider.getUuid()));
+		
+		page.getResources(0, 10);
+		
+		assertThat(page.getCurrentPageId(), equalTo(pageCursor.encode()));
+		assertThat(page.getNextPageId(), nullValue());
+	}
+	
+	@Test
+	public void shouldNotCountResultsWhenTotalModeIsNone() {
+		SearchQueryBundleProvider<Obs, Observation> provider = new SearchQueryBundleProvider<>(new SearchParameterMap(),
+		        observationDao, translator, globalPropertyService, searchQueryInclude, false, SearchTotalModeEnum.NONE);
+		
+		assertThat(provider.size(), nullValue());
+		verify(observationDao, never()).getSearchResultsCount(any());
+	}
+	
+	@Test
+	public void shouldFetchOneExtraResultToFindNextPageWhenTotalModeIsNone() {
+		SearchParameterMap theParams = new SearchParameterMap();
+		doAnswer(invocation -> {
+			SearchParameterMap params = invocation.getArgument(0);
+			assertThat(params.getFromIndex(), equalTo(10));
+			assertThat(params.getToIndex(), equalTo(21));
+			return createObs(11);
+		}).when(observationDao).getSearchResults(theParams);
+		when(translator.toFhirResources(anyList())).thenAnswer(invocation -> translate(invocation.getArgument(0)));
+		
+		SearchQueryBundleProvider<Obs, Observation> provider = new SearchQueryBundleProvider<>(theParams, observationDao,
+		        translator, globalPropertyService, searchQueryInclude, false, SearchTotalModeEnum.NONE);
+		
+		assertThat(provider.getResources(10, 20), hasSize(10));
+		assertThat(provider.size(), nullValue());
+	}
+	
+	@Test
+	public void shouldKnowSizeOnceLastPageIsReadWhenTotalModeIsNone() {
+		when(observationDao.getSearchResults(any())).thenReturn(createObs(3));
+		when(translator.toFhirResources(anyList())).thenAnswer(invocation -> translate(invocation.getArgument(0)));
+		
+		SearchQueryBundleProvider<Obs, Observation> provider = new SearchQueryBundleProvider<>(new SearchParameterMap(),
+		        observationDao, translator, globalPropertyService, searchQueryInclude, false, SearchTotalModeEnum.NONE);
+		
+		assertThat(provider.getResources(10, 20), hasSize(3));
+		assertThat(provider.size(), equalTo(13));
+		verify(observationDao, never()).getSearchResultsCount(any());
+	}
+	
+	@Test
+	public void shouldUseCountEstimateWhenTotalModeIsEstimated() {
+		when(observationDao.getSearchResultsCountEstimate(any())).thenReturn(100);
+		
+		SearchQueryBundleProvider<Obs, Observation> provider = new SearchQueryBundleProvider<>(new SearchParameterMap(),
+		        observationDao, translator, globalPropertyService, searchQueryInclude, false,
+		        SearchTotalModeEnum.ESTIMATED);
+		
+		assertThat(provider.size(), equalTo(100));
+		verify(observationDao, never()).getSearchResultsCount(any());
+	}
+	
+	@Test
+	public void shouldCountResultsByDefault() {
+		when(observationDao.getSearchResultsCount(any())).thenReturn(42);
+		
+		assertThat(searchQueryBundleProvider.size(), equalTo(42));
+		verify(observationDao, never()).getSearchResultsCountEstimate(any());
+	}
+	
+	private static List<Obs> createObs(int count) {
+		return IntStream.range(0, count).mapToObj(i -> new Obs()).collect(Collectors.toList());
+	}
+	
+	private static List<Observation> translate(List<Obs> obs) {
+		return obs.stream().map(o -> new Observation()).collect(Collectors.toList());
+	}
 }
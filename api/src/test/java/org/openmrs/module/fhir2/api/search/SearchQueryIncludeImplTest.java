@@ -0,0 +1,211 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.TokenAndListParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.FhirObservationService;
+import org.openmrs.module.fhir2.api.search.param.ObservationSearchParams;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchQueryIncludeImplTest {
+	
+	private static final String OBS_UUID = "39fb7f47-e80a-4056-9285-bd798be13c63";
+	
+	private static final String MEMBER_UUID = "6f16bb57-8e5c-4d9a-8c2b-2b7e9a0f6e0a";
+	
+	private static final String OTHER_MEMBER_UUID = "0f8a7b2c-1e7c-4d8c-9b55-0b1b2c3d4e5f";
+	
+	@Mock
+	private FhirObservationService observationService;
+	
+	@Mock
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	@Mock
+	private IBundleProvider bundleProvider;
+	
+	private SearchQueryIncludeImpl<Observation> searchQueryInclude;
+	
+	@Before
+	public void setup() {
+		searchQueryInclude = new SearchQueryIncludeImpl<>();
+		searchQueryInclude.setObservationService(observationService);
+		searchQueryInclude.setGlobalPropertyService(globalPropertyService);
+	}
+	
+	@Test
+	public void shouldLoadEachIncludedTypeOnceAcrossIncludeParameters() {
+		Observation group = observation(OBS_UUID, MEMBER_UUID, OTHER_MEMBER_UUID);
+		Observation member = observation(MEMBER_UUID);
+		Observation otherMember = observation(OTHER_MEMBER_UUID);
+		
+		Set<Include> includes = new HashSet<>();
+		includes.add(new Include("Observation:has-member"));
+		includes.add(new Include("Observation:related-type"));
+		
+		when(observationService.get(any(Collection.class))).thenReturn(Collections.singletonList(otherMember));
+		
+		Set<IBaseResource> result = searchQueryInclude.getIncludedResources(Arrays.asList(group, member),
+		    new SearchParameterMap().addParameter(FhirConstants.INCLUDE_SEARCH_HANDLER, includes));
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<String>> uuidsCaptor = ArgumentCaptor.forClass(Collection.class);
+		verify(observationService, times(1)).get(uuidsCaptor.capture());
+		
+		// the member that is already part of the page should not be loaded again
+		assertThat(uuidsCaptor.getValue(), contains(OTHER_MEMBER_UUID));
+		assertThat(result, contains(otherMember));
+	}
+	
+	@Test
+	public void shouldNotLoadIncludesThatAreAlreadyOnThePage() {
+		Observation group = observation(OBS_UUID, MEMBER_UUID);
+		Observation member = observation(MEMBER_UUID);
+		
+		Set<Include> includes = Collections.singleton(new Include("Observation:has-member"));
+		
+		Set<IBaseResource> result = searchQueryInclude.getIncludedResources(Arrays.asList(group, member),
+		    new SearchParameterMap().addParameter(FhirConstants.INCLUDE_SEARCH_HANDLER, includes));
+		
+		verify(observationService, never()).get(any(Collection.class));
+		assertThat(result, empty());
+	}
+	
+	@Test
+	public void shouldNotCountReverseIncludedResources() {
+		Observation member = observation(MEMBER_UUID);
+		Observation group = observation(OBS_UUID, MEMBER_UUID);
+		Observation otherGroup = observation(OTHER_MEMBER_UUID, MEMBER_UUID);
+		
+		when(observationService.searchForObservations(any())).thenReturn(bundleProvider);
+		when(bundleProvider.getResources(0, -1)).thenReturn(new ArrayList<>(Arrays.asList(group, otherGroup, member)));
+		
+		Set<IBaseResource> result = searchQueryInclude.getIncludedResources(Collections.singletonList(member),
+		    new SearchParameterMap().addParameter(FhirConstants.REVERSE_INCLUDE_SEARCH_HANDLER,
+		        Collections.singleton(new Include("Observation:has-member"))));
+		
+		verify(bundleProvider, never()).size();
+		assertThat(result, hasSize(2));
+		assertThat(result, containsInAnyOrder(group, otherGroup));
+	}
+	
+	@Test
+	public void shouldLoadAtMostTheMaximumNumberOfReverseIncludedResourcesForTypeLevelEverything() {
+		Observation member = observation(MEMBER_UUID);
+		Observation group = observation(OBS_UUID, MEMBER_UUID);
+		Observation otherGroup = observation(OTHER_MEMBER_UUID, MEMBER_UUID);
+		
+		when(globalPropertyService.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_MAXIMUM_REVERSE_INCLUDES,
+		    SearchQueryIncludeImpl.DEFAULT_MAXIMUM_REVERSE_INCLUDES)).thenReturn(1);
+		when(observationService.searchForObservations(any())).thenReturn(bundleProvider);
+		when(bundleProvider.getResources(0, 2)).thenReturn(new ArrayList<>(Arrays.asList(group, otherGroup)));
+		
+		Set<IBaseResource> result = searchQueryInclude.getIncludedResources(Collections.singletonList(member),
+		    new SearchParameterMap().addParameter(FhirConstants.EVERYTHING_SEARCH_HANDLER, "").addParameter(
+		        FhirConstants.REVERSE_INCLUDE_SEARCH_HANDLER, Collections.singleton(new Include("Observation:has-member"))));
+		
+		assertThat(result, hasSize(2));
+		assertThat(result, hasItem(group));
+		OperationOutcome outcome = (OperationOutcome) result.stream().filter(resource -> resource != group).findFirst()
+		        .orElse(null);
+		assertThat(outcome, notNullValue());
+		assertThat(outcome.getIssueFirstRep().getSeverity(), equalTo(OperationOutcome.IssueSeverity.WARNING));
+		assertThat(ResourceMetadataKeyEnum.ENTRY_SEARCH_MODE.get(outcome), equalTo("outcome"));
+	}
+	
+	@Test
+	public void shouldNotBoundReverseIncludedResourcesOfInstanceLevelEverything() {
+		Observation member = observation(MEMBER_UUID);
+		Observation group = observation(OBS_UUID, MEMBER_UUID);
+		
+		when(observationService.searchForObservations(any())).thenReturn(bundleProvider);
+		when(bundleProvider.getResources(0, -1)).thenReturn(new ArrayList<>(Collections.singletonList(group)));
+		
+		Set<IBaseResource> result = searchQueryInclude.getIncludedResources(Collections.singletonList(member),
+		    new SearchParameterMap().addParameter(FhirConstants.EVERYTHING_SEARCH_HANDLER, "")
+		            .addParameter(FhirConstants.COMMON_SEARCH_HANDLER, FhirConstants.ID_PROPERTY,
+		                new TokenAndListParam().addAnd(new TokenParam(MEMBER_UUID)))
+		            .addParameter(FhirConstants.REVERSE_INCLUDE_SEARCH_HANDLER,
+		                Collections.singleton(new Include("Observation:has-member"))));
+		
+		assertThat(result, contains(group));
+		verify(globalPropertyService, never()).getGlobalPropertyAsInteger(any(), anyInt());
+	}
+	
+	@Test
+	public void shouldRestrictReverseIncludedResourcesToSince() {
+		Observation member = observation(MEMBER_UUID);
+		Date since = new Date(1_600_000_000_000L);
+		
+		when(observationService.searchForObservations(any())).thenReturn(bundleProvider);
+		
+		searchQueryInclude.getIncludedResources(Collections.singletonList(member),
+		    new SearchParameterMap()
+		            .addParameter(FhirConstants.REVERSE_INCLUDE_SEARCH_HANDLER,
+		                Collections.singleton(new Include("Observation:has-member")))
+		            .addParameter(FhirConstants.SINCE_SEARCH_PARAMETER, since));
+		
+		ArgumentCaptor<ObservationSearchParams> paramsCaptor = ArgumentCaptor.forClass(ObservationSearchParams.class);
+		verify(observationService).searchForObservations(paramsCaptor.capture());
+		assertThat(paramsCaptor.getValue().getLastUpdated().getLowerBoundAsInstant(), equalTo(since));
+		assertThat(paramsCaptor.getValue().getLastUpdated().getUpperBound(), nullValue());
+	}
+	
+	private Observation observation(String uuid, String... memberUuids) {
+		Observation observation = new Observation();
+		observation.setId(uuid);
+		for (String memberUuid : memberUuids) {
+			observation.addHasMember(new Reference("Observation/" + memberUuid));
+		}
+		
+		return observation;
+	}
+}
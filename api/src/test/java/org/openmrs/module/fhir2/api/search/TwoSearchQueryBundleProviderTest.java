@@ -0,0 +1,175 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.server.SimpleBundleProvider;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Obs;
+import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TwoSearchQueryBundleProviderTest {
+	
+	private static final SortSpec SORT_BY_DATE = new SortSpec(Encounter.SP_DATE, SortOrderEnum.ASC);
+	
+	@Mock
+	private ObservationTranslator translator;
+	
+	@Mock
+	private FhirObservationDao observationDao;
+	
+	@Mock
+	private FhirGlobalPropertyService globalPropertyService;
+	
+	@Mock
+	private SearchQueryInclude<Observation> searchQueryInclude;
+	
+	@Test
+	public void getResources_shouldReturnResultsOfFirstSearchBeforeSecondWithoutSort() {
+		Encounter first1 = createEncounter(1), first2 = createEncounter(3), first3 = createEncounter(5);
+		Encounter second1 = createEncounter(2), second2 = createEncounter(4);
+		
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(
+		        new SimpleBundleProvider(Arrays.asList(first1, first2, first3)),
+		        new SimpleBundleProvider(Arrays.asList(second1, second2)), globalPropertyService);
+		
+		assertThat(provider.getResources(0, 4), contains(first1, first2, first3, second1));
+		assertThat(provider.getResources(4, 8), contains(second2));
+	}
+	
+	@Test
+	public void getResources_shouldMergeResultsInRequestedOrder() {
+		Encounter first1 = createEncounter(1), first2 = createEncounter(3), first3 = createEncounter(5);
+		Encounter second1 = createEncounter(2), second2 = createEncounter(4), second3 = createEncounter(6);
+		
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(
+		        new SimpleBundleProvider(Arrays.asList(first1, first2, first3)),
+		        new SimpleBundleProvider(Arrays.asList(second1, second2, second3)), globalPropertyService, SORT_BY_DATE);
+		
+		assertThat(provider.getResources(0, 3), contains(first1, second1, first2));
+		assertThat(provider.getResources(3, 6), contains(second2, first3, second3));
+		assertThat(provider.getResources(6, 9), empty());
+	}
+	
+	@Test
+	public void getResources_shouldMergeResultsInDescendingOrder() {
+		Encounter first1 = createEncounter(5), first2 = createEncounter(1);
+		Encounter second1 = createEncounter(4), second2 = createEncounter(3);
+		
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(new SimpleBundleProvider(Arrays.asList(first1, first2)),
+		        new SimpleBundleProvider(Arrays.asList(second1, second2)), globalPropertyService,
+		        new SortSpec(Encounter.SP_DATE, SortOrderEnum.DESC));
+		
+		assertThat(provider.getResources(0, 10), contains(first1, second1, second2, first2));
+	}
+	
+	@Test
+	public void getResources_shouldReturnLaterPageWithoutEarlierPagesBeingRead() {
+		when(globalPropertyService.getGlobalPropertyAsInteger(anyString(), anyInt())).thenReturn(2);
+		
+		Encounter first1 = createEncounter(1), first2 = createEncounter(3), first3 = createEncounter(5);
+		Encounter second1 = createEncounter(2), second2 = createEncounter(4), second3 = createEncounter(6);
+		
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(
+		        new SimpleBundleProvider(Arrays.asList(first1, first2, first3)),
+		        new SimpleBundleProvider(Arrays.asList(second1, second2, second3)), globalPropertyService, SORT_BY_DATE);
+		
+		assertThat(provider.getResources(3, 5), contains(second2, first3));
+	}
+	
+	@Test
+	public void getResources_shouldAddIncludedResourcesOfPageWithoutCountingEitherSearch() {
+		SearchParameterMap firstParams = new SearchParameterMap();
+		SearchParameterMap secondParams = new SearchParameterMap();
+		Obs firstObs = new Obs(), secondObs = new Obs();
+		Observation firstObservation = new Observation(), secondObservation = new Observation();
+		Patient patient = new Patient();
+		
+		when(observationDao.getSearchResults(firstParams)).thenReturn(Collections.singletonList(firstObs));
+		when(observationDao.getSearchResults(secondParams)).thenReturn(Collections.singletonList(secondObs));
+		when(translator.toFhirResource(firstObs)).thenReturn(firstObservation);
+		when(translator.toFhirResource(secondObs)).thenReturn(secondObservation);
+		when(translator.toFhirResources(anyCollection())).thenCallRealMethod();
+		when(searchQueryInclude.getIncludedResources(Collections.singletonList(firstObservation), firstParams))
+		        .thenReturn(Collections.singleton(patient));
+		when(searchQueryInclude.getIncludedResources(Collections.singletonList(secondObservation), secondParams))
+		        .thenReturn(Collections.emptySet());
+		
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(
+		        new SearchQueryBundleProvider<>(firstParams, observationDao, translator, globalPropertyService,
+		                searchQueryInclude),
+		        new SearchQueryBundleProvider<>(secondParams, observationDao, translator, globalPropertyService,
+		                searchQueryInclude),
+		        globalPropertyService);
+		
+		List<IBaseResource> resources = provider.getResources(0, 10);
+		
+		assertThat(resources, contains(firstObservation, secondObservation, patient));
+		verify(observationDao, never()).getSearchResultsCount(any());
+	}
+	
+	@Test
+	public void size_shouldReturnSumOfSizesOfBothSearches() {
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(
+		        new SimpleBundleProvider(Arrays.asList(createEncounter(1), createEncounter(2))),
+		        new SimpleBundleProvider(Collections.singletonList(createEncounter(3))), globalPropertyService);
+		
+		assertThat(provider.size(), equalTo(3));
+	}
+	
+	@Test
+	public void size_shouldReturnNullIfSizeOfEitherSearchIsUnknown() {
+		IBundleProvider provider = new TwoSearchQueryBundleProvider(
+		        new SimpleBundleProvider(Collections.singletonList(createEncounter(1))),
+		        new SimpleBundleProvider(Collections.singletonList(createEncounter(2))).setSize(null),
+		        globalPropertyService);
+		
+		assertThat(provider.size(), nullValue());
+	}
+	
+	private static Encounter createEncounter(int day) {
+		Encounter encounter = new Encounter();
+		encounter.setId("encounter-" + day);
+		encounter.getPeriod().setStart(new Date(TimeUnit.DAYS.toMillis(day)));
+		return encounter;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.search.param;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.junit.Test;
+
+public class KeysetCursorTest {
+	
+	@Test
+	public void shouldCreateStartCursor() {
+		assertThat(KeysetCursor.start().isStart(), is(true));
+		assertThat(KeysetCursor.start().getOffset(), equalTo(0));
+		assertThat(KeysetCursor.start().getValues(), empty());
+		assertThat(KeysetCursor.atOffset(0), equalTo(KeysetCursor.start()));
+	}
+	
+	@Test
+	public void shouldCreateNextCursorFromLastRow() {
+		Date date = new Date();
+		KeysetCursor cursor = KeysetCursor.atOffset(10).next(new Object[] { "name", date, 5 }, 10);
+		
+		assertThat(cursor.getOffset(), equalTo(20));
+		assertThat(cursor.getValues(), contains("name", date, 5));
+		assertThat(cursor.canSeek(3), is(true));
+		assertThat(cursor.canSeek(2), is(false));
+	}
+	
+	@Test
+	public void shouldNotSeekWithNullOrUnsupportedValues() {
+		assertThat(KeysetCursor.start().next(new Object[] { null, 5 }, 10).canSeek(2), is(false));
+		assertThat(KeysetCursor.start().next(new Object[] { new Object(), 5 }, 10).canSeek(2), is(false));
+		assertThat(KeysetCursor.start().canSeek(1), is(false));
+	}
+	
+	@Test
+	public void shouldRoundTripThroughEncoding() {
+		KeysetCursor cursor = KeysetCursor.atOffset(30).next(new Object[] { "Smith~John", 10L, 1.5d,
+		        new BigDecimal("12.50"), true, new Date(1600000000000L), null, 42 }, 10);
+		
+		KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+		
+		assertThat(decoded, equalTo(cursor));
+		assertThat(decoded.getOffset(), equalTo(40));
+		assertThat(decoded.getValues().get(0), equalTo("Smith~John"));
+		assertThat(decoded.getValues().get(6), nullValue());
+	}
+	
+	@Test
+	public void shouldRoundTripOffsetOnlyCursor() {
+		assertThat(KeysetCursor.decode(KeysetCursor.atOffset(25).encode()), equalTo(KeysetCursor.atOffset(25)));
+		assertThat(KeysetCursor.decode(KeysetCursor.start().encode()), equalTo(KeysetCursor.start()));
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void shouldRejectMalformedPageId() {
+		KeysetCursor.decode("not a page id");
+	}
+	
+	@Test(expected = InvalidRequestException.class)
+	public void shouldRejectUnknownValueType() {
+		KeysetCursor.decode(Base64.getUrlEncoder().encodeToString("1~0~xabc".getBytes(StandardCharsets.UTF_8)));
+	}
+}
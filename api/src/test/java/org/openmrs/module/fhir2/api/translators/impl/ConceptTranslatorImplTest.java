@@ -20,6 +20,8 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -46,7 +48,6 @@ import org.openmrs.module.fhir2.api.FhirConceptService;
 import org.openmrs.module.fhir2.api.FhirConceptSourceService;
 import org.openmrs.module.fhir2.model.FhirConceptSource;
 import org.openmrs.util.LocaleUtility;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ConceptTranslatorImplTest {
@@ -55,6 +56,8 @@ public class ConceptTranslatorImplTest {
 	
 	private static final String CONCEPT_NAME = "concept-name";
 	
+	private static final Integer CONCEPT_ID = 5089;
+	
 	@Mock
 	private FhirConceptService conceptService;
 	
@@ -425,7 +428,8 @@ public class ConceptTranslatorImplTest {
 	@Test
 	public void shouldReturnDifferentInstancesForSameConceptWhenCached() {
 		// given
-		conceptTranslator.setCacheManager(new ConcurrentMapCacheManager("fhir2ConceptToCodeableConcept"));
+		concept.setConceptId(CONCEPT_ID);
+		conceptTranslator.setCodeableConceptCache(new CodeableConceptCache(10));
 		
 		// when
 		CodeableConcept result1 = conceptTranslator.toFhirResource(concept);
@@ -442,7 +446,8 @@ public class ConceptTranslatorImplTest {
 	@Test
 	public void shouldNotShareMutationsBetweenCachedInstances() {
 		// given
-		conceptTranslator.setCacheManager(new ConcurrentMapCacheManager("fhir2ConceptToCodeableConcept"));
+		concept.setConceptId(CONCEPT_ID);
+		conceptTranslator.setCodeableConceptCache(new CodeableConceptCache(10));
 		
 		// when
 		CodeableConcept result1 = conceptTranslator.toFhirResource(concept);
@@ -454,7 +459,105 @@ public class ConceptTranslatorImplTest {
 		assertThat(result2.getText(), not(equalTo("modified text")));
 	}
 	
+	@Test
+	public void shouldReturnCachedCodingsUntilConceptIsInvalidated() {
+		concept.setConceptId(CONCEPT_ID);
+		CodeableConceptCache cache = new CodeableConceptCache(10);
+		conceptTranslator.setCodeableConceptCache(cache);
+		
+		CodeableConcept result1 = conceptTranslator.toFhirResource(concept);
+		addMapping(sameAs, loinc, "1000-1");
+		CodeableConcept result2 = conceptTranslator.toFhirResource(concept);
+		cache.invalidate(CONCEPT_ID);
+		CodeableConcept result3 = conceptTranslator.toFhirResource(concept);
+		
+		assertThat(result1.getCoding(), hasSize(1));
+		assertThat(result2.getCoding(), hasSize(1));
+		assertThat(result2.getCoding().get(0), sameInstance(result1.getCoding().get(0)));
+		assertThat(result3.getCoding(), hasSize(2));
+		assertThat(result3.getCoding(), hasItem(hasProperty("code", equalTo("1000-1"))));
+	}
+	
+	@Test
+	public void shouldNotShareAddedCodingsBetweenCachedInstances() {
+		concept.setConceptId(CONCEPT_ID);
+		conceptTranslator.setCodeableConceptCache(new CodeableConceptCache(10));
+		
+		CodeableConcept result1 = conceptTranslator.toFhirResource(concept);
+		result1.addCoding().setCode("extra");
+		CodeableConcept result2 = conceptTranslator.toFhirResource(concept);
+		
+		assertThat(result1.getCoding(), hasSize(2));
+		assertThat(result2.getCoding(), hasSize(1));
+	}
+	
+	@Test
+	public void shouldResolveKnownCodingWithoutLookingUpMappingsAgain() {
+		concept.setConceptId(CONCEPT_ID);
+		addMapping(sameAs, loinc, "1000-1");
+		conceptTranslator.setCodeableConceptCache(new CodeableConceptCache(10));
+		when(conceptService.getConceptsWithAnyMappingInSource(loinc, "1000-1")).thenReturn(Arrays.asList(concept));
+		when(conceptService.get(CONCEPT_ID)).thenReturn(concept);
+		
+		CodeableConcept codeableConcept = new CodeableConcept();
+		codeableConcept.addCoding().setSystem(FhirTestConstants.LOINC_SYSTEM_URL).setCode("1000-1");
+		
+		Concept result1 = conceptTranslator.toOpenmrsType(codeableConcept);
+		Concept result2 = conceptTranslator.toOpenmrsType(codeableConcept);
+		
+		assertThat(result1, sameInstance(concept));
+		assertThat(result2, sameInstance(concept));
+		verify(conceptSourceService, times(1)).getConceptSourceByUrl(FhirTestConstants.LOINC_SYSTEM_URL);
+		verify(conceptService, times(1)).getConceptsWithAnyMappingInSource(loinc, "1000-1");
+	}
+	
+	@Test
+	public void shouldResolveCodingAgainAfterConceptIsInvalidated() {
+		CodeableConceptCache cache = new CodeableConceptCache(10);
+		conceptTranslator.setCodeableConceptCache(cache);
+		when(conceptService.getConceptsWithAnyMappingInSource(loinc, "1000-1")).thenReturn(new ArrayList<>())
+		        .thenReturn(Arrays.asList(concept));
+		
+		CodeableConcept codeableConcept = new CodeableConcept();
+		codeableConcept.addCoding().setSystem(FhirTestConstants.LOINC_SYSTEM_URL).setCode("1000-1");
+		
+		assertThat(conceptTranslator.toOpenmrsType(codeableConcept), nullValue());
+		assertThat(conceptTranslator.toOpenmrsType(codeableConcept), nullValue());
+		
+		concept.setConceptId(CONCEPT_ID);
+		addMapping(sameAs, loinc, "1000-1");
+		cache.invalidate(CONCEPT_ID);
+		
+		assertThat(conceptTranslator.toOpenmrsType(codeableConcept), sameInstance(concept));
+		verify(conceptService, times(2)).getConceptsWithAnyMappingInSource(loinc, "1000-1");
+	}
+	
+	@Test
+	public void shouldResolveCodingToConceptWithNewSameAsMappingAfterItIsInvalidated() {
+		CodeableConceptCache cache = new CodeableConceptCache(10);
+		conceptTranslator.setCodeableConceptCache(cache);
+		concept.setConceptId(CONCEPT_ID);
+		addMapping(narrowerThan, loinc, "1000-1");
+		Concept otherConcept = new Concept(CONCEPT_ID + 1);
+		when(conceptService.getConceptsWithAnyMappingInSource(loinc, "1000-1")).thenReturn(Arrays.asList(concept))
+		        .thenReturn(Arrays.asList(concept, otherConcept));
+		
+		CodeableConcept codeableConcept = new CodeableConcept();
+		codeableConcept.addCoding().setSystem(FhirTestConstants.LOINC_SYSTEM_URL).setCode("1000-1");
+		
+		assertThat(conceptTranslator.toOpenmrsType(codeableConcept), sameInstance(concept));
+		
+		addMapping(otherConcept, sameAs, loinc, "1000-1");
+		cache.invalidate(otherConcept.getConceptId());
+		
+		assertThat(conceptTranslator.toOpenmrsType(codeableConcept), sameInstance(otherConcept));
+	}
+	
 	private void addMapping(ConceptMapType mapType, ConceptSource conceptSource, String code) {
+		addMapping(concept, mapType, conceptSource, code);
+	}
+	
+	private void addMapping(Concept concept, ConceptMapType mapType, ConceptSource conceptSource, String code) {
 		ConceptMap m = new ConceptMap();
 		m.setConceptMapType(mapType);
 		m.setConcept(concept);
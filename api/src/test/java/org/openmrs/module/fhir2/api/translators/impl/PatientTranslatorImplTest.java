@@ -19,14 +19,22 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 
 import java.time.Instant;
 import java.util.Calendar;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import ca.uhn.fhir.model.api.TemporalPrecisionEnum;
 import com.google.common.collect.Sets;
@@ -69,6 +77,8 @@ public class PatientTranslatorImplTest {
 	
 	private static final String PATIENT_UUID = "123456-abcdef-123456";
 	
+	private static final String PATIENT_UUID_2 = "789012-abcdef-789012";
+	
 	private static final String PATIENT_IDENTIFIER_UUID = "654321-fedcba-654321";
 	
 	private static final String PATIENT_NAME_UUID = "1fdb5469-57c7-435f-b009-3dcceb23b0a2";
@@ -490,6 +500,45 @@ public class PatientTranslatorImplTest {
 		assertThat(contactPoints, notNullValue());
 	}
 	
+	@Test
+	public void shouldFetchContactPointsForAllPatientsInOneQuery() {
+		PersonAttributeType attributeType = new PersonAttributeType();
+		attributeType.setUuid(PERSON_ATTRIBUTE_TYPE_UUID);
+		PersonAttribute personAttribute = new PersonAttribute();
+		personAttribute.setUuid(PERSON_ATTRIBUTE_UUID);
+		personAttribute.setValue(PERSON_ATTRIBUTE_VALUE);
+		personAttribute.setAttributeType(attributeType);
+		
+		org.openmrs.Patient patientWithContact = new org.openmrs.Patient(1);
+		patientWithContact.setUuid(PATIENT_UUID);
+		patientWithContact.addAttribute(personAttribute);
+		org.openmrs.Patient patientWithoutContact = new org.openmrs.Patient(2);
+		patientWithoutContact.setUuid(PATIENT_UUID_2);
+		
+		ContactPoint contactPoint = new ContactPoint();
+		contactPoint.setId(PERSON_ATTRIBUTE_UUID);
+		contactPoint.setValue(PERSON_ATTRIBUTE_VALUE);
+		
+		Map<Integer, List<PersonAttribute>> attributes = new HashMap<>();
+		attributes.put(1, Collections.singletonList(personAttribute));
+		
+		when(globalPropertyService.getGlobalProperty(FhirConstants.PERSON_CONTACT_POINT_ATTRIBUTE_TYPE))
+		        .thenReturn(PERSON_ATTRIBUTE_TYPE_UUID);
+		when(fhirPersonDao.getActiveAttributesByPersonsAndAttributeTypeUuid(anyCollection(),
+		    eq(PERSON_ATTRIBUTE_TYPE_UUID))).thenReturn(attributes);
+		when(telecomTranslator.toFhirResource(personAttribute)).thenReturn(contactPoint);
+		
+		List<Patient> result = patientTranslator.toFhirResources(Arrays.asList(patientWithContact, patientWithoutContact));
+		
+		assertThat(result, hasSize(2));
+		assertThat(result.get(0).getTelecom(), hasSize(1));
+		assertThat(result.get(0).getTelecom().get(0).getValue(), equalTo(PERSON_ATTRIBUTE_VALUE));
+		assertThat(result.get(1).getTelecom(), empty());
+		verify(globalPropertyService, times(1)).getGlobalProperty(FhirConstants.PERSON_CONTACT_POINT_ATTRIBUTE_TYPE);
+		verify(fhirPersonDao, times(1)).getActiveAttributesByPersonsAndAttributeTypeUuid(anyCollection(),
+		    eq(PERSON_ATTRIBUTE_TYPE_UUID));
+	}
+	
 	@Test
 	public void shouldTranslateOpenMrsDateChangedToLastUpdatedDate() {
 		org.openmrs.Patient patient = new org.openmrs.Patient();
@@ -0,0 +1,96 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ChangeNotifierTest {
+	
+	private ChangeNotifier changeNotifier;
+	
+	@Before
+	public void setup() {
+		changeNotifier = new ChangeNotifier();
+	}
+	
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+	
+	@Test
+	public void changed_shouldIncrementSequence() {
+		long sequence = changeNotifier.getSequence();
+		
+		changeNotifier.changed();
+		
+		assertThat(changeNotifier.getSequence(), equalTo(sequence + 1));
+	}
+	
+	@Test
+	public void changed_shouldOnlySignalChangeOnceTransactionCommits() {
+		TransactionSynchronizationManager.initSynchronization();
+		long sequence = changeNotifier.getSequence();
+		
+		changeNotifier.changed();
+		assertThat(changeNotifier.getSequence(), equalTo(sequence));
+		
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterCommit();
+		}
+		assertThat(changeNotifier.getSequence(), equalTo(sequence + 1));
+	}
+	
+	@Test
+	public void awaitChange_shouldReturnImmediatelyIfChangedSinceSequenceWasRead() throws InterruptedException {
+		long sequence = changeNotifier.getSequence();
+		changeNotifier.changed();
+		
+		assertThat(changeNotifier.awaitChange(sequence, TimeUnit.SECONDS.toMillis(10)), equalTo(true));
+	}
+	
+	@Test
+	public void awaitChange_shouldReturnFalseIfTimeoutPasses() throws InterruptedException {
+		assertThat(changeNotifier.awaitChange(changeNotifier.getSequence(), 10), equalTo(false));
+	}
+	
+	@Test
+	public void awaitChange_shouldWakeWaitingThreadOnChange() throws Exception {
+		long sequence = changeNotifier.getSequence();
+		CountDownLatch waiting = new CountDownLatch(1);
+		CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> {
+			waiting.countDown();
+			try {
+				return changeNotifier.awaitChange(sequence, TimeUnit.SECONDS.toMillis(10));
+			}
+			catch (InterruptedException e) {
+				return false;
+			}
+		});
+		
+		waiting.await();
+		changeNotifier.changed();
+		
+		assertThat(result.get(5, TimeUnit.SECONDS), equalTo(true));
+	}
+}
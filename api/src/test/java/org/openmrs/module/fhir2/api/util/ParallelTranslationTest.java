@@ -0,0 +1,100 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.api.translators.ToFhirTranslator;
+
+public class ParallelTranslationTest {
+	
+	private ForkJoinPool pool;
+	
+	@Before
+	public void setup() {
+		pool = new ForkJoinPool(4);
+	}
+	
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+	
+	@Test
+	public void translate_shouldKeepOrderOfData() {
+		List<Integer> data = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+		Collections.shuffle(data);
+		
+		List<String> result = ParallelTranslation.translate(pool, String::valueOf, data, null);
+		
+		assertThat(result, equalTo(data.stream().map(String::valueOf).collect(Collectors.toList())));
+	}
+	
+	@Test
+	public void translate_shouldTranslateOnPoolThreads() {
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		ToFhirTranslator<Integer, String> translator = data -> {
+			if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+				threads.add(Thread.currentThread().getName());
+			}
+			
+			return String.valueOf(data);
+		};
+		
+		ParallelTranslation.translate(pool, translator, IntStream.range(0, 100).boxed().collect(Collectors.toList()),
+		    null);
+		
+		assertThat(threads, not(empty()));
+	}
+	
+	@Test
+	public void translate_shouldTranslateDuplicatesOnce() {
+		List<String> result = ParallelTranslation.translate(pool, String::valueOf, Arrays.asList(1, 2, 1, 3, 2), null);
+		
+		assertThat(result, contains("1", "2", "3"));
+	}
+	
+	@Test
+	public void translate_shouldReturnEmptyListForNoData() {
+		List<String> result = ParallelTranslation.translate(pool, String::valueOf, new ArrayList<Integer>(), null);
+		
+		assertThat(result, hasSize(0));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void translate_shouldRethrowExceptionFromTranslator() {
+		ParallelTranslation.translate(pool, data -> {
+			if (data == 42) {
+				throw new IllegalArgumentException("Cannot translate " + data);
+			}
+			
+			return String.valueOf(data);
+		}, IntStream.range(0, 100).boxed().collect(Collectors.toList()), null);
+	}
+}
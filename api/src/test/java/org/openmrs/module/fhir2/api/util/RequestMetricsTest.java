@@ -0,0 +1,109 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestMetricsTest {
+	
+	@After
+	public void tearDown() {
+		RequestMetrics.finish();
+	}
+	
+	@Test
+	public void time_shouldRunSupplierWhenNotRecording() {
+		assertThat(RequestMetrics.time(RequestMetrics.Phase.SEARCH, () -> "result"), equalTo("result"));
+		assertThat(RequestMetrics.get(), nullValue());
+	}
+	
+	@Test
+	public void time_shouldAttributeStatementsToRunningPhase() {
+		RequestMetrics metrics = RequestMetrics.start();
+		
+		metrics.statementPrepared();
+		RequestMetrics.time(RequestMetrics.Phase.TRANSLATION, () -> {
+			metrics.statementPrepared();
+			metrics.statementPrepared();
+			return null;
+		});
+		
+		assertThat(metrics.getStatements(), equalTo(3));
+		assertThat(metrics.getPhaseStatements(RequestMetrics.Phase.TRANSLATION), equalTo(2));
+		assertThat(metrics.getPhaseStatements(RequestMetrics.Phase.SEARCH), equalTo(0));
+	}
+	
+	@Test
+	public void time_shouldAttributeNestedPhasesToOuterPhase() {
+		RequestMetrics metrics = RequestMetrics.start();
+		
+		RequestMetrics.time(RequestMetrics.Phase.INCLUDE, () -> RequestMetrics.time(RequestMetrics.Phase.SEARCH, () -> {
+			metrics.statementPrepared();
+			RequestMetrics.recordResults(5, 0);
+			return null;
+		}));
+		
+		assertThat(metrics.getPhaseStatements(RequestMetrics.Phase.INCLUDE), equalTo(1));
+		assertThat(metrics.getPhaseStatements(RequestMetrics.Phase.SEARCH), equalTo(0));
+		assertThat(metrics.getResults(), equalTo(0));
+	}
+	
+	@Test
+	public void recordResults_shouldRecordResultsOfRequest() {
+		RequestMetrics metrics = RequestMetrics.start();
+		
+		RequestMetrics.recordResults(10, 3);
+		RequestMetrics.recordIncludeQuery();
+		
+		assertThat(metrics.getResults(), equalTo(10));
+		assertThat(metrics.getIncludedResources(), equalTo(3));
+		assertThat(metrics.getIncludeQueries(), equalTo(1));
+	}
+	
+	@Test
+	public void finish_shouldEndRunningPhaseAndStopRecording() throws InterruptedException {
+		RequestMetrics metrics = RequestMetrics.start();
+		metrics.startPhase(RequestMetrics.Phase.SERIALIZATION);
+		Thread.sleep(2);
+		
+		RequestMetrics finished = RequestMetrics.finish();
+		
+		assertThat(finished, notNullValue());
+		assertThat(RequestMetrics.get(), nullValue());
+		assertThat(finished.getPhaseMillis(RequestMetrics.Phase.SERIALIZATION), greaterThan(0.0));
+		assertThat(finished.getTotalMillis(),
+		    greaterThanOrEqualTo(finished.getPhaseMillis(RequestMetrics.Phase.SERIALIZATION)));
+	}
+	
+	@Test
+	public void metricsHistogram_shouldCountValuesPerBucket() {
+		MetricsHistogram histogram = new MetricsHistogram(new double[] { 1, 10, 100 });
+		
+		histogram.record(0.5);
+		histogram.record(1);
+		histogram.record(50);
+		histogram.record(500);
+		
+		assertThat(histogram.getCount(), equalTo(4L));
+		assertThat(histogram.getMax(), equalTo(500.0));
+		assertThat(histogram.getSum(), equalTo(551.5));
+		assertThat(histogram.getCumulativeCounts()[0], equalTo(2L));
+		assertThat(histogram.getCumulativeCounts()[1], equalTo(2L));
+		assertThat(histogram.getCumulativeCounts()[2], equalTo(3L));
+	}
+}
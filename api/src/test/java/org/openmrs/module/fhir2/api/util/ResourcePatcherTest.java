@@ -0,0 +1,202 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.Task;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.fhir2.api.util.xmlpatch.XmlPatcher;
+import org.w3c.dom.Document;
+
+public class ResourcePatcherTest {
+	
+	private static final String TASK_UUID = "bdd7e368-3d1a-42a9-9538-395391b64adf";
+	
+	private static final String PATIENT_UUID = "5946f880-b197-400b-9caa-a3c661d23041";
+	
+	private static final FhirContext FHIR_CONTEXT = FhirContext.forR4();
+	
+	private Task task;
+	
+	private Patient patient;
+	
+	@Before
+	public void setup() {
+		task = new Task();
+		task.setId(TASK_UUID);
+		task.setStatus(Task.TaskStatus.ACCEPTED);
+		task.setIntent(Task.TaskIntent.ORDER);
+		task.addNote().setText("First note");
+		task.addNote().setText("Second note");
+		
+		patient = new Patient();
+		patient.setId(PATIENT_UUID);
+		patient.setGender(Enumerations.AdministrativeGender.MALE);
+		patient.addName().setFamily("Doe").addGiven("John").addGiven("Jim");
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldReplacePrimitiveValueInCopyOfResource() {
+		String patch = "[{ \"op\": \"replace\", \"path\": \"/status\", \"value\": \"requested\" }]";
+		
+		Task result = ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch));
+		
+		assertThat(result, notNullValue());
+		assertThat(result, not(sameInstance(task)));
+		assertThat(result.getStatus(), equalTo(Task.TaskStatus.REQUESTED));
+		assertThat(task.getStatus(), equalTo(Task.TaskStatus.ACCEPTED));
+		assertSameAsPatchedEncodedResource(result, JsonPatchUtils.applyJsonPatchToEncodedResource(FHIR_CONTEXT, task,
+		    JsonPatchUtils.readPatch(patch)));
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldAddRemoveAndTestValuesInLists() {
+		String patch = "[{ \"op\": \"test\", \"path\": \"/name/0/given/1\", \"value\": \"Jim\" },"
+		        + "{ \"op\": \"add\", \"path\": \"/name/0/given/-\", \"value\": \"Jack\" },"
+		        + "{ \"op\": \"remove\", \"path\": \"/name/0/given/0\" },"
+		        + "{ \"op\": \"add\", \"path\": \"/birthDate\", \"value\": \"1980-01-02\" },"
+		        + "{ \"op\": \"remove\", \"path\": \"/gender\" }]";
+		
+		Patient result = ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, patient, JsonPatchUtils.readPatch(patch));
+		
+		assertThat(result, notNullValue());
+		assertSameAsPatchedEncodedResource(result, JsonPatchUtils.applyJsonPatchToEncodedResource(FHIR_CONTEXT, patient,
+		    JsonPatchUtils.readPatch(patch)));
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldRemoveElementFromList() {
+		String patch = "[{ \"op\": \"remove\", \"path\": \"/note/0\" }]";
+		
+		Task result = ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch));
+		
+		assertThat(result, notNullValue());
+		assertThat(result.getNote().size(), equalTo(1));
+		assertThat(result.getNoteFirstRep().getText(), equalTo("Second note"));
+		assertSameAsPatchedEncodedResource(result, JsonPatchUtils.applyJsonPatchToEncodedResource(FHIR_CONTEXT, task,
+		    JsonPatchUtils.readPatch(patch)));
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldKeepExtensionsOfRemovedPrimitiveValue() {
+		task.getStatusElement().addExtension(new Extension("http://example.com/reason", new StringType("reason")));
+		String patch = "[{ \"op\": \"remove\", \"path\": \"/status\" }]";
+		
+		Task result = ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch));
+		
+		assertThat(result, notNullValue());
+		assertThat(result.getStatusElement().hasValue(), equalTo(false));
+		assertThat(result.getStatusElement().hasExtension("http://example.com/reason"), equalTo(true));
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldReturnNullForCompositeValues() {
+		String patch = "[{ \"op\": \"add\", \"path\": \"/note/-\", \"value\": { \"text\": \"Third note\" } }]";
+		
+		assertThat(ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch)), nullValue());
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldReturnNullForInvalidValues() {
+		String patch = "[{ \"op\": \"replace\", \"path\": \"/status\", \"value\": \"not-a-status\" }]";
+		
+		assertThat(ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch)), nullValue());
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldReturnNullForMissingPaths() {
+		String patch = "[{ \"op\": \"replace\", \"path\": \"/priority\", \"value\": \"urgent\" }]";
+		
+		assertThat(ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch)), nullValue());
+	}
+	
+	@Test
+	public void applyJsonPatch_shouldReturnNullForValuesOfWrongJsonType() {
+		String patch = "[{ \"op\": \"add\", \"path\": \"/active\", \"value\": \"true\" }]";
+		
+		assertThat(ResourcePatcher.applyJsonPatch(FHIR_CONTEXT, patient, JsonPatchUtils.readPatch(patch)), nullValue());
+	}
+	
+	@Test
+	public void applyJsonMergePatch_shouldMergePrimitiveValues() {
+		String patch = "{ \"resourceType\": \"Task\", \"status\": \"completed\", \"priority\": \"urgent\","
+		        + " \"executionPeriod\": { \"start\": \"2020-01-01\" }, \"note\": null }";
+		
+		Task result = ResourcePatcher.applyJsonMergePatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch));
+		
+		assertThat(result, notNullValue());
+		assertThat(result.getStatus(), equalTo(Task.TaskStatus.COMPLETED));
+		assertThat(result.hasNote(), equalTo(false));
+		assertSameAsPatchedEncodedResource(result, JsonPatchUtils.applyJsonMergePatchToEncodedResource(FHIR_CONTEXT, task,
+		    JsonPatchUtils.readPatch(patch)));
+	}
+	
+	@Test
+	public void applyJsonMergePatch_shouldReturnNullForArrays() {
+		String patch = "{ \"note\": [{ \"text\": \"Only note\" }] }";
+		
+		assertThat(ResourcePatcher.applyJsonMergePatch(FHIR_CONTEXT, task, JsonPatchUtils.readPatch(patch)), nullValue());
+	}
+	
+	@Test
+	public void applyXmlPatch_shouldReplaceTrimmedValue() throws IOException {
+		Document patch = parseXml("<diff xmlns:fhir=\"http://hl7.org/fhir\">"
+		        + "<replace sel=\"/fhir:Task/fhir:status/@value\">\n\t\trequested\n\t</replace>"
+		        + "<remove sel=\"/fhir:Task/fhir:note[2]\"/></diff>");
+		
+		Task result = ResourcePatcher.applyXmlPatch(FHIR_CONTEXT, task, patch);
+		
+		assertThat(result, notNullValue());
+		assertThat(result.getStatus(), equalTo(Task.TaskStatus.REQUESTED));
+		assertSameAsPatchedEncodedResource(result, XmlPatchUtils.applyXmlPatchToEncodedResource(FHIR_CONTEXT, task, patch));
+	}
+	
+	@Test
+	public void applyXmlPatch_shouldReturnNullForAmbiguousSelectors() throws IOException {
+		Document patch = parseXml("<diff xmlns:fhir=\"http://hl7.org/fhir\">"
+		        + "<replace sel=\"/fhir:Patient/fhir:name/fhir:given/@value\">Jack</replace></diff>");
+		
+		assertThat(ResourcePatcher.applyXmlPatch(FHIR_CONTEXT, patient, patch), nullValue());
+	}
+	
+	@Test
+	public void applyXmlPatch_shouldReturnNullForAddedElements() throws IOException {
+		Document patch = parseXml("<diff xmlns:fhir=\"http://hl7.org/fhir\">"
+		        + "<add sel=\"/fhir:Task\"><priority value=\"urgent\"/></add></diff>");
+		
+		assertThat(ResourcePatcher.applyXmlPatch(FHIR_CONTEXT, task, patch), nullValue());
+	}
+	
+	private static Document parseXml(String xml) throws IOException {
+		return XmlPatcher.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	private static void assertSameAsPatchedEncodedResource(org.hl7.fhir.r4.model.Resource result,
+	        org.hl7.fhir.r4.model.Resource expected) {
+		assertThat(FHIR_CONTEXT.newJsonParser().encodeResourceToString(result),
+		    equalTo(FHIR_CONTEXT.newJsonParser().encodeResourceToString(expected)));
+	}
+}
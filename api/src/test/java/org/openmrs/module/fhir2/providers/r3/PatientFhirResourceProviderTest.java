@@ -18,6 +18,7 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -44,6 +45,7 @@ import ca.uhn.fhir.rest.server.exceptions.MethodNotAllowedException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.convertors.factory.VersionConvertorFactory_30_40;
 import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.InstantType;
 import org.hl7.fhir.dstu3.model.OperationOutcome;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -573,7 +575,7 @@ public class PatientFhirResourceProviderTest extends BaseFhirR3ProvenanceResourc
 		when(patientService.getPatientEverything(any()))
 		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
 		
-		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType(PATIENT_UUID));
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType(PATIENT_UUID), null);
 		
 		List<IBaseResource> resultList = getAllResources(results);
 		
@@ -585,21 +587,21 @@ public class PatientFhirResourceProviderTest extends BaseFhirR3ProvenanceResourc
 	
 	@Test
 	public void searchForPatients_shouldReturnNullForPatientEverythingWhenIdParamIsMissing() {
-		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(null);
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(null, null);
 		
 		assertThat(results, nullValue());
 	}
 	
 	@Test
 	public void searchForPatients_shouldReturnNullForPatientEverythingWhenIdPartIsMissingInIdParam() {
-		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType());
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType(), null);
 		
 		assertThat(results, nullValue());
 	}
 	
 	@Test
 	public void searchForPatients_shouldReturnNullPatientEverythingWhenIdPartIsEmptyInIdParam() {
-		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType(""));
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType(""), null);
 		
 		assertThat(results, nullValue());
 	}
@@ -609,7 +611,7 @@ public class PatientFhirResourceProviderTest extends BaseFhirR3ProvenanceResourc
 		when(patientService.getPatientEverything())
 		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
 		
-		IBundleProvider results = patientFhirResourceProvider.getPatientEverything();
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(null);
 		
 		List<IBaseResource> resultList = getAllResources(results);
 		
@@ -623,6 +625,33 @@ public class PatientFhirResourceProviderTest extends BaseFhirR3ProvenanceResourc
 		return result.getAllResources();
 	}
 	
+	@Test
+	public void searchForPatients_shouldPassSinceToPatientEverything() {
+		Date since = new Date();
+		when(patientService.getPatientEverything(any(), eq(since)))
+		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
+		
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new IdType(PATIENT_UUID), new InstantType(since));
+		
+		List<IBaseResource> resultList = getAllResources(results);
+		
+		assertThat(resultList, hasSize(1));
+		assertThat(((Patient) resultList.get(0)).getId(), equalTo(PATIENT_UUID));
+	}
+	
+	@Test
+	public void searchForPatients_shouldPassSinceToPatientEverythingForTypeLevel() {
+		Date since = new Date();
+		when(patientService.getPatientEverything(isNull(), eq(since)))
+		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
+		
+		IBundleProvider results = patientFhirResourceProvider.getPatientEverything(new InstantType(since));
+		
+		List<IBaseResource> resultList = getAllResources(results);
+		
+		assertThat(resultList, hasSize(1));
+	}
+	
 	private List<IBaseResource> getResources(IBundleProvider result) {
 		return result.getResources(0, 10);
 	}
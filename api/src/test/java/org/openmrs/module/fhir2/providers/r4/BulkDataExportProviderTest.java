@@ -0,0 +1,176 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.r4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirBulkExportService;
+import org.openmrs.module.fhir2.api.export.BulkExportJob;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BulkDataExportProviderTest {
+	
+	private static final String BASE_URL = "http://localhost/ws/fhir2/R4";
+	
+	private static final String JOB_ID = "5d1c2d0f-5c35-4a4c-9c0b-3cde1e7d8f10";
+	
+	private static final String GROUP_UUID = "1d64befb-3b2e-48e5-85f5-353d43e23e46";
+	
+	@Mock
+	private FhirBulkExportService bulkExportService;
+	
+	@Mock
+	private RequestDetails requestDetails;
+	
+	@Mock
+	private HttpServletResponse response;
+	
+	private BulkDataExportProvider provider;
+	
+	private BulkExportJob job;
+	
+	@Before
+	public void setup() {
+		provider = new BulkDataExportProvider();
+		provider.setBulkExportService(bulkExportService);
+		
+		job = new BulkExportJob(JOB_ID, BulkExportJob.Level.SYSTEM, null, Arrays.asList("Patient", "Observation"), null,
+		        BASE_URL + "/$export", null, new File(JOB_ID));
+	}
+	
+	@Test
+	public void systemExport_shouldStartExportAndReturnStatusLocation() {
+		when(requestDetails.getHeader(Constants.HEADER_PREFER)).thenReturn(Constants.HEADER_PREFER_RESPOND_ASYNC);
+		when(requestDetails.getCompleteUrl()).thenReturn(BASE_URL + "/$export?_type=Patient,Observation");
+		when(requestDetails.getFhirServerBase()).thenReturn(BASE_URL);
+		when(bulkExportService.startExport(eq(BulkExportJob.Level.SYSTEM), isNull(),
+		    eq(Arrays.asList("Patient", "Observation")), isNull(), eq(BASE_URL + "/$export?_type=Patient,Observation")))
+		            .thenReturn(job);
+		
+		provider.systemExport(null, new StringType("Patient, Observation"), requestDetails, response);
+		
+		verify(response).setStatus(HttpServletResponse.SC_ACCEPTED);
+		verify(response).setHeader("Content-Location", BASE_URL + "/$export-poll-status?_jobId=" + JOB_ID);
+	}
+	
+	@Test
+	public void groupExport_shouldStartExportForGroup() {
+		when(requestDetails.getHeader(Constants.HEADER_PREFER)).thenReturn(Constants.HEADER_PREFER_RESPOND_ASYNC);
+		when(requestDetails.getFhirServerBase()).thenReturn(BASE_URL);
+		when(bulkExportService.startExport(eq(BulkExportJob.Level.GROUP), eq(GROUP_UUID), eq(Collections.<String> emptyList()),
+		    isNull(), isNull())).thenReturn(job);
+		
+		provider.groupExport(new IdType("Group", GROUP_UUID), null, null, requestDetails, response);
+		
+		verify(response).setStatus(HttpServletResponse.SC_ACCEPTED);
+	}
+	
+	@Test
+	public void systemExport_shouldRejectRequestWithoutPreferRespondAsync() {
+		assertThrows(InvalidRequestException.class, () -> provider.systemExport(null, null, requestDetails, response));
+		
+		verify(bulkExportService, never()).startExport(any(), any(), any(), any(), any());
+	}
+	
+	@Test
+	public void exportPollStatus_shouldReportProgressWhileInProgress() throws Exception {
+		when(bulkExportService.getExport(JOB_ID)).thenReturn(job);
+		job.addOutput("Patient", "Patient.ndjson.gz", 3);
+		
+		provider.exportPollStatus(new StringType(JOB_ID), requestDetails, response);
+		
+		verify(response).setStatus(HttpServletResponse.SC_ACCEPTED);
+		verify(response).setHeader("X-Progress", "1 of 2 resource types exported");
+	}
+	
+	@Test
+	public void exportPollStatus_shouldReturnManifestWhenComplete() throws Exception {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+			
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+			
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+			
+			@Override
+			public void write(int b) {
+				body.write(b);
+			}
+		});
+		when(requestDetails.getFhirServerBase()).thenReturn(BASE_URL);
+		when(bulkExportService.getExport(JOB_ID)).thenReturn(job);
+		job.addOutput("Patient", "Patient.ndjson.gz", 3);
+		job.addOutput("Observation", "Observation.ndjson.gz", 10);
+		
+		provider.exportPollStatus(new StringType(JOB_ID), requestDetails, response);
+		
+		verify(response).setStatus(HttpServletResponse.SC_OK);
+		
+		JsonNode manifest = new ObjectMapper().readTree(body.toByteArray());
+		assertThat(manifest.get("request").asText(), equalTo(BASE_URL + "/$export"));
+		assertThat(manifest.get("output").size(), equalTo(2));
+		assertThat(manifest.get("output").get(0).get("type").asText(), equalTo("Patient"));
+		assertThat(manifest.get("output").get(0).get("url").asText(),
+		    equalTo(BASE_URL + "/$export-download?_jobId=" + JOB_ID + "&_file=Patient.ndjson.gz"));
+		assertThat(manifest.get("error").size(), equalTo(0));
+	}
+	
+	@Test
+	public void exportPollStatus_shouldThrowForUnknownJob() {
+		when(bulkExportService.getExport(JOB_ID)).thenReturn(null);
+		
+		assertThrows(ResourceNotFoundException.class,
+		    () -> provider.exportPollStatus(new StringType(JOB_ID), requestDetails, response));
+	}
+	
+	@Test
+	public void exportCancel_shouldCancelExport() {
+		when(bulkExportService.cancelExport(JOB_ID)).thenReturn(true);
+		
+		provider.exportCancel(new StringType(JOB_ID), response);
+		
+		verify(response).setStatus(HttpServletResponse.SC_ACCEPTED);
+	}
+}
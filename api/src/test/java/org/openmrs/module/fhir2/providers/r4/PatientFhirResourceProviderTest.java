@@ -17,6 +17,8 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -46,6 +48,7 @@ import org.hl7.fhir.r4.model.Enumerations;
 import org.hl7.fhir.r4.model.Group;
 import org.hl7.fhir.r4.model.HumanName;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.InstantType;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Patient;
@@ -556,7 +559,7 @@ public class PatientFhirResourceProviderTest extends BaseFhirProvenanceResourceT
 		when(patientService.getPatientEverything(any()))
 		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
 		
-		IBundleProvider results = resourceProvider.getPatientEverything(new IdType(PATIENT_UUID));
+		IBundleProvider results = resourceProvider.getPatientEverything(new IdType(PATIENT_UUID), null);
 		
 		List<IBaseResource> resultList = getAllResources(results);
 		
@@ -568,21 +571,21 @@ public class PatientFhirResourceProviderTest extends BaseFhirProvenanceResourceT
 	
 	@Test
 	public void searchForPatients_shouldReturnNullForPatientEverythingWhenIdParamIsMissing() {
-		IBundleProvider results = resourceProvider.getPatientEverything(null);
+		IBundleProvider results = resourceProvider.getPatientEverything(null, null);
 		
 		assertThat(results, nullValue());
 	}
 	
 	@Test
 	public void searchForPatients_shouldReturnNullForPatientEverythingWhenIdPartIsMissingInIdParam() {
-		IBundleProvider results = resourceProvider.getPatientEverything(new IdType());
+		IBundleProvider results = resourceProvider.getPatientEverything(new IdType(), null);
 		
 		assertThat(results, nullValue());
 	}
 	
 	@Test
 	public void searchForPatients_shouldReturnNullPatientEverythingWhenIdPartIsEmptyInIdParam() {
-		IBundleProvider results = resourceProvider.getPatientEverything(new IdType(""));
+		IBundleProvider results = resourceProvider.getPatientEverything(new IdType(""), null);
 		
 		assertThat(results, nullValue());
 	}
@@ -592,7 +595,7 @@ public class PatientFhirResourceProviderTest extends BaseFhirProvenanceResourceT
 		when(patientService.getPatientEverything())
 		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
 		
-		IBundleProvider results = resourceProvider.getPatientEverything();
+		IBundleProvider results = resourceProvider.getPatientEverything(null);
 		
 		List<IBaseResource> resultList = getAllResources(results);
 		
@@ -602,6 +605,33 @@ public class PatientFhirResourceProviderTest extends BaseFhirProvenanceResourceT
 		assertThat(((Patient) resultList.iterator().next()).getId(), equalTo(PATIENT_UUID));
 	}
 	
+	@Test
+	public void searchForPatients_shouldPassSinceToPatientEverything() {
+		Date since = new Date();
+		when(patientService.getPatientEverything(any(), eq(since)))
+		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
+		
+		IBundleProvider results = resourceProvider.getPatientEverything(new IdType(PATIENT_UUID), new InstantType(since));
+		
+		List<IBaseResource> resultList = getAllResources(results);
+		
+		assertThat(resultList, hasSize(1));
+		assertThat(((Patient) resultList.get(0)).getId(), equalTo(PATIENT_UUID));
+	}
+	
+	@Test
+	public void searchForPatients_shouldPassSinceToPatientEverythingForTypeLevel() {
+		Date since = new Date();
+		when(patientService.getPatientEverything(isNull(), eq(since)))
+		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
+		
+		IBundleProvider results = resourceProvider.getPatientEverything(new InstantType(since));
+		
+		List<IBaseResource> resultList = getAllResources(results);
+		
+		assertThat(resultList, hasSize(1));
+	}
+	
 	private List<IBaseResource> getResources(IBundleProvider result) {
 		return result.getResources(0, 10);
 	}
@@ -17,15 +17,18 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
 import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
@@ -192,7 +195,8 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		statusToken.setValue("ACCEPTED");
 		status.addAnd(new TokenOrListParam().add(statusToken));
 		
-		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, status, null, null, null, null);
+		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, status, null, null, null, null,
+		    null);
 		
 		List<IBaseResource> resultList = get(results);
 		
@@ -201,6 +205,19 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		assertThat(resultList.iterator().next().fhirType(), equalTo(FhirConstants.TASK));
 	}
 	
+	@Test
+	public void searchTasks_shouldWaitForMatchingTasksIfRequestPrefersToWait() {
+		when(mockRequestDetails.getHeaders(Constants.HEADER_PREFER))
+		        .thenReturn(Collections.singletonList("return=representation, wait=10"));
+		when(taskService.searchForTasks(any(), eq(10)))
+		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(task), 10, 1));
+		
+		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, null, null, null, null, null,
+		    mockRequestDetails);
+		
+		assertThat(get(results), hasSize(1));
+	}
+	
 	@Test
 	public void deleteTask_shouldDeleteRequestedTask() {
 		OperationOutcome result = resourceProvider.deleteTask(new IdType().setValue(TASK_UUID));
@@ -220,7 +237,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		        .thenReturn(new MockIBundleProvider<>(Arrays.asList(task, new Patient()), PREFERRED_PAGE_SIZE, COUNT));
 		
 		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, null, null, null, null,
-		    includes);
+		    includes, null);
 		
 		List<IBaseResource> resources = getResources(results);
 		
@@ -241,7 +258,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		        .thenReturn(new MockIBundleProvider<>(Arrays.asList(task, new Practitioner()), PREFERRED_PAGE_SIZE, COUNT));
 		
 		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, null, null, null, null,
-		    includes);
+		    includes, null);
 		
 		List<IBaseResource> resources = getResources(results);
 		
@@ -262,7 +279,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		        .thenReturn(new MockIBundleProvider<>(Arrays.asList(task, new Encounter()), PREFERRED_PAGE_SIZE, COUNT));
 		
 		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, null, null, null, null,
-		    includes);
+		    includes, null);
 		
 		List<IBaseResource> resources = getResources(results);
 		
@@ -284,7 +301,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		            new MockIBundleProvider<>(Arrays.asList(task, new ServiceRequest()), PREFERRED_PAGE_SIZE, COUNT));
 		
 		IBundleProvider results = resourceProvider.searchTasks(null, null, null, null, null, null, null, null, null,
-		    includes);
+		    includes, null);
 		
 		List<IBaseResource> resources = getResources(results);
 		
@@ -309,7 +326,7 @@ public class TaskFhirResourceProviderTest extends BaseFhirProvenanceResourceTest
 		
 		//when
 		IBundleProvider results = resourceProvider.searchTasks(null, null, null, focusReference, null, null, null, null,
-		    null, null);
+		    null, null, null);
 		
 		//then
 		ArgumentCaptor<TaskSearchParams> captor = ArgumentCaptor.forClass(TaskSearchParams.class);
@@ -0,0 +1,64 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.r4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.when;
+
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.hl7.fhir.r4.model.Bundle;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.FhirTransactionService;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionProviderTest {
+	
+	@Mock
+	private FhirTransactionService transactionService;
+	
+	private TransactionProvider provider;
+	
+	@Before
+	public void setup() {
+		provider = new TransactionProvider();
+		provider.setTransactionService(transactionService);
+	}
+	
+	@Test
+	public void transaction_shouldProcessTransactionBundle() {
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.TRANSACTION);
+		Bundle response = new Bundle().setType(Bundle.BundleType.TRANSACTIONRESPONSE);
+		when(transactionService.processTransaction(bundle)).thenReturn(response);
+		
+		assertThat(provider.transaction(bundle), sameInstance(response));
+	}
+	
+	@Test
+	public void transaction_shouldProcessBatchBundle() {
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.BATCH);
+		Bundle response = new Bundle().setType(Bundle.BundleType.BATCHRESPONSE);
+		when(transactionService.processBatch(bundle)).thenReturn(response);
+		
+		assertThat(provider.transaction(bundle), sameInstance(response));
+	}
+	
+	@Test
+	public void transaction_shouldRejectOtherBundleTypes() {
+		Bundle bundle = new Bundle().setType(Bundle.BundleType.COLLECTION);
+		
+		assertThrows(InvalidRequestException.class, () -> provider.transaction(bundle));
+	}
+}
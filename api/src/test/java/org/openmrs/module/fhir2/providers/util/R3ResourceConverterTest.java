@@ -0,0 +1,60 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.providers.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.Test;
+import org.openmrs.module.fhir2.FhirConstants;
+
+public class R3ResourceConverterTest {
+	
+	private static final String PATIENT_UUID = "5946f880-b197-400b-9caa-a3c661d23041";
+	
+	private static final String CONDITION_UUID = "604953c5-b5c6-4e1e-be95-e37d8f392046";
+	
+	@Test
+	public void convertToR3_shouldConvertResourceToR3() {
+		Patient patient = new Patient();
+		patient.setId(PATIENT_UUID);
+		patient.addName().setFamily("Doe");
+		
+		org.hl7.fhir.dstu3.model.Resource result = R3ResourceConverter.convertToR3(patient);
+		
+		assertThat(result, instanceOf(org.hl7.fhir.dstu3.model.Patient.class));
+		assertThat(result.getIdElement().getIdPart(), equalTo(PATIENT_UUID));
+		assertThat(((org.hl7.fhir.dstu3.model.Patient) result).getNameFirstRep().getFamily(), equalTo("Doe"));
+	}
+	
+	@Test
+	public void convertToR3_shouldDropClinicalStatusOfDiagnosisWithoutChangingSource() {
+		Condition condition = new Condition();
+		condition.setId(CONDITION_UUID);
+		condition.addCategory().addCoding().setSystem(FhirConstants.CONDITION_CATEGORY_SYSTEM_URI)
+		        .setCode(FhirConstants.CONDITION_CATEGORY_CODE_DIAGNOSIS);
+		condition.getClinicalStatus().addCoding().setCode("active");
+		
+		org.hl7.fhir.dstu3.model.Condition result = (org.hl7.fhir.dstu3.model.Condition) R3ResourceConverter
+		        .convertToR3(condition);
+		
+		assertThat(result.getClinicalStatus(), nullValue());
+		assertThat(condition.getClinicalStatus().getCodingFirstRep().getCode(), equalTo("active"));
+	}
+	
+	@Test
+	public void convertToR3_shouldReturnNullForNullResource() {
+		assertThat(R3ResourceConverter.convertToR3(null), nullValue());
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.api.dao.impl;
+
+import javax.persistence.criteria.CriteriaQuery;
+
+import java.util.concurrent.TimeUnit;
+
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringAndListParam;
+import ca.uhn.fhir.rest.param.StringOrListParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenAndListParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.Auditable;
+import org.openmrs.Obs;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.Patient;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.dao.FhirObservationDao;
+import org.openmrs.module.fhir2.api.dao.FhirPatientDao;
+import org.openmrs.module.fhir2.api.dao.internals.OpenmrsFhirCriteriaContext;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+import org.openmrs.module.fhir2.benchmarks.BaseFhirBenchmark;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+
+/**
+ * Measures the cost of turning a {@link SearchParameterMap} into a JPA criteria query for some of
+ * the most common searches. Only query construction is measured; the queries are not executed. This
+ * benchmark lives in the DAO package so that it can call the protected query-building methods of
+ * {@link BaseFhirDao} directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchCriteriaBenchmark extends BaseFhirBenchmark {
+	
+	private static final String PATIENT_UUID = "5946f880-b197-400b-9caa-a3c661d23041";
+	
+	private static final String CIEL_DIASTOLIC_BP = "5086";
+	
+	@Autowired
+	private FhirPatientDao patientDao;
+	
+	@Autowired
+	private FhirObservationDao observationDao;
+	
+	private FhirPatientDaoImpl patientDaoImpl;
+	
+	private FhirObservationDaoImpl observationDaoImpl;
+	
+	private SearchParameterMap patientNameSearch;
+	
+	private SearchParameterMap observationSearch;
+	
+	@Override
+	protected void setupFixtures() {
+		patientDaoImpl = AopTestUtils.getUltimateTargetObject(patientDao);
+		observationDaoImpl = AopTestUtils.getUltimateTargetObject(observationDao);
+		
+		patientNameSearch = new SearchParameterMap().addParameter(FhirConstants.NAME_SEARCH_HANDLER,
+		    FhirConstants.NAME_PROPERTY, new StringAndListParam().addAnd(new StringOrListParam().add(new StringParam("Doe"))));
+		patientNameSearch.setSortSpec(new SortSpec("name", SortOrderEnum.ASC));
+		
+		observationSearch = new SearchParameterMap()
+		        .addParameter(FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER,
+		            new ReferenceAndListParam()
+		                    .addAnd(new ReferenceOrListParam().add(new ReferenceParam().setValue(PATIENT_UUID))))
+		        .addParameter(FhirConstants.CODED_SEARCH_HANDLER,
+		            new TokenAndListParam().addAnd(new TokenParam().setValue(CIEL_DIASTOLIC_BP)))
+		        .addParameter(FhirConstants.DATE_RANGE_SEARCH_HANDLER, "obsDatetime",
+		            new DateRangeParam().setLowerBound("2008-01-01").setUpperBound("2010-12-31"));
+		observationSearch.setSortSpec(new SortSpec("date", SortOrderEnum.DESC));
+	}
+	
+	@Benchmark
+	public CriteriaQuery<Patient> patientNameSearch() {
+		return buildQuery(patientDaoImpl, patientNameSearch);
+	}
+	
+	@Benchmark
+	public CriteriaQuery<Obs> observationPatientCodeDateSearch() {
+		return buildQuery(observationDaoImpl, observationSearch);
+	}
+	
+	private static <T extends OpenmrsObject & Auditable> CriteriaQuery<T> buildQuery(
+	        BaseFhirDao<T> dao, SearchParameterMap theParams) {
+		OpenmrsFhirCriteriaContext<T, T> criteriaContext = dao.getSearchResultCriteria(theParams);
+		dao.handleSort(criteriaContext, theParams.getSortSpec());
+		dao.handleIdPropertyOrdering(criteriaContext, dao.getIdPropertyName(criteriaContext.getEntityManager()));
+		
+		CriteriaQuery<T> criteriaQuery = criteriaContext.finalizeQuery();
+		criteriaQuery.select(criteriaContext.getRoot());
+		return criteriaQuery;
+	}
+}
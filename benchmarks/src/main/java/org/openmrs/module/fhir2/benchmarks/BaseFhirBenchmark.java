@@ -0,0 +1,62 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.benchmarks;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openmrs.module.fhir2.BaseFhirContextSensitiveTest;
+import org.springframework.test.context.TestContextManager;
+
+/**
+ * Base class for benchmarks that need a running OpenMRS context. The benchmark is bootstrapped in
+ * exactly the same way as the module's context-sensitive tests, i.e., against an in-memory H2
+ * database populated with the standard test dataset, so that any dataset from the test-data module
+ * can be loaded via {@link #executeDataSet(String)}. <br/>
+ * <br/>
+ * Subclasses should be annotated with {@link org.openjdk.jmh.annotations.State} and load their
+ * fixtures by overriding {@link #setupFixtures()}.
+ */
+public abstract class BaseFhirBenchmark extends BaseFhirContextSensitiveTest {
+	
+	private TestContextManager testContextManager;
+	
+	private Method trialMethod;
+	
+	@Setup(Level.Trial)
+	public void setupOpenmrsContext() throws Exception {
+		trialMethod = BaseFhirBenchmark.class.getMethod("setupOpenmrsContext");
+		
+		testContextManager = new TestContextManager(getClass());
+		testContextManager.beforeTestClass();
+		testContextManager.prepareTestInstance(this);
+		testContextManager.beforeTestMethod(this, trialMethod);
+		
+		baseSetupWithStandardDataAndAuthentication();
+		setupBaseFhirContextSensitive();
+		setupFixtures();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDownOpenmrsContext() throws Exception {
+		if (testContextManager != null) {
+			testContextManager.afterTestMethod(this, trialMethod, null);
+			testContextManager.afterTestClass();
+		}
+	}
+	
+	/**
+	 * Loads the data required by the benchmark. Called once per trial after the OpenMRS context has
+	 * been started.
+	 */
+	protected abstract void setupFixtures() throws Exception;
+}
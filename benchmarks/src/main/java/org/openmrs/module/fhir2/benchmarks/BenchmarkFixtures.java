@@ -0,0 +1,109 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import ca.uhn.fhir.context.FhirContext;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.apache.commons.io.IOUtils;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Loads the FHIR resources used as benchmark fixtures from the test-data module.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BenchmarkFixtures {
+	
+	public static final String OBSERVATION_JSON = "org/openmrs/module/fhir2/providers/ObservationWebTest_create.json";
+	
+	public static final String PATIENT_JSON = "org/openmrs/module/fhir2/providers/PatientWebTest_create.json";
+	
+	/**
+	 * Reads a resource from the classpath as a string
+	 *
+	 * @param resource the classpath location of the resource
+	 * @return the contents of the resource
+	 */
+	public static String readResource(String resource) {
+		try (InputStream is = BenchmarkFixtures.class.getClassLoader().getResourceAsStream(resource)) {
+			if (is == null) {
+				throw new IllegalArgumentException("Could not find benchmark fixture " + resource);
+			}
+			
+			return IOUtils.toString(is, StandardCharsets.UTF_8);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Parses an R4 resource from a JSON file on the classpath
+	 *
+	 * @param fhirContext the R4 {@link FhirContext} to use
+	 * @param type the type of resource to parse
+	 * @param resource the classpath location of the resource
+	 * @return the parsed resource
+	 */
+	public static <T extends Resource> T parseResource(FhirContext fhirContext, Class<T> type, String resource) {
+		return fhirContext.newJsonParser().parseResource(type, readResource(resource));
+	}
+	
+	/**
+	 * Creates a list of alternating Observation and Patient resources, each with a distinct id, as a
+	 * stand-in for a page of search results
+	 *
+	 * @param fhirContext the R4 {@link FhirContext} to use
+	 * @param size the number of resources to create
+	 * @return the list of resources
+	 */
+	public static List<Resource> searchResults(FhirContext fhirContext, int size) {
+		Observation observation = parseResource(fhirContext, Observation.class, OBSERVATION_JSON);
+		Patient patient = parseResource(fhirContext, Patient.class, PATIENT_JSON);
+		
+		List<Resource> results = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Resource resource = i % 2 == 0 ? observation.copy() : patient.copy();
+			resource.setId(UUID.randomUUID().toString());
+			results.add(resource);
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Wraps a list of resources in a searchset {@link Bundle}
+	 *
+	 * @param resources the resources to include
+	 * @return a searchset bundle containing the resources
+	 */
+	public static Bundle searchSet(List<Resource> resources) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		bundle.setTotal(resources.size());
+		for (Resource resource : resources) {
+			bundle.addEntry().setFullUrl("http://localhost/ws/fhir2/R4/" + resource.fhirType() + "/" + resource.getIdPart())
+			        .setResource(resource).getSearch().setMode(Bundle.SearchEntryMode.MATCH);
+		}
+		
+		return bundle;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.fhir2.api.util.JsonPatchUtils;
+import org.openmrs.module.fhir2.api.util.XmlPatchUtils;
+
+/**
+ * Compares patching the status of a Task in the resource itself with patching the encoded resource
+ * and parsing the result, for JSON Patch, JSON Merge Patch and XML Patch. Both cases are given the
+ * patch body, so parsing the patch is measured in each of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatchBenchmark {
+	
+	private static final String JSON_PATCH = "[{ \"op\": \"replace\", \"path\": \"/status\", \"value\": \"completed\" }]";
+	
+	private static final String JSON_MERGE_PATCH = "{ \"status\": \"completed\" }";
+	
+	private static final String XML_PATCH = "<diff xmlns:fhir=\"http://hl7.org/fhir\">"
+	        + "<replace sel=\"/fhir:Task/fhir:status/@value\">completed</replace></diff>";
+	
+	private FhirContext fhirContext;
+	
+	private Task task;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		fhirContext = FhirContext.forR4();
+		
+		task = new Task();
+		task.setId("bdd7e368-3d1a-42a9-9538-395391b64adf");
+		task.setStatus(Task.TaskStatus.ACCEPTED);
+		task.setIntent(Task.TaskIntent.ORDER);
+		task.setFor(new Reference("Patient/5946f880-b197-400b-9caa-a3c661d23041").setDisplay("John Doe"));
+		task.setOwner(new Reference("Practitioner/f9badd80-ab76-11e2-9e96-0800200c9a66"));
+		task.addBasedOn(new Reference("ServiceRequest/7d96f25c-4949-4f72-9931-d808fbc226de"));
+		task.getMeta().setVersionId("1");
+		for (int i = 0; i < 5; i++) {
+			task.addOutput().setValue(new Reference("Observation/" + i)).getType().addCoding().setCode("output-" + i);
+			task.addNote().setText("Note " + i);
+		}
+	}
+	
+	@Benchmark
+	public Task jsonPatchInResource() {
+		return JsonPatchUtils.applyJsonPatch(fhirContext, task, JSON_PATCH);
+	}
+	
+	@Benchmark
+	public Task jsonPatchEncoded() {
+		return JsonPatchUtils.applyJsonPatchToEncodedResource(fhirContext, task, JSON_PATCH);
+	}
+	
+	@Benchmark
+	public Task jsonMergePatchInResource() {
+		return JsonPatchUtils.applyJsonMergePatch(fhirContext, task, JSON_MERGE_PATCH);
+	}
+	
+	@Benchmark
+	public Task jsonMergePatchEncoded() {
+		return JsonPatchUtils.applyJsonMergePatchToEncodedResource(fhirContext, task, JSON_MERGE_PATCH);
+	}
+	
+	@Benchmark
+	public Task xmlPatchInResource() {
+		return XmlPatchUtils.applyXmlPatch(fhirContext, task, XML_PATCH);
+	}
+	
+	@Benchmark
+	public Task xmlPatchEncoded() {
+		return XmlPatchUtils.applyXmlPatchToEncodedResource(fhirContext, task, XML_PATCH);
+	}
+}
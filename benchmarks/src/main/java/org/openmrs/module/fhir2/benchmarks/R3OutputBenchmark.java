@@ -0,0 +1,79 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.fhir2.providers.util.R3ResourceConverter;
+
+/**
+ * Compares writing a page of search results as an R4 searchset bundle with writing the same page as
+ * an STU3 bundle, for which every resource is converted by {@link R3ResourceConverter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class R3OutputBenchmark {
+	
+	@Param({ "10", "100" })
+	public int pageSize;
+	
+	@Param({ "R4", "R3" })
+	public String output;
+	
+	private FhirContext r4Context;
+	
+	private FhirContext r3Context;
+	
+	private List<Resource> results;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		r4Context = FhirContext.forR4();
+		r3Context = FhirContext.forDstu3();
+		results = BenchmarkFixtures.searchResults(r4Context, pageSize);
+	}
+	
+	@Benchmark
+	public String encodeJson() {
+		if ("R4".equals(output)) {
+			return r4Context.newJsonParser().encodeResourceToString(BenchmarkFixtures.searchSet(results));
+		}
+		
+		org.hl7.fhir.dstu3.model.Bundle bundle = new org.hl7.fhir.dstu3.model.Bundle();
+		bundle.setType(org.hl7.fhir.dstu3.model.Bundle.BundleType.SEARCHSET);
+		bundle.setTotal(results.size());
+		for (Resource resource : results) {
+			org.hl7.fhir.dstu3.model.Resource converted = R3ResourceConverter.convertToR3(resource);
+			bundle.addEntry().setFullUrl(
+			    "http://localhost/ws/fhir2/R3/" + converted.fhirType() + "/" + converted.getIdElement().getIdPart())
+			        .setResource(converted);
+		}
+		
+		return r3Context.newJsonParser().encodeResourceToString(bundle);
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.Concept;
+import org.openmrs.Obs;
+import org.openmrs.api.ConceptService;
+import org.openmrs.api.ObsService;
+import org.openmrs.api.PatientService;
+import org.openmrs.module.fhir2.api.translators.ConceptTranslator;
+import org.openmrs.module.fhir2.api.translators.ObservationTranslator;
+import org.openmrs.module.fhir2.api.translators.PatientTranslator;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Measures translation of representative OpenMRS objects to their R4 representations and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark extends BaseFhirBenchmark {
+	
+	private static final String OBS_DATA_XML = "org/openmrs/module/fhir2/api/dao/impl/FhirObservationDaoImplTest_initial_data_2.1.xml";
+	
+	private static final String OBS_UUID = "b0b9c14f-2123-4c0f-9a5c-918e192629f0";
+	
+	private static final String PATIENT_UUID = "5946f880-b197-400b-9caa-a3c661d23041";
+	
+	private static final String CONCEPT_UUID = "5089AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+	
+	@Autowired
+	private ObservationTranslator observationTranslator;
+	
+	@Autowired
+	private PatientTranslator patientTranslator;
+	
+	@Autowired
+	private ConceptTranslator conceptTranslator;
+	
+	@Autowired
+	private ObsService obsService;
+	
+	@Autowired
+	private PatientService patientService;
+	
+	@Autowired
+	private ConceptService conceptService;
+	
+	private Obs obs;
+	
+	private org.openmrs.Patient patient;
+	
+	private Concept concept;
+	
+	private Observation observation;
+	
+	private Patient fhirPatient;
+	
+	private CodeableConcept codeableConcept;
+	
+	@Override
+	protected void setupFixtures() throws Exception {
+		executeDataSet(OBS_DATA_XML);
+		
+		obs = obsService.getObsByUuid(OBS_UUID);
+		patient = patientService.getPatientByUuid(PATIENT_UUID);
+		concept = conceptService.getConceptByUuid(CONCEPT_UUID);
+		
+		FhirContext fhirContext = FhirContext.forR4();
+		observation = BenchmarkFixtures.parseResource(fhirContext, Observation.class, BenchmarkFixtures.OBSERVATION_JSON);
+		fhirPatient = BenchmarkFixtures.parseResource(fhirContext, Patient.class, BenchmarkFixtures.PATIENT_JSON);
+		codeableConcept = conceptTranslator.toFhirResource(concept);
+	}
+	
+	@Benchmark
+	public Observation observationToFhir() {
+		return observationTranslator.toFhirResource(obs);
+	}
+	
+	@Benchmark
+	public Obs observationToOpenmrs() {
+		return observationTranslator.toOpenmrsType(observation);
+	}
+	
+	@Benchmark
+	public Patient patientToFhir() {
+		return patientTranslator.toFhirResource(patient);
+	}
+	
+	@Benchmark
+	public org.openmrs.Patient patientToOpenmrs() {
+		return patientTranslator.toOpenmrsType(fhirPatient);
+	}
+	
+	@Benchmark
+	public CodeableConcept conceptToFhir() {
+		return conceptTranslator.toFhirResource(concept);
+	}
+	
+	@Benchmark
+	public Concept conceptToOpenmrs() {
+		return conceptTranslator.toOpenmrsType(codeableConcept);
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.narrative;
+
+/**
+ * Records whether narratives should be generated for the resources returned by the request being
+ * handled by the current thread. This is set by the web layer for the duration of a request and
+ * consulted by {@link OpenmrsThymeleafNarrativeGenerator}, so responses that nobody will read as
+ * HTML do not pay for rendering narrative templates.
+ */
+public final class NarrativeSuppressionContext {
+	
+	private static final ThreadLocal<Boolean> suppressed = new ThreadLocal<>();
+	
+	private NarrativeSuppressionContext() {
+	}
+	
+	/**
+	 * @return {@code true} if narratives should not be generated on this thread
+	 */
+	public static boolean isSuppressed() {
+		return Boolean.TRUE.equals(suppressed.get());
+	}
+	
+	/**
+	 * @param suppress whether narratives should not be generated on this thread
+	 */
+	public static void setSuppressed(boolean suppress) {
+		if (suppress) {
+			suppressed.set(Boolean.TRUE);
+		} else {
+			suppressed.remove();
+		}
+	}
+	
+	public static void clear() {
+		suppressed.remove();
+	}
+}
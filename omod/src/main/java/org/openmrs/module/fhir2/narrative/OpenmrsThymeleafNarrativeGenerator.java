@@ -24,25 +24,49 @@ package org.openmrs.module.fhir2.narrative;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.narrative2.ThymeleafNarrativeGenerator;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.apache.commons.lang.Validate;
+import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IDomainResource;
+import org.hl7.fhir.instance.model.api.INarrative;
 import org.springframework.context.MessageSource;
 
 /**
- * Class for carrying out the task of narrative generation
+ * Class for carrying out the task of narrative generation. <br/>
+ * <br/>
+ * Rendering a narrative template is one of the most expensive parts of serializing a resource, so
+ * generated narratives are kept in a bounded cache keyed by the resource type, id, version id and
+ * locale. Resources without a version id are always rendered. No narratives are generated while
+ * {@link NarrativeSuppressionContext#isSuppressed()} is {@code true}.
  */
 public class OpenmrsThymeleafNarrativeGenerator extends ThymeleafNarrativeGenerator {
 	
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+	
+	// the version id covers the resource itself, but not everything a narrative may display, e.g., the
+	// name of a referenced patient, so cached narratives are also expired after a while
+	private static final long CACHE_TIME_TO_LIVE_MINUTES = 10;
+	
+	private static final String GENERATED_STATUS = "generated";
+	
 	private boolean isInitialized;
 	
 	@Getter
 	private List<String> propertyFiles;
 	
+	private final Cache<NarrativeKey, String> narrativeCache;
+	
 	public OpenmrsThymeleafNarrativeGenerator(MessageSource messageSource, String... propertyFiles) {
 		this(messageSource, Arrays.asList(propertyFiles));
 	}
@@ -53,9 +77,21 @@ public class OpenmrsThymeleafNarrativeGenerator extends ThymeleafNarrativeGenera
 	 * @param propertyFiles property files to define the narratives for this narrative generator
 	 */
 	public OpenmrsThymeleafNarrativeGenerator(MessageSource messageSource, List<String> propertyFiles) {
+		this(messageSource, propertyFiles, DEFAULT_CACHE_SIZE);
+	}
+	
+	/**
+	 * Constructor for OpenMRSThymeleafNarrativeGenerator
+	 *
+	 * @param propertyFiles property files to define the narratives for this narrative generator
+	 * @param cacheSize the maximum number of generated narratives to cache; {@code 0} disables caching
+	 */
+	public OpenmrsThymeleafNarrativeGenerator(MessageSource messageSource, List<String> propertyFiles, int cacheSize) {
 		super();
 		setMessageResolver(new OpenmrsMessageResolver(messageSource));
 		setPropertyFiles(propertyFiles);
+		narrativeCache = cacheSize > 0 ? Caffeine.newBuilder().maximumSize(cacheSize)
+		        .expireAfterWrite(CACHE_TIME_TO_LIVE_MINUTES, TimeUnit.MINUTES).build() : null;
 	}
 	
 	/**
@@ -71,7 +107,40 @@ public class OpenmrsThymeleafNarrativeGenerator extends ThymeleafNarrativeGenera
 			initialize();
 		}
 		
-		return super.populateResourceNarrative(theFhirContext, theResource);
+		if (NarrativeSuppressionContext.isSuppressed()) {
+			return false;
+		}
+		
+		NarrativeKey key = getCacheKey(theFhirContext, theResource);
+		if (key == null) {
+			return super.populateResourceNarrative(theFhirContext, theResource);
+		}
+		
+		INarrative narrative = ((IDomainResource) theResource).getText();
+		String cachedDiv = narrativeCache.getIfPresent(key);
+		if (cachedDiv != null) {
+			try {
+				narrative.setDivAsString(cachedDiv);
+			}
+			catch (Exception e) {
+				throw new InternalErrorException(e);
+			}
+			
+			narrative.setStatusAsString(GENERATED_STATUS);
+			return true;
+		}
+		
+		boolean populated = super.populateResourceNarrative(theFhirContext, theResource);
+		if (populated && !narrative.isEmpty()) {
+			try {
+				narrativeCache.put(key, narrative.getDivAsString());
+			}
+			catch (Exception e) {
+				throw new InternalErrorException(e);
+			}
+		}
+		
+		return populated;
 	}
 	
 	/**
@@ -99,4 +168,32 @@ public class OpenmrsThymeleafNarrativeGenerator extends ThymeleafNarrativeGenera
 			isInitialized = true;
 		}
 	}
+	
+	private NarrativeKey getCacheKey(FhirContext theFhirContext, IBaseResource theResource) {
+		if (narrativeCache == null || !(theResource instanceof IDomainResource) || theResource.getMeta() == null) {
+			return null;
+		}
+		
+		String id = theResource.getIdElement().getIdPart();
+		String versionId = theResource.getMeta().getVersionId();
+		if (StringUtils.isBlank(id) || StringUtils.isBlank(versionId)) {
+			return null;
+		}
+		
+		// templates are rendered using the default locale, see ThymeleafNarrativeGenerator#applyTemplate()
+		return new NarrativeKey(theFhirContext.getResourceType(theResource), id, versionId, Locale.getDefault());
+	}
+	
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	private static final class NarrativeKey {
+		
+		private final String resourceType;
+		
+		private final String id;
+		
+		private final String versionId;
+		
+		private final Locale locale;
+	}
 }
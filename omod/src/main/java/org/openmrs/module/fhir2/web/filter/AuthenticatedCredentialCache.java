@@ -0,0 +1,141 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Remembers which user a {@code Basic} {@code Authorization} header was recently authenticated as, so
+ * that clients sending the same credentials with every request are not authenticated from scratch,
+ * i.e., without hashing the password and looking the user up by username again. <br/>
+ * <br/>
+ * Headers are never stored. Entries are keyed by a SHA-256 digest of the header and a random salt
+ * generated when the class is loaded, so the keys cannot be used to recover or test credentials.
+ * Entries expire a short time after they were created and all entries are discarded whenever a user
+ * is changed (see {@link UserChangeAdvice}). Entries of locked out users are discarded by the
+ * {@link AuthenticationFilter} when they are next used. The hits and misses of the cache are reported
+ * by the {@code $request-metrics} operation.
+ */
+public final class AuthenticatedCredentialCache {
+	
+	public static final long DEFAULT_MAXIMUM_SIZE = 1000;
+	
+	public static final long DEFAULT_TIME_TO_LIVE = 60;
+	
+	public static final String STATISTICS_NAME = "basicAuthenticationCredentials";
+	
+	private static final int SALT_LENGTH = 32;
+	
+	private static final byte[] salt = new byte[SALT_LENGTH];
+	
+	private static volatile Cache<String, Integer> cache;
+	
+	static {
+		new SecureRandom().nextBytes(salt);
+		configure(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+	
+	private AuthenticatedCredentialCache() {
+	}
+	
+	/**
+	 * Replaces the cache with an empty cache of the given size
+	 *
+	 * @param maximumSize the maximum number of credentials to remember; {@code 0} disables the cache
+	 * @param timeToLive the number of seconds credentials are remembered for; {@code 0} disables the
+	 *            cache
+	 */
+	public static synchronized void configure(long maximumSize, long timeToLive) {
+		if (maximumSize <= 0 || timeToLive <= 0) {
+			cache = null;
+			return;
+		}
+		
+		cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+		        .recordStats().build();
+	}
+	
+	/**
+	 * @param authorizationHeader the value of the {@code Authorization} header
+	 * @return the id of the user the header was recently authenticated as or {@code null}
+	 */
+	public static Integer getUserId(String authorizationHeader) {
+		Cache<String, Integer> currentCache = cache;
+		if (currentCache == null) {
+			return null;
+		}
+		
+		return currentCache.getIfPresent(digest(authorizationHeader));
+	}
+	
+	/**
+	 * Records that the header was successfully authenticated as the given user
+	 *
+	 * @param authorizationHeader the value of the {@code Authorization} header
+	 * @param userId the id of the authenticated user
+	 */
+	public static void put(String authorizationHeader, Integer userId) {
+		Cache<String, Integer> currentCache = cache;
+		if (currentCache != null && userId != null) {
+			currentCache.put(digest(authorizationHeader), userId);
+		}
+	}
+	
+	/**
+	 * Forgets the user the header was authenticated as
+	 *
+	 * @param authorizationHeader the value of the {@code Authorization} header
+	 */
+	public static void invalidate(String authorizationHeader) {
+		Cache<String, Integer> currentCache = cache;
+		if (currentCache != null) {
+			currentCache.invalidate(digest(authorizationHeader));
+		}
+	}
+	
+	/**
+	 * Forgets all remembered credentials
+	 */
+	public static void invalidateAll() {
+		Cache<String, Integer> currentCache = cache;
+		if (currentCache != null) {
+			currentCache.invalidateAll();
+		}
+	}
+	
+	/**
+	 * @return the hit and miss statistics of the cache since it was configured
+	 */
+	public static CacheStats getStats() {
+		Cache<String, Integer> currentCache = cache;
+		return currentCache == null ? CacheStats.empty() : currentCache.stats();
+	}
+	
+	private static String digest(String authorizationHeader) {
+		try {
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			messageDigest.update(salt);
+			return Hex.encodeHexString(messageDigest.digest(authorizationHeader.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
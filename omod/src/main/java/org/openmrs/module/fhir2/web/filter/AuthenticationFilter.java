@@ -21,15 +21,37 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.User;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.BasicAuthenticated;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
 import org.openmrs.api.context.UsernamePasswordCredentials;
+import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.PrivilegeConstants;
 
+@Slf4j
 public class AuthenticationFilter implements Filter {
 	
+	public static final String CREDENTIAL_CACHE_SIZE_PARAMETER = "credentialCacheSize";
+	
+	public static final String CREDENTIAL_CACHE_TIME_TO_LIVE_PARAMETER = "credentialCacheTimeToLive";
+	
+	private static final String CACHED_AUTHENTICATION_SCHEME = "fhir2 cached basic authentication";
+	
 	@Override
 	public void init(FilterConfig filterConfig) {
+		if (filterConfig != null) {
+			AuthenticatedCredentialCache.configure(
+			    NumberUtils.toLong(filterConfig.getInitParameter(CREDENTIAL_CACHE_SIZE_PARAMETER),
+			        AuthenticatedCredentialCache.DEFAULT_MAXIMUM_SIZE),
+			    NumberUtils.toLong(filterConfig.getInitParameter(CREDENTIAL_CACHE_TIME_TO_LIVE_PARAMETER),
+			        AuthenticatedCredentialCache.DEFAULT_TIME_TO_LIVE));
+		}
 	}
 	
 	@Override
@@ -48,12 +70,21 @@ public class AuthenticationFilter implements Filter {
 					if (!StringUtils.isBlank(basicAuth) && basicAuth.startsWith("Basic")) {
 						// this is "Basic ${base64encode(username + ":" + password)}"
 						try {
+							String authorizationHeader = basicAuth;
 							basicAuth = basicAuth.substring(6); // remove the leading "Basic "
 							String decoded = new String(Base64.decodeBase64(basicAuth), StandardCharsets.UTF_8);
 							String[] userAndPass = decoded.split(":");
 							UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(userAndPass[0],
 							        userAndPass[1]);
-							Context.authenticate(credentials);
+							
+							if (!authenticateFromCache(authorizationHeader, credentials)) {
+								Context.authenticate(credentials);
+								
+								User authenticatedUser = Context.getAuthenticatedUser();
+								if (authenticatedUser != null) {
+									AuthenticatedCredentialCache.put(authorizationHeader, authenticatedUser.getUserId());
+								}
+							}
 						}
 						catch (Exception e) {
 							HttpServletResponse httpResponse = (HttpServletResponse) response;
@@ -71,7 +102,54 @@ public class AuthenticationFilter implements Filter {
 		chain.doFilter(request, response);
 	}
 	
-	@Override
-	public void destroy() {
+	/**
+	 * Authenticates the request as the user the same {@code Authorization} header was recently
+	 * authenticated as, without checking the password again. A new {@link UserContext} is used for the
+	 * request, so the user is only authenticated for the current request. Users that have been locked
+	 * out are always authenticated from scratch, so that OpenMRS decides whether the lockout still
+	 * applies.
+	 *
+	 * @return {@code true} if the request was authenticated
+	 */
+	private boolean authenticateFromCache(String authorizationHeader, UsernamePasswordCredentials credentials) {
+		Integer userId = AuthenticatedCredentialCache.getUserId(authorizationHeader);
+		if (userId == null) {
+			return false;
+		}
+		
+		User user;
+		try {
+			Context.addProxyPrivilege(PrivilegeConstants.GET_USERS);
+			user = Context.getUserService().getUser(userId);
+		}
+		catch (APIException e) {
+			log.debug("Could not load user {} for cached credentials", userId, e);
+			return false;
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_USERS);
+		}
+		
+		if (user == null || user.getRetired() || !StringUtils.equalsIgnoreCase(credentials.getUsername(), user.getUsername())
+		        && !StringUtils.equalsIgnoreCase(credentials.getUsername(), user.getSystemId())) {
+			AuthenticatedCredentialCache.invalidateAll();
+			return false;
+		}
+		
+		if (isLockedOut(user)) {
+			AuthenticatedCredentialCache.invalidate(authorizationHeader);
+			return false;
+		}
+		
+		UserContext userContext = new UserContext(
+		        ignored -> new BasicAuthenticated(user, CACHED_AUTHENTICATION_SCHEME));
+		Context.setUserContext(userContext);
+		userContext.authenticate(credentials);
+		return true;
+	}
+	
+	private static boolean isLockedOut(User user) {
+		String lockoutTimestamp = user.getUserProperty(OpenmrsConstants.USER_PROPERTY_LOCKOUT_TIMESTAMP);
+		return StringUtils.isNotBlank(lockoutTimestamp) && !"0".equals(lockoutTimestamp.trim());
 	}
 }
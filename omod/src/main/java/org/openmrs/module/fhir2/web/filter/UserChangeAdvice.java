@@ -0,0 +1,37 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.filter;
+
+import java.lang.reflect.Method;
+
+import org.springframework.aop.AfterReturningAdvice;
+
+/**
+ * Discards the credentials remembered by {@link AuthenticatedCredentialCache} whenever a method of the
+ * {@link org.openmrs.api.UserService} that can change a user, e.g., their password, their status or
+ * the user itself, completes. These changes are rare enough that it is simpler to forget every user
+ * than to work out which users were affected.
+ */
+public class UserChangeAdvice implements AfterReturningAdvice {
+	
+	private static final String[] CHANGING_METHOD_PREFIXES = { "save", "change", "retire", "unretire", "void", "unvoid",
+	        "purge", "delete" };
+	
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		String methodName = method.getName();
+		for (String prefix : CHANGING_METHOD_PREFIXES) {
+			if (methodName.startsWith(prefix)) {
+				AuthenticatedCredentialCache.invalidateAll();
+				return;
+			}
+		}
+	}
+}
@@ -15,6 +15,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
@@ -23,18 +24,22 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.BasePagingProvider;
-import ca.uhn.fhir.rest.server.FifoMemoryPagingProvider;
 import ca.uhn.fhir.rest.server.IResourceProvider;
 import ca.uhn.fhir.rest.server.IServerAddressStrategy;
 import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.interceptor.LoggingInterceptor;
+import ca.uhn.fhir.rest.server.method.BaseMethodBinding;
 import lombok.AccessLevel;
 import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
 import org.openmrs.GlobalProperty;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.GlobalPropertyListener;
@@ -43,15 +48,25 @@ import org.openmrs.module.ModuleFactory;
 import org.openmrs.module.fhir2.FhirActivator;
 import org.openmrs.module.fhir2.FhirConstants;
 import org.openmrs.module.fhir2.api.FhirGlobalPropertyService;
+import org.openmrs.module.fhir2.api.FhirRequestMetricsService;
 import org.openmrs.module.fhir2.api.annotations.R4Provider;
 import org.openmrs.module.fhir2.api.spi.ModuleLifecycleListener;
 import org.openmrs.module.fhir2.narrative.OpenmrsThymeleafNarrativeGenerator;
 import org.openmrs.module.fhir2.web.authentication.RequireAuthenticationInterceptor;
-import org.openmrs.module.fhir2.web.util.DisableCacheInterceptor;
+import org.openmrs.module.fhir2.web.filter.AuthenticatedCredentialCache;
+import org.openmrs.module.fhir2.web.util.CacheControlInterceptor;
+import org.openmrs.module.fhir2.web.util.ConditionalReadInterceptor;
+import org.openmrs.module.fhir2.web.util.FileBackedPagingProvider;
+import org.openmrs.module.fhir2.web.util.NarrativeInterceptor;
 import org.openmrs.module.fhir2.web.util.NarrativeUtils;
+import org.openmrs.module.fhir2.web.util.OpenmrsFhirPagingProvider;
+import org.openmrs.module.fhir2.web.util.RequestMetricsInterceptor;
+import org.openmrs.module.fhir2.web.util.SearchTotalModeInterceptor;
+import org.openmrs.module.fhir2.web.util.StreamingSearchMethodBinding;
 import org.openmrs.module.fhir2.web.util.SummaryInterceptor;
 import org.openmrs.module.fhir2.web.util.SupportMergePatchInterceptor;
 import org.openmrs.util.OpenmrsClassLoader;
+import org.openmrs.util.OpenmrsUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -64,6 +79,8 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 	
 	private static final long serialVersionUID = 2L;
 	
+	private static final String PAGING_DIRECTORY = "fhir2/paging";
+	
 	private static final List<String> DEFAULT_NARRATIVE_FILES = Arrays.asList(FhirConstants.OPENMRS_NARRATIVES_PROPERTY_FILE,
 	    FhirConstants.HAPI_NARRATIVES_PROPERTY_FILE);
 	
@@ -76,8 +93,14 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 	@Setter(value = AccessLevel.PUBLIC, onMethod_ = { @Qualifier("hapiLoggingInterceptor"), @Autowired })
 	private LoggingInterceptor loggingInterceptor;
 	
+	@Setter(value = AccessLevel.PUBLIC, onMethod_ = { @Autowired })
+	private FhirRequestMetricsService requestMetricsService;
+	
 	private boolean started = false;
 	
+	// the streaming bindings for the search bindings registered by HAPI
+	private final Map<BaseMethodBinding<?>, BaseMethodBinding<?>> streamingBindings = new ConcurrentHashMap<>();
+	
 	@Setter(value = AccessLevel.PUBLIC, onMethod_ = { @Qualifier("messageSourceService"), @Autowired })
 	private MessageSource messageSource;
 	
@@ -134,7 +157,7 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 			// listen to the module lifecycle calls
 			activator.addModuleLifecycleListener(this);
 		}
-
+		
 		// globalPropertyService is chosen reasonably arbitrarily to ensure we don't overwrite classes explicitly added
 		// by tests
 		if (globalPropertyService == null) {
@@ -142,19 +165,17 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 			autoInject();
 			administrationService.addGlobalPropertyListener(fhirRestServletListener);
 		}
-
+		
 		setPagingProvider(createPagingProvider());
 		setDefaultResponseEncoding(EncodingEnum.JSON);
-
-		registerInterceptor(loggingInterceptor);
-		registerInterceptor(new RequireAuthenticationInterceptor());
-		registerInterceptor(new DisableCacheInterceptor());
-		registerInterceptor(new SummaryInterceptor());
-		registerInterceptor(new SupportMergePatchInterceptor());
-
+		
+		registerPlainProviders(FhirActivator.getApplicationContext());
+		
+		registerInterceptors();
+		
 		String narrativesOverridePropertyFile = NarrativeUtils.getValidatedPropertiesFilePath(
 				globalPropertyService.getGlobalProperty(FhirConstants.NARRATIVES_OVERRIDE_PROPERTY_FILE, null));
-
+		
 		List<String> narrativePropertiesFiles;
 		if (narrativesOverridePropertyFile != null) {
 			narrativePropertiesFiles = new ArrayList<>(3);
@@ -163,10 +184,13 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 		} else {
 			narrativePropertiesFiles = DEFAULT_NARRATIVE_FILES;
 		}
-
-		getFhirContext()
-				.setNarrativeGenerator(new OpenmrsThymeleafNarrativeGenerator(messageSource, narrativePropertiesFiles));
-
+		
+		int narrativeCacheSize = globalPropertyService.getGlobalPropertyAsInteger(
+				FhirConstants.OPENMRS_FHIR_NARRATIVE_CACHE_SIZE, OpenmrsThymeleafNarrativeGenerator.DEFAULT_CACHE_SIZE);
+		
+		getFhirContext().setNarrativeGenerator(
+				new OpenmrsThymeleafNarrativeGenerator(messageSource, narrativePropertiesFiles, narrativeCacheSize));
+		
 		started = true;
 	}
 	//@formatter:on
@@ -186,6 +210,16 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 		        .substring(escapedLength(servletContextPath) + escapedLength(servletPath) + escapedLength("/fhir2Servlet"));
 	}
 	
+	@Override
+	public BaseMethodBinding<?> determineResourceMethod(RequestDetails requestDetails, String requestPath) {
+		BaseMethodBinding<?> methodBinding = super.determineResourceMethod(requestDetails, requestPath);
+		if (!StreamingSearchMethodBinding.isEnabled()) {
+			return methodBinding;
+		}
+		
+		return streamingBindings.computeIfAbsent(methodBinding, StreamingSearchMethodBinding::forBinding);
+	}
+	
 	@Override
 	protected void service(HttpServletRequest theReq, HttpServletResponse theResp) throws ServletException, IOException {
 		Thread.currentThread().setContextClassLoader(OpenmrsClassLoader.getInstance());
@@ -218,12 +252,61 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 		int maximumPageSize = globalPropertyService.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_MAXIMUM_PAGE_SIZE,
 		    100);
 		
-		BasePagingProvider pagingProvider = new FifoMemoryPagingProvider(100);
+		String pagingStore = globalPropertyService.getGlobalProperty(FhirConstants.OPENMRS_FHIR_PAGING_STORE, "memory");
+		
+		BasePagingProvider pagingProvider;
+		if ("file".equalsIgnoreCase(pagingStore)) {
+			String directoryName = globalPropertyService
+			        .getGlobalProperty(FhirConstants.OPENMRS_FHIR_PAGING_STORE_DIRECTORY, null);
+			File directory = StringUtils.isBlank(directoryName)
+			        ? OpenmrsUtil.getDirectoryInApplicationDataDirectory(PAGING_DIRECTORY)
+			        : new File(directoryName);
+			int storeSize = globalPropertyService.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_PAGING_STORE_SIZE,
+			    10000);
+			int timeToLive = globalPropertyService
+			        .getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_PAGING_STORE_TIME_TO_LIVE, 60);
+			
+			pagingProvider = new FileBackedPagingProvider(directory, 100, storeSize, TimeUnit.MINUTES.toMillis(timeToLive));
+		} else {
+			pagingProvider = new OpenmrsFhirPagingProvider(100);
+		}
+		
 		pagingProvider.setDefaultPageSize(defaultPageSize);
 		pagingProvider.setMaximumPageSize(maximumPageSize);
 		return pagingProvider;
 	}
 	
+	/**
+	 * Registers the interceptors used by this server, both when it is first initialized and when the
+	 * application context is refreshed
+	 */
+	private void registerInterceptors() {
+		registerInterceptor(loggingInterceptor);
+		registerInterceptor(new RequestMetricsInterceptor(requestMetricsService));
+		// the AuthenticationFilter caches Basic credentials before requests reach this servlet
+		requestMetricsService.registerCacheStatistics(AuthenticatedCredentialCache.STATISTICS_NAME,
+		    () -> AuthenticatedCredentialCache.getStats().hitCount(),
+		    () -> AuthenticatedCredentialCache.getStats().missCount());
+		registerInterceptor(new RequireAuthenticationInterceptor());
+		registerInterceptor(new CacheControlInterceptor());
+		registerInterceptor(new ConditionalReadInterceptor());
+		registerInterceptor(new SummaryInterceptor());
+		registerInterceptor(new NarrativeInterceptor());
+		registerInterceptor(new SearchTotalModeInterceptor());
+		registerInterceptor(new SupportMergePatchInterceptor());
+	}
+	
+	/**
+	 * Registers the providers for this server's FHIR version that are not resource providers, e.g.,
+	 * because they only define system-level operations
+	 */
+	protected void registerPlainProviders(ConfigurableApplicationContext ctx) {
+		if (ctx != null) {
+			ctx.getBeansWithAnnotation(getResourceProviderAnnotation()).values().stream()
+			        .filter(bean -> !(bean instanceof IResourceProvider)).forEach(this::registerProvider);
+		}
+	}
+	
 	protected void autoInject() {
 		final ConfigurableApplicationContext ctx = FhirActivator.getApplicationContext();
 		if (ctx != null) {
@@ -248,6 +331,7 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 				getInterceptorService().unregisterAllInterceptors();
 				
 				unregisterAllProviders();
+				streamingBindings.clear();
 				
 				// load the resource providers from the Spring context
 				Set<String> validBeanNames = Arrays.stream(ctx.getBeanNamesForAnnotation(getResourceProviderAnnotation()))
@@ -255,12 +339,11 @@ public class FhirRestServlet extends RestfulServer implements ModuleLifecycleLis
 				setResourceProviders(ctx.getBeansOfType(IResourceProvider.class).entrySet().stream()
 				        .filter(entry -> validBeanNames.contains(entry.getKey())).map(Map.Entry::getValue)
 				        .collect(Collectors.toList()));
+				registerPlainProviders(ctx);
 				
-				registerInterceptor(ctx.getBean("hapiLoggingInterceptor", LoggingInterceptor.class));
-				registerInterceptor(new RequireAuthenticationInterceptor());
-				registerInterceptor(new DisableCacheInterceptor());
-				registerInterceptor(new SummaryInterceptor());
-				registerInterceptor(new SupportMergePatchInterceptor());
+				setLoggingInterceptor(ctx.getBean("hapiLoggingInterceptor", LoggingInterceptor.class));
+				setRequestMetricsService(ctx.getBean(FhirRequestMetricsService.class));
+				registerInterceptors();
 				
 				setAdministrationService(ctx.getBean("adminService", AdministrationService.class));
 				setGlobalPropertyService(ctx.getBean(FhirGlobalPropertyService.class));
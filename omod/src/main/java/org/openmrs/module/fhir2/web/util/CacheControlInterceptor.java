@@ -15,17 +15,43 @@ import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
 
+/**
+ * Adds the {@code Cache-Control} header to reads and searches. The header defaults to
+ * {@code no-store} and can be configured for all resources using the
+ * {@link FhirConstants#OPENMRS_FHIR_CACHE_CONTROL} global property or for a single resource type
+ * using that property suffixed with the resource type, e.g., {@code fhir2.cacheControl.Patient}.
+ */
 @Interceptor
-public class DisableCacheInterceptor {
+public class CacheControlInterceptor {
+	
+	private static final String DEFAULT_CACHE_CONTROL = "no-store";
 	
 	@Hook(Pointcut.SERVER_OUTGOING_RESPONSE)
 	public boolean handleOutgoingResponse(RequestDetails requestDetails) {
 		if (requestDetails.getRestOperationType() == RestOperationTypeEnum.READ
 		        || requestDetails.getRestOperationType() == RestOperationTypeEnum.SEARCH_TYPE) {
-			requestDetails.getResponse().addHeader(Constants.HEADER_CACHE_CONTROL, "no-store");
+			requestDetails.getResponse().addHeader(Constants.HEADER_CACHE_CONTROL,
+			    getCacheControl(requestDetails.getResourceName()));
 		}
 		
 		return true;
 	}
+	
+	private String getCacheControl(String resourceName) {
+		String cacheControl = null;
+		if (resourceName != null) {
+			cacheControl = FhirGlobalPropertyHolder
+			        .getGlobalProperty(FhirConstants.OPENMRS_FHIR_CACHE_CONTROL + "." + resourceName);
+		}
+		
+		if (cacheControl == null) {
+			cacheControl = FhirGlobalPropertyHolder.getGlobalProperty(FhirConstants.OPENMRS_FHIR_CACHE_CONTROL,
+			    DEFAULT_CACHE_CONTROL);
+		}
+		
+		return cacheControl.trim();
+	}
 }
@@ -0,0 +1,66 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.param.ParameterUtil;
+import ca.uhn.fhir.util.DateUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.openmrs.module.fhir2.api.util.ConditionalReadContext;
+
+/**
+ * Makes the {@code If-None-Match} and {@code If-Modified-Since} headers of a read request available
+ * to the services handling the request, so that a request for an unchanged resource can be answered
+ * with "304 Not Modified" before the resource is loaded.
+ */
+@Interceptor
+public class ConditionalReadInterceptor {
+	
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+	public void setConditionalRead(RequestDetails requestDetails, RestOperationTypeEnum restOperationType) {
+		IIdType id = requestDetails.getId();
+		if (restOperationType != RestOperationTypeEnum.READ || id == null || !id.hasIdPart()) {
+			return;
+		}
+		
+		List<String> versionIds = new ArrayList<>();
+		String ifNoneMatch = requestDetails.getHeader(Constants.HEADER_IF_NONE_MATCH);
+		if (StringUtils.isNotBlank(ifNoneMatch)) {
+			for (String eTag : ifNoneMatch.split(",")) {
+				if (StringUtils.isNotBlank(eTag)) {
+					versionIds.add(ParameterUtil.parseETagValue(eTag));
+				}
+			}
+		}
+		
+		Date ifModifiedSince = null;
+		String ifModifiedSinceHeader = requestDetails.getHeader(Constants.HEADER_IF_MODIFIED_SINCE);
+		if (StringUtils.isNotBlank(ifModifiedSinceHeader)) {
+			ifModifiedSince = DateUtils.parseDate(ifModifiedSinceHeader);
+		}
+		
+		ConditionalReadContext.set(requestDetails.getResourceName(), id.getIdPart(), versionIds, ifModifiedSince);
+	}
+	
+	@Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+	public void clearConditionalRead() {
+		ConditionalReadContext.clear();
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import ca.uhn.fhir.model.api.BaseElement;
+import ca.uhn.fhir.model.api.BaseIdentifiableElement;
+import ca.uhn.fhir.model.api.BasePrimitive;
+import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.model.primitive.BaseDateTimeDt;
+import ca.uhn.fhir.model.primitive.InstantDt;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.param.BaseAndListParam;
+import ca.uhn.fhir.rest.param.BaseOrListParam;
+import ca.uhn.fhir.rest.param.BaseParam;
+import ca.uhn.fhir.rest.param.BaseParamWithPrefix;
+import ca.uhn.fhir.rest.param.DateAndListParam;
+import ca.uhn.fhir.rest.param.DateOrListParam;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.HasAndListParam;
+import ca.uhn.fhir.rest.param.HasOrListParam;
+import ca.uhn.fhir.rest.param.HasParam;
+import ca.uhn.fhir.rest.param.NumberAndListParam;
+import ca.uhn.fhir.rest.param.NumberOrListParam;
+import ca.uhn.fhir.rest.param.NumberParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.param.QuantityAndListParam;
+import ca.uhn.fhir.rest.param.QuantityOrListParam;
+import ca.uhn.fhir.rest.param.QuantityParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringAndListParam;
+import ca.uhn.fhir.rest.param.StringOrListParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenAndListParam;
+import ca.uhn.fhir.rest.param.TokenOrListParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.param.TokenParamModifier;
+import ca.uhn.fhir.rest.param.UriAndListParam;
+import ca.uhn.fhir.rest.param.UriOrListParam;
+import ca.uhn.fhir.rest.param.UriParam;
+import ca.uhn.fhir.rest.param.UriParamQualifierEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.openmrs.module.fhir2.api.search.EverythingBundleProvider;
+import org.openmrs.module.fhir2.api.search.SearchQueryBundleProvider;
+import org.openmrs.module.fhir2.api.search.SearchQueryBundleProviderR3Wrapper;
+import org.openmrs.module.fhir2.api.search.param.KeysetCursor;
+import org.openmrs.module.fhir2.api.search.param.PropParam;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+import org.openmrs.util.OpenmrsClassLoader;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+/**
+ * A paging provider which writes the state of each search to a file so that the search can be
+ * resumed after it has been evicted from memory, or by another server sharing the same directory.
+ * <br/>
+ * Only the search itself is stored, e.g., the search parameters and the DAO and translator used to
+ * run it, not the results, so stored searches are small and the number of stored searches can be much
+ * larger than the number that can be kept in memory. Searches are removed once they have not been
+ * accessed for the configured time to live, and the oldest searches are removed once there are more
+ * than the configured maximum number of searches. <br/>
+ * Bundle providers that cannot be serialized are only kept in memory, as they are by
+ * {@link OpenmrsFhirPagingProvider}.
+ */
+@Slf4j
+public class FileBackedPagingProvider extends OpenmrsFhirPagingProvider {
+	
+	private static final String FILE_EXTENSION = ".search";
+	
+	// search ids are used as file names, so anything that could be used to address another file is rejected
+	private static final Pattern SEARCH_ID_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}");
+	
+	private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+	
+	private final File directory;
+	
+	private final int maximumStoredSearches;
+	
+	private final long timeToLive;
+	
+	private final AtomicLong nextPurge = new AtomicLong();
+	
+	/**
+	 * @param directory the directory to store searches in
+	 * @param cacheSize the number of searches to also keep in memory
+	 * @param maximumStoredSearches the maximum number of searches to keep in the directory
+	 * @param timeToLive the time, in milliseconds, after which a search that has not been accessed is
+	 *            removed
+	 */
+	public FileBackedPagingProvider(File directory, int cacheSize, int maximumStoredSearches, long timeToLive) {
+		super(cacheSize);
+		
+		if (maximumStoredSearches <= 0) {
+			throw new IllegalArgumentException("maximumStoredSearches must be greater than 0");
+		}
+		
+		if (timeToLive <= 0) {
+			throw new IllegalArgumentException("timeToLive must be greater than 0");
+		}
+		
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Could not create paging directory " + directory);
+		}
+		
+		this.directory = directory;
+		this.maximumStoredSearches = maximumStoredSearches;
+		this.timeToLive = timeToLive;
+	}
+	
+	@Override
+	public IBundleProvider retrieveResultList(RequestDetails requestDetails, String searchId) {
+		IBundleProvider bundleProvider = super.retrieveResultList(requestDetails, searchId);
+		File file = getFile(searchId);
+		if (file == null || !file.isFile()) {
+			return bundleProvider;
+		}
+		
+		long now = System.currentTimeMillis();
+		if (file.lastModified() + timeToLive < now) {
+			delete(file);
+			return bundleProvider;
+		}
+		
+		// searches expire based on when they were last accessed
+		if (!file.setLastModified(now)) {
+			log.debug("Could not update the last access time of {}", file);
+		}
+		
+		if (bundleProvider != null) {
+			return bundleProvider;
+		}
+		
+		bundleProvider = read(file);
+		if (bundleProvider != null) {
+			cacheResultList(searchId, bundleProvider);
+		}
+		
+		return bundleProvider;
+	}
+	
+	@Override
+	public String storeResultList(RequestDetails requestDetails, IBundleProvider bundleProvider) {
+		String searchId = super.storeResultList(requestDetails, bundleProvider);
+		
+		File file = getFile(searchId);
+		if (file != null && bundleProvider instanceof Serializable) {
+			write(file, bundleProvider);
+		}
+		
+		long now = System.currentTimeMillis();
+		long purgeAt = nextPurge.get();
+		if (now >= purgeAt && nextPurge.compareAndSet(purgeAt, now + PURGE_INTERVAL)) {
+			purge(now);
+		}
+		
+		return searchId;
+	}
+	
+	/**
+	 * Removes any stored searches that have expired and, if there are still more than the maximum
+	 * number of stored searches, the searches that were least recently accessed
+	 */
+	protected void purge(long now) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+		if (files == null) {
+			return;
+		}
+		
+		// the last modified time is read once per file, since it may be updated while sorting
+		long[][] lastModified = new long[files.length][];
+		for (int i = 0; i < files.length; i++) {
+			lastModified[i] = new long[] { files[i].lastModified(), i };
+		}
+		
+		Arrays.sort(lastModified, Comparator.comparingLong((long[] entry) -> entry[0]).reversed());
+		
+		for (int i = 0; i < lastModified.length; i++) {
+			if (i >= maximumStoredSearches || lastModified[i][0] + timeToLive < now) {
+				delete(files[(int) lastModified[i][1]]);
+			}
+		}
+	}
+	
+	private File getFile(String searchId) {
+		if (searchId == null || !SEARCH_ID_PATTERN.matcher(searchId).matches()) {
+			return null;
+		}
+		
+		return new File(directory, searchId + FILE_EXTENSION);
+	}
+	
+	private void write(File file, IBundleProvider bundleProvider) {
+		File temporaryFile = null;
+		try {
+			temporaryFile = File.createTempFile("search", ".tmp", directory);
+			try (ObjectOutputStream out = new ObjectOutputStream(
+			        new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+				out.writeObject(bundleProvider);
+			}
+			
+			// other servers may be reading from the same directory, so the file is only made visible once complete
+			try {
+				Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			log.debug("Could not store search {}; it will only be kept in memory", file.getName(), e);
+			
+			if (temporaryFile != null) {
+				delete(temporaryFile);
+			}
+		}
+	}
+	
+	private IBundleProvider read(File file) {
+		try (ObjectInputStream in = new SearchInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			Object result = in.readObject();
+			if (result instanceof IBundleProvider) {
+				return (IBundleProvider) result;
+			}
+		}
+		catch (IOException | ClassNotFoundException | RuntimeException e) {
+			log.warn("Could not read stored search {}", file.getName(), e);
+		}
+		
+		delete(file);
+		return null;
+	}
+	
+	private static void delete(File file) {
+		try {
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (IOException e) {
+			log.debug("Could not delete {}", file, e);
+		}
+	}
+	
+	/**
+	 * Reads stored searches using the OpenMRS class loader so that the classes of this module can be
+	 * found, and only allows the classes that make up a search to be read, i.e., the bundle providers,
+	 * their search parameters, the HAPI parameter types these hold and the JDK types of their values.
+	 */
+	private static class SearchInputStream extends ObjectInputStream {
+		
+		private static final Set<String> ALLOWED_CLASSES = new HashSet<>();
+		
+		static {
+			allow(SearchQueryBundleProvider.class, EverythingBundleProvider.class,
+			    SearchQueryBundleProviderR3Wrapper.class, SearchParameterMap.class, PropParam.class, KeysetCursor.class,
+			    LinkedCaseInsensitiveMap.class);
+			// the Spring beans used by a search are stored as references, and the parameters of a search are
+			// held by the anonymous LinkedHashMap backing the LinkedCaseInsensitiveMap
+			ALLOWED_CLASSES.add("org.openmrs.module.fhir2.api.search.SpringBeanReference");
+			ALLOWED_CLASSES.add(LinkedCaseInsensitiveMap.class.getName() + "$1");
+			
+			allow(InstantDt.class, BaseDateTimeDt.class, BasePrimitive.class, BaseIdentifiableElement.class,
+			    BaseElement.class, Include.class, SortSpec.class, SortOrderEnum.class, SearchTotalModeEnum.class);
+			allow(BaseParam.class, BaseParamWithPrefix.class, BaseAndListParam.class, BaseOrListParam.class,
+			    ParamPrefixEnum.class, DateParam.class, DateParam.DateParamDateTimeHolder.class, DateRangeParam.class,
+			    DateAndListParam.class, DateOrListParam.class, HasParam.class, HasAndListParam.class, HasOrListParam.class,
+			    NumberParam.class, NumberAndListParam.class, NumberOrListParam.class, QuantityParam.class,
+			    QuantityAndListParam.class, QuantityOrListParam.class, ReferenceParam.class, ReferenceAndListParam.class,
+			    ReferenceOrListParam.class, StringParam.class, StringAndListParam.class, StringOrListParam.class,
+			    TokenParam.class, TokenParamModifier.class, TokenAndListParam.class, TokenOrListParam.class,
+			    UriParam.class, UriParamQualifierEnum.class, UriAndListParam.class, UriOrListParam.class);
+			
+			allow(Boolean.class, Integer.class, Long.class, Double.class, Number.class, Enum.class, BigDecimal.class,
+			    BigInteger.class, Date.class, Timestamp.class, Locale.class, ArrayList.class, LinkedList.class,
+			    HashSet.class, LinkedHashSet.class, HashMap.class, LinkedHashMap.class);
+			ALLOWED_CLASSES.add(Collections.emptyList().getClass().getName());
+		}
+		
+		SearchInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+		
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			String name = desc.getName();
+			
+			// array classes are checked by their element type
+			String elementName = name.replaceFirst("^\\[+", "");
+			if (elementName.startsWith("L") && elementName.endsWith(";")) {
+				elementName = elementName.substring(1, elementName.length() - 1);
+			} else if (!elementName.equals(name)) {
+				// an array of primitives
+				return super.resolveClass(desc);
+			}
+			
+			if (!ALLOWED_CLASSES.contains(elementName)) {
+				throw new InvalidClassException(name, "Class is not allowed in a stored search");
+			}
+			
+			try {
+				return Class.forName(name, false, OpenmrsClassLoader.getInstance());
+			}
+			catch (ClassNotFoundException e) {
+				return super.resolveClass(desc);
+			}
+		}
+		
+		private static void allow(Class<?>... classes) {
+			for (Class<?> cls : classes) {
+				ALLOWED_CLASSES.add(cls.getName());
+			}
+		}
+		
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+			throw new InvalidClassException("Proxy classes are not allowed in a stored search");
+		}
+	}
+}
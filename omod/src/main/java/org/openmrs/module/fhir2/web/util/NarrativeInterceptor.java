@@ -0,0 +1,78 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import java.util.Set;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
+import org.openmrs.module.fhir2.narrative.NarrativeSuppressionContext;
+
+/**
+ * Decides whether narratives are generated for the resources returned by a request. Narratives are
+ * left out when:
+ * <ul>
+ * <li>the client sends the {@link FhirConstants#NARRATIVE_HEADER} header with the value
+ * {@code suppress}</li>
+ * <li>the request asks for {@code _summary=data} or {@code _summary=count}</li>
+ * <li>the request is a search or fetches a page of search results and the
+ * {@link FhirConstants#OPENMRS_FHIR_SUPPRESS_SEARCH_NARRATIVES} global property is {@code true},
+ * unless the client sends the {@link FhirConstants#NARRATIVE_HEADER} header with the value
+ * {@code normal}</li>
+ * </ul>
+ */
+@Interceptor
+public class NarrativeInterceptor {
+	
+	private static final String SUPPRESS = "suppress";
+	
+	private static final String NORMAL = "normal";
+	
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+	public void determineNarrativeMode(RequestDetails requestDetails, RestOperationTypeEnum operationType) {
+		NarrativeSuppressionContext.setSuppressed(isSuppressed(requestDetails, operationType));
+	}
+	
+	@Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+	public void clearNarrativeMode() {
+		NarrativeSuppressionContext.clear();
+	}
+	
+	private boolean isSuppressed(RequestDetails requestDetails, RestOperationTypeEnum operationType) {
+		String narrativeHeader = requestDetails.getHeader(FhirConstants.NARRATIVE_HEADER);
+		if (narrativeHeader != null) {
+			if (SUPPRESS.equalsIgnoreCase(narrativeHeader.trim())) {
+				return true;
+			} else if (NORMAL.equalsIgnoreCase(narrativeHeader.trim())) {
+				return false;
+			}
+		}
+		
+		Set<SummaryEnum> summaryMode = RestfulServerUtils.determineSummaryMode(requestDetails);
+		if (summaryMode.contains(SummaryEnum.DATA) || summaryMode.contains(SummaryEnum.COUNT)) {
+			return true;
+		}
+		
+		if (operationType == RestOperationTypeEnum.SEARCH_TYPE || operationType == RestOperationTypeEnum.SEARCH_SYSTEM
+		        || operationType == RestOperationTypeEnum.GET_PAGE) {
+			return FhirGlobalPropertyHolder.getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_SUPPRESS_SEARCH_NARRATIVES,
+			    false);
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.BasePagingProvider;
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.module.fhir2.api.search.NamedPageBundleProvider;
+import org.openmrs.module.fhir2.api.util.FhirUtils;
+
+/**
+ * An in-memory paging provider which keeps the most recent {@code size} search results. <br/>
+ * Unlike HAPI's {@link ca.uhn.fhir.rest.server.FifoMemoryPagingProvider}, results are stored under
+ * the {@link IBundleProvider#getUuid()} of the bundle provider where one is available, which is the
+ * id HAPI uses in the links for bundle providers that page by page id. Requests for a page id are
+ * delegated to {@link NamedPageBundleProvider#getPage(String)}.
+ */
+public class OpenmrsFhirPagingProvider extends BasePagingProvider {
+	
+	private final Map<String, IBundleProvider> bundleProviders;
+	
+	private final int size;
+	
+	public OpenmrsFhirPagingProvider(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size must be greater than 0");
+		}
+		
+		this.size = size;
+		this.bundleProviders = new LinkedHashMap<>(size);
+	}
+	
+	@Override
+	public synchronized IBundleProvider retrieveResultList(RequestDetails requestDetails, String searchId) {
+		return bundleProviders.get(searchId);
+	}
+	
+	@Override
+	public IBundleProvider retrieveResultList(RequestDetails requestDetails, String searchId, String pageId) {
+		IBundleProvider bundleProvider = retrieveResultList(requestDetails, searchId);
+		if (!(bundleProvider instanceof NamedPageBundleProvider)) {
+			return null;
+		}
+		
+		return ((NamedPageBundleProvider) bundleProvider).getPage(pageId);
+	}
+	
+	@Override
+	public synchronized String storeResultList(RequestDetails requestDetails, IBundleProvider bundleProvider) {
+		String key = bundleProvider.getUuid();
+		if (StringUtils.isBlank(key)) {
+			key = FhirUtils.newUuid();
+		}
+		
+		cacheResultList(key, bundleProvider);
+		return key;
+	}
+	
+	/**
+	 * Keeps the bundle provider in memory under the given key, evicting the oldest results if there are
+	 * already {@code size} results in memory
+	 */
+	protected synchronized void cacheResultList(String key, IBundleProvider bundleProvider) {
+		bundleProviders.remove(key);
+		Iterator<String> keys = bundleProviders.keySet().iterator();
+		while (bundleProviders.size() >= size && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+		}
+		
+		bundleProviders.put(key, bundleProvider);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirRequestMetricsService;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
+import org.openmrs.module.fhir2.api.util.RequestMetrics;
+
+/**
+ * Records the {@link RequestMetrics} of each request if the
+ * {@link FhirConstants#OPENMRS_FHIR_REQUEST_METRICS_ENABLED} global property is set. The metrics
+ * are aggregated by the {@link FhirRequestMetricsService} once the response has been written. <br/>
+ * If the {@link FhirConstants#OPENMRS_FHIR_REQUEST_METRICS_HEADERS} global property is also set,
+ * the metrics recorded before the response is written are added to the response as a
+ * {@code Server-Timing} header along with the number of SQL statements, results and included
+ * resources. Since the headers are sent before the body, serialization is only reflected in the
+ * aggregated metrics.
+ */
+@Interceptor
+public class RequestMetricsInterceptor {
+	
+	public static final String SERVER_TIMING_HEADER = "Server-Timing";
+	
+	public static final String SQL_STATEMENTS_HEADER = "X-FHIR-SQL-Statements";
+	
+	public static final String RESULTS_HEADER = "X-FHIR-Results";
+	
+	public static final String INCLUDED_RESOURCES_HEADER = "X-FHIR-Included-Resources";
+	
+	private final FhirRequestMetricsService requestMetricsService;
+	
+	public RequestMetricsInterceptor(FhirRequestMetricsService requestMetricsService) {
+		this.requestMetricsService = requestMetricsService;
+	}
+	
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED)
+	public void startRequest() {
+		if (FhirGlobalPropertyHolder.getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_REQUEST_METRICS_ENABLED,
+		    false)) {
+			requestMetricsService.startRequest();
+		}
+	}
+	
+	@Hook(Pointcut.SERVER_OUTGOING_RESPONSE)
+	public boolean handleOutgoingResponse(RequestDetails requestDetails) {
+		RequestMetrics metrics = RequestMetrics.get();
+		if (metrics == null) {
+			return true;
+		}
+		
+		if (FhirGlobalPropertyHolder.getGlobalPropertyAsBoolean(FhirConstants.OPENMRS_FHIR_REQUEST_METRICS_HEADERS,
+		    false)) {
+			addHeaders(requestDetails, metrics);
+		}
+		
+		metrics.startPhase(RequestMetrics.Phase.SERIALIZATION);
+		return true;
+	}
+	
+	@Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+	public void completeRequest(RequestDetails requestDetails) {
+		if (RequestMetrics.get() != null) {
+			requestMetricsService.completeRequest(requestDetails.getResourceName(), getOperation(requestDetails));
+		}
+	}
+	
+	// extended operations are reported by name, e.g., $lastn, everything else by the type of interaction
+	private String getOperation(RequestDetails requestDetails) {
+		if (requestDetails.getOperation() != null) {
+			return requestDetails.getOperation();
+		}
+		
+		return requestDetails.getRestOperationType() == null ? null : requestDetails.getRestOperationType().getCode();
+	}
+	
+	private void addHeaders(RequestDetails requestDetails, RequestMetrics metrics) {
+		StringJoiner serverTiming = new StringJoiner(", ");
+		for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+			if (phase != RequestMetrics.Phase.SERIALIZATION) {
+				serverTiming.add(String.format(Locale.ROOT, "%s;dur=%.2f;desc=\"%d SQL statements\"",
+				    phase.name().toLowerCase(Locale.ROOT), metrics.getPhaseMillis(phase), metrics.getPhaseStatements(phase)));
+			}
+		}
+		serverTiming.add(String.format(Locale.ROOT, "total;dur=%.2f", metrics.getTotalMillis()));
+		
+		requestDetails.getResponse().addHeader(SERVER_TIMING_HEADER, serverTiming.toString());
+		requestDetails.getResponse().addHeader(SQL_STATEMENTS_HEADER, String.valueOf(metrics.getStatements()));
+		requestDetails.getResponse().addHeader(RESULTS_HEADER, String.valueOf(metrics.getResults()));
+		requestDetails.getResponse().addHeader(INCLUDED_RESOURCES_HEADER,
+		    String.valueOf(metrics.getIncludedResources()));
+	}
+}
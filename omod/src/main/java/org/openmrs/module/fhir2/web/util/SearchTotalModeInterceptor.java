@@ -0,0 +1,36 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import org.openmrs.module.fhir2.api.search.SearchTotalModeContext;
+
+/**
+ * Makes the {@code _total} parameter of a search request available to the searches run while
+ * handling the request. Unknown values are ignored, so the server's default total mode is used.
+ */
+@Interceptor
+public class SearchTotalModeInterceptor {
+	
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_POST_PROCESSED)
+	public void setSearchTotalMode(RequestDetails requestDetails) {
+		String[] total = requestDetails.getParameters().get(Constants.PARAM_SEARCH_TOTAL_MODE);
+		SearchTotalModeContext.set(total != null && total.length > 0 ? SearchTotalModeContext.parse(total[0]) : null);
+	}
+	
+	@Hook(Pointcut.SERVER_PROCESSING_COMPLETED)
+	public void clearSearchTotalMode() {
+		SearchTotalModeContext.clear();
+	}
+}
@@ -0,0 +1,434 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.HookParams;
+import ca.uhn.fhir.interceptor.api.IInterceptorService;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.model.valueset.BundleTypeEnum;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.annotation.Search;
+import ca.uhn.fhir.rest.api.BundleLinks;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.IVersionSpecificBundleFactory;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.IRestfulResponse;
+import ca.uhn.fhir.rest.api.server.IRestfulServer;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.ResponseDetails;
+import ca.uhn.fhir.rest.server.IPagingProvider;
+import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.method.BaseMethodBinding;
+import ca.uhn.fhir.rest.server.method.SearchMethodBinding;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.util.DateUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
+
+/**
+ * A search method binding which writes large pages of search results to the response as they are
+ * translated, instead of building the whole {@code Bundle} before encoding it. <br/>
+ * <br/>
+ * A page is streamed if it is at least as large as the
+ * {@link FhirConstants#OPENMRS_FHIR_STREAMING_SEARCH_THRESHOLD} global property, which is disabled
+ * by default. The results are read from the bundle provider {@value #CHUNK_SIZE} at a time, along
+ * with the resources they include. The Bundle metadata is written first, followed by the entries of
+ * each chunk, which are built by HAPI's bundle factory and flushed before the next chunk is read, so
+ * only one chunk of the page is held in memory. The included resources of each chunk follow its
+ * matches and resources already written for an earlier chunk are left out. <br/>
+ * <br/>
+ * Only the first page of a search whose total is known is streamed, and only when it is neither
+ * pretty-printed nor summarised and is encoded as JSON or XML. Everything else is handled by HAPI as
+ * usual. The first chunk is read before anything is written, but an error reading a later chunk
+ * cannot be reported as an {@code OperationOutcome} and leaves the response incomplete. The time
+ * taken to read the later chunks is recorded in the request metrics as serialization.
+ */
+public class StreamingSearchMethodBinding extends SearchMethodBinding {
+	
+	public static final int DEFAULT_THRESHOLD = 0;
+	
+	static final int CHUNK_SIZE = 50;
+	
+	private static final String SEARCH_RESULT_KEY = StreamingSearchMethodBinding.class.getName() + ".searchResult";
+	
+	private static final String CHARSET = Constants.CHARSET_NAME_UTF8;
+	
+	private StreamingSearchMethodBinding(SearchMethodBinding binding, Class<? extends IBaseResource> resourceType) {
+		super(resourceType, resourceType, binding.getMethod(), binding.getContext(), binding.getProvider());
+	}
+	
+	/**
+	 * Creates a streaming binding for the same search method as the supplied binding
+	 *
+	 * @param binding the binding selected by HAPI for a request
+	 * @return the streaming binding, or the supplied binding if it is not a search of a resource
+	 *         provider whose results are of the provider's resource type
+	 */
+	public static BaseMethodBinding<?> forBinding(BaseMethodBinding<?> binding) {
+		if (!(binding instanceof SearchMethodBinding) || binding instanceof StreamingSearchMethodBinding
+		        || !(binding.getProvider() instanceof IResourceProvider)) {
+			return binding;
+		}
+		
+		Search search = binding.getMethod().getAnnotation(Search.class);
+		if (search == null || search.type() != IBaseResource.class || StringUtils.isNotBlank(search.typeName())) {
+			return binding;
+		}
+		
+		return new StreamingSearchMethodBinding((SearchMethodBinding) binding,
+		        ((IResourceProvider) binding.getProvider()).getResourceType());
+	}
+	
+	/**
+	 * @return {@code true} if the {@link FhirConstants#OPENMRS_FHIR_STREAMING_SEARCH_THRESHOLD} global
+	 *         property enables streaming
+	 */
+	public static boolean isEnabled() {
+		return getThreshold() > 0;
+	}
+	
+	@Override
+	public Object invokeServer(IRestfulServer<?> server, RequestDetails request)
+	        throws BaseServerResponseException, IOException {
+		if (!canStream(server, request)) {
+			return super.invokeServer(server, request);
+		}
+		
+		Object[] params = createMethodParams(request);
+		IBundleProvider result = invokeServer(server, request, params);
+		
+		if (result == null || result.size() == null || result.getCurrentPageOffset() != null
+		        || result.getCurrentPageId() != null || getPageSize(server, request, result) < getThreshold()) {
+			// the search has already been run, so HAPI is handed its result rather than running it again
+			request.getUserData().put(SEARCH_RESULT_KEY, result);
+			return super.invokeServer(server, request);
+		}
+		
+		return streamBundle(server, request, result, getPageSize(server, request, result),
+		    getRequestIncludesFromParams(params));
+	}
+	
+	@Override
+	public IBundleProvider invokeServer(IRestfulServer<?> server, RequestDetails request, Object[] params)
+	        throws InvalidRequestException, InternalErrorException {
+		if (request.getUserData().containsKey(SEARCH_RESULT_KEY)) {
+			return (IBundleProvider) request.getUserData().remove(SEARCH_RESULT_KEY);
+		}
+		
+		return super.invokeServer(server, request, params);
+	}
+	
+	private boolean canStream(IRestfulServer<?> server, RequestDetails request) {
+		if (!isEnabled() || !server.canStoreSearchResults()
+		        || getMethodReturnType() == MethodReturnTypeEnum.BUNDLE_RESOURCE) {
+			return false;
+		}
+		
+		if (request.getParameters().containsKey(Constants.PARAM_OFFSET)
+		        || request.getParameters().containsKey(Constants.PARAM_PAGINGOFFSET) || request.getParameters().keySet()
+		                .stream().anyMatch(name -> name.startsWith(Constants.PARAM_ELEMENTS))) {
+			return false;
+		}
+		
+		if (RestfulServerUtils.prettyPrintResponse(server, request)
+		        || !RestfulServerUtils.determineSummaryMode(request).equals(Collections.singleton(SummaryEnum.FALSE))) {
+			return false;
+		}
+		
+		EncodingEnum encoding = RestfulServerUtils.determineResponseEncodingWithDefault(request).getEncoding();
+		return encoding == EncodingEnum.JSON || encoding == EncodingEnum.XML;
+	}
+	
+	// the page size as calculated by HAPI for searches whose results are stored by the paging provider
+	private int getPageSize(IRestfulServer<?> server, RequestDetails request, IBundleProvider result) {
+		IPagingProvider pagingProvider = server.getPagingProvider();
+		
+		Integer count = RestfulServerUtils.extractCountParameter(request);
+		if (count == null) {
+			count = result.preferredPageSize();
+		}
+		
+		if (count == null || count == 0) {
+			return pagingProvider.getDefaultPageSize();
+		}
+		
+		return Math.min(pagingProvider.getMaximumPageSize(), count);
+	}
+	
+	private Object streamBundle(IRestfulServer<?> server, RequestDetails request, IBundleProvider result, int pageSize,
+	        Set<Include> includes) throws IOException {
+		int total = Objects.requireNonNull(result.size());
+		int numToReturn = Math.min(pageSize, total);
+		
+		// read before anything is written, so that most errors can still be returned as an OperationOutcome
+		List<IBaseResource> firstChunk = getChunk(result, 0, Math.min(CHUNK_SIZE, numToReturn));
+		
+		String searchId = null;
+		if (total > numToReturn) {
+			searchId = StringUtils.trimToNull(server.getPagingProvider().storeResultList(request, result));
+		}
+		
+		BundleLinks links = new BundleLinks(request.getFhirServerBase(), includes, false, BundleTypeEnum.SEARCHSET);
+		links.setSelf(RestfulServerUtils.createLinkSelf(request.getFhirServerBase(), request));
+		if (searchId != null && !firstChunk.isEmpty()) {
+			links.setNext(RestfulServerUtils.createPagingLink(links, request, searchId, numToReturn, numToReturn,
+			    request.getParameters()));
+		}
+		
+		IVersionSpecificBundleFactory bundleFactory = server.getFhirContext().newBundleFactory();
+		bundleFactory.addRootPropertiesToBundle(result.getUuid(), links, total, result.getPublished());
+		IBaseResource bundle = bundleFactory.getResourceBundle();
+		
+		ResponseDetails responseDetails = new ResponseDetails();
+		responseDetails.setResponseResource(bundle);
+		responseDetails.setResponseCode(Constants.STATUS_HTTP_200_OK);
+		if (!callOutgoingResponseHook(request, responseDetails)) {
+			return null;
+		}
+		
+		IParser parser = RestfulServerUtils.getNewParser(server.getFhirContext(),
+		    server.getFhirContext().getVersion().getVersion(), request);
+		BundleWriter bundleWriter = BundleWriter.create(parser, parser.encodeResourceToString(bundle));
+		
+		IRestfulResponse response = request.getResponse();
+		IPrimitiveType<Date> lastUpdated = RestfulServerUtils.extractLastUpdatedFromResource(bundle);
+		if (lastUpdated != null && !lastUpdated.isEmpty()) {
+			response.addHeader(Constants.HEADER_LAST_MODIFIED, DateUtils.formatDate(lastUpdated.getValue()));
+		}
+		
+		String contentType = RestfulServerUtils.determineResponseEncodingWithDefault(request).getResourceContentType();
+		Writer writer = getWriter(server, request, contentType);
+		
+		bundleWriter.writeStart(writer);
+		
+		Set<String> writtenResources = new HashSet<>();
+		List<IBaseResource> chunk = firstChunk;
+		for (int fromIndex = 0; fromIndex < numToReturn; fromIndex += CHUNK_SIZE) {
+			if (fromIndex > 0) {
+				chunk = getChunk(result, fromIndex, Math.min(fromIndex + CHUNK_SIZE, numToReturn));
+			}
+			
+			List<IBaseResource> entries = new ArrayList<>(chunk.size());
+			for (IBaseResource resource : chunk) {
+				if (writtenResources.add(getResourceKey(server.getFhirContext(), resource))) {
+					entries.add(resource);
+				}
+			}
+			
+			if (!entries.isEmpty()) {
+				IVersionSpecificBundleFactory chunkFactory = newBundleFactory(server.getFhirContext(), links);
+				chunkFactory.addResourcesToBundle(entries, BundleTypeEnum.SEARCHSET, links.serverBase,
+				    server.getBundleInclusionRule(), includes);
+				bundleWriter.writeEntries(writer, parser.encodeResourceToString(chunkFactory.getResourceBundle()));
+				writer.flush();
+			}
+		}
+		
+		bundleWriter.writeEnd(writer);
+		return response.sendWriterResponse(Constants.STATUS_HTTP_200_OK, contentType, CHARSET, writer);
+	}
+	
+	private List<IBaseResource> getChunk(IBundleProvider result, int fromIndex, int toIndex) {
+		if (toIndex <= fromIndex) {
+			return Collections.emptyList();
+		}
+		
+		List<IBaseResource> chunk = new ArrayList<>(result.getResources(fromIndex, toIndex));
+		chunk.removeIf(Objects::isNull);
+		for (IBaseResource resource : chunk) {
+			if (resource.getIdElement() == null || resource.getIdElement().isEmpty()) {
+				throw new InternalErrorException("Server method returned resource of type["
+				        + resource.getClass().getSimpleName() + "] with no ID specified");
+			}
+		}
+		
+		return chunk;
+	}
+	
+	private Writer getWriter(IRestfulServer<?> server, RequestDetails request, String contentType) throws IOException {
+		Writer writer = request.getResponse().getResponseWriter(Constants.STATUS_HTTP_200_OK, null, contentType, CHARSET,
+		    request.isRespondGzip());
+		
+		IInterceptorService interceptorService = server.getInterceptorService();
+		if (interceptorService != null && interceptorService.hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED)) {
+			HookParams params = new HookParams().add(Writer.class, writer).add(RequestDetails.class, request)
+			        .addIfMatchesType(ServletRequestDetails.class, request);
+			Object newWriter = interceptorService.callHooksAndReturnObject(Pointcut.SERVER_OUTGOING_WRITER_CREATED, params);
+			if (newWriter != null) {
+				writer = (Writer) newWriter;
+			}
+		}
+		
+		return writer;
+	}
+	
+	private static IVersionSpecificBundleFactory newBundleFactory(FhirContext fhirContext, BundleLinks links) {
+		IVersionSpecificBundleFactory bundleFactory = fhirContext.newBundleFactory();
+		// sets the server base used for the full URLs of the entries
+		bundleFactory.addRootPropertiesToBundle(null, links, null, null);
+		return bundleFactory;
+	}
+	
+	private static String getResourceKey(FhirContext fhirContext, IBaseResource resource) {
+		return fhirContext.getResourceType(resource) + "/" + resource.getIdElement().getIdPart();
+	}
+	
+	private static int getThreshold() {
+		return FhirGlobalPropertyHolder.getGlobalPropertyAsInteger(FhirConstants.OPENMRS_FHIR_STREAMING_SEARCH_THRESHOLD,
+		    DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * Splices the entries of separately encoded bundles into the encoded Bundle metadata. The entries
+	 * are the last element of an encoded Bundle, so they are written just before its closing tag or
+	 * brace.
+	 */
+	static abstract class BundleWriter {
+		
+		private final String start;
+		
+		private final String end;
+		
+		private boolean hasEntries;
+		
+		BundleWriter(String encodedBundle, int endIndex) {
+			if (endIndex < 0) {
+				throw new InternalErrorException("Unable to find the end of the encoded Bundle");
+			}
+			
+			this.start = encodedBundle.substring(0, endIndex);
+			this.end = encodedBundle.substring(endIndex);
+		}
+		
+		static BundleWriter create(IParser parser, String encodedBundle) {
+			return parser.getEncoding() == EncodingEnum.XML ? new XmlBundleWriter(encodedBundle)
+			        : new JsonBundleWriter(encodedBundle);
+		}
+		
+		void writeStart(Writer writer) throws IOException {
+			writer.write(start);
+		}
+		
+		void writeEntries(Writer writer, String encodedBundle) throws IOException {
+			String entries = getEntries(encodedBundle);
+			if (entries.isEmpty()) {
+				return;
+			}
+			
+			writeSeparator(writer, !hasEntries);
+			writer.write(entries);
+			hasEntries = true;
+		}
+		
+		void writeEnd(Writer writer) throws IOException {
+			if (hasEntries) {
+				writeEntriesEnd(writer);
+			}
+			
+			writer.write(end);
+		}
+		
+		abstract String getEntries(String encodedBundle);
+		
+		abstract void writeSeparator(Writer writer, boolean firstEntry) throws IOException;
+		
+		abstract void writeEntriesEnd(Writer writer) throws IOException;
+		
+		static String getRequired(String encodedBundle, int fromIndex, int toIndex) {
+			if (fromIndex < 0 || toIndex < fromIndex) {
+				throw new InternalErrorException("Unable to find the entries of the encoded Bundle");
+			}
+			
+			return encodedBundle.substring(fromIndex, toIndex);
+		}
+	}
+	
+	static class JsonBundleWriter extends BundleWriter {
+		
+		private static final String ENTRIES_START = "\"entry\":[";
+		
+		private static final String ENTRIES_END = "]}";
+		
+		JsonBundleWriter(String encodedBundle) {
+			super(encodedBundle, encodedBundle.lastIndexOf('}'));
+		}
+		
+		@Override
+		String getEntries(String encodedBundle) {
+			int entriesStart = encodedBundle.indexOf(ENTRIES_START);
+			if (entriesStart < 0) {
+				return "";
+			}
+			
+			return getRequired(encodedBundle, entriesStart + ENTRIES_START.length(),
+			    encodedBundle.endsWith(ENTRIES_END) ? encodedBundle.length() - ENTRIES_END.length() : -1);
+		}
+		
+		@Override
+		void writeSeparator(Writer writer, boolean firstEntry) throws IOException {
+			writer.write(firstEntry ? "," + ENTRIES_START : ",");
+		}
+		
+		@Override
+		void writeEntriesEnd(Writer writer) throws IOException {
+			writer.write(']');
+		}
+	}
+	
+	static class XmlBundleWriter extends BundleWriter {
+		
+		private static final String ENTRY_START = "<entry>";
+		
+		private static final String BUNDLE_END = "</Bundle>";
+		
+		XmlBundleWriter(String encodedBundle) {
+			super(encodedBundle, encodedBundle.lastIndexOf(BUNDLE_END));
+		}
+		
+		@Override
+		String getEntries(String encodedBundle) {
+			int entriesStart = encodedBundle.indexOf(ENTRY_START);
+			if (entriesStart < 0) {
+				return "";
+			}
+			
+			return getRequired(encodedBundle, entriesStart, encodedBundle.lastIndexOf(BUNDLE_END));
+		}
+		
+		@Override
+		void writeSeparator(Writer writer, boolean firstEntry) {
+		}
+		
+		@Override
+		void writeEntriesEnd(Writer writer) {
+		}
+	}
+}
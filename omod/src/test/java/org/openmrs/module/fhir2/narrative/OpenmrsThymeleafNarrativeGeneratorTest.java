@@ -0,0 +1,78 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.narrative;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.After;
+import org.junit.Test;
+
+public class OpenmrsThymeleafNarrativeGeneratorTest extends BaseFhirNarrativeTest {
+	
+	private static final String PATIENT_ID = "a7e04421-525f-442f-8138-05b619d16def";
+	
+	@After
+	public void tearDown() {
+		NarrativeSuppressionContext.clear();
+	}
+	
+	@Test
+	public void shouldReuseNarrativeForSameResourceVersion() {
+		encode(createPatient("1", "Pieter"));
+		
+		Patient result = encode(createPatient("1", "Johannes"));
+		
+		assertThat(result.getText().getDivAsString(), containsString("Pieter"));
+		assertThat(result.getText().getDivAsString(), not(containsString("Johannes")));
+	}
+	
+	@Test
+	public void shouldGenerateNarrativeForNewResourceVersion() {
+		encode(createPatient("1", "Pieter"));
+		
+		Patient result = encode(createPatient("2", "Johannes"));
+		
+		assertThat(result.getText().getDivAsString(), containsString("Johannes"));
+	}
+	
+	@Test
+	public void shouldNotCacheNarrativeForResourceWithoutVersion() {
+		encode(createPatient(null, "Pieter"));
+		
+		Patient result = encode(createPatient(null, "Johannes"));
+		
+		assertThat(result.getText().getDivAsString(), containsString("Johannes"));
+	}
+	
+	@Test
+	public void shouldNotGenerateNarrativeWhenSuppressed() {
+		NarrativeSuppressionContext.setSuppressed(true);
+		
+		Patient result = encode(createPatient("1", "Pieter"));
+		
+		assertThat(result.hasText(), is(false));
+	}
+	
+	private Patient encode(Patient patient) {
+		return parser.parseResource(Patient.class, parser.encodeResourceToString(patient));
+	}
+	
+	private static Patient createPatient(String versionId, String givenName) {
+		Patient patient = new Patient();
+		patient.setId(PATIENT_ID);
+		patient.getMeta().setVersionId(versionId);
+		patient.addName().addGiven(givenName).setFamily("van de Heuvel");
+		return patient;
+	}
+}
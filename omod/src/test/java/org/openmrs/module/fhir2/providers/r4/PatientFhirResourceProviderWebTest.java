@@ -24,6 +24,7 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -35,6 +36,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -51,6 +53,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.commons.lang3.time.DateUtils;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.InstantType;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.Before;
 import org.junit.Test;
@@ -775,6 +778,24 @@ public class PatientFhirResourceProviderWebTest extends BaseFhirR4ResourceProvid
 		verify(patientService).getPatientEverything();
 	}
 	
+	@Test
+	public void getPatientEverything_shouldHandleSince() throws Exception {
+		Patient patient = new Patient();
+		patient.setId(PATIENT_UUID);
+		
+		when(patientService.getPatientEverything(isNull(), any(Date.class)))
+		        .thenReturn(new MockIBundleProvider<>(Collections.singletonList(patient), 10, 1));
+		
+		MockHttpServletResponse response = get("/Patient/$everything?_since=2020-01-01T00:00:00Z").accept(FhirMediaTypes.JSON)
+		        .go();
+		
+		assertThat(response, isOk());
+		
+		ArgumentCaptor<Date> sinceCaptor = ArgumentCaptor.forClass(Date.class);
+		verify(patientService).getPatientEverything(isNull(), sinceCaptor.capture());
+		assertThat(sinceCaptor.getValue(), equalTo(new InstantType("2020-01-01T00:00:00Z").getValue()));
+	}
+	
 	private void verifyEverythingOperation(String uri) throws Exception {
 		Patient patient = new Patient();
 		patient.setId(PATIENT_UUID);
@@ -13,6 +13,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Field;
@@ -27,6 +29,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.openmrs.User;
+import org.openmrs.api.UserService;
 import org.openmrs.api.context.Authenticated;
 import org.openmrs.api.context.AuthenticationScheme;
 import org.openmrs.api.context.BasicAuthenticated;
@@ -36,6 +39,7 @@ import org.openmrs.api.context.Credentials;
 import org.openmrs.api.context.ServiceContext;
 import org.openmrs.api.context.UsernamePasswordCredentials;
 import org.openmrs.api.db.ContextDAO;
+import org.openmrs.util.OpenmrsConstants;
 import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -48,6 +52,12 @@ public class AuthenticationFilterTest {
 	
 	private static final String PASSWORD = "Admin123";
 	
+	private static final String CACHED_USERNAME = "integration";
+	
+	private static final Integer CACHED_USER_ID = 5;
+	
+	private static int authenticationCount = 0;
+	
 	private AuthenticationFilter authenticationFilter;
 	
 	private MockFilterChain filterChain;
@@ -58,6 +68,11 @@ public class AuthenticationFilterTest {
 	@Mock
 	private User user;
 	
+	@Mock
+	private UserService userService;
+	
+	private ServiceContext mockServiceContext;
+	
 	static class InMemoryAuthenticationScheme implements AuthenticationScheme {
 		
 		@Override
@@ -67,7 +82,10 @@ public class AuthenticationFilterTest {
 				        "The provided credentials could not be used to authenticated with the specified authentication scheme.");
 			} else {
 				UsernamePasswordCredentials userPassCreds = (UsernamePasswordCredentials) credentials;
-				if (userPassCreds.getUsername().equals(USERNAME) && userPassCreds.getPassword().equals(PASSWORD)) {
+				authenticationCount++;
+				if (userPassCreds.getUsername().equals(CACHED_USERNAME) && userPassCreds.getPassword().equals(PASSWORD)) {
+					return new BasicAuthenticated(createCachedUser(), "IN MEMORY AUTH SCHEME");
+				} else if (userPassCreds.getUsername().equals(USERNAME) && userPassCreds.getPassword().equals(PASSWORD)) {
 					User user = new User();
 					user.setUsername(userPassCreds.getUsername());
 					return new BasicAuthenticated(user, "IN MEMORY AUTH SCHEME");
@@ -82,7 +100,7 @@ public class AuthenticationFilterTest {
 	public void setup() throws NoSuchFieldException, IllegalAccessException {
 		Context.setDAO(contextDAO);
 		
-		ServiceContext mockServiceContext = mock(ServiceContext.class);
+		mockServiceContext = mock(ServiceContext.class);
 		Class<?> serviceContextHolderClass = ServiceContext.class.getDeclaredClasses()[0];
 		Field instanceField = serviceContextHolderClass.getDeclaredField("instance");
 		instanceField.setAccessible(true);
@@ -96,6 +114,9 @@ public class AuthenticationFilterTest {
 		
 		Context.openSession();
 		
+		AuthenticatedCredentialCache.invalidateAll();
+		authenticationCount = 0;
+		
 		authenticationFilter = new AuthenticationFilter();
 		filterChain = new MockFilterChain();
 	}
@@ -119,6 +140,84 @@ public class AuthenticationFilterTest {
 		assertThat(servletResponse.getStatus(), equalTo(200));
 	}
 	
+	@Test
+	public void shouldNotCheckPasswordAgainForRecentlyAuthenticatedCredentials() throws Exception {
+		when(mockServiceContext.getUserService()).thenReturn(userService);
+		when(userService.getUser(CACHED_USER_ID)).thenReturn(createCachedUser());
+		String authorization = "Basic "
+		        + Base64.getEncoder().encodeToString((CACHED_USERNAME + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+		
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		servletRequest.setRequestURI("/openmrs/ws/fhir2/Patient?_id=aa1c7cf0-6a54-4a06-9d77-b26107ad9144");
+		servletRequest.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		authenticationFilter.doFilter(servletRequest, new MockHttpServletResponse(), new MockFilterChain());
+		
+		// a new session for the next request, as for a stateless client
+		Context.closeSession();
+		Context.openSession();
+		
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+		servletRequest = new MockHttpServletRequest();
+		servletRequest.setRequestURI("/openmrs/ws/fhir2/Patient?_id=aa1c7cf0-6a54-4a06-9d77-b26107ad9144");
+		servletRequest.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		authenticationFilter.doFilter(servletRequest, servletResponse, filterChain);
+		
+		assertThat(servletResponse.getStatus(), equalTo(200));
+		assertThat(authenticationCount, equalTo(1));
+		assertThat(Context.getAuthenticatedUser().getUserId(), equalTo(CACHED_USER_ID));
+	}
+	
+	@Test
+	public void shouldCheckPasswordAgainAfterUserChanges() throws Exception {
+		String authorization = "Basic "
+		        + Base64.getEncoder().encodeToString((CACHED_USERNAME + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+		
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		servletRequest.setRequestURI("/openmrs/ws/fhir2/Patient?_id=aa1c7cf0-6a54-4a06-9d77-b26107ad9144");
+		servletRequest.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		authenticationFilter.doFilter(servletRequest, new MockHttpServletResponse(), new MockFilterChain());
+		
+		new UserChangeAdvice().afterReturning(null, UserService.class.getMethod("saveUser", User.class), null, null);
+		Context.closeSession();
+		Context.openSession();
+		
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+		servletRequest = new MockHttpServletRequest();
+		servletRequest.setRequestURI("/openmrs/ws/fhir2/Patient?_id=aa1c7cf0-6a54-4a06-9d77-b26107ad9144");
+		servletRequest.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		authenticationFilter.doFilter(servletRequest, servletResponse, filterChain);
+		
+		assertThat(servletResponse.getStatus(), equalTo(200));
+		assertThat(authenticationCount, equalTo(2));
+		verify(userService, never()).getUser(CACHED_USER_ID);
+	}
+	
+	@Test
+	public void shouldCheckPasswordAgainForLockedOutUser() throws Exception {
+		User lockedOutUser = createCachedUser();
+		lockedOutUser.setUserProperty(OpenmrsConstants.USER_PROPERTY_LOCKOUT_TIMESTAMP,
+		    String.valueOf(System.currentTimeMillis()));
+		when(mockServiceContext.getUserService()).thenReturn(userService);
+		when(userService.getUser(CACHED_USER_ID)).thenReturn(lockedOutUser);
+		String authorization = "Basic "
+		        + Base64.getEncoder().encodeToString((CACHED_USERNAME + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+		
+		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+		servletRequest.setRequestURI("/openmrs/ws/fhir2/Patient?_id=aa1c7cf0-6a54-4a06-9d77-b26107ad9144");
+		servletRequest.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		authenticationFilter.doFilter(servletRequest, new MockHttpServletResponse(), new MockFilterChain());
+		
+		Context.closeSession();
+		Context.openSession();
+		
+		servletRequest = new MockHttpServletRequest();
+		servletRequest.setRequestURI("/openmrs/ws/fhir2/Patient?_id=aa1c7cf0-6a54-4a06-9d77-b26107ad9144");
+		servletRequest.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		authenticationFilter.doFilter(servletRequest, new MockHttpServletResponse(), new MockFilterChain());
+		
+		assertThat(authenticationCount, equalTo(2));
+	}
+	
 	@Test
 	public void shouldReturn401WhenAuthenticationFails() throws Exception {
 		MockHttpServletRequest servletRequest = new MockHttpServletRequest();
@@ -156,4 +255,10 @@ public class AuthenticationFilterTest {
 		
 		assertThat(servletResponse.getStatus(), equalTo(200));
 	}
+	
+	private static User createCachedUser() {
+		User cachedUser = new User(CACHED_USER_ID);
+		cachedUser.setUsername(CACHED_USERNAME);
+		return cachedUser;
+	}
 }
@@ -0,0 +1,216 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ReferenceAndListParam;
+import ca.uhn.fhir.rest.param.ReferenceOrListParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.hl7.fhir.r4.model.Observation;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.Obs;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.search.SearchQueryBundleProvider;
+import org.openmrs.module.fhir2.api.search.param.SearchParameterMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FileBackedPagingProviderTest {
+	
+	private static final String SEARCH_ID = "0b4c1d8f-0d4a-4bd5-9a60-1a2c3f2bd6b1";
+	
+	private static final String OTHER_SEARCH_ID = "5a0f8c3e-67a5-4f1b-9d56-4c2f0e1b7a90";
+	
+	private static final String THIRD_SEARCH_ID = "c2d6e9a1-3b7f-4e25-8a0d-9f1e6b3c5d47";
+	
+	private static final String PATIENT_UUID = "a7e04421-525f-442f-8138-05b619d16def";
+	
+	private static final long TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+	
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+	
+	@Mock
+	private IBundleProvider nonSerializableBundleProvider;
+	
+	private File directory;
+	
+	private FileBackedPagingProvider pagingProvider;
+	
+	@Before
+	public void setup() throws Exception {
+		directory = temporaryFolder.newFolder("paging");
+		pagingProvider = new FileBackedPagingProvider(directory, 10, 2, TIME_TO_LIVE);
+	}
+	
+	@Test
+	public void shouldResumeSearchOnAnotherServer() {
+		IBundleProvider search = newSearch();
+		String searchId = search.getUuid();
+		assertThat(pagingProvider.storeResultList(null, search), equalTo(searchId));
+		
+		FileBackedPagingProvider otherPagingProvider = new FileBackedPagingProvider(directory, 10, 2, TIME_TO_LIVE);
+		IBundleProvider result = otherPagingProvider.retrieveResultList(null, searchId);
+		
+		assertThat(result, instanceOf(SearchQueryBundleProvider.class));
+		assertThat(result.getUuid(), equalTo(searchId));
+		assertThat(otherPagingProvider.retrieveResultList(null, searchId), sameInstance(result));
+	}
+	
+	@Test
+	public void shouldNotReadClassesThatAreNotPartOfASearch() {
+		pagingProvider.storeResultList(null, new StoredBundleProvider(SEARCH_ID));
+		File file = new File(directory, SEARCH_ID + ".search");
+		assertThat(file.exists(), is(true));
+		
+		assertThat(new FileBackedPagingProvider(directory, 10, 2, TIME_TO_LIVE).retrieveResultList(null, SEARCH_ID),
+		    nullValue());
+		assertThat(file.exists(), is(false));
+	}
+	
+	@Test
+	public void shouldKeepBundleProvidersThatCannotBeSerializedInMemory() {
+		when(nonSerializableBundleProvider.getUuid()).thenReturn(SEARCH_ID);
+		pagingProvider.storeResultList(null, nonSerializableBundleProvider);
+		
+		assertThat(pagingProvider.retrieveResultList(null, SEARCH_ID), sameInstance(nonSerializableBundleProvider));
+		assertThat(new File(directory, SEARCH_ID + ".search").exists(), is(false));
+		assertThat(new FileBackedPagingProvider(directory, 10, 2, TIME_TO_LIVE).retrieveResultList(null, SEARCH_ID),
+		    nullValue());
+	}
+	
+	@Test
+	public void shouldNotReturnExpiredSearches() {
+		IBundleProvider search = newSearch();
+		pagingProvider.storeResultList(null, search);
+		File file = new File(directory, search.getUuid() + ".search");
+		assertThat(file.setLastModified(System.currentTimeMillis() - 2 * TIME_TO_LIVE), is(true));
+		
+		assertThat(
+		    new FileBackedPagingProvider(directory, 10, 2, TIME_TO_LIVE).retrieveResultList(null, search.getUuid()),
+		    nullValue());
+		assertThat(file.exists(), is(false));
+	}
+	
+	@Test
+	public void shouldRemoveLeastRecentlyUsedSearchesOverMaximum() {
+		long now = System.currentTimeMillis();
+		pagingProvider.storeResultList(null, new StoredBundleProvider(SEARCH_ID));
+		pagingProvider.storeResultList(null, new StoredBundleProvider(OTHER_SEARCH_ID));
+		pagingProvider.storeResultList(null, new StoredBundleProvider(THIRD_SEARCH_ID));
+		
+		assertThat(new File(directory, SEARCH_ID + ".search").setLastModified(now - 3000), is(true));
+		assertThat(new File(directory, OTHER_SEARCH_ID + ".search").setLastModified(now - 1000), is(true));
+		assertThat(new File(directory, THIRD_SEARCH_ID + ".search").setLastModified(now - 2000), is(true));
+		
+		pagingProvider.purge(now);
+		
+		assertThat(new File(directory, SEARCH_ID + ".search").exists(), is(false));
+		assertThat(new File(directory, OTHER_SEARCH_ID + ".search").exists(), is(true));
+		assertThat(new File(directory, THIRD_SEARCH_ID + ".search").exists(), is(true));
+	}
+	
+	@Test
+	public void shouldIgnoreSearchIdsThatAreNotFileNames() {
+		assertThat(pagingProvider.retrieveResultList(null, "../" + SEARCH_ID), nullValue());
+	}
+	
+	@Test
+	public void shouldDiscardUnreadableSearches() throws Exception {
+		File file = new File(directory, SEARCH_ID + ".search");
+		assertThat(file.createNewFile(), is(true));
+		
+		assertThat(pagingProvider.retrieveResultList(null, SEARCH_ID), nullValue());
+		assertThat(file.exists(), is(false));
+	}
+	
+	@Test
+	public void shouldStoreSearchWithGeneratedIdWhenBundleProviderHasNoUuid() {
+		String searchId = pagingProvider.storeResultList(null, new StoredBundleProvider(null));
+		
+		assertThat(searchId, notNullValue());
+		assertThat(new File(directory, searchId + ".search").exists(), is(true));
+	}
+	
+	private static IBundleProvider newSearch() {
+		SearchParameterMap theParams = new SearchParameterMap()
+		        .addParameter(FhirConstants.PATIENT_REFERENCE_SEARCH_HANDLER,
+		            new ReferenceAndListParam()
+		                    .addAnd(new ReferenceOrListParam().add(new ReferenceParam("Patient", null, PATIENT_UUID))))
+		        .addParameter(FhirConstants.DATE_RANGE_SEARCH_HANDLER, "obsDatetime",
+		            new DateRangeParam(new DateParam("ge2020-01-01")))
+		        .setSortSpec(new SortSpec("date", SortOrderEnum.DESC));
+		
+		return new SearchQueryBundleProvider<Obs, Observation>(theParams, null, null, null, null);
+	}
+	
+	private static class StoredBundleProvider implements IBundleProvider, Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String uuid;
+		
+		StoredBundleProvider(String uuid) {
+			this.uuid = uuid;
+		}
+		
+		@Override
+		public IPrimitiveType<Date> getPublished() {
+			return null;
+		}
+		
+		@Override
+		public List<IBaseResource> getResources(int fromIndex, int toIndex) {
+			return Collections.emptyList();
+		}
+		
+		@Override
+		public String getUuid() {
+			return uuid;
+		}
+		
+		@Override
+		public Integer preferredPageSize() {
+			return null;
+		}
+		
+		@Override
+		public Integer size() {
+			return 0;
+		}
+	}
+}
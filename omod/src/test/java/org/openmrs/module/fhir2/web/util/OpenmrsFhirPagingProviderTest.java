@@ -0,0 +1,86 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.when;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.module.fhir2.api.search.NamedPageBundleProvider;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OpenmrsFhirPagingProviderTest {
+	
+	private static final String SEARCH_ID = "0b4c1d8f-0d4a-4bd5-9a60-1a2c3f2bd6b1";
+	
+	private static final String PAGE_ID = "MX4xMA";
+	
+	@Mock
+	private NamedPageBundleProvider bundleProvider;
+	
+	@Mock
+	private IBundleProvider pageBundleProvider;
+	
+	private OpenmrsFhirPagingProvider pagingProvider;
+	
+	@Before
+	public void setup() {
+		pagingProvider = new OpenmrsFhirPagingProvider(2);
+	}
+	
+	@Test
+	public void shouldStoreResultsUnderBundleProviderUuid() {
+		when(bundleProvider.getUuid()).thenReturn(SEARCH_ID);
+		
+		assertThat(pagingProvider.storeResultList(null, bundleProvider), equalTo(SEARCH_ID));
+		assertThat(pagingProvider.retrieveResultList(null, SEARCH_ID), sameInstance(bundleProvider));
+	}
+	
+	@Test
+	public void shouldGenerateIdForBundleProviderWithoutUuid() {
+		String searchId = pagingProvider.storeResultList(null, pageBundleProvider);
+		
+		assertThat(searchId, notNullValue());
+		assertThat(pagingProvider.retrieveResultList(null, searchId), sameInstance(pageBundleProvider));
+	}
+	
+	@Test
+	public void shouldRetrieveNamedPage() {
+		when(bundleProvider.getUuid()).thenReturn(SEARCH_ID);
+		when(bundleProvider.getPage(PAGE_ID)).thenReturn(pageBundleProvider);
+		pagingProvider.storeResultList(null, bundleProvider);
+		
+		assertThat(pagingProvider.retrieveResultList(null, SEARCH_ID, PAGE_ID), sameInstance(pageBundleProvider));
+	}
+	
+	@Test
+	public void shouldReturnNullForNamedPageOfUnknownSearch() {
+		assertThat(pagingProvider.retrieveResultList(null, SEARCH_ID, PAGE_ID), nullValue());
+	}
+	
+	@Test
+	public void shouldEvictOldestResults() {
+		when(bundleProvider.getUuid()).thenReturn(SEARCH_ID);
+		pagingProvider.storeResultList(null, bundleProvider);
+		pagingProvider.storeResultList(null, pageBundleProvider);
+		pagingProvider.storeResultList(null, pageBundleProvider);
+		
+		assertThat(pagingProvider.retrieveResultList(null, SEARCH_ID), nullValue());
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.fhir2.web.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.ServletException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import ca.uhn.fhir.rest.server.SimpleBundleProvider;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.openmrs.GlobalProperty;
+import org.openmrs.module.fhir2.FhirConstants;
+import org.openmrs.module.fhir2.api.FhirPatientService;
+import org.openmrs.module.fhir2.api.util.FhirGlobalPropertyHolder;
+import org.openmrs.module.fhir2.providers.r4.BaseFhirR4ResourceProviderWebTest;
+import org.openmrs.module.fhir2.providers.r4.PatientFhirResourceProvider;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StreamingSearchMethodBindingTest extends BaseFhirR4ResourceProviderWebTest<PatientFhirResourceProvider, Patient> {
+	
+	private static final String OBSERVATION_UUID = "39fb7f47-e80a-4056-9285-bd798be13c63";
+	
+	@Getter(AccessLevel.PUBLIC)
+	private PatientFhirResourceProvider resourceProvider;
+	
+	@Mock
+	private FhirPatientService patientService;
+	
+	@Before
+	public void setup() throws ServletException {
+		resourceProvider = new PatientFhirResourceProvider();
+		resourceProvider.setPatientService(patientService);
+		super.setup();
+	}
+	
+	@After
+	public void resetGlobalProperties() {
+		FhirGlobalPropertyHolder.reset();
+	}
+	
+	@Test
+	public void shouldStreamSearchResultsAsJson() throws Exception {
+		when(patientService.searchForPatients(any())).thenReturn(new SimpleBundleProvider(createPatients(120)));
+		Bundle expected = search(FhirMediaTypes.JSON);
+		
+		setStreamingThreshold(20);
+		Bundle result = search(FhirMediaTypes.JSON);
+		
+		assertSameBundle(result, expected);
+	}
+	
+	@Test
+	public void shouldStreamSearchResultsAsXml() throws Exception {
+		when(patientService.searchForPatients(any())).thenReturn(new SimpleBundleProvider(createPatients(120)));
+		Bundle expected = search(FhirMediaTypes.XML);
+		
+		setStreamingThreshold(20);
+		Bundle result = search(FhirMediaTypes.XML);
+		
+		assertSameBundle(result, expected);
+	}
+	
+	@Test
+	public void shouldStreamEmptySearchResults() throws Exception {
+		when(patientService.searchForPatients(any())).thenReturn(new SimpleBundleProvider(new ArrayList<>()));
+		
+		setStreamingThreshold(20);
+		Bundle result = search(FhirMediaTypes.JSON);
+		
+		assertThat(result.getTotal(), equalTo(0));
+		assertThat(result.getEntry(), hasSize(0));
+		assertThat(result.getLink("next"), nullValue());
+	}
+	
+	@Test
+	public void shouldWriteResourcesIncludedByDifferentChunksOnce() throws Exception {
+		Observation observation = new Observation();
+		observation.setId(OBSERVATION_UUID);
+		when(patientService.searchForPatients(any())).thenReturn(new SimpleBundleProvider(createPatients(120)) {
+			
+			@Override
+			public List<IBaseResource> getResources(int fromIndex, int toIndex) {
+				List<IBaseResource> resources = new ArrayList<>(super.getResources(fromIndex, toIndex));
+				resources.add(observation);
+				return resources;
+			}
+		});
+		
+		setStreamingThreshold(20);
+		Bundle result = search(FhirMediaTypes.JSON);
+		
+		assertThat(result.getEntry(), hasSize(101));
+		assertThat(result.getEntry().stream().filter(entry -> entry.getResource() instanceof Observation)
+		        .collect(Collectors.toList()), hasSize(1));
+	}
+	
+	private Bundle search(MediaType mediaType) throws Exception {
+		MockHttpServletResponse response = get("/Patient?_count=100").accept(mediaType).go();
+		
+		assertThat(response, isOk());
+		assertThat(response.getContentType(), startsWith(mediaType.toString()));
+		
+		if (FhirMediaTypes.XML.equals(mediaType)) {
+			return getFhirContext().newXmlParser().parseResource(Bundle.class, response.getContentAsString());
+		}
+		
+		return readBundleResponse(response);
+	}
+	
+	private static void assertSameBundle(Bundle result, Bundle expected) {
+		assertThat(result.getType(), equalTo(expected.getType()));
+		assertThat(result.getTotal(), equalTo(expected.getTotal()));
+		assertThat(result.getLink("self").getUrl(), equalTo(expected.getLink("self").getUrl()));
+		assertThat(result.getLink("next"), notNullValue());
+		assertThat(result.getEntry(), hasSize(expected.getEntry().size()));
+		for (int i = 0; i < expected.getEntry().size(); i++) {
+			assertThat(result.getEntry().get(i).getFullUrl(), equalTo(expected.getEntry().get(i).getFullUrl()));
+			assertThat(result.getEntry().get(i).getResource().equalsDeep(expected.getEntry().get(i).getResource()),
+			    equalTo(true));
+		}
+	}
+	
+	private static void setStreamingThreshold(int threshold) {
+		new FhirGlobalPropertyHolder().globalPropertyChanged(
+		    new GlobalProperty(FhirConstants.OPENMRS_FHIR_STREAMING_SEARCH_THRESHOLD, String.valueOf(threshold)));
+	}
+	
+	private static List<Patient> createPatients(int count) {
+		List<Patient> patients = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Patient patient = new Patient();
+			patient.setId(String.format("%08d-0000-4000-8000-000000000000", i));
+			patient.addName().setFamily("Doe " + i);
+			patients.add(patient);
+		}
+		
+		return patients;
+	}
+}